@@ -35,6 +35,13 @@ public class CalibrationConfig {
 	private int targetEvaluations = 10000;
 	private int calibrationAgents = USE_BASE_VALUE;
 	
+	//Multi-fidelity schedule (a single level disables it)
+	private int fidelityLevels = 1;
+	private double fidelityReduction = 3.0;
+	
+	//Trajectory pruning margin (zero disables it)
+	private double pruningMargin = 0.0;
+	
 	private double holdOut = FitnessFunction.NO_HOLD_OUT;	
 	
 	//KPI weights
@@ -244,6 +251,30 @@ public class CalibrationConfig {
 		this.calibrationAgents = calibrationAgents;
 	}
 
+	public int getFidelityLevels() {
+		return fidelityLevels;
+	}
+
+	public void setFidelityLevels(int fidelityLevels) {
+		this.fidelityLevels = fidelityLevels;
+	}
+
+	public double getFidelityReduction() {
+		return fidelityReduction;
+	}
+
+	public void setFidelityReduction(double fidelityReduction) {
+		this.fidelityReduction = fidelityReduction;
+	}
+
+	public double getPruningMargin() {
+		return pruningMargin;
+	}
+
+	public void setPruningMargin(double pruningMargin) {
+		this.pruningMargin = pruningMargin;
+	}
+
 	public double getHoldOut() {
 		return holdOut;
 	}
@@ -0,0 +1,99 @@
+package es.ugr.sci2s.soccer.beans;
+
+public class CampaignConfig {
+
+	public final static int USE_DEFAULT_VALUE = 0;
+
+	//Calibration configuration files (JSON)
+	private String[] instances;
+
+	//Algorithm configuration files (ECJ)
+	private String[] algorithms;
+
+	//Repetitions of every pair, seeded with consecutive prime seeds
+	private int repeat = 1;
+	private int start = 0;
+
+	private int evaluations = -1;
+	private boolean realCoding = false;
+
+	private String outputFolder = "campaign";
+
+	//Calibrations running at the same time
+	private int parallelRuns = USE_DEFAULT_VALUE;
+
+	//Threads shared by the simulations of every calibration
+	private int simulationThreads = USE_DEFAULT_VALUE;
+
+	public String[] getInstances() {
+		return instances;
+	}
+
+	public void setInstances(String[] instances) {
+		this.instances = instances;
+	}
+
+	public String[] getAlgorithms() {
+		return algorithms;
+	}
+
+	public void setAlgorithms(String[] algorithms) {
+		this.algorithms = algorithms;
+	}
+
+	public int getRepeat() {
+		return repeat;
+	}
+
+	public void setRepeat(int repeat) {
+		this.repeat = repeat;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public void setStart(int start) {
+		this.start = start;
+	}
+
+	public int getEvaluations() {
+		return evaluations;
+	}
+
+	public void setEvaluations(int evaluations) {
+		this.evaluations = evaluations;
+	}
+
+	public boolean isRealCoding() {
+		return realCoding;
+	}
+
+	public void setRealCoding(boolean realCoding) {
+		this.realCoding = realCoding;
+	}
+
+	public String getOutputFolder() {
+		return outputFolder;
+	}
+
+	public void setOutputFolder(String outputFolder) {
+		this.outputFolder = outputFolder;
+	}
+
+	public int getParallelRuns() {
+		return parallelRuns;
+	}
+
+	public void setParallelRuns(int parallelRuns) {
+		this.parallelRuns = parallelRuns;
+	}
+
+	public int getSimulationThreads() {
+		return simulationThreads;
+	}
+
+	public void setSimulationThreads(int simulationThreads) {
+		this.simulationThreads = simulationThreads;
+	}
+}
@@ -109,6 +109,39 @@ public class ResultContainer {
 	public boolean isEvaluation() {
 		return isEvaluation;
 	}
+	
+	/**
+	 * Estimates the memory used by the stored results.
+	 * @return the estimated size in bytes.
+	 */
+	public long estimateSize() {
+		long size = 0;
+		if(simpleResult != null) {
+			size += simpleResult.estimateSize();
+		}
+		if(comparisonResult != null) {
+			for (SimulationResult result : comparisonResult) {
+				if(result != null) {
+					size += result.estimateSize();
+				}
+			}
+		}
+		if(saResult != null) {
+			for (SimulationResult[] results : saResult) {
+				if(results != null) {
+					for (SimulationResult result : results) {
+						if(result != null) {
+							size += result.estimateSize();
+						}
+					}
+				}
+			}
+		}
+		if(evaluationResult != null && evaluationResult.getResult() != null) {
+			size += evaluationResult.getResult().estimateSize();
+		}
+		return size;
+	}
 
 	@Override
 	public int hashCode() {
@@ -2,6 +2,8 @@ package es.ugr.sci2s.soccer.beans;
 
 import java.util.Arrays;
 
+import es.ugr.sci2s.soccer.beans.SimulationResultWriter.NumberEncoding;
+
 import model.ModelDefinition;
 import model.socialnetwork.SocialNetwork.NetworkType;
 import model.touchpoints.TouchPointOwned;
@@ -102,8 +104,20 @@ public class SimulationConfig {
 	//Communication settings
 	private String responseURL;
 	
+	//Encoding of the numbers of the response
+	private NumberEncoding responseEncoding = NumberEncoding.PLAIN;
+	
+	//Decimals of the numbers of the response (FIXED encoding)
+	private int responseDecimals = SimulationResultWriter.DEFAULT_DECIMALS;
+	
 	private boolean simple;
 	
+	private boolean compactAgents;
+	
+	private boolean parallelScheduling;
+	
+	private boolean batchedSales;
+	
 	public ModelDefinition getModelDefinition() {
 		ModelDefinition md = new ModelDefinition();
 		
@@ -190,6 +204,9 @@ public class SimulationConfig {
 		md.setOnlineDiscussionHeatImpact(onlineDiscussionHeatImpact);
 		
 		md.setSimple(simple);
+		md.setCompactAgents(compactAgents);
+		md.setParallelScheduling(parallelScheduling);
+		md.setBatchedSales(batchedSales);
 		
 		return md;
 	}
@@ -874,6 +891,28 @@ public class SimulationConfig {
 	public void setResponseURL(String responseURL) {
 		this.responseURL = responseURL;
 	}
+	public NumberEncoding getResponseEncoding() {
+		return responseEncoding;
+	}
+	public void setResponseEncoding(NumberEncoding responseEncoding) {
+		this.responseEncoding = responseEncoding;
+	}
+	public int getResponseDecimals() {
+		return responseDecimals;
+	}
+	public void setResponseDecimals(int responseDecimals) {
+		this.responseDecimals = responseDecimals;
+	}
+	
+	/**
+	 * Returns a writer of the results of this simulation, writing only the
+	 * recorded KPIs with the requested encoding.
+	 * @return the writer of the results.
+	 */
+	public SimulationResultWriter getResultWriter() {
+		return new SimulationResultWriter(getStatisticRecordingConfiguration(), 
+				responseEncoding, responseDecimals);
+	}
 
 	public boolean isExportTPReach() {
 		return exportTPReach;
@@ -891,6 +930,30 @@ public class SimulationConfig {
 		this.simple = simple;
 	}
 
+	public boolean isCompactAgents() {
+		return compactAgents;
+	}
+
+	public void setCompactAgents(boolean compactAgents) {
+		this.compactAgents = compactAgents;
+	}
+
+	public boolean isParallelScheduling() {
+		return parallelScheduling;
+	}
+
+	public void setParallelScheduling(boolean parallelScheduling) {
+		this.parallelScheduling = parallelScheduling;
+	}
+
+	public boolean isBatchedSales() {
+		return batchedSales;
+	}
+
+	public void setBatchedSales(boolean batchedSales) {
+		this.batchedSales = batchedSales;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -940,6 +1003,8 @@ public class SimulationConfig {
 		result = prime * result + Arrays.hashCode(onlineReadingProbabilities);
 		result = prime * result + populationSize;
 		result = prime * result + ((responseURL == null) ? 0 : responseURL.hashCode());
+		result = prime * result + ((responseEncoding == null) ? 0 : responseEncoding.hashCode());
+		result = prime * result + responseDecimals;
 		result = prime * result + Arrays.hashCode(seasonality);
 		result = prime * result + Arrays.hashCode(segmentSizes);
 		result = prime * result + ((statPeriod == null) ? 0 : statPeriod.hashCode());
@@ -1072,6 +1137,10 @@ public class SimulationConfig {
 				return false;
 		} else if (!responseURL.equals(other.responseURL))
 			return false;
+		if (responseEncoding != other.responseEncoding)
+			return false;
+		if (responseDecimals != other.responseDecimals)
+			return false;
 		if (!Arrays.equals(seasonality, other.seasonality))
 			return false;
 		if (!Arrays.equals(segmentSizes, other.segmentSizes))
@@ -1,5 +1,6 @@
 package es.ugr.sci2s.soccer.beans;
 
+import java.lang.reflect.Field;
 import java.util.Arrays;
 
 import org.apache.commons.lang3.math.NumberUtils;
@@ -559,6 +560,36 @@ public class SimulationResult {
 	public String getErrorMessage() {
 		return errorMessage;
 	}
+	
+	/**
+	 * Estimates the memory used by the values of the result.
+	 * @return the estimated size in bytes.
+	 */
+	public long estimateSize() {
+		long size = 0;
+		for (Field field : SimulationResult.class.getFields()) {
+			try {
+				size += estimateArraySize(field.get(this));
+			} catch (IllegalAccessException e) {
+				//Public fields are always accessible
+			}
+		}
+		return size;
+	}
+	
+	private static long estimateArraySize(Object value) {
+		if(value instanceof double[]) {
+			return 16 + 8L * ((double[]) value).length;
+		} else if(value instanceof Object[]) {
+			Object[] values = (Object[]) value;
+			long size = 16 + 8L * values.length;
+			for (Object v : values) {
+				size += estimateArraySize(v);
+			}
+			return size;
+		}
+		return 0;
+	}
 
 	public void setErrorMessage(String errorMessage) {
 		this.errorMessage = errorMessage;
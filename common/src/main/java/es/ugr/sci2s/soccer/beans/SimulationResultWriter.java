@@ -0,0 +1,230 @@
+package es.ugr.sci2s.soccer.beans;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.google.gson.stream.JsonWriter;
+
+import util.io.StatisticsRecordingBean;
+
+/**
+ * SimulationResultWriter streams simulation results as JSON, writing every
+ * value directly to the output instead of building the whole document in
+ * memory. Results are written with the same fields Gson writes, so
+ * responses are read back as SimulationResult objects.
+ *
+ * Optionally, only the KPIs enabled by a StatisticsRecordingBean are
+ * written, and numbers are rounded to a fixed number of decimals or
+ * written as base64 strings of little-endian 32 bits floats, replacing
+ * every innermost array of numbers.
+ *
+ * @author imoya
+ *
+ */
+public class SimulationResultWriter {
+
+	public enum NumberEncoding {PLAIN, FIXED, BASE64_FLOAT};
+
+	public static final int DEFAULT_DECIMALS = 4;
+
+	/**
+	 * Fields written by Gson, in declaration order.
+	 */
+	private static final Field[] FIELDS;
+
+	static {
+		List<Field> fields = new ArrayList<Field>();
+		for (Field field : SimulationResult.class.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)
+					&& !field.isSynthetic()) {
+				field.setAccessible(true);
+				fields.add(field);
+			}
+		}
+		FIELDS = fields.toArray(new Field[fields.size()]);
+	}
+
+	private final StatisticsRecordingBean recordingBean;
+	private final NumberEncoding encoding;
+	private final double scale;
+
+	/**
+	 * Creates a writer of every field, with plain numbers.
+	 */
+	public SimulationResultWriter() {
+		this(null, NumberEncoding.PLAIN, DEFAULT_DECIMALS);
+	}
+
+	/**
+	 * Creates a writer.
+	 * @param recordingBean - KPIs written, or null for writing every field.
+	 * @param encoding - encoding of the numbers.
+	 * @param decimals - decimals kept by the FIXED encoding.
+	 */
+	public SimulationResultWriter(StatisticsRecordingBean recordingBean,
+			NumberEncoding encoding, int decimals) {
+		this.recordingBean = recordingBean;
+		this.encoding = encoding != null ? encoding : NumberEncoding.PLAIN;
+		this.scale = Math.pow(10, decimals);
+	}
+
+	/**
+	 * Writes a result, or an array of results of any dimension, as UTF-8
+	 * JSON. The stream is flushed but not closed.
+	 * @param results - SimulationResult, SimulationResult[] or
+	 * SimulationResult[][].
+	 * @param out - output stream.
+	 * @throws IOException if the stream cannot be written.
+	 */
+	public void write(Object results, OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		JsonWriter jsonWriter = new JsonWriter(writer);
+		//Gson escapes HTML characters by default
+		jsonWriter.setHtmlSafe(true);
+		write(results, jsonWriter);
+		jsonWriter.flush();
+	}
+
+	/**
+	 * Writes a result, or an array of results of any dimension.
+	 * @param results - SimulationResult, SimulationResult[] or
+	 * SimulationResult[][].
+	 * @param writer - JSON writer.
+	 * @throws IOException if the writer fails.
+	 */
+	public void write(Object results, JsonWriter writer) throws IOException {
+		if(results == null) {
+			writer.nullValue();
+		} else if(results instanceof SimulationResult) {
+			writeResult((SimulationResult) results, writer);
+		} else if(results instanceof Object[]) {
+			writer.beginArray();
+			for (Object element : (Object[]) results) {
+				write(element, writer);
+			}
+			writer.endArray();
+		} else {
+			throw new IllegalArgumentException(
+				"Unsupported result type: " + results.getClass());
+		}
+	}
+
+	private void writeResult(SimulationResult result, JsonWriter writer)
+			throws IOException {
+		writer.beginObject();
+		for (Field field : FIELDS) {
+			if(!isSelected(field.getName())) {
+				continue;
+			}
+			Object value;
+			try {
+				value = field.get(result);
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+			//Gson skips null fields
+			if(value != null) {
+				writer.name(field.getName());
+				writeValue(value, writer);
+			}
+		}
+		writer.endObject();
+	}
+
+	/**
+	 * Returns true if the field belongs to a KPI enabled by the recording
+	 * bean. Fields not related to any KPI are always written.
+	 */
+	private boolean isSelected(String name) {
+		if(recordingBean == null) {
+			return true;
+		} else if(name.startsWith("sales")) {
+			return recordingBean.exportSales;
+		} else if(name.startsWith("perceptions")) {
+			return recordingBean.exportPerceptions;
+		} else if(name.startsWith("awareness")) {
+			return recordingBean.exportAwareness;
+		} else if(name.startsWith("womVolume")) {
+			return recordingBean.exportWomVolumen;
+		} else if(name.startsWith("womReach")) {
+			return recordingBean.exportWomReach;
+		} else if(name.startsWith("womSentiment")) {
+			return recordingBean.exportWomSentiment;
+		} else if(name.startsWith("womContribution")) {
+			return recordingBean.exportWomContributions;
+		} else if(name.startsWith("contributionByTouchpoint")) {
+			return recordingBean.exportTouchPointContributions;
+		} else if(name.startsWith("reachByTouchpoint")) {
+			return recordingBean.exportReach;
+		}
+		return true;
+	}
+
+	private void writeValue(Object value, JsonWriter writer) throws IOException {
+		if(value == null) {
+			writer.nullValue();
+		} else if(value instanceof double[]) {
+			writeNumbers((double[]) value, writer);
+		} else if(value instanceof Object[]) {
+			writer.beginArray();
+			for (Object element : (Object[]) value) {
+				writeValue(element, writer);
+			}
+			writer.endArray();
+		} else {
+			writer.value(value.toString());
+		}
+	}
+
+	private void writeNumbers(double[] values, JsonWriter writer)
+			throws IOException {
+		switch (encoding) {
+		case BASE64_FLOAT:
+			ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			for (double value : values) {
+				buffer.putFloat((float) value);
+			}
+			writer.value(Base64.getEncoder().encodeToString(buffer.array()));
+			break;
+		case FIXED:
+			writer.beginArray();
+			for (double value : values) {
+				writer.value(round(value));
+			}
+			writer.endArray();
+			break;
+		default:
+			writer.beginArray();
+			for (double value : values) {
+				writer.value(value);
+			}
+			writer.endArray();
+			break;
+		}
+	}
+
+	/**
+	 * Rounds the value to the decimals of the writer. Dividing the rounded
+	 * integer keeps the shortest representation of the decimal value.
+	 */
+	private double round(double value) {
+		double scaled = value * scale;
+		if(Double.isNaN(scaled) || Double.isInfinite(scaled)
+				|| Math.abs(scaled) >= Long.MAX_VALUE) {
+			return value;
+		}
+		return Math.round(scaled) / scale;
+	}
+}
@@ -8,6 +8,7 @@ import es.ugr.sci2s.soccer.beans.CalibrationConfig;
 import es.ugr.sci2s.soccer.beans.CalibrationResponse;
 import es.ugr.sci2s.soccer.workers.ExperimentWorker;
 
+import calibration.design.DesignSampler.SamplerType;
 import calibration.fitness.FitnessFunction;
 import util.io.CSVFileUtils;
 
@@ -41,6 +42,12 @@ public class ExecuteCalibration {
 		public final static String ALTERNATE = "--alternate";
 		public boolean alternate=false;
 		
+		//Design of experiments (random evaluations)
+		public final static String DESIGN = "--design";
+		public SamplerType design = SamplerType.RANDOM;
+		public final static String THREADS = "--threads";
+		public int threads = Runtime.getRuntime().availableProcessors();
+		
 		private static int parseIntOption(String args) {
 			String[] splitted = args.split("=");
 			if (splitted.length == 2) {
@@ -92,6 +99,11 @@ public class ExecuteCalibration {
 					customOptions.holdOut = parseDoubleOption(args[i]);
 				} else if (args[i].contains(Options.ALTERNATE)) {
 					customOptions.alternate = true;
+				} else if (args[i].contains(Options.DESIGN)) {
+					customOptions.design = SamplerType.valueOf(
+							parseStringOption(args[i]).toUpperCase());
+				} else if (args[i].contains(Options.THREADS)) {
+					customOptions.threads = parseIntOption(args[i]);
 				}
 			}
 
@@ -0,0 +1,39 @@
+package es.ugr.sci2s.soccer.util;
+
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import es.ugr.sci2s.soccer.beans.CampaignConfig;
+import es.ugr.sci2s.soccer.workers.CampaignWorker;
+
+import util.io.CSVFileUtils;
+
+public class ExecuteCampaign {
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.out.println(
+					"Usage: campaign_json\n"
+					+ "Runs every calibration of the campaign (instances x algorithms x "
+					+ "repetitions). Interrupted campaigns are resumed when run again.");
+			System.exit(1);
+		}
+
+		try {
+			String config = CSVFileUtils.readFile(args[0]);
+
+			Gson gson = new Gson();
+
+			// Read campaign from JSON
+			CampaignConfig campaignConfig = gson.fromJson(config,
+					CampaignConfig.class);
+
+			CampaignWorker worker = new CampaignWorker(campaignConfig);
+
+			worker.run();
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
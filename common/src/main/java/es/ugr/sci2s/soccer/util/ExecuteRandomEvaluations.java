@@ -9,23 +9,20 @@ import es.ugr.sci2s.soccer.beans.CalibrationResponse;
 import es.ugr.sci2s.soccer.beans.SimulationConfig;
 
 import calibration.CalibrationParametersManager;
+import calibration.design.DesignEvaluation;
+import calibration.design.DesignSampler;
 import calibration.fitness.history.HistoryManager;
 import calibration.fitness.history.ScoreBean.ScoreWrapper;
 import model.ModelDefinition;
-import model.ModelManager;
-import model.ModelRunner;
 import util.StringBean;
 import util.exception.calibration.CalibrationException;
-import util.functions.ArrayFunctions;
 import util.io.CSVFileUtils;
-import util.random.Randomizer;
-import util.random.RandomizerFactory;
-import util.random.RandomizerFactory.RandomizerAlgorithm;
 import util.random.RandomizerUtils;
-import util.statistics.MonteCarloStatistics;
 
 public class ExecuteRandomEvaluations {
 
+	public static final int DEFAULT_EVALUATIONS = 10000;
+
 	public static void main(String[] args) throws IOException, CalibrationException {
 		String config = CSVFileUtils.readFile(args[0]);
 
@@ -61,44 +58,38 @@ public class ExecuteRandomEvaluations {
 		CalibrationParametersManager paramManager = 
 				new CalibrationParametersManager(parameters, md, customOptions.realCoding);
 		HistoryManager manager = calibrationConfig.getHistoryManager();
-		ModelManager modelManager = new ModelManager(md, paramManager.getInvolvedDrivers());
-		
-		paramManager.setModelManager(modelManager);
 		
 		int numParams = calibrationConfig.getCalibrationModelParameters().length;
 
+		int evaluations = customOptions.evaluations > 0 ? 
+				customOptions.evaluations : DEFAULT_EVALUATIONS;
+
 		for (int run = customOptions.repeatedIterationsStart; run < customOptions.repeatedIterations
 				+ customOptions.repeatedIterationsStart; run++) {
 
-			Randomizer random = RandomizerFactory.createRandomizer(
-					RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST,
-					RandomizerUtils.PRIME_SEEDS[run]);
-
-			double best = Double.MAX_VALUE;
-			double[] bestIndividual = null;
+			DesignSampler sampler = DesignSampler.create(customOptions.design, 
+					numParams, evaluations, RandomizerUtils.PRIME_SEEDS[run], run);
+			
+			DesignEvaluation design = new DesignEvaluation(md, paramManager, 
+					manager, mcIterations, customOptions.realCoding);
 			
-			int iteration = 0;
-			while (iteration < 10000) {
-
-				double[] individual = getNewInd(random, numParams,customOptions.realCoding);
-				ScoreWrapper score = evaluate(individual, modelManager, 
-						paramManager, md, mcIterations, manager);
-				
-				if(score.finalScore<best) {
-					best = score.finalScore;
-					
-					bestIndividual = individual;
-				}
-
-				iteration++;
+			String evaluationsFile = folder + "evaluations_" 
+					+ customOptions.design.name().toLowerCase() + "_it" + run + ".csv";
+			design.run(sampler, evaluations, customOptions.threads, evaluationsFile);
+
+			double[] bestIndividual = design.getBestGenome();
+			if(bestIndividual == null) {
+				throw new CalibrationException("No point of the design was evaluated.");
 			}
 
 			CalibrationResponse response = new CalibrationResponse();
 			
-			ScoreWrapper bestScore = evaluate(bestIndividual, modelManager, 
-					paramManager, md, mcIterations, manager);
+			// The best genome is simulated again on its own overlay, so the 
+			// base model definition is never modified
+			ModelDefinition calibrated = design.createModel(bestIndividual);
+			ScoreWrapper bestScore = design.evaluate(calibrated);
 			
-			response.setCalibratedModel(md, simConfig);
+			response.setCalibratedModel(calibrated, simConfig);
 			response.setScoreDetails(bestScore);
 
 			System.out.println("Final score: "
@@ -111,46 +102,4 @@ public class ExecuteRandomEvaluations {
 					gson.toJson(response, CalibrationResponse.class));
 		}
 	}
-	
-	public static double[] getNewInd(Randomizer rnd, int numParams, boolean real) {
-		if(real) {
-			return ArrayFunctions.getRandomDoubleArray(rnd, numParams);
-		} else {
-			return ArrayFunctions.intToDouble(
-					ArrayFunctions.getRandomIntArray(rnd, numParams, 1000));
-		}
-	}
-	
-	public static ScoreWrapper evaluate(double[] solution, ModelManager modelManager, 
-			CalibrationParametersManager paramManager, ModelDefinition md, 
-			int mcIterations, HistoryManager manager) {
-		int variables = solution.length;
-		for (int v = 0; v < variables; v++) {
-			try {
-//				invoke(modelManager, modelParams.get(v), solution[v]);
-				paramManager.setParameterValue(v, solution[v]);
-				System.out.print(solution[v] + " ");
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-			} catch (CalibrationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-
-		// Simulates the model for getting a estimation of its computation time.
-		long before = System.currentTimeMillis();
-
-		MonteCarloStatistics mcStats = ModelRunner.simulateModel(md, mcIterations, false,
-				manager.getStatsBean());
-
-		long simulationTime = System.currentTimeMillis() - before;
-
-		// Store simulation values
-		ScoreWrapper wrapper = manager.computeTrainingScore(mcStats);
-		// Print agregated score
-		System.out.println(":: " + (wrapper.finalScore) + " ;; " + simulationTime);
-		
-		return wrapper;
-	}
 }
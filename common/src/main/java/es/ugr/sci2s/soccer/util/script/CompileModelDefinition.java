@@ -0,0 +1,59 @@
+package es.ugr.sci2s.soccer.util.script;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import es.ugr.sci2s.soccer.beans.CalibrationConfig;
+import es.ugr.sci2s.soccer.beans.SimulationConfig;
+import model.ModelDefinition;
+import model.ModelDefinitionFile;
+import util.io.CSVFileUtils;
+
+/**
+ * Compiles the model definition of a ZIO file, a simulation configuration
+ * or a calibration configuration into a binary file, loaded afterwards by
+ * ModelDefinition.loadValuesFromFile without parsing.
+ *
+ * @author imoya
+ *
+ */
+public class CompileModelDefinition {
+
+	public static void main(String[] args) throws IOException {
+
+		if(args.length!=2) {
+			throw new IllegalArgumentException(
+				"Usage: input_zio_or_json output" + ModelDefinitionFile.EXTENSION);
+		}
+
+		String inputFile = args[0];
+		String outputFile = args[1];
+
+		ModelDefinition md;
+
+		if(inputFile.endsWith(".json")) {
+			String config = CSVFileUtils.readFile(inputFile);
+
+			Gson gson = new Gson();
+
+			//Calibration configurations contain the simulation configuration
+			JsonObject json = gson.fromJson(config, JsonObject.class);
+			SimulationConfig simConfig;
+			if(json.has("simConfig")) {
+				simConfig = gson.fromJson(json, CalibrationConfig.class)
+						.getSimConfig();
+			} else {
+				simConfig = gson.fromJson(json, SimulationConfig.class);
+			}
+			md = simConfig.getModelDefinition();
+		} else {
+			md = new ModelDefinition();
+			md.loadValuesFromFile(new File(inputFile));
+		}
+
+		ModelDefinitionFile.write(md, outputFile);
+	}
+}
@@ -21,6 +21,7 @@ import com.google.gson.Gson;
 
 import util.io.CSVFileUtils;
 import util.io.XLSXFileUtils;
+import util.statistics.ColumnarStatisticsFile;
 
 public class GenerateReports {
 
@@ -49,6 +50,12 @@ public class GenerateReports {
 	public static void main(String[] args) throws IOException {
 		String root = args[0];
 		
+		//Columnar statistics are converted to CSV and XLSX files
+		if(root.endsWith(ColumnarStatisticsFile.EXTENSION)) {
+			convertStatistics(root);
+			return;
+		}
+		
 		Workbook book = new XSSFWorkbook();
 		
 		Font bold = book.createFont();
@@ -251,6 +258,21 @@ public class GenerateReports {
 		XLSXFileUtils.saveWorkbook(book, root+"/report");
 	}
 	
+	/**
+	 * Writes the columns of a columnar statistics file to CSV files and a 
+	 * XLSX book, in a folder named as the file.
+	 */
+	private static void convertStatistics(String filename) throws IOException {
+		String folder = filename.substring(0, 
+				filename.length() - ColumnarStatisticsFile.EXTENSION.length());
+		new File(folder).mkdirs();
+		
+		try (ColumnarStatisticsFile file = ColumnarStatisticsFile.open(filename)) {
+			file.writeCSV(folder);
+			file.writeXLSX(folder + "/statistics");
+		}
+	}
+	
 	private static double[][][] loadResults(String root) throws IOException {
 		//Problem method it
 		double[][][] values = new double [problems.length][methods.length][iterations];
@@ -9,32 +9,42 @@ import org.apache.commons.math3.stat.StatUtils;
 
 import com.google.gson.Gson;
 
+import util.statistics.ColumnarStatisticsFile;
+import util.statistics.Statistics.TimePeriod;
+
 public class ResultLoader {
 
 	public static void main(String[] args) throws IOException {
 		if(args.length!=1) {
-			throw new IllegalArgumentException("Loading results requires 1 argument: A JSON result file.");
+			throw new IllegalArgumentException("Loading results requires 1 argument: "
+					+ "A JSON result file or a columnar statistics file ("
+						+ ColumnarStatisticsFile.EXTENSION + ").");
 		}
 		
 		String jsonFile = args[0];
 
+		SimulationResult givenResult;
 		
-		//Read the JSON file
-		BufferedReader br = new BufferedReader(new FileReader(jsonFile));
-		
-		StringBuilder buffer = new StringBuilder();
-		String line;
-		while((line = br.readLine())!=null) {
-			buffer.append(line);
+		if(jsonFile.endsWith(ColumnarStatisticsFile.EXTENSION)) {
+			givenResult = loadColumnarResult(jsonFile);
+		} else {
+			//Read the JSON file
+			BufferedReader br = new BufferedReader(new FileReader(jsonFile));
+			
+			StringBuilder buffer = new StringBuilder();
+			String line;
+			while((line = br.readLine())!=null) {
+				buffer.append(line);
+			}
+			br.close();
+			
+			String result = buffer.toString();
+			
+			//Get ModelDefinition
+			Gson gson = new Gson();
+			
+			givenResult = gson.fromJson(result, SimulationResult.class);
 		}
-		br.close();
-		
-		String result = buffer.toString();
-		
-		//Get ModelDefinition
-		Gson gson = new Gson();
-		
-		SimulationResult givenResult = gson.fromJson(result, SimulationResult.class);
 		
 		double[][][] salesByBrandBySegmentMC = givenResult.salesByBrandBySegmentMC;
 		
@@ -49,5 +59,19 @@ public class ResultLoader {
 		
 		System.out.println(avg);
 	}
+	
+	/**
+	 * Loads the weekly results of the statistics stored in a columnar file.
+	 */
+	private static SimulationResult loadColumnarResult(String filename) 
+			throws IOException {
+		try (ColumnarStatisticsFile file = ColumnarStatisticsFile.open(filename)) {
+			SimulationResult result = new SimulationResult();
+			result.loadValuesFromStatistics(file.toMonteCarloStatistics(), 
+					file.getAgentsRatio(), file.getRecordingBean(), 
+						TimePeriod.WEEKLY);
+			return result;
+		}
+	}
 
 }
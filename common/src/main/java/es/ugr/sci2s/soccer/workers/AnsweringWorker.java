@@ -1,9 +1,12 @@
 package es.ugr.sci2s.soccer.workers;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 import es.ugr.sci2s.soccer.beans.ResultContainer;
 import es.ugr.sci2s.soccer.beans.SimulationResult;
+import es.ugr.sci2s.soccer.beans.SimulationResultWriter;
 
 public class AnsweringWorker extends SimulationWorker {
 
@@ -20,45 +23,55 @@ public class AnsweringWorker extends SimulationWorker {
 	public void run() {
 		super.run();
 		
-		String response;
-		
-		switch (executionType) {
-		case SIMPLE:
-			response = gson.toJson(result.getSimpleResult(), SimulationResult.class);
-			break;
-		case SENSITIVITY_ANALYSIS:
-			response = gson.toJson(result.getSaResult(), SimulationResult[][].class);
-			break;
-		case TP_CONTRIBUTION:
-			response = gson.toJson(result.getComparisonResult(), SimulationResult[].class);
-			break;
-		case COMPARISON:
-			response = gson.toJson(result.getComparisonResult(), SimulationResult[].class);
-			break;
-		default:
-			SimulationResult errorResult = new SimulationResult();
-			errorResult.setErrorMessage("Invalid simulation type.");
-			response = gson.toJson(errorResult, SimulationResult.class);
-		}
-		
 		//XXX Repeat until X attempts.
 
 		String urlEntry=referenceConfig.getResponseURL();
 		String url = host.concat(urlEntry);
 		
-		//Send message
+		//Send message, streaming the response through writeResponse
 		
 		// XXX This currently throws compilation errors due to 
 		// org.apache.http.NameValuePair type
 
 //		try {
 ////			Request.Post(url)
-////			.bodyForm(Form.form()
-////					.add("result",response).build())
+////			.body(new EntityTemplate(this::writeResponse))
 ////			.execute();
 //		} catch (IOException e) {
 //			// TODO Auto-generated catch block
 //			e.printStackTrace();
 //		}
 	}
+	
+	/**
+	 * Writes the JSON response of the job, streaming the results instead of
+	 * building the whole document in memory. Only the KPIs recorded by the
+	 * simulation are written, with the encoding requested by its
+	 * configuration.
+	 * @param out - output stream of the response.
+	 * @throws IOException if the response cannot be written.
+	 */
+	public void writeResponse(OutputStream out) throws IOException {
+		SimulationResultWriter writer = referenceConfig != null ? 
+				referenceConfig.getResultWriter() : new SimulationResultWriter();
+		
+		switch (executionType) {
+		case SIMPLE:
+			writer.write(result.getSimpleResult(), out);
+			break;
+		case SENSITIVITY_ANALYSIS:
+			writer.write(result.getSaResult(), out);
+			break;
+		case TP_CONTRIBUTION:
+			writer.write(result.getComparisonResult(), out);
+			break;
+		case COMPARISON:
+			writer.write(result.getComparisonResult(), out);
+			break;
+		default:
+			SimulationResult errorResult = new SimulationResult();
+			errorResult.setErrorMessage("Invalid simulation type.");
+			writer.write(errorResult, out);
+		}
+	}
 }
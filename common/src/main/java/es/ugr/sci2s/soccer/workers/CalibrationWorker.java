@@ -15,6 +15,7 @@ import calibration.CalibrationParameter;
 import calibration.CalibrationParametersManager;
 import calibration.CalibrationResult;
 import calibration.CalibrationTask;
+import calibration.MultiFidelitySchedule;
 import calibration.fitness.FitnessFunction;
 import calibration.fitness.history.HistoryManager;
 import model.ModelDefinition;
@@ -140,6 +141,23 @@ public class CalibrationWorker implements Runnable{
 				md.setNumberOfAgents(calibrationSetup.getCalibrationAgents());
 			}
 			
+			/*
+			 * Evaluate candidates with fewer agents and Monte-Carlo 
+			 * iterations, promoting the best ones to full fidelity.
+			 */
+			if(calibrationSetup.getFidelityLevels() > 1) {
+				controller.setMultiFidelitySchedule(new MultiFidelitySchedule(
+						calibrationSetup.getFidelityLevels(), 
+						calibrationSetup.getFidelityReduction(), 
+						md.getNumberOfAgents(), 
+						mcIterations));
+			}
+			
+			/*
+			 * Abort candidates known to be worse than the best one.
+			 */
+			controller.setPruningMargin(calibrationSetup.getPruningMargin());
+			
 			/* If no errors where detected during initialization, the 
 			 * calibration process starts.
 			 */
@@ -147,6 +165,15 @@ public class CalibrationWorker implements Runnable{
 				CalibrationResult result =controller.execute(masterHost,
 						masterPort, baseConfig.getNumberOfAgents());
 				
+				if(controller.getMultiFidelitySchedule() != null) {
+					System.out.println("Multi-fidelity relative cost: " 
+						+ controller.getMultiFidelitySchedule().getRelativeCost());
+				}
+				if(calibrationSetup.getPruningMargin() > 0) {
+					System.out.println("Pruned simulations: " 
+						+ controller.getPrunedSimulations());
+				}
+				
 				controller.updateModelDefinition(md, 
 						result.getUnconvertedParameters());
 				
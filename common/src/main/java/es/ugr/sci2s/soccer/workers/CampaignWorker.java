@@ -0,0 +1,417 @@
+package es.ugr.sci2s.soccer.workers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.gson.Gson;
+
+import es.ugr.sci2s.soccer.beans.CalibrationConfig;
+import es.ugr.sci2s.soccer.beans.CalibrationResponse;
+import es.ugr.sci2s.soccer.beans.CampaignConfig;
+import es.ugr.sci2s.soccer.beans.SimulationConfig;
+
+import calibration.ecj.EcjLocalSearch;
+import model.ModelRunner;
+import util.io.CSVFileUtils;
+
+/**
+ * CampaignWorker runs every calibration of an experiment campaign, i.e.
+ * every combination of instance, algorithm and repetition, in the same
+ * JVM. Calibrations run concurrently and their simulations share a single
+ * pool of threads (see ModelRunner.acquireSharedPool), so the cores left
+ * idle by a calibration waiting for its last Monte-Carlo iterations are
+ * used by the others.
+ *
+ * Runs are packed by estimated cost, starting the most expensive ones
+ * first. Another calibration is only started while the Monte-Carlo
+ * iterations of the running ones do not overload the simulation threads
+ * and enough heap is available. Algorithms refining individuals with
+ * L-BFGS run alone, since its solver (LBFGS and Mcsrch) keeps its state
+ * in static fields.
+ *
+ * Every run logs into its own folder
+ * (output/instance/algorithm/itN). Finished runs are recorded in a
+ * progress file, so an interrupted campaign resumes from the runs not
+ * finished yet.
+ *
+ * @author imoya
+ *
+ */
+public class CampaignWorker implements Runnable {
+
+	public static final String PROGRESS_FILE = "campaign.csv";
+	public static final String LOG_FILE = "calibration.log";
+
+	public static final String DONE = "done";
+	public static final String FAILED = "failed";
+
+	/**
+	 * Monte-Carlo iterations of the running calibrations allowed by every
+	 * simulation thread.
+	 */
+	private static final int MC_OVERCOMMIT = 2;
+
+	/**
+	 * Fraction of the heap that must be free for starting a calibration
+	 * while others are running.
+	 */
+	private static final double MIN_FREE_MEMORY = 0.25;
+
+	/**
+	 * Calibration of an instance with an algorithm and a seed.
+	 */
+	private static class Run {
+		String instance;
+		String algorithm;
+		int iteration;
+		boolean realCoding;
+		String name;
+		String folder;
+		int mcIterations;
+		double cost;
+		boolean alone;
+
+		String key() {
+			return instance + CSVFileUtils.DEFAULT_CSV_SEPARATOR + algorithm
+					+ CSVFileUtils.DEFAULT_CSV_SEPARATOR + iteration;
+		}
+	}
+
+	/**
+	 * Standard output sending the output of every run to its own log.
+	 * Output is redirected by thread: only what the thread running a
+	 * calibration prints reaches its log. Output printed by ECJ evaluation
+	 * threads or by the threads of the shared simulation pool still goes
+	 * to the console, since those threads are not owned by a single run.
+	 */
+	private static class RunOutput extends OutputStream {
+
+		private final OutputStream console;
+		private final ThreadLocal<OutputStream> logs =
+				new ThreadLocal<OutputStream>();
+
+		RunOutput(OutputStream console) {
+			this.console = console;
+		}
+
+		void redirect(OutputStream log) {
+			logs.set(log);
+		}
+
+		void restore() {
+			logs.remove();
+		}
+
+		private OutputStream current() {
+			OutputStream log = logs.get();
+			return log != null ? log : console;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			current().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			current().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			current().flush();
+		}
+	}
+
+	private final CampaignConfig campaignConfig;
+	private final String outputFolder;
+	private final int parallelRuns;
+	private final int simulationThreads;
+
+	private final Gson gson = new Gson();
+
+	/**
+	 * JSON configuration of every instance.
+	 */
+	private final Map<String, String> configs = new HashMap<String, String>();
+
+	private RunOutput output;
+
+	public CampaignWorker(CampaignConfig campaignConfig) {
+		this.campaignConfig = campaignConfig;
+		this.outputFolder = campaignConfig.getOutputFolder() + "/";
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		this.parallelRuns = campaignConfig.getParallelRuns()
+				!= CampaignConfig.USE_DEFAULT_VALUE ?
+						campaignConfig.getParallelRuns() : Math.max(1, cores / 2);
+		this.simulationThreads = campaignConfig.getSimulationThreads()
+				!= CampaignConfig.USE_DEFAULT_VALUE ?
+						campaignConfig.getSimulationThreads() : Math.max(1, cores - 1);
+	}
+
+	private List<Run> createRuns() throws IOException {
+		List<Run> runs = new ArrayList<Run>();
+		Set<String> names = new HashSet<String>();
+
+		for (String instance : campaignConfig.getInstances()) {
+			String config = CSVFileUtils.readFile(instance);
+			configs.put(instance, config);
+
+			String name = new File(instance).getName();
+			if(!names.add(name)) {
+				throw new IllegalArgumentException(
+					"Campaign instances must have different file names: " + name);
+			}
+
+			CalibrationConfig calibrationConfig = gson.fromJson(config,
+					CalibrationConfig.class);
+			SimulationConfig simConfig = calibrationConfig.getSimConfig();
+			int agents = calibrationConfig.getCalibrationAgents()
+					!= CalibrationConfig.USE_BASE_VALUE ?
+							calibrationConfig.getCalibrationAgents()
+								: simConfig.getNumberOfAgents();
+			int evaluations = campaignConfig.getEvaluations() > 0 ?
+					campaignConfig.getEvaluations()
+						: calibrationConfig.getTargetEvaluations();
+
+			for (String algorithm : campaignConfig.getAlgorithms()) {
+				boolean alone = usesLBFGS(algorithm);
+				boolean realCoding = campaignConfig.isRealCoding()
+						|| algorithm.contains("RealCoding");
+				String algorithmName = stripExtension(new File(algorithm).getName())
+						+ (realCoding ? "-real" : "");
+
+				for (int i = campaignConfig.getStart();
+						i < campaignConfig.getStart() + campaignConfig.getRepeat(); i++) {
+					Run run = new Run();
+					run.instance = instance;
+					run.algorithm = algorithm;
+					run.iteration = i;
+					run.realCoding = realCoding;
+					run.name = name;
+					run.folder = outputFolder + stripExtension(name) + "/"
+							+ algorithmName + "/it" + i + "/";
+					run.mcIterations = simConfig.getnMC();
+					run.cost = (double) agents * simConfig.getnWeeks()
+							* simConfig.getStepsForWeek() * simConfig.getnMC()
+								* evaluations;
+					run.alone = alone;
+					runs.add(run);
+				}
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * Returns true if the given ECJ configuration refines individuals with
+	 * the L-BFGS local search.
+	 */
+	private static boolean usesLBFGS(String algorithm) throws IOException {
+		for (String line : Files.readAllLines(new File(algorithm).toPath(),
+				StandardCharsets.ISO_8859_1)) {
+			int equals = line.indexOf('=');
+			if(equals > 0 && !line.trim().startsWith("#")
+					&& line.substring(0, equals).trim()
+						.endsWith("." + EcjLocalSearch.P_LOCAL_SEARCH)
+					&& line.substring(equals + 1).trim()
+						.equalsIgnoreCase(EcjLocalSearch.P_L_BFGS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripExtension(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	/**
+	 * Returns the keys of the runs finished by previous executions.
+	 */
+	private Set<String> loadFinishedRuns() throws IOException {
+		Set<String> finished = new HashSet<String>();
+		File progress = new File(outputFolder + PROGRESS_FILE);
+		if(progress.exists()) {
+			for (String line : Files.readAllLines(progress.toPath())) {
+				int last = line.lastIndexOf(CSVFileUtils.DEFAULT_CSV_SEPARATOR);
+				if(last > 0 && line.substring(last + 1).equals(DONE)) {
+					finished.add(line.substring(0, last));
+				}
+			}
+		}
+		return finished;
+	}
+
+	private synchronized void recordProgress(Run run, String status) {
+		try (FileWriter fw = new FileWriter(outputFolder + PROGRESS_FILE, true)) {
+			fw.write(run.key() + CSVFileUtils.DEFAULT_CSV_SEPARATOR + status + "\n");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Returns true if there is enough heap for starting another calibration.
+	 */
+	private static boolean hasFreeMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		return runtime.maxMemory() - used
+				>= MIN_FREE_MEMORY * runtime.maxMemory();
+	}
+
+	/**
+	 * Returns the most expensive pending run fitting in the available
+	 * resources, or null if no run must be started yet.
+	 */
+	private Run nextRun(List<Run> pending, int running, int queuedIterations,
+			boolean runningAlone) {
+		if(pending.isEmpty()) {
+			return null;
+		}
+		if(running == 0) {
+			return pending.get(0);
+		}
+		if(running >= parallelRuns || runningAlone || !hasFreeMemory()) {
+			return null;
+		}
+		for (Run run : pending) {
+			if(!run.alone && queuedIterations + run.mcIterations
+					<= simulationThreads * MC_OVERCOMMIT) {
+				return run;
+			}
+		}
+		return null;
+	}
+
+	private void execute(Run run) {
+		long before = System.currentTimeMillis();
+		String status = FAILED;
+
+		File folder = new File(run.folder);
+		folder.mkdirs();
+
+		try (OutputStream log = new BufferedOutputStream(
+				new FileOutputStream(new File(folder, LOG_FILE), true))) {
+			output.redirect(log);
+			try {
+				CalibrationConfig calibrationConfig = gson.fromJson(
+						configs.get(run.instance), CalibrationConfig.class);
+				calibrationConfig.setAlgorithm(run.algorithm);
+
+				ExperimentWorker worker = new ExperimentWorker(calibrationConfig,
+						new CalibrationResponse(), run.name, 1, run.iteration,
+							campaignConfig.getEvaluations(), run.realCoding, run.folder);
+
+				worker.run();
+
+				CalibrationResponse response = worker.getResponses()[0];
+				if(response != null) {
+					String models = run.folder + "resulting_model_"
+							+ worker.getSignature() + "_it" + run.iteration + ".json";
+					CSVFileUtils.writeFile(models,
+							gson.toJson(response, CalibrationResponse.class));
+					status = DONE;
+				}
+			} finally {
+				System.out.flush();
+				output.restore();
+			}
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+
+		recordProgress(run, status);
+		System.out.println("Finished " + run.key() + " (" + status + ") in "
+				+ (System.currentTimeMillis() - before) / 1000 + " s");
+	}
+
+	@Override
+	public void run() {
+		List<Run> pending;
+		try {
+			new File(outputFolder).mkdirs();
+			pending = createRuns();
+			int total = pending.size();
+			Set<String> finished = loadFinishedRuns();
+			pending.removeIf(run -> finished.contains(run.key()));
+			System.out.println("Running " + pending.size() + " of " + total
+					+ " calibrations (" + (total - pending.size())
+						+ " already finished).");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		//Most expensive runs first, so the cheapest ones fill the tail
+		Collections.sort(pending, (a, b) -> Double.compare(b.cost, a.cost));
+
+		PrintStream console = System.out;
+		output = new RunOutput(console);
+		System.setOut(new PrintStream(output, true));
+		//Reuses the pool of the process when there is one
+		ModelRunner.acquireSharedPool(simulationThreads);
+
+		ExecutorService runners = Executors.newFixedThreadPool(parallelRuns);
+		CompletionService<Run> completed = new ExecutorCompletionService<Run>(runners);
+		int running = 0;
+		int queuedIterations = 0;
+		boolean runningAlone = false;
+
+		try {
+			while (!pending.isEmpty() || running > 0) {
+				Run next;
+				while ((next = nextRun(pending, running, queuedIterations,
+						runningAlone)) != null) {
+					pending.remove(next);
+					running++;
+					queuedIterations += next.mcIterations;
+					runningAlone = next.alone;
+					final Run run = next;
+					completed.submit(() -> {
+						execute(run);
+						return run;
+					});
+				}
+				Run done = completed.take().get();
+				running--;
+				queuedIterations -= done.mcIterations;
+				if(done.alone) {
+					runningAlone = false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.out.println("Campaign interrupted, it can be resumed later.");
+		} catch (ExecutionException e) {
+			e.getCause().printStackTrace();
+			System.out.println("Campaign aborted, it can be resumed later.");
+		} finally {
+			runners.shutdownNow();
+			ModelRunner.releaseSharedPool();
+			System.setOut(console);
+		}
+	}
+}
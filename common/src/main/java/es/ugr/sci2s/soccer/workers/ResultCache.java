@@ -0,0 +1,329 @@
+package es.ugr.sci2s.soccer.workers;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import es.ugr.sci2s.soccer.beans.ResultContainer;
+
+/**
+ * ResultCache is the table of simulation results of the service, bounded
+ * by time, number of entries and memory.
+ *
+ * Results expire once the time to live has passed since their job started
+ * (see touch). Instead of a timer thread by job, a single scheduled reaper
+ * removes expired results periodically. The reaper only keeps a weak
+ * reference to every cache, so a cache no longer referenced by the service
+ * is collected and stops being reaped even if shutdown is never called.
+ * When the cache exceeds its number
+ * of entries (checked on put) or the estimated memory of its results
+ * (checked when a job finishes, see finished), finished results are
+ * evicted, delivered results first and then the oldest ones. Running jobs
+ * are only removed when they expire or are cancelled, stopping their
+ * workers.
+ *
+ * Iterating the map returns a snapshot of the cache.
+ *
+ * The service uses the table returned by SimulationWorker.getResultsTable,
+ * registering the result of every job and passing the table to its worker.
+ *
+ * @author imoya
+ *
+ */
+public class ResultCache extends AbstractMap<Integer, ResultContainer> {
+
+	public static final long DEFAULT_TTL_MILLIS = ResultTimer.WAIT_MILLIS;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private static final long REAP_INTERVAL_MILLIS = 60000;
+
+	/**
+	 * Single thread reaping every cache.
+	 */
+	private static final ScheduledExecutorService REAPER =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "result-cache-reaper");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private static class Entry {
+		final ResultContainer container;
+		volatile long touched;
+		volatile long size = -1;
+
+		Entry(ResultContainer container) {
+			this.container = container;
+			this.touched = System.currentTimeMillis();
+		}
+
+		/**
+		 * Size of the results, computed once the job is finished.
+		 */
+		long size() {
+			if(size < 0 && container.isFinished()) {
+				size = container.estimateSize();
+			}
+			return Math.max(0, size);
+		}
+	}
+
+	private final ConcurrentHashMap<Integer, Entry> entries =
+			new ConcurrentHashMap<Integer, Entry>();
+
+	private final long ttlMillis;
+	private final int maxEntries;
+	private final long maxSize;
+
+	private final Reaper reaper;
+
+	private long evictions;
+	private long expirations;
+
+	/**
+	 * Creates a cache using the default time to live and number of entries,
+	 * and a quarter of the heap for the results.
+	 */
+	public ResultCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES,
+				Runtime.getRuntime().maxMemory() / 4);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param ttlMillis - time to live of every result.
+	 * @param maxEntries - maximum number of results.
+	 * @param maxSize - maximum estimated memory of the results, in bytes.
+	 */
+	public ResultCache(long ttlMillis, int maxEntries, long maxSize) {
+		this.ttlMillis = ttlMillis;
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
+		long interval = Math.max(1, Math.min(REAP_INTERVAL_MILLIS, ttlMillis));
+		reaper = new Reaper(this);
+		reaper.schedule(interval);
+	}
+
+	/**
+	 * Periodic task reaping a cache while it is reachable.
+	 */
+	private static class Reaper implements Runnable {
+		private final WeakReference<ResultCache> cache;
+		private volatile ScheduledFuture<?> future;
+
+		Reaper(ResultCache cache) {
+			this.cache = new WeakReference<ResultCache>(cache);
+		}
+
+		void schedule(long interval) {
+			future = REAPER.scheduleWithFixedDelay(
+					this, interval, interval, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run() {
+			ResultCache target = cache.get();
+			if(target != null) {
+				target.reap();
+			} else {
+				cancel();
+			}
+		}
+
+		void cancel() {
+			ScheduledFuture<?> scheduled = future;
+			if(scheduled != null) {
+				scheduled.cancel(false);
+			}
+		}
+	}
+
+	@Override
+	public ResultContainer get(Object key) {
+		Entry entry = entries.get(key);
+		return entry != null ? entry.container : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public ResultContainer put(Integer key, ResultContainer value) {
+		Entry previous = entries.put(key, new Entry(value));
+		if(entries.size() > maxEntries) {
+			enforceBounds();
+		}
+		return previous != null ? previous.container : null;
+	}
+
+	@Override
+	public ResultContainer remove(Object key) {
+		Entry entry = entries.remove(key);
+		return entry != null ? entry.container : null;
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, ResultContainer>> entrySet() {
+		Map<Integer, ResultContainer> snapshot = new HashMap<Integer, ResultContainer>();
+		for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().container);
+		}
+		return Collections.unmodifiableMap(snapshot).entrySet();
+	}
+
+	/**
+	 * Restarts the time to live of a result, usually when its job starts.
+	 * @param id - id of the result.
+	 */
+	public void touch(int id) {
+		Entry entry = entries.get(id);
+		if(entry != null) {
+			entry.touched = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Records that the job of a result finished, so the size of the result
+	 * is known, and evicts results if the cache exceeds its bounds.
+	 * @param id - id of the result.
+	 */
+	public void finished(int id) {
+		Entry entry = entries.get(id);
+		if(entry != null && entry.size() > 0) {
+			enforceBounds();
+		}
+	}
+
+	/**
+	 * Removes a result, stopping its worker if the job is still running.
+	 * @param id - id of the result.
+	 * @return true if the result was in the cache.
+	 */
+	public boolean cancel(int id) {
+		Entry entry = entries.remove(id);
+		if(entry == null) {
+			return false;
+		}
+		stopWorker(entry.container);
+		return true;
+	}
+
+	private static void stopWorker(ResultContainer container) {
+		if(!container.isFinished() && container.getWorker() != null) {
+			try {
+				container.getWorker().stop();
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.out.println(
+					"Cache error :: Errors found when stopping execution: "
+						+ e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Removes the expired results and enforces the cache bounds.
+	 */
+	public void reap() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+			if(now - entry.getValue().touched >= ttlMillis
+					&& entries.remove(entry.getKey(), entry.getValue())) {
+				stopWorker(entry.getValue().container);
+				synchronized (this) {
+					expirations++;
+				}
+			}
+		}
+		enforceBounds();
+	}
+
+	/**
+	 * Returns the estimated memory of the finished results.
+	 * @return the estimated memory in bytes.
+	 */
+	public long getEstimatedSize() {
+		long size = 0;
+		for (Entry entry : entries.values()) {
+			size += entry.size();
+		}
+		return size;
+	}
+
+	private synchronized void enforceBounds() {
+		long size = getEstimatedSize();
+		if(entries.size() <= maxEntries && size <= maxSize) {
+			return;
+		}
+
+		List<Map.Entry<Integer, Entry>> finished =
+				new ArrayList<Map.Entry<Integer, Entry>>();
+		for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+			if(entry.getValue().container.isFinished()) {
+				finished.add(entry);
+			}
+		}
+		//Delivered results first, then the oldest ones
+		Collections.sort(finished, Comparator
+				.comparing((Map.Entry<Integer, Entry> e) ->
+					!e.getValue().container.isDelivered())
+				.thenComparingLong(e -> e.getValue().touched));
+
+		for (Map.Entry<Integer, Entry> entry : finished) {
+			if(entries.size() <= maxEntries && size <= maxSize) {
+				break;
+			}
+			if(entries.remove(entry.getKey(), entry.getValue())) {
+				size -= entry.getValue().size();
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of results evicted for exceeding the bounds.
+	 * @return the number of evicted results.
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of results removed for expiring.
+	 * @return the number of expired results.
+	 */
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+
+	/**
+	 * Stops reaping this cache. Unreachable caches stop being reaped
+	 * without calling this method.
+	 */
+	public void shutdown() {
+		reaper.cancel();
+	}
+}
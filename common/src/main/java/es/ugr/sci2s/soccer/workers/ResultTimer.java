@@ -1,49 +1,64 @@
 package es.ugr.sci2s.soccer.workers;
 
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import es.ugr.sci2s.soccer.beans.ResultContainer;
 
+/**
+ * ResultTimer removes a result from a plain results table once it expires.
+ * Timers are run by a single scheduled thread instead of a sleeping thread
+ * by job. Tables bounded by time are better served by ResultCache.
+ */
 public class ResultTimer implements Runnable {
 
 	public static final int WAIT_MILLIS = 1800000;
-	
+
+	private static final ScheduledExecutorService SCHEDULER =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "result-timer");
+				thread.setDaemon(true);
+				return thread;
+			});
+
 	private int id;
 	private Map<Integer,ResultContainer> resultsTable;
-	
+
 	public ResultTimer(int id, Map<Integer, ResultContainer> resultsTable) {
 		this.id = id;
 		this.resultsTable = resultsTable;
 	}
 
+	/**
+	 * Schedules the removal of a result after WAIT_MILLIS.
+	 * @param id - id of the result.
+	 * @param resultsTable - table of results.
+	 * @return the scheduled removal, which can be cancelled.
+	 */
+	public static ScheduledFuture<?> schedule(int id,
+			Map<Integer, ResultContainer> resultsTable) {
+		return SCHEDULER.schedule(new ResultTimer(id, resultsTable),
+				WAIT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
 	@Override
 	public void run() {
-		try {
-			Thread.sleep(WAIT_MILLIS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-			System.out.println("Sleep failure :: "+e.getMessage());
-		} finally {
-			
-			ResultContainer container = resultsTable.get(id);
-			
-			resultsTable.remove(id);
-			
-			if(!container.isFinished()) {
-				try {
-					container.getWorker().stop();
-				}catch (Exception e) {
-					e.printStackTrace();
-					System.out.println(
-						"Timer error :: Errors found when stopping execution: " 
-							+ e.getMessage());
-				}
-			}
+		ResultContainer container = resultsTable.remove(id);
 
-			//Invoke gc for cleanup
-			System.gc();
+		if(container != null && !container.isFinished()
+				&& container.getWorker() != null) {
+			try {
+				container.getWorker().stop();
+			}catch (Exception e) {
+				e.printStackTrace();
+				System.out.println(
+					"Timer error :: Errors found when stopping execution: "
+						+ e.getMessage());
+			}
 		}
-
 	}
 
 }
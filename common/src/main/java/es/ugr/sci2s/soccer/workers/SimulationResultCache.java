@@ -0,0 +1,346 @@
+package es.ugr.sci2s.soccer.workers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import es.ugr.sci2s.soccer.beans.SimulationConfig;
+import es.ugr.sci2s.soccer.beans.SimulationResult;
+import es.ugr.sci2s.soccer.workers.SimulationWorker.SimulationType;
+import util.random.RandomizerUtils;
+
+/**
+ * SimulationResultCache stores the results of the simulation jobs by the
+ * contents of their configuration, so repeated requests are answered
+ * without simulating again. Simulations are seeded by Monte-Carlo
+ * iteration, so identical configurations always produce identical results.
+ *
+ * Keys are SHA-256 hashes of the values determining the simulations of a
+ * job (model definitions, Monte-Carlo iterations and their seeds, recorded
+ * statistics and their period, and the parameters of the job), so
+ * formatting differences of the requests and response options (e.g. the
+ * response URL or the number encoding) are ignored. Results are kept
+ * in memory, least recently used ones evicted first when the number of
+ * entries or their estimated memory is exceeded, and optionally in a
+ * folder, as compressed JSON files named by key.
+ *
+ * Concurrent requests with the same key share a single computation. Failed
+ * or stopped computations, whose results contain error messages or
+ * missing values, are never stored.
+ *
+ * @author imoya
+ *
+ */
+public class SimulationResultCache {
+
+	public static final int DEFAULT_MAX_ENTRIES = 32;
+
+	/**
+	 * Version of the keys, changed when results of the same configuration
+	 * are no longer compatible.
+	 */
+	private static final String KEY_VERSION = "2";
+
+	private static final String FILE_EXTENSION = ".json.gz";
+
+	private final int maxEntries;
+	private final long maxSize;
+	private final File folder;
+
+	private final Gson gson = new Gson();
+
+	private final LinkedHashMap<String, Object> memory =
+			new LinkedHashMap<String, Object>(16, 0.75f, true);
+	private final Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+	private long memorySize;
+
+	private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight =
+			new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
+	private long hits;
+	private long diskHits;
+	private long sharedHits;
+	private long misses;
+
+	/**
+	 * Creates an in-memory cache with the default number of entries and an
+	 * eighth of the heap for the results.
+	 */
+	public SimulationResultCache() {
+		this(DEFAULT_MAX_ENTRIES, Runtime.getRuntime().maxMemory() / 8, null);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maxEntries - maximum number of results kept in memory.
+	 * @param maxSize - maximum estimated memory of the results kept in
+	 * memory, in bytes.
+	 * @param folder - folder storing the results, or null for keeping them
+	 * in memory only.
+	 */
+	public SimulationResultCache(int maxEntries, long maxSize, String folder) {
+		this.maxEntries = maxEntries;
+		this.maxSize = maxSize;
+		if(folder != null) {
+			this.folder = new File(folder);
+			this.folder.mkdirs();
+		} else {
+			this.folder = null;
+		}
+	}
+
+	/**
+	 * Returns the key of a job, hashing its type, the values of every 
+	 * simulation determining its results and the parameters of the job.
+	 * @param type - type of the job.
+	 * @param simulations - configuration of every simulated scenario.
+	 * @param parameters - parameters of the job besides the simulations 
+	 * (e.g. the analyzed brand).
+	 * @return the key of the job.
+	 */
+	public String key(SimulationType type, SimulationConfig[] simulations,
+			Object... parameters) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, KEY_VERSION);
+		putString(hasher, type.name());
+		hasher.putInt(simulations.length);
+		for (SimulationConfig simulation : simulations) {
+			putString(hasher, gson.toJson(simulation.getModelDefinition()));
+			putString(hasher, gson.toJson(
+					simulation.getStatisticRecordingConfiguration()));
+			putString(hasher, String.valueOf(simulation.getStatPeriod()));
+			int nMC = simulation.getnMC();
+			hasher.putInt(nMC);
+			for (int mc = 0; mc < nMC && mc < RandomizerUtils.PRIME_SEEDS.length; mc++) {
+				hasher.putLong(RandomizerUtils.PRIME_SEEDS[mc]);
+			}
+		}
+		hasher.putInt(parameters.length);
+		for (Object parameter : parameters) {
+			putString(hasher, gson.toJson(parameter));
+		}
+		return hasher.hash().toString();
+	}
+
+	/**
+	 * Hashes a string preceded by its length, so consecutive strings are
+	 * never confused.
+	 */
+	private static void putString(Hasher hasher, String value) {
+		hasher.putInt(value.length());
+		hasher.putString(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the result of a job, running the computation only if the
+	 * result is not stored and no identical job is running.
+	 * @param key - key of the job (see key).
+	 * @param type - class of the result, used for reading it from disk.
+	 * @param computation - computation of the result.
+	 * @return the result of the job.
+	 */
+	public <T> T get(String key, Class<T> type, Supplier<T> computation) {
+		T value = lookup(key, type);
+		if(value != null) {
+			return value;
+		}
+
+		CompletableFuture<Object> own = new CompletableFuture<Object>();
+		CompletableFuture<Object> running = inFlight.putIfAbsent(key, own);
+		if(running != null) {
+			try {
+				Object shared = running.join();
+				if(isCacheable(shared)) {
+					synchronized (this) {
+						sharedHits++;
+					}
+					return type.cast(shared);
+				}
+			} catch (CompletionException e) {
+				//Failed computations are run again
+			}
+			//The shared computation was stopped or failed
+			return computation.get();
+		}
+
+		try {
+			synchronized (this) {
+				misses++;
+			}
+			value = computation.get();
+			if(isCacheable(value)) {
+				store(key, value);
+			}
+			own.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			own.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, own);
+		}
+	}
+
+	private <T> T lookup(String key, Class<T> type) {
+		synchronized (this) {
+			Object value = memory.get(key);
+			if(value != null) {
+				hits++;
+				return type.cast(value);
+			}
+		}
+		if(folder != null) {
+			File file = new File(folder, key + FILE_EXTENSION);
+			if(file.exists()) {
+				try (Reader reader = new InputStreamReader(new GZIPInputStream(
+						new FileInputStream(file)), StandardCharsets.UTF_8)) {
+					T value = gson.fromJson(reader, type);
+					if(isCacheable(value)) {
+						synchronized (this) {
+							diskHits++;
+						}
+						storeInMemory(key, value);
+						return value;
+					}
+				} catch (IOException | JsonParseException e) {
+					e.printStackTrace();
+					System.out.println("Cache error :: Unable to read result "
+							+ file + ": " + e.getMessage());
+				}
+			}
+		}
+		return null;
+	}
+
+	private void store(String key, Object value) {
+		storeInMemory(key, value);
+		if(folder != null) {
+			File file = new File(folder, key + FILE_EXTENSION);
+			try {
+				File temp = File.createTempFile(key, ".tmp", folder);
+				try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+						new FileOutputStream(temp)), StandardCharsets.UTF_8)) {
+					gson.toJson(value, writer);
+				}
+				Files.move(temp.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.out.println("Cache error :: Unable to write result "
+						+ file + ": " + e.getMessage());
+			}
+		}
+	}
+
+	private synchronized void storeInMemory(String key, Object value) {
+		long size = estimateSize(value);
+		if(size > maxSize) {
+			return;
+		}
+		if(memory.put(key, value) == null) {
+			memorySize += size;
+			sizes.put(key, size);
+		}
+
+		Iterator<Map.Entry<String, Object>> eldest = memory.entrySet().iterator();
+		while ((memory.size() > maxEntries || memorySize > maxSize)
+				&& eldest.hasNext()) {
+			String evicted = eldest.next().getKey();
+			eldest.remove();
+			memorySize -= sizes.remove(evicted);
+		}
+	}
+
+	/**
+	 * Returns false for missing results and for results with errors.
+	 */
+	private static boolean isCacheable(Object value) {
+		if(value == null) {
+			return false;
+		} else if(value instanceof SimulationResult) {
+			return ((SimulationResult) value).getErrorMessage() == null;
+		} else if(value instanceof Object[]) {
+			for (Object element : (Object[]) value) {
+				if(!isCacheable(element)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static long estimateSize(Object value) {
+		if(value instanceof SimulationResult) {
+			return ((SimulationResult) value).estimateSize();
+		} else if(value instanceof Object[]) {
+			long size = 0;
+			for (Object element : (Object[]) value) {
+				size += estimateSize(element);
+			}
+			return size;
+		}
+		return 0;
+	}
+
+	/**
+	 * Removes every result kept in memory. Results stored in the folder are
+	 * kept.
+	 */
+	public synchronized void clear() {
+		memory.clear();
+		sizes.clear();
+		memorySize = 0;
+	}
+
+	public synchronized int size() {
+		return memory.size();
+	}
+
+	public synchronized long getEstimatedSize() {
+		return memorySize;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getDiskHits() {
+		return diskHits;
+	}
+
+	/**
+	 * Returns the number of requests answered by a computation running for
+	 * an identical request.
+	 * @return the number of shared computations.
+	 */
+	public synchronized long getSharedHits() {
+		return sharedHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+}
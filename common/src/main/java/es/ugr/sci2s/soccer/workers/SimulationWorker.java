@@ -1,6 +1,7 @@
 package es.ugr.sci2s.soccer.workers;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.google.gson.Gson;
 import es.ugr.sci2s.soccer.beans.CalibrationConfig;
@@ -60,6 +61,13 @@ public class SimulationWorker implements Runnable{
 	private static final long BASE_TP = BASE_SIMPLE * 10;
 	private static final long BASE_COMP = BASE_SIMPLE * 5;
 	
+	//Results table of the service, created on demand
+	private static ResultCache resultsTable;
+	
+	//Results of previous jobs, null if disabled
+	private static volatile SimulationResultCache resultCache = 
+			new SimulationResultCache();
+	
 	public SimulationWorker(String config, ResultContainer result, 
 			Map<Integer, ResultContainer> table, int id) {
 		this.config = config;
@@ -73,9 +81,53 @@ public class SimulationWorker implements Runnable{
 	}
 	
 	private void createTimer() {
-		ResultTimer timer = new ResultTimer(id,table);
-		Thread timerThread = new Thread(timer);
-		timerThread.start();
+		if(table instanceof ResultCache) {
+			((ResultCache) table).touch(id);
+		} else {
+			ResultTimer.schedule(id, table);
+		}
+	}
+	
+	/**
+	 * Returns the results table of the service, bounded by time, number of
+	 * entries and memory (see ResultCache). The service registers the 
+	 * result of every job in this table and passes it to the worker of 
+	 * the job, which keeps the result alive while running and reports 
+	 * when it finishes.
+	 * @return the results table shared by every worker.
+	 */
+	public static synchronized ResultCache getResultsTable() {
+		if(resultsTable == null) {
+			resultsTable = new ResultCache();
+		}
+		return resultsTable;
+	}
+	
+	public static SimulationResultCache getResultCache() {
+		return resultCache;
+	}
+	
+	/**
+	 * Sets the cache of results shared by every worker.
+	 * @param cache - cache of results, or null for disabling it.
+	 */
+	public static void setResultCache(SimulationResultCache cache) {
+		resultCache = cache;
+	}
+	
+	/**
+	 * Returns the result of the computation, reusing the result of a
+	 * previous or running job with the same simulations and parameters 
+	 * if available.
+	 */
+	private <T> T cached(SimulationType type, SimulationConfig[] simulations, 
+			Object[] parameters, Class<T> resultType, Supplier<T> computation) {
+		SimulationResultCache cache = resultCache;
+		if(cache == null) {
+			return computation.get();
+		}
+		return cache.get(cache.key(type, simulations, parameters), 
+				resultType, computation);
 	}
 	
 	@Override
@@ -109,6 +161,10 @@ public class SimulationWorker implements Runnable{
 			result.fail();
 		}
 		result.setFinished(true);
+		if(table instanceof ResultCache) {
+			//The size of the result is known now
+			((ResultCache) table).finished(id);
+		}
 	}
 	
 	public void executeSimple() {
@@ -116,6 +172,14 @@ public class SimulationWorker implements Runnable{
 		referenceConfig = 
 				gson.fromJson(config, SimulationConfig.class);
 		
+		SimulationResult newResult = cached(SimulationType.SIMPLE, 
+				new SimulationConfig[] {referenceConfig}, new Object[0], 
+					SimulationResult.class, this::simulateSimple);
+		
+		result.setSimpleResult(newResult);
+	}
+	
+	private SimulationResult simulateSimple() {
 		SimulationResult newResult = new SimulationResult(); 
 		
 		try {
@@ -147,7 +211,7 @@ public class SimulationWorker implements Runnable{
 			e.printStackTrace();
 		}
 		
-		result.setSimpleResult(newResult);
+		return newResult;
 	}
 	
 	public void executeEvaluation() {
@@ -198,6 +262,22 @@ public class SimulationWorker implements Runnable{
 		SensitivityAnalysisConfig requestedConfig = gson.fromJson(
 				config, SensitivityAnalysisConfig.class);
 		referenceConfig = requestedConfig.getSimulationConfig(); 
+		
+		SimulationResult[][] results = cached(
+				SimulationType.SENSITIVITY_ANALYSIS, 
+				new SimulationConfig[] {referenceConfig}, 
+				new Object[] {requestedConfig.getBeans(), 
+						requestedConfig.getBrandId()}, 
+					SimulationResult[][].class, 
+						() -> simulateSA(requestedConfig));
+		if(results != null) {
+			//Store result
+			result.setSaResult(results);
+		}
+	}
+	
+	private SimulationResult[][] simulateSA(
+			SensitivityAnalysisConfig requestedConfig) {
 		SensitivityAnalysisBean[] beans = requestedConfig.getBeans();
 		
 		int numBeans = beans.length;
@@ -211,30 +291,24 @@ public class SimulationWorker implements Runnable{
 		nExecutions *=numBeans;
 		canEstimate = true;
 		
-		//Run Sensitivity Analysis
-		int iteration = 0;
-//		for (int i=0; i<numBeans; i++) {
-		while(iteration<numBeans && !stop) {
-			SensitivityAnalysisBean analysis=beans[iteration];
-			ComparisonResult result = comparator.runSA(
-					analysis.getTouchpoint(), 
-					requestedConfig.getBrandId(), 
-					analysis.getMin(), 
-					analysis.getMax(), 
-					analysis.getStep(), 
-					referenceConfig.getnMC(), 
-					md, analysis.getDestFolder(),analysis.getScenarioName(), 
-							ScenarioComparison.FROM_CONSOLE, 
-								ScenarioComparison.NO_REPORTS, recordingBean);
-			results[iteration] = SimulationResult.getResults(result.getStats(), 
+		//Run every Sensitivity Analysis at the same time
+		ComparisonResult[] saResults = comparator.runSA(
+				beans, 
+				requestedConfig.getBrandId(), 
+				referenceConfig.getnMC(), 
+				md, ScenarioComparison.FROM_CONSOLE, 
+					ScenarioComparison.NO_REPORTS, recordingBean);
+		if(stop) {
+			return null;
+		}
+		
+		for (int i=0; i<numBeans; i++) {
+			results[i] = SimulationResult.getResults(saResults[i].getStats(), 
 					referenceConfig.getStatPeriod(),
 					md.getAgentsRatio(), recordingBean);
-			
-			iteration++;
 		}
 		
-		//Store result
-		result.setSaResult(results);
+		return results;
 	}
 	
 	public void executeTP() {
@@ -243,6 +317,19 @@ public class SimulationWorker implements Runnable{
 				config, SensitivityAnalysisConfig.class);
 		referenceConfig = requestedConfig.getSimulationConfig(); 
 		
+		SimulationResult[] results = cached(SimulationType.TP_CONTRIBUTION, 
+				new SimulationConfig[] {referenceConfig}, 
+				new Object[] {requestedConfig.getBrandId()}, 
+					SimulationResult[].class, 
+						() -> simulateTP(requestedConfig));
+		if(results != null) {
+			//Store result
+			result.setComparisonResult(results);
+		}
+	}
+	
+	private SimulationResult[] simulateTP(
+			SensitivityAnalysisConfig requestedConfig) {
 		ModelDefinition md = referenceConfig.getModelDefinition();
 		StatisticsRecordingBean recordingBean = referenceConfig.getStatisticRecordingConfiguration();
 		
@@ -262,21 +349,32 @@ public class SimulationWorker implements Runnable{
 				md, emptyString,emptyString, 
 				ScenarioComparison.FROM_CONSOLE, 
 				ScenarioComparison.NO_REPORTS, recordingBean);
-		if(!stop) {
-			SimulationResult[] results = SimulationResult.getResults(
-					tpResult.getStats(), 
-					referenceConfig.getStatPeriod(),
-					md.getAgentsRatio(), recordingBean);
-			
-			//Store result
-			result.setComparisonResult(results);
+		if(stop) {
+			return null;
 		}
+		return SimulationResult.getResults(
+				tpResult.getStats(), 
+				referenceConfig.getStatPeriod(),
+				md.getAgentsRatio(), recordingBean);
 	}
 	
 	public void executeComparison() {
 		//Read configuration from JSON
 		ComparisonConfig requestedConfig = gson.fromJson(
 				config, ComparisonConfig.class);
+		
+		SimulationResult[] results = cached(SimulationType.COMPARISON, 
+				requestedConfig.getSimulations(), new Object[0], 
+					SimulationResult[].class, 
+						() -> simulateComparison(requestedConfig));
+		if(results != null) {
+			//Store result
+			result.setComparisonResult(results);
+		}
+	}
+	
+	private SimulationResult[] simulateComparison(
+			ComparisonConfig requestedConfig) {
 		SimulationConfig[] simulations = requestedConfig.getSimulations(); 
 		int numModels = simulations.length;
 		ModelDefinition[] mds = new ModelDefinition[numModels];
@@ -299,13 +397,12 @@ public class SimulationWorker implements Runnable{
 				mds, referenceConfig.getnMC(), emtpyString,
 				ScenarioComparison.FROM_CONSOLE, ScenarioComparison.NO_REPORTS, 
 					recordingBean);
-		if(!stop) {
-			SimulationResult[] results = SimulationResult.getResults(statistics, 
-					referenceConfig.getStatPeriod(),
-					referenceConfig.getRatio(), recordingBean);			
-			//Store result
-			result.setComparisonResult(results);
+		if(stop) {
+			return null;
 		}
+		return SimulationResult.getResults(statistics, 
+				referenceConfig.getStatPeriod(),
+				referenceConfig.getRatio(), recordingBean);
 	}
 
 	public SimulationType getExecutionType() {
@@ -319,21 +416,7 @@ public class SimulationWorker implements Runnable{
 	public long estimateDuration() {
 		//If estimation values are not available, return basic estimation.
 		if(!canEstimate) {
-			switch (executionType) {
-			case SIMPLE:
-				return BASE_SIMPLE;
-			case EVALUATION:
-				return BASE_SIMPLE;
-			case SENSITIVITY_ANALYSIS:
-				return BASE_SA;
-			case TP_CONTRIBUTION:
-				return BASE_TP;
-			case COMPARISON:
-				return BASE_COMP;
-			default:
-				//This should not be reached.
-				return Integer.MAX_VALUE;
-			}
+			return estimateBaseDuration(executionType);
 		}
 		
 		switch (executionType) {
@@ -349,6 +432,24 @@ public class SimulationWorker implements Runnable{
 		return (long)(nAgents * nSteps * BASE_MILLIS); 
 	}
 	
+	public static long estimateBaseDuration(SimulationType type) {
+		switch (type) {
+		case SIMPLE:
+			return BASE_SIMPLE;
+		case EVALUATION:
+			return BASE_SIMPLE;
+		case SENSITIVITY_ANALYSIS:
+			return BASE_SA;
+		case TP_CONTRIBUTION:
+			return BASE_TP;
+		case COMPARISON:
+			return BASE_COMP;
+		default:
+			//This should not be reached.
+			return Integer.MAX_VALUE;
+		}
+	}
+	
 	public void stop() {
 		this.stop = true;
 		comparator.stop();
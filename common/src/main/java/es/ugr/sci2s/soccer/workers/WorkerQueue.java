@@ -1,44 +1,279 @@
 package es.ugr.sci2s.soccer.workers;
 
-import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Queue;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import es.ugr.sci2s.soccer.workers.SimulationWorker.SimulationType;
+
+import model.ModelRunner;
+
+/**
+ * WorkerQueue schedules the simulation jobs of the service. Jobs run
+ * concurrently, sharing a single simulation pool (see
+ * ModelRunner.acquireSharedPool), as long as the sum of their estimated
+ * durations fits in the cost budget.
+ *
+ * Jobs are started by priority class: quick simulations and evaluations
+ * first, then comparisons, then sensitivity analysis and touchpoint
+ * contribution jobs. Jobs waiting longer than the aging period are
+ * promoted one class per period, so expensive jobs are never starved.
+ * Quick jobs may start before a waiting expensive job that does not fit
+ * in the budget yet.
+ *
+ * @author imoya
+ *
+ */
 public class WorkerQueue implements Runnable{
 
-	private Queue<SimulationWorker> queue;
-	
-	private boolean stopped;
-	
+	public static final int INTERACTIVE = 0;
+	public static final int STANDARD = 1;
+	public static final int BATCH = 2;
+
+	private static final long DEFAULT_AGING_MILLIS = 60000;
+
+	private static class Job {
+		final SimulationWorker worker;
+		final int priority;
+		final long cost;
+		final long enqueued;
+		long started;
+
+		Job(SimulationWorker worker) {
+			this.worker = worker;
+			this.priority = priorityClass(worker.getExecutionType());
+			this.cost = worker.estimateDuration();
+			this.enqueued = System.currentTimeMillis();
+		}
+	}
+
+	private final List<Job> queue;
+
+	private final int maxJobs;
+	private final long costBudget;
+	private final long agingMillis;
+
+	private volatile boolean stopped;
+
+	private int runningJobs;
+	private long runningCost;
+
+	//Metrics
+	private long completedJobs;
+	private long totalWaitMillis;
+	private long maxWaitMillis;
+	private long totalRunMillis;
+	private int maxQueueDepth;
+
 	public WorkerQueue() {
-		queue = new ArrayDeque<SimulationWorker>();
+		this(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+				2 * SimulationWorker.estimateBaseDuration(
+						SimulationType.TP_CONTRIBUTION),
+					DEFAULT_AGING_MILLIS);
+	}
+
+	/**
+	 * Creates a queue.
+	 * @param maxJobs - maximum number of jobs running at the same time.
+	 * @param costBudget - maximum sum of the estimated durations of the
+	 * running jobs. A single job is always allowed to run.
+	 * @param agingMillis - waiting time promoting a job one priority class.
+	 */
+	public WorkerQueue(int maxJobs, long costBudget, long agingMillis) {
+		queue = new ArrayList<Job>();
+		this.maxJobs = Math.max(1, maxJobs);
+		this.costBudget = costBudget;
+		this.agingMillis = agingMillis;
 		stopped = true;
 	}
-	
-	public void insert(SimulationWorker worker) {
-		queue.add(worker);
+
+	public static int priorityClass(SimulationType type) {
+		switch (type) {
+		case SIMPLE:
+		case EVALUATION:
+			return INTERACTIVE;
+		case COMPARISON:
+			return STANDARD;
+		default:
+			return BATCH;
+		}
+	}
+
+	synchronized public void insert(SimulationWorker worker) {
+		queue.add(new Job(worker));
+		maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+		notifyAll();
 	}
-	
+
+	private int effectivePriority(Job job, long now) {
+		if(agingMillis <= 0) {
+			return job.priority;
+		}
+		return (int) Math.max(INTERACTIVE,
+				job.priority - (now - job.enqueued) / agingMillis);
+	}
+
+	private boolean fits(Job job) {
+		return runningJobs == 0 || (runningJobs < maxJobs
+				&& runningCost + job.cost <= costBudget);
+	}
+
+	/**
+	 * Returns the next job to start, or null if no job can start yet.
+	 */
+	private Job nextJob() {
+		long now = System.currentTimeMillis();
+		Job best = null;
+		int bestPriority = Integer.MAX_VALUE;
+		for (Job job : queue) {
+			int priority = effectivePriority(job, now);
+			if(priority < bestPriority) {
+				best = job;
+				bestPriority = priority;
+			}
+		}
+		if(best == null || fits(best)) {
+			return best;
+		}
+		//Quick jobs are allowed to pass a job waiting for resources
+		for (Job job : queue) {
+			if(job.priority == INTERACTIVE && fits(job)) {
+				return job;
+			}
+		}
+		return null;
+	}
+
 	synchronized private void start() {
 		stopped = false;
-		while(queue.peek()!=null) {
-			SimulationWorker worker = queue.poll();
 
-			worker.run();
+		int cores = Runtime.getRuntime().availableProcessors();
+		ModelRunner.acquireSharedPool(cores > 2 ? cores - 1 : cores);
+		ExecutorService executor = Executors.newFixedThreadPool(maxJobs);
+
+		try {
+			while(!queue.isEmpty() || runningJobs > 0) {
+				Job job;
+				while((job = nextJob()) != null) {
+					queue.remove(job);
+					launch(executor, job);
+				}
+				//Wakes up when a job is inserted or finished, or for aging
+				wait(agingMillis > 0 ? agingMillis : 0);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdown();
+			ModelRunner.releaseSharedPool();
+			stopped = true;
 		}
-		stopped = true;
+	}
+
+	private void launch(ExecutorService executor, final Job job) {
+		job.started = System.currentTimeMillis();
+		runningJobs++;
+		runningCost += job.cost;
+		long wait = job.started - job.enqueued;
+		totalWaitMillis += wait;
+		maxWaitMillis = Math.max(maxWaitMillis, wait);
+
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					job.worker.run();
+				} finally {
+					finished(job);
+				}
+			}
+		});
+	}
+
+	synchronized private void finished(Job job) {
+		runningJobs--;
+		runningCost -= job.cost;
+		completedJobs++;
+		totalRunMillis += System.currentTimeMillis() - job.started;
+		notifyAll();
 	}
 
 	@Override
 	public void run() {
 		start();
 	}
-	
+
 	public boolean isStopped() {
 		return stopped;
 	}
-	
-	public String getJobs() {
-		return Arrays.toString(queue.toArray());
+
+	synchronized public String getJobs() {
+		SimulationWorker[] workers = new SimulationWorker[queue.size()];
+		for (int i = 0; i < workers.length; i++) {
+			workers[i] = queue.get(i).worker;
+		}
+		return Arrays.toString(workers);
+	}
+
+	synchronized public int getQueueDepth() {
+		return queue.size();
+	}
+
+	synchronized public int getQueueDepth(int priorityClass) {
+		int depth = 0;
+		for (Job job : queue) {
+			if(job.priority == priorityClass) {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	synchronized public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	synchronized public int getRunningJobs() {
+		return runningJobs;
+	}
+
+	synchronized public long getCompletedJobs() {
+		return completedJobs;
+	}
+
+	/**
+	 * Returns the mean time between inserting and starting a job.
+	 * @return the mean waiting time in milliseconds.
+	 */
+	synchronized public double getAverageWaitMillis() {
+		long started = completedJobs + runningJobs;
+		return started > 0 ? (double) totalWaitMillis / started : 0.0;
+	}
+
+	synchronized public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	/**
+	 * Returns the mean running time of the finished jobs.
+	 * @return the mean running time in milliseconds.
+	 */
+	synchronized public double getAverageRunMillis() {
+		return completedJobs > 0 ? (double) totalRunMillis / completedJobs : 0.0;
+	}
+
+	synchronized public String getMetrics() {
+		return "queued=" + queue.size()
+				+ " (interactive=" + getQueueDepth(INTERACTIVE)
+				+ ", standard=" + getQueueDepth(STANDARD)
+				+ ", batch=" + getQueueDepth(BATCH) + ")"
+				+ " maxQueued=" + maxQueueDepth
+				+ " running=" + runningJobs
+				+ " completed=" + completedJobs
+				+ " avgWaitMs=" + Math.round(getAverageWaitMillis())
+				+ " maxWaitMs=" + maxWaitMillis
+				+ " avgRunMs=" + Math.round(getAverageRunMillis());
 	}
 }
@@ -0,0 +1,10 @@
+#!/bin/bash
+
+# Runs every calibration of a campaign (instances x algorithms x repetitions)
+# in a single JVM, sharing the simulation threads between calibrations.
+# Every run logs into campaign/<instance>/<algorithm>/it<n>. Finished runs are
+# recorded in campaign/campaign.csv, so running it again resumes the campaign.
+#
+# Usage: ./RunCampaign.sh [campaign.json]
+
+java -cp runCalibration.jar es.ugr.sci2s.soccer.util.ExecuteCampaign "${1:-campaign.json}"
@@ -8,6 +8,7 @@ import calibration.fitness.history.ScoreBean.ScoreWrapper;
 import model.ModelDefinition;
 import model.ModelManager;
 import model.ModelRunner;
+import model.touchpoints.TouchPointScheduleCache;
 import util.StringBean;
 import util.exception.calibration.CalibrationException;
 import util.exception.sales.SalesScheduleError;
@@ -106,6 +107,29 @@ public class CalibrationController {
 	
 	private StringBean[] additionalConfig;
 	
+	/**
+	 * Multi-fidelity schedule used for evaluating candidates (null if
+	 * every candidate is evaluated at full fidelity).
+	 */
+	private MultiFidelitySchedule fidelitySchedule;
+	
+	/**
+	 * Candidates whose training score is known to exceed the best score 
+	 * found so far multiplied by this margin are aborted before finishing 
+	 * their simulation (zero if disabled).
+	 */
+	private double pruningMargin;
+	
+	/**
+	 * Best training score found so far.
+	 */
+	private double incumbentScore = Double.POSITIVE_INFINITY;
+	
+	/**
+	 * Number of simulations aborted by the pruning.
+	 */
+	private int prunedSimulations;
+	
 	/**
 	 * Creates a calibration controller using given task definition.
 	 * 
@@ -139,7 +163,9 @@ public class CalibrationController {
 		
 		final int mcIterations =  taskdef.getMonteCarloIterations();
 
-		ModelDefinition md = taskdef.getModelDefinition();
+		// Every individual updates its own overlay of the base model, so 
+		// several individuals may be evaluated at the same time.
+		final ModelDefinition md = taskdef.getModelDefinition().createOverlay();
 
 		// Update model definition
 		if (parameters != UNCALIBRATED) {
@@ -148,12 +174,19 @@ public class CalibrationController {
 		
 		try {
 			
-			MonteCarloStatistics results=ModelRunner.simulateModel(
-						md, mcIterations, false,
-							taskdef.getHistoryManager().getStatsBean());
-			simulationsCount++;
-			
-			score = taskdef.getHistoryManager().computeTrainingScore(results);
+			if(fidelitySchedule == null) {
+				score = simulate(md, mcIterations);
+			} else {
+				score = fidelitySchedule.evaluate(
+					new MultiFidelitySchedule.FidelityEvaluation() {
+						@Override
+						public ScoreWrapper evaluate(int agents, int iterations)
+								throws SimulationException {
+							md.setNumberOfAgents(agents);
+							return simulate(md, iterations);
+						}
+					});
+			}
 		} catch (Exception e) {
 			System.out.print("Simulation error for next individual: ");
 			for(int i=0; i < parameters.length; i++)
@@ -169,6 +202,124 @@ public class CalibrationController {
 		return score;
 	}	
 	
+	/**
+	 * Simulates the model definition and computes its training score.
+	 * 
+	 * @param md model definition to simulate.
+	 * @param mcIterations number of Monte-Carlo iterations.
+	 * @return the training score.
+	 * @throws SimulationException if problems arise while running the model.
+	 */
+	private ScoreWrapper simulate(ModelDefinition md, int mcIterations) 
+			throws SimulationException {
+		TrajectoryPruning pruning = createPruning(md, mcIterations);
+		
+		MonteCarloStatistics results=ModelRunner.simulateModel(
+					md, mcIterations, false,
+						taskdef.getHistoryManager().getStatsBean(), pruning);
+		countSimulation();
+		
+		if(pruning != null && pruning.isPruned()) {
+			return penaltyScore(pruning);
+		}
+		
+		ScoreWrapper score = 
+				taskdef.getHistoryManager().computeTrainingScore(results);
+		if(fidelitySchedule == null) {
+			updateIncumbent(score.finalScore);
+		}
+		return score;
+	}
+	
+	/**
+	 * Creates the pruning for the next simulation. Scores obtained with 
+	 * fewer agents or iterations are not comparable with the best one, so 
+	 * no pruning is used with multi-fidelity schedules.
+	 * 
+	 * @param md model definition to simulate.
+	 * @param mcIterations number of Monte-Carlo iterations.
+	 * @return the pruning, or null if the simulation must not be pruned.
+	 */
+	private synchronized TrajectoryPruning createPruning(
+			ModelDefinition md, int mcIterations) {
+		if(pruningMargin <= 0 || fidelitySchedule != null
+				|| Double.isInfinite(incumbentScore)) {
+			return null;
+		}
+		return new TrajectoryPruning(taskdef.getHistoryManager(), 
+				incumbentScore * pruningMargin, mcIterations, 
+					md.getDecisionCycle());
+	}
+	
+	private synchronized void countSimulation() {
+		simulationsCount++;
+	}
+	
+	private synchronized void updateIncumbent(double score) {
+		if(score < incumbentScore) {
+			incumbentScore = score;
+		}
+	}
+	
+	/**
+	 * Creates the score of an aborted simulation, reporting the lower 
+	 * bound of its training score.
+	 */
+	private synchronized ScoreWrapper penaltyScore(TrajectoryPruning pruning) {
+		prunedSimulations++;
+		ScoreBean bean = new ScoreBean();
+		ScoreWrapper score = bean.new ScoreWrapper();
+		score.finalScore = pruning.getPenaltyScore();
+		return score;
+	}
+	
+	/**
+	 * Aborts the simulation of candidates whose training score is known 
+	 * to exceed the best score found so far multiplied by the given 
+	 * margin. Aborted candidates are scored with a lower bound of their 
+	 * training score.
+	 * 
+	 * @param margin the pruning margin (at least 1), or zero for 
+	 * simulating every candidate completely.
+	 */
+	public void setPruningMargin(double margin) {
+		if(margin != 0 && margin < 1) {
+			throw new IllegalArgumentException(
+				"Pruning margin must be zero or at least 1: " + margin);
+		}
+		this.pruningMargin = margin;
+	}
+	
+	/**
+	 * Returns the number of simulations aborted by the pruning.
+	 * 
+	 * @return the number of simulations aborted by the pruning.
+	 */
+	public synchronized int getPrunedSimulations() {
+		return prunedSimulations;
+	}
+	
+	/**
+	 * Evaluates every candidate using the given multi-fidelity schedule. 
+	 * The highest fidelity level must match the number of agents and 
+	 * Monte-Carlo iterations used during calibration.
+	 * 
+	 * @param schedule the multi-fidelity schedule, or null for evaluating
+	 * every candidate at full fidelity.
+	 */
+	public void setMultiFidelitySchedule(MultiFidelitySchedule schedule) {
+		this.fidelitySchedule = schedule;
+	}
+	
+	/**
+	 * Returns the multi-fidelity schedule used for evaluating candidates.
+	 * 
+	 * @return the multi-fidelity schedule, or null if disabled.
+	 */
+	public MultiFidelitySchedule getMultiFidelitySchedule() {
+		return fidelitySchedule;
+	}
+	
 	/**
 	 * Generates current snapshot results. Those results include parameters 
 	 * for every individual at the population and fitness for best  
@@ -383,21 +534,27 @@ public class CalibrationController {
 		
 		calibrationInterface.setAdditionalAlgorithmParameters(additionalConfig);
 		
-		double[] parameters =calibrationInterface.runCalibration(
-				taskdef.getCalibrationSignature(),
-				taskdef.getCalibrationConfigFile(), 
-				taskdef.getCalibrationLogFolder(), 
-				formatParamNamesCSV(), mins, maxs,
-				initialParams, 
-				taskdef.getCalibrationSeed(),
-				numEvaluations
-			);
-		
-		///////////////////////////////////////////////////////////////////////
-		
-		System.out.println("Launching best model...");
-		
-		return evaluateFinalModel(parameters,baseNumberOfAgents);
+		//Touch point schedules are reused while this calibration runs
+		TouchPointScheduleCache.acquireShared();
+		try {
+			double[] parameters =calibrationInterface.runCalibration(
+					taskdef.getCalibrationSignature(),
+					taskdef.getCalibrationConfigFile(), 
+					taskdef.getCalibrationLogFolder(), 
+					formatParamNamesCSV(), mins, maxs,
+					initialParams, 
+					taskdef.getCalibrationSeed(),
+					numEvaluations
+				);
+			
+			///////////////////////////////////////////////////////////////////
+			
+			System.out.println("Launching best model...");
+			
+			return evaluateFinalModel(parameters,baseNumberOfAgents);
+		} finally {
+			TouchPointScheduleCache.releaseShared();
+		}
 	}
 
 	/**
@@ -494,12 +651,16 @@ public class CalibrationController {
 		final CalibrationParametersManager paramManager = 
 			taskdef.getCalibrationParametersManager();
 		
+		// Every call uses its own model manager, so different model 
+		// definitions (e.g. overlays) may be updated concurrently.
+		final ModelManager modelManager = new ModelManager(modelDefinition, 
+				paramManager.getInvolvedDrivers());
+		
 		// Update parameters
-		paramManager.setModelManager(new ModelManager(modelDefinition, 
-				paramManager.getInvolvedDrivers()));
 		for (int i = 0; i < parameters.length; i++) {
 			if (parameters[i] != -1) {
-				parameters[i] = paramManager.setParameterValue(i, parameters[i]);
+				parameters[i] = paramManager.setParameterValue(
+						modelManager, i, parameters[i]);
 			} else {
 				System.out.println();
 				System.out.println(
@@ -507,7 +668,7 @@ public class CalibrationController {
 				);
 			}
 		}
-		paramManager.endStep();
+		modelManager.normalizeDrivers();
 	}
 	
 	/**
@@ -1,5 +1,6 @@
 package calibration;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
 
 import util.exception.calibration.CalibrationException;
@@ -31,6 +32,16 @@ public class CalibrationParameter {
 	 * definition object.
 	 */
 	public final Method 	getterMethod;
+	/**
+	 * Setter compiled with its indexes already bound, so it only takes the 
+	 * model manager and the new value: (ModelManager,double)void.
+	 */
+	public final MethodHandle	setterHandle;
+	/**
+	 * Getter compiled with its indexes already bound, so it only takes the 
+	 * model manager: (ModelManager)double.
+	 */
+	public final MethodHandle	getterHandle;
 	/**
 	 * Conversion factor for this parameter.
 	 */
@@ -80,6 +91,12 @@ public class CalibrationParameter {
 		this.getterMethod = CalibrationParametersManager.loadGetterMethod(
 			parameterName, (indexes != null)? indexes.length : 0
 		);
+		this.setterHandle = CalibrationParametersManager.compileSetter(
+			setterMethod, this.indexes
+		);
+		this.getterHandle = CalibrationParametersManager.compileGetter(
+			getterMethod, this.indexes
+		);
 		this.signature = formatSignature();
 	}
 	
@@ -101,6 +118,12 @@ public class CalibrationParameter {
 		this.getterMethod = CalibrationParametersManager.loadGetterMethod(
 			parameterName, (indexes != null)? indexes.length : 0
 		);
+		this.setterHandle = CalibrationParametersManager.compileSetter(
+			setterMethod, this.indexes
+		);
+		this.getterHandle = CalibrationParametersManager.compileGetter(
+			getterMethod, this.indexes
+		);
 		this.signature = formatSignature();
 	}
 	
@@ -1,6 +1,9 @@
 package calibration;
 
 import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -16,7 +19,10 @@ import util.io.ConfigFileReader;
 
 /**
  * CalibrationParametersManager uses Java Reflection to handle model updating 
- * during calibration process.
+ * during calibration process. Setter and getter methods are looked up once, 
+ * when every parameter is added, and compiled into method handles with 
+ * their indexes already bound. Hence, updating a parameter neither uses 
+ * reflection nor boxes its indexes and value.
  * 
  * @author imoya
  *
@@ -33,6 +39,18 @@ public class CalibrationParametersManager {
 	 */
 	private final static Class<?> MODEL_CLASS = ModelManager.class;
 	
+	/**
+	 * Type of every compiled setter: (ModelManager,double)void.
+	 */
+	private final static MethodType SETTER_TYPE = 
+			MethodType.methodType(void.class, ModelManager.class, double.class);
+	
+	/**
+	 * Type of every compiled getter: (ModelManager)double.
+	 */
+	private final static MethodType GETTER_TYPE = 
+			MethodType.methodType(double.class, ModelManager.class);
+	
 	/**
 	 * Inspects ModelManager class looking for a setter method that fits given 
 	 * parameter name. Also, the number of arguments for expected setter is 
@@ -104,6 +122,54 @@ public class CalibrationParametersManager {
 		}
 	}
 	
+	/**
+	 * Compiles a setter method into a method handle, binding the given 
+	 * indexes. The resulting handle takes the model manager and the new 
+	 * value: (ModelManager,double)void.
+	 * 
+	 * @param setter the setter method.
+	 * @param indexes the indexes passed to the setter (null if none).
+	 * @return the compiled setter.
+	 * @throws CalibrationException if the setter cannot be compiled.
+	 */
+	public static MethodHandle compileSetter(Method setter, int[] indexes) 
+			throws CalibrationException {
+		return compile(setter, indexes, SETTER_TYPE);
+	}
+	
+	/**
+	 * Compiles a getter method into a method handle, binding the given 
+	 * indexes. The resulting handle takes the model manager: 
+	 * (ModelManager)double.
+	 * 
+	 * @param getter the getter method.
+	 * @param indexes the indexes passed to the getter (null if none).
+	 * @return the compiled getter.
+	 * @throws CalibrationException if the getter cannot be compiled.
+	 */
+	public static MethodHandle compileGetter(Method getter, int[] indexes) 
+			throws CalibrationException {
+		return compile(getter, indexes, GETTER_TYPE);
+	}
+	
+	private static MethodHandle compile(Method method, int[] indexes, 
+			MethodType type) throws CalibrationException {
+		try {
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+			if (indexes != null) {
+				Object[] values = new Object[indexes.length];
+				for (int i = 0; i < indexes.length; i++) {
+					values[i] = indexes[i];
+				}
+				handle = MethodHandles.insertArguments(handle, 1, values);
+			}
+			return handle.asType(type);
+		} catch (Exception e) {
+			throw new CalibrationException(
+				"Unable to compile accessor: " + method.getName(), e);
+		}
+	}
+	
 	///////////////////////////////////////////////////////////////////////////
 	// Instance
 	///////////////////////////////////////////////////////////////////////////
@@ -264,6 +330,22 @@ public class CalibrationParametersManager {
 	 */
 	public double setParameterValue(int paramIndex, double paramValue) 
 			throws CalibrationException {
+		return setParameterValue(modelManager, paramIndex, paramValue);
+	}
+	
+	/**
+	 * Updates parameter's value with index paramIndex using value paramValue 
+	 * in the model definition handled by the given model manager. This 
+	 * method may be called concurrently for different model managers.
+	 * @param modelManager the model manager whose model is updated.
+	 * @param paramIndex the index of the parameter being modified.
+	 * @param paramValue new value for the parameter
+	 * @return the actual value that the parameter is taking
+	 * @throws CalibrationException if exceptions arise when invoking setter 
+	 * method.
+	 */
+	public double setParameterValue(ModelManager modelManager, int paramIndex, 
+			double paramValue) throws CalibrationException {
 		
 		if (modelManager == null) {
 			throw new IllegalStateException(
@@ -271,62 +353,25 @@ public class CalibrationParametersManager {
 			);
 		}
 		
-		if (parameters.get(paramIndex).setterMethod == null) {
+		CalibrationParameter parameter = parameters.get(paramIndex);
+		if (parameter.setterHandle == null) {
 			throw new IllegalStateException(
 				"Undefined setter for parameter: " + paramIndex
 			);
 		}
 		
 		try {
-			Method setter = parameters.get(paramIndex).setterMethod;
-			Method getter = parameters.get(paramIndex).getterMethod; 
-			int[] indexes = parameters.get(paramIndex).indexes;
 			double value =  unconvertParameterValue(paramIndex, paramValue);
-
-			if (indexes == null) {
-				setter.invoke(modelManager, value);	
-				return convertParameterValue(paramIndex, (double)getter.invoke(modelManager));
-			} 
-			switch(indexes.length) {
-				case 0:
-					throw new IllegalStateException(
-						"Undefined indexes for parameter: " + paramIndex
-					);
-				case 1:
-					setter.invoke(modelManager, 
-						indexes[0], value
-					);	
-					return convertParameterValue(paramIndex,
-							(double)getter.invoke(modelManager, indexes[0]));
-				case 2:
-					setter.invoke(modelManager, 
-						indexes[0], indexes[1], value
-					);	
-					return convertParameterValue(paramIndex, 
-							(double)getter.invoke(modelManager, indexes[0], indexes[1]));
-				case 3:
-					setter.invoke(modelManager, 
-						indexes[0], indexes[1], indexes[2], value
-					);	
-					return convertParameterValue(paramIndex, 
-							(double)getter.invoke(modelManager, indexes[0],
-									indexes[1], indexes[2]));
-				case 4:
-					setter.invoke(modelManager, 
-						indexes[0], indexes[1], indexes[2], indexes[3], value
-					);	
-					return convertParameterValue(paramIndex, 
-							(double)getter.invoke(modelManager, indexes[0],
-									indexes[1], indexes[2], indexes[3]));
-				default:
-					throw new UnsupportedOperationException(
-						"Cannot invoke setter with " + indexes.length + " indexes"
-					);
-			}
-		} catch (Exception e) {
+			parameter.setterHandle.invokeExact(modelManager, value);
+			return convertParameterValue(paramIndex, 
+					(double) parameter.getterHandle.invokeExact(modelManager));
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			//invokeExact declares Throwable, only exceptions are wrapped
 			throw new CalibrationException(
 				"Unexpected exception while invoking setter method: " 
-				+ parameters.get(paramIndex).setterMethod.getName(), e
+				+ parameter.setterMethod.getName(), e
 			);
 		} 
 	}
@@ -347,45 +392,23 @@ public class CalibrationParametersManager {
 			);
 		}
 		
-		if (parameters.get(paramIndex).getterMethod == null) {
+		CalibrationParameter parameter = parameters.get(paramIndex);
+		if (parameter.getterHandle == null) {
 			throw new IllegalStateException(
 				"Undefined getter for parameter: " + paramIndex
 			);
 		}
 		
 		try {
-			Method getter = parameters.get(paramIndex).getterMethod; 
-			int[] indexes = parameters.get(paramIndex).indexes;
-
-			if (indexes == null) {
-				return convertParameterValue(paramIndex, (double)getter.invoke(modelManager));
-			} 
-			switch(indexes.length) {
-				case 0:
-					throw new IllegalStateException(
-						"Undefined indexes for parameter: " + paramIndex
-					);
-				case 1:
-					return convertParameterValue(paramIndex, (double)getter.invoke(
-						modelManager, indexes[0]));
-				case 2:
-					return convertParameterValue(paramIndex, (double)getter.invoke(
-						modelManager, indexes[0], indexes[1]));
-				case 3:
-					return convertParameterValue(paramIndex, (double)getter.invoke(
-						modelManager, indexes[0], indexes[1], indexes[2]));
-				case 4:
-					return convertParameterValue(paramIndex, (double)getter.invoke(
-						modelManager, indexes[0], indexes[1], indexes[2], indexes[3]));
-				default:
-					throw new UnsupportedOperationException(
-						"Cannot invoke setter with " + indexes.length + " indexes"
-					);
-			}
-		} catch (Exception e) {
+			return convertParameterValue(paramIndex, 
+					(double) parameter.getterHandle.invokeExact(modelManager));
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			//invokeExact declares Throwable, only exceptions are wrapped
 			throw new CalibrationException(
-				"Unexpected exception while invoking setter method: " 
-				+ parameters.get(paramIndex).setterMethod.getName(), e
+				"Unexpected exception while invoking getter method: " 
+				+ parameter.getterMethod.getName(), e
 			);
 		} 
 	}
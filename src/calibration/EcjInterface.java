@@ -185,6 +185,9 @@ public class EcjInterface {
 			// XXX Tune additional values
 			tuneAlgorithmParameters(dbase);
 			
+			// Seeds of the additional evaluation and breeding threads
+			setThreadSeeds(dbase, seed);
+			
 			// Initialize the ECJ environment
 			evolutionState = Evolve.initialize(dbase, 0, out);
 			evolutionState.startFresh();
@@ -464,6 +467,46 @@ public class EcjInterface {
 		}
 	}
 	
+	/**
+	 * Sets the seeds of the additional ECJ threads (evalthreads and 
+	 * breedthreads parameters) not defined by the configuration file. 
+	 * Otherwise, ECJ seeds them with the current time and runs using 
+	 * several threads are not reproducible.
+	 * 
+	 * @param dbase ECJ parameter database.
+	 * @param seed seed of the first thread.
+	 */
+	private static void setThreadSeeds(ParameterDatabase dbase, long seed) {
+		int threads = Math.max(
+				numThreads(dbase, Evolve.P_EVALTHREADS),
+				numThreads(dbase, Evolve.P_BREEDTHREADS)
+			);
+		for (int i = 1; i < threads; i++) {
+			ec.util.Parameter param = new ec.util.Parameter("seed." + i);
+			if(!dbase.exists(param, null)) {
+				dbase.set(param, String.valueOf(seed + i));
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of threads set by the given parameter, which 
+	 * may be "auto" (one thread by available processor).
+	 */
+	private static int numThreads(ParameterDatabase dbase, String name) {
+		String value = dbase.getString(new ec.util.Parameter(name), null);
+		if(value == null) {
+			return 1;
+		} else if(value.trim().equalsIgnoreCase(Evolve.V_THREADS_AUTO)) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+	
 	public void setAdditionalAlgorithmParameters(StringBean[] pairs) {
 		this.additionalConfig = pairs;
 	}
@@ -0,0 +1,231 @@
+package calibration;
+
+import calibration.fitness.history.ScoreBean.ScoreWrapper;
+import gnu.trove.list.array.TDoubleArrayList;
+import util.exception.simulation.SimulationException;
+
+/**
+ * MultiFidelitySchedule evaluates calibration candidates using an
+ * asynchronous successive halving strategy. Every candidate is first
+ * simulated at the lowest fidelity level (fewer agents and Monte-Carlo
+ * iterations), and it is only promoted to the next level when its score
+ * is among the best 1/eta scores obtained at its current level.
+ *
+ * Fidelity grows geometrically: level l simulates the base number of
+ * agents and Monte-Carlo iterations divided by eta^(levels-1-l), so the
+ * highest level uses the base values.
+ *
+ * Scores of candidates not reaching the highest level are corrected with
+ * the mean difference between consecutive levels, measured with the
+ * promoted candidates, so they are comparable with full fidelity scores.
+ *
+ * @author imoya
+ *
+ */
+public class MultiFidelitySchedule {
+
+	/**
+	 * Minimum number of agents simulated at any level.
+	 */
+	public static final int MIN_AGENTS = 100;
+
+	/**
+	 * Simulation of a candidate at given fidelity.
+	 */
+	public interface FidelityEvaluation {
+		/**
+		 * Simulates the candidate using given number of agents and
+		 * Monte-Carlo iterations.
+		 *
+		 * @param numberOfAgents - number of agents to simulate.
+		 * @param mcIterations - number of Monte-Carlo iterations.
+		 * @return the score of the candidate.
+		 * @throws SimulationException if the simulation fails.
+		 */
+		ScoreWrapper evaluate(int numberOfAgents, int mcIterations)
+				throws SimulationException;
+	}
+
+	private final int[] numberOfAgents;
+	private final int[] mcIterations;
+	private final double eta;
+
+	/**
+	 * Scores obtained at every level.
+	 */
+	private final TDoubleArrayList[] scoresByLevel;
+
+	/**
+	 * Accumulated differences between consecutive levels, used for
+	 * correcting the bias of low fidelity scores.
+	 */
+	private final double[] biasSum;
+	private final int[] biasCount;
+
+	/**
+	 * Creates a schedule for the given base fidelity.
+	 *
+	 * @param levels - number of fidelity levels.
+	 * @param eta - reduction factor between levels. Only the best 1/eta
+	 * candidates of every level are promoted.
+	 * @param baseNumberOfAgents - number of agents at the highest level.
+	 * @param baseMCIterations - Monte-Carlo iterations at the highest level.
+	 */
+	public MultiFidelitySchedule(
+			int levels,
+			double eta,
+			int baseNumberOfAgents,
+			int baseMCIterations
+		) {
+		if(levels < 1) {
+			throw new IllegalArgumentException(
+				"Number of fidelity levels must be positive: " + levels);
+		}
+		if(eta <= 1) {
+			throw new IllegalArgumentException(
+				"Fidelity reduction factor must be greater than 1: " + eta);
+		}
+		this.eta = eta;
+		numberOfAgents = new int[levels];
+		mcIterations = new int[levels];
+		scoresByLevel = new TDoubleArrayList[levels];
+		biasSum = new double[levels];
+		biasCount = new int[levels];
+
+		for (int l = 0; l < levels; l++) {
+			double reduction = Math.pow(eta, levels - 1 - l);
+			numberOfAgents[l] = Math.min(baseNumberOfAgents, Math.max(
+				MIN_AGENTS, (int) Math.round(baseNumberOfAgents / reduction)));
+			mcIterations[l] = Math.max(
+				1, (int) Math.round(baseMCIterations / reduction));
+			scoresByLevel[l] = new TDoubleArrayList();
+		}
+	}
+
+	/**
+	 * Evaluates a candidate, promoting it through fidelity levels while it
+	 * remains among the best ones.
+	 *
+	 * @param evaluation - simulation of the candidate.
+	 * @return the score at the highest level reached, with its final
+	 * score corrected to the highest level.
+	 * @throws SimulationException if any simulation fails.
+	 */
+	public ScoreWrapper evaluate(FidelityEvaluation evaluation)
+			throws SimulationException {
+		int top = numberOfAgents.length - 1;
+		int level = 0;
+		ScoreWrapper score = evaluation.evaluate(
+			numberOfAgents[level], mcIterations[level]);
+
+		while (level < top && promote(level, score.finalScore)) {
+			ScoreWrapper promoted = evaluation.evaluate(
+				numberOfAgents[level + 1], mcIterations[level + 1]);
+			addBias(level, promoted.finalScore - score.finalScore);
+			score = promoted;
+			level++;
+		}
+		if(level == top) {
+			record(level, score.finalScore);
+		} else {
+			score.finalScore += correction(level);
+		}
+		return score;
+	}
+
+	/**
+	 * Records a score at given level, deciding if the candidate must be
+	 * promoted. Until eta candidates are known, every one is promoted.
+	 */
+	private synchronized boolean promote(int level, double score) {
+		TDoubleArrayList scores = scoresByLevel[level];
+		int better = 0;
+		for (int i = 0; i < scores.size(); i++) {
+			if(scores.getQuick(i) < score) {
+				better++;
+			}
+		}
+		scores.add(score);
+		return scores.size() <= eta || better < scores.size() / eta;
+	}
+
+	private synchronized void record(int level, double score) {
+		scoresByLevel[level].add(score);
+	}
+
+	private synchronized void addBias(int level, double difference) {
+		biasSum[level] += difference;
+		biasCount[level]++;
+	}
+
+	/**
+	 * Returns the correction from the given level to the highest one.
+	 */
+	private synchronized double correction(int level) {
+		double correction = 0.0;
+		for (int l = level; l < biasSum.length - 1; l++) {
+			if(biasCount[l] > 0) {
+				correction += biasSum[l] / biasCount[l];
+			}
+		}
+		return correction;
+	}
+
+	/**
+	 * Returns the number of fidelity levels.
+	 *
+	 * @return the number of fidelity levels.
+	 */
+	public int getLevels() {
+		return numberOfAgents.length;
+	}
+
+	/**
+	 * Returns the number of agents simulated at given level.
+	 *
+	 * @param level - fidelity level.
+	 * @return the number of agents simulated at given level.
+	 */
+	public int getNumberOfAgents(int level) {
+		return numberOfAgents[level];
+	}
+
+	/**
+	 * Returns the Monte-Carlo iterations simulated at given level.
+	 *
+	 * @param level - fidelity level.
+	 * @return the Monte-Carlo iterations simulated at given level.
+	 */
+	public int getMonteCarloIterations(int level) {
+		return mcIterations[level];
+	}
+
+	/**
+	 * Returns the number of simulations run at given level.
+	 *
+	 * @param level - fidelity level.
+	 * @return the number of simulations run at given level.
+	 */
+	public synchronized int getEvaluations(int level) {
+		return scoresByLevel[level].size();
+	}
+
+	/**
+	 * Returns the simulation cost, measured as simulated agents by
+	 * Monte-Carlo iteration, relative to simulating every candidate at
+	 * the highest level.
+	 *
+	 * @return the relative simulation cost.
+	 */
+	public synchronized double getRelativeCost() {
+		int top = numberOfAgents.length - 1;
+		double cost = 0.0;
+		for (int l = 0; l <= top; l++) {
+			cost += (double) scoresByLevel[l].size()
+					* numberOfAgents[l] * mcIterations[l];
+		}
+		double fullCost = (double) scoresByLevel[0].size()
+				* numberOfAgents[top] * mcIterations[top];
+		return fullCost > 0 ? cost / fullCost : 1.0;
+	}
+}
@@ -0,0 +1,101 @@
+package calibration;
+
+import calibration.fitness.history.HistoryManager;
+import model.SimulationPruning;
+import util.statistics.Statistics;
+
+/**
+ * TrajectoryPruning aborts the simulation of a calibration candidate as
+ * soon as its training score is known to be worse than a threshold,
+ * usually the best score found so far.
+ *
+ * At every checkpoint, each Monte-Carlo iteration computes a lower bound
+ * of its own training score using its partial trajectory. The bounds never
+ * decrease and the training score averages every iteration, so the
+ * average of the last bound of every iteration (zero for iterations not
+ * checked yet) is a lower bound of the training score. When it exceeds the
+ * threshold, every iteration is aborted and that bound is reported as the
+ * penalty score of the candidate, which is still worse than the threshold.
+ *
+ * @author imoya
+ *
+ */
+public class TrajectoryPruning implements SimulationPruning {
+
+	private final HistoryManager historyManager;
+	private final double threshold;
+	private final int checkpointInterval;
+
+	/**
+	 * Last bound computed by every iteration.
+	 */
+	private final double[] bounds;
+	private double boundSum;
+
+	private volatile boolean pruned;
+
+	/**
+	 * Creates the pruning of a single simulation.
+	 *
+	 * @param historyManager - history manager computing the bounds.
+	 * @param threshold - score that must be exceeded for aborting.
+	 * @param mcIterations - number of Monte-Carlo iterations simulated.
+	 * @param checkpointInterval - number of steps between checkpoints.
+	 */
+	public TrajectoryPruning(
+			HistoryManager historyManager,
+			double threshold,
+			int mcIterations,
+			int checkpointInterval
+		) {
+		this.historyManager = historyManager;
+		this.threshold = threshold;
+		this.checkpointInterval = Math.max(1, checkpointInterval);
+		this.bounds = new double[mcIterations];
+	}
+
+	@Override
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	@Override
+	public boolean isHopeless(int iteration, Statistics statistics, int step) {
+		if(pruned) {
+			return true;
+		}
+		double bound = historyManager.computeTrainingLowerBound(
+				statistics, step);
+		return update(iteration, bound);
+	}
+
+	private synchronized boolean update(int iteration, double bound) {
+		if(bound > bounds[iteration]) {
+			boundSum += bound - bounds[iteration];
+			bounds[iteration] = bound;
+		}
+		if(boundSum / bounds.length > threshold) {
+			pruned = true;
+		}
+		return pruned;
+	}
+
+	/**
+	 * Returns true if the simulation was aborted.
+	 *
+	 * @return true if the simulation was aborted.
+	 */
+	public boolean isPruned() {
+		return pruned;
+	}
+
+	/**
+	 * Returns the lower bound of the training score when the simulation
+	 * was aborted, used as its penalty score.
+	 *
+	 * @return the lower bound of the training score.
+	 */
+	public synchronized double getPenaltyScore() {
+		return boundSum / bounds.length;
+	}
+}
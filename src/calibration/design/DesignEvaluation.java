@@ -0,0 +1,346 @@
+package calibration.design;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import calibration.CalibrationParametersManager;
+import calibration.fitness.history.HistoryManager;
+import calibration.fitness.history.ScoreBean.ScoreWrapper;
+import model.ModelDefinition;
+import model.ModelManager;
+import model.ModelRunner;
+import util.exception.calibration.CalibrationException;
+import util.io.CSVFileUtils;
+import util.statistics.MonteCarloStatistics;
+
+/**
+ * DesignEvaluation evaluates the points of a design of experiments against
+ * the history of a calibration. Points are evaluated in parallel, each one
+ * in its own overlay of the model definition, while their Monte-Carlo
+ * iterations share the simulation pool of ModelRunner.
+ *
+ * Every evaluation is appended to a CSV file as soon as it finishes, with
+ * its index in the design, its score, its simulation time and its genome.
+ * When the file already exists, the design is generated again and the
+ * evaluated points are skipped, so interrupted evaluations are resumed.
+ *
+ * @author imoya
+ *
+ */
+public class DesignEvaluation {
+
+	/**
+	 * Range of the genes when integer coding is used.
+	 */
+	public static final int INTEGER_RANGE = 1000;
+
+	private static final String HEADER_INDEX = "index";
+	private static final String HEADER_SCORE = "score";
+	private static final String HEADER_TIME = "time";
+	private static final String HEADER_GENE = "g";
+
+	private static final char SEPARATOR = CSVFileUtils.DEFAULT_CSV_SEPARATOR;
+
+	private final ModelDefinition md;
+	private final CalibrationParametersManager paramManager;
+	private final HistoryManager manager;
+	private final int mcIterations;
+	private final boolean realCoding;
+
+	/**
+	 * Best evaluation found, and number of points evaluated (including
+	 * resumed ones).
+	 */
+	private double bestScore = Double.MAX_VALUE;
+	private double[] bestGenome;
+	private int bestIndex = -1;
+	private int evaluated;
+
+	/**
+	 * Creates an evaluation engine.
+	 * @param md - base model definition, never modified.
+	 * @param paramManager - calibration parameters.
+	 * @param manager - history of the calibration.
+	 * @param mcIterations - Monte-Carlo iterations by evaluation.
+	 * @param realCoding - true if genes are real values in [0,1), false if
+	 * they are integer values in [0,INTEGER_RANGE).
+	 */
+	public DesignEvaluation(ModelDefinition md,
+			CalibrationParametersManager paramManager, HistoryManager manager,
+			int mcIterations, boolean realCoding) {
+		this.md = md;
+		this.paramManager = paramManager;
+		this.manager = manager;
+		this.mcIterations = mcIterations;
+		this.realCoding = realCoding;
+	}
+
+	/**
+	 * Converts a point of the unit hypercube to a genome.
+	 * @param point - point of the design.
+	 * @return the genome.
+	 */
+	public double[] toGenome(double[] point) {
+		if(realCoding) {
+			return point.clone();
+		}
+		double[] genome = new double[point.length];
+		for (int i = 0; i < point.length; i++) {
+			genome[i] = Math.min((int) (point[i] * INTEGER_RANGE),
+					INTEGER_RANGE - 1);
+		}
+		return genome;
+	}
+
+	/**
+	 * Creates an overlay of the base model definition with the parameters
+	 * of the genome.
+	 * @param genome - values of the calibration parameters.
+	 * @return the updated overlay.
+	 * @throws CalibrationException if a parameter cannot be set.
+	 */
+	public ModelDefinition createModel(double[] genome)
+			throws CalibrationException {
+		ModelDefinition overlay = md.createOverlay();
+		ModelManager modelManager = new ModelManager(overlay,
+				paramManager.getInvolvedDrivers());
+		for (int v = 0; v < genome.length; v++) {
+			paramManager.setParameterValue(modelManager, v, genome[v]);
+		}
+		return overlay;
+	}
+
+	/**
+	 * Simulates a genome and computes its training score. It may be called
+	 * concurrently.
+	 * @param genome - values of the calibration parameters.
+	 * @return the training score.
+	 * @throws CalibrationException if a parameter cannot be set.
+	 */
+	public ScoreWrapper evaluate(double[] genome) throws CalibrationException {
+		return evaluate(createModel(genome));
+	}
+
+	/**
+	 * Simulates a model definition, usually created by createModel, and
+	 * computes its training score. It may be called concurrently.
+	 * @param model - model definition to be simulated.
+	 * @return the training score.
+	 */
+	public ScoreWrapper evaluate(ModelDefinition model) {
+		MonteCarloStatistics mcStats = ModelRunner.simulateModel(
+				model, mcIterations, false, manager.getStatsBean());
+		return manager.computeTrainingScore(mcStats);
+	}
+
+	/**
+	 * Evaluates the first points of a design, appending the results to the
+	 * output file and skipping the points already stored in it. Simulations
+	 * run in the shared pool of ModelRunner, started for the evaluation if
+	 * needed.
+	 *
+	 * @param sampler - sampler of the design.
+	 * @param size - number of points evaluated.
+	 * @param threads - number of points evaluated at the same time.
+	 * @param output - CSV file of the evaluations.
+	 * @throws IOException if the output file cannot be read or written.
+	 */
+	public void run(DesignSampler sampler, int size, int threads, String output)
+			throws IOException {
+		File file = new File(output);
+		Map<Integer, double[]> resumed = resume(file, sampler.getDimensions());
+		if(!resumed.isEmpty()) {
+			System.out.println("Resuming " + output + " :: " + resumed.size()
+				+ " of " + size + " points already evaluated.");
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		ModelRunner.acquireSharedPool(cores > 2 ? cores - 1 : cores);
+
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Math.max(1, threads));
+		// Bounds the points waiting for a thread
+		Semaphore pending = new Semaphore(2 * Math.max(1, threads));
+
+		try (BufferedWriter writer = new BufferedWriter(
+				new FileWriter(file, true))) {
+			if(file.length() == 0) {
+				writer.write(header(sampler.getDimensions()));
+				writer.newLine();
+				writer.flush();
+			}
+
+			for (int i = 0; i < size; i++) {
+				final int index = i;
+				final double[] genome = toGenome(sampler.next());
+
+				double[] stored = resumed.get(index);
+				if(stored != null) {
+					if(!Arrays.equals(stored, genome)) {
+						throw new IllegalStateException(output
+							+ " was not generated by this design (point "
+								+ index + ").");
+					}
+					continue;
+				}
+
+				pending.acquire();
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							long before = System.currentTimeMillis();
+							ScoreWrapper score = evaluate(genome);
+							long time = System.currentTimeMillis() - before;
+							record(writer, index, score.finalScore, time, genome);
+						} catch (Exception e) {
+							System.out.println("Simulation error for point "
+								+ index + ": " + e.getMessage());
+						} finally {
+							pending.release();
+						}
+					}
+				});
+			}
+
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Design evaluation interrupted", e);
+		} finally {
+			executor.shutdownNow();
+			ModelRunner.releaseSharedPool();
+		}
+	}
+
+	private static String header(int dimensions) {
+		StringBuilder header = new StringBuilder();
+		header.append(HEADER_INDEX).append(SEPARATOR)
+			.append(HEADER_SCORE).append(SEPARATOR)
+			.append(HEADER_TIME);
+		for (int d = 0; d < dimensions; d++) {
+			header.append(SEPARATOR).append(HEADER_GENE).append(d);
+		}
+		return header.toString();
+	}
+
+	private synchronized void record(BufferedWriter writer, int index,
+			double score, long time, double[] genome) throws IOException {
+		StringBuilder line = new StringBuilder();
+		line.append(index).append(SEPARATOR)
+			.append(score).append(SEPARATOR)
+			.append(time);
+		for (double gene : genome) {
+			line.append(SEPARATOR).append(gene);
+		}
+		writer.write(line.toString());
+		writer.newLine();
+		writer.flush();
+
+		update(index, score, genome);
+		System.out.println(index + " :: " + score + " ;; " + time);
+	}
+
+	/**
+	 * Updates the best evaluation. Ties are resolved by index, so the best 
+	 * genome does not depend on the order of completion.
+	 */
+	private synchronized void update(int index, double score, double[] genome) {
+		evaluated++;
+		if(score < bestScore || (score == bestScore && index < bestIndex)) {
+			bestScore = score;
+			bestGenome = genome;
+			bestIndex = index;
+		}
+	}
+
+	/**
+	 * Reads the evaluations stored in the output file. The file is written
+	 * again without its incomplete lines (e.g. the last line of a killed
+	 * process), so new evaluations are appended to valid lines.
+	 * @return the stored genomes by index.
+	 */
+	private Map<Integer, double[]> resume(File file, int dimensions)
+			throws IOException {
+		Map<Integer, double[]> resumed = new HashMap<Integer, double[]>();
+		if(!file.exists() || file.length() == 0) {
+			return resumed;
+		}
+
+		File valid = new File(file.getPath() + ".tmp");
+		try (BufferedReader reader = new BufferedReader(new FileReader(file));
+				BufferedWriter writer = new BufferedWriter(new FileWriter(valid))) {
+			String header = reader.readLine();
+			if(!header(dimensions).equals(header)) {
+				throw new IllegalStateException(file
+					+ " was not generated by this design (header).");
+			}
+			writer.write(header);
+			writer.newLine();
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] values = line.split(String.valueOf(SEPARATOR));
+				if(values.length != dimensions + 3) {
+					continue;
+				}
+				try {
+					int index = Integer.parseInt(values[0]);
+					double score = Double.parseDouble(values[1]);
+					double[] genome = new double[dimensions];
+					for (int d = 0; d < dimensions; d++) {
+						genome[d] = Double.parseDouble(values[d + 3]);
+					}
+					if(resumed.put(index, genome) == null) {
+						update(index, score, genome);
+						writer.write(line);
+						writer.newLine();
+					}
+				} catch (NumberFormatException e) {
+					// Incomplete line
+				}
+			}
+		}
+		Files.move(valid.toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		return resumed;
+	}
+
+	// ########################################################################
+	// Get/Set methods
+	// ########################################################################
+
+	public synchronized double getBestScore() {
+		return bestScore;
+	}
+
+	/**
+	 * Returns the genome of the best evaluation, including resumed ones.
+	 * @return the best genome, or null if no point was evaluated.
+	 */
+	public synchronized double[] getBestGenome() {
+		return bestGenome;
+	}
+
+	/**
+	 * Returns the number of evaluated points, including resumed ones.
+	 * @return the number of evaluated points.
+	 */
+	public synchronized int getEvaluated() {
+		return evaluated;
+	}
+}
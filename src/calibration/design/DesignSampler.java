@@ -0,0 +1,61 @@
+package calibration.design;
+
+import util.random.RandomizerFactory;
+import util.random.RandomizerFactory.RandomizerAlgorithm;
+
+/**
+ * DesignSampler generates the points of a design of experiments, in the
+ * unit hypercube [0,1) of the given number of dimensions. Samplers are
+ * deterministic, so a design is generated again identically from the same
+ * seed (e.g. for resuming its evaluation).
+ *
+ * @author imoya
+ *
+ */
+public interface DesignSampler {
+
+	public enum SamplerType {
+		RANDOM, LATIN_HYPERCUBE, SOBOL
+	};
+
+	/**
+	 * Returns the number of dimensions of the points.
+	 * @return the number of dimensions.
+	 */
+	public int getDimensions();
+
+	/**
+	 * Returns the next point of the design.
+	 * @return a new point in [0,1) for every dimension.
+	 */
+	public double[] next();
+
+	/**
+	 * Creates a sampler.
+	 * @param type - type of the sampler.
+	 * @param dimensions - dimensions of the points.
+	 * @param size - number of points of the design.
+	 * @param seed - seed of the design. Sobol designs are not random, so
+	 * designs with different seeds use consecutive blocks of the sequence.
+	 * @param index - index of the design, used for choosing the block of
+	 * the Sobol sequence.
+	 * @return the sampler.
+	 */
+	public static DesignSampler create(SamplerType type, int dimensions,
+			int size, long seed, int index) {
+		switch (type) {
+		case RANDOM:
+			return new RandomSampler(dimensions, RandomizerFactory.createRandomizer(
+					RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST, seed));
+		case LATIN_HYPERCUBE:
+			return new LatinHypercubeSampler(dimensions, size,
+					RandomizerFactory.createRandomizer(
+						RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST, seed));
+		case SOBOL:
+			return new SobolSampler(dimensions, (long) index * size);
+		default:
+			throw new IllegalArgumentException(
+					type + " is not a valid sampler type.");
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package calibration.design;
+
+import util.random.Randomizer;
+
+/**
+ * LatinHypercubeSampler generates a Latin hypercube design: every
+ * dimension is divided into as many strata as points, and every stratum
+ * of every dimension contains exactly one point, at a random position.
+ * Strata are assigned to the points by an independent random permutation
+ * by dimension.
+ *
+ * @author imoya
+ *
+ */
+public class LatinHypercubeSampler implements DesignSampler {
+
+	private final int dimensions;
+	private final int size;
+	private final Randomizer random;
+
+	/**
+	 * Stratum of every point, by dimension.
+	 */
+	private final int[][] strata;
+
+	private int next;
+
+	/**
+	 * Creates a sampler.
+	 * @param dimensions - dimensions of the points.
+	 * @param size - number of points of the design.
+	 * @param random - random generator of the design.
+	 */
+	public LatinHypercubeSampler(int dimensions, int size, Randomizer random) {
+		if(size < 1) {
+			throw new IllegalArgumentException(
+				"Latin hypercube size must be positive: " + size);
+		}
+		this.dimensions = dimensions;
+		this.size = size;
+		this.random = random;
+
+		strata = new int[dimensions][size];
+		for (int d = 0; d < dimensions; d++) {
+			int[] permutation = strata[d];
+			for (int i = 0; i < size; i++) {
+				permutation[i] = i;
+			}
+			// Fisher-Yates shuffle
+			for (int i = size - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = permutation[i];
+				permutation[i] = permutation[j];
+				permutation[j] = swap;
+			}
+		}
+	}
+
+	@Override
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	/**
+	 * Returns the next point of the design.
+	 * @throws IllegalStateException if every point was already returned.
+	 */
+	@Override
+	public double[] next() {
+		if(next >= size) {
+			throw new IllegalStateException(
+				"Every point of the Latin hypercube was already sampled.");
+		}
+		double[] point = new double[dimensions];
+		for (int d = 0; d < dimensions; d++) {
+			point[d] = (strata[d][next] + random.nextDouble()) / size;
+		}
+		next++;
+		return point;
+	}
+}
@@ -0,0 +1,37 @@
+package calibration.design;
+
+import util.functions.ArrayFunctions;
+import util.random.Randomizer;
+
+/**
+ * RandomSampler draws independent uniform points. It is the baseline
+ * random search design.
+ *
+ * @author imoya
+ *
+ */
+public class RandomSampler implements DesignSampler {
+
+	private final int dimensions;
+	private final Randomizer random;
+
+	/**
+	 * Creates a sampler.
+	 * @param dimensions - dimensions of the points.
+	 * @param random - random generator of the points.
+	 */
+	public RandomSampler(int dimensions, Randomizer random) {
+		this.dimensions = dimensions;
+		this.random = random;
+	}
+
+	@Override
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	@Override
+	public double[] next() {
+		return ArrayFunctions.getRandomDoubleArray(random, dimensions);
+	}
+}
@@ -0,0 +1,47 @@
+package calibration.design;
+
+import org.apache.commons.math3.random.SobolSequenceGenerator;
+
+/**
+ * SobolSampler generates the points of a Sobol low-discrepancy sequence
+ * (Joe-Kuo direction numbers, up to 1000 dimensions). The first point of
+ * the sequence, the origin, is skipped.
+ *
+ * @author imoya
+ *
+ */
+public class SobolSampler implements DesignSampler {
+
+	private final int dimensions;
+	private final SobolSequenceGenerator generator;
+
+	/**
+	 * Creates a sampler.
+	 * @param dimensions - dimensions of the points.
+	 * @param offset - number of points skipped after the origin.
+	 */
+	public SobolSampler(int dimensions, long offset) {
+		this.dimensions = dimensions;
+		this.generator = new SobolSequenceGenerator(dimensions);
+		if(offset > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+				"Sobol offset out of range: " + offset);
+		}
+		// After skipping to a point, the generator returns the next one
+		if(offset > 0) {
+			generator.skipTo((int) offset);
+		} else {
+			generator.nextVector();
+		}
+	}
+
+	@Override
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	@Override
+	public double[] next() {
+		return generator.nextVector();
+	}
+}
@@ -306,18 +306,21 @@ public class CROBreeder extends Breeder {
 			isLarvae=performBrooding(state,0,subp,numISL);
 			
 			//Evaluate both sets of larvae
+			ArrayList<Individual> larvae=new ArrayList<Individual>(numESL+numISL);
 			for (int i=0; i<numESL;i++ ){ //External reproduction evaluation
 				coral=(Individual) esLarvae.get(i).clone();		//Get solution
 				coral.evaluated=false;
-				((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, coral, 0,0);
-				sLarvae.add((Individual) coral.clone());
+				larvae.add(coral);
 			}				
 			for (int i=0; i<numISL;i++ ){ //External reproduction evaluation
 				coral=(Individual) isLarvae.get(i).clone();		//Get solution
 				coral.evaluated=false;
-				((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, coral, 0,0);
-				sLarvae.add((Individual) coral.clone());
+				larvae.add(coral);
 			}			
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(state, larvae, 0);
+			for (Individual larva : larvae) {
+				sLarvae.add((Individual) larva.clone());
+			}
 
 			larvaeSetting(state,subp,sLarvae);
 			
@@ -326,12 +329,16 @@ public class CROBreeder extends Breeder {
 			numASL=(int) Math.ceil(numC*Fa);
 			
 			asLarvae=performBudding(subp,numASL);
+			larvae=new ArrayList<Individual>(numASL);
 			for (int i=0; i<numASL;i++ ){ //External reproduction evaluation
 				coral=(Individual) asLarvae.get(i).clone();		//Get solution
 				coral.evaluated=false;
-				((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, coral, 0,0);
-				asLarvae.add((Individual) coral.clone());
+				larvae.add(coral);
 			}	
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(state, larvae, 0);
+			for (Individual larva : larvae) {
+				asLarvae.add((Individual) larva.clone());
+			}
 			larvaeSetting(state,subp,asLarvae);
 
 			extremeDepredation(state,subp);
@@ -100,7 +100,7 @@ public class CROEvolutionState extends EvolutionState
             }
 
         // SHOULD WE QUIT?
-        if( EcjModelEvaluation.getCurrentEvaluations() >= numEvaluations)
+        if( EcjModelEvaluation.getCurrentEvaluations(this) >= numEvaluations)
         	return R_FAILURE;
         
         // PRE-BREEDING EXCHANGING
@@ -10,6 +10,7 @@ import ec.vector.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import calibration.ecj.EcjModelEvaluation;
 
@@ -179,6 +180,10 @@ public class CROSLBreeder extends Breeder {
 
 			sectionSize=(int)Math.floor((float)reefSize/numberOfSubstrates);
 			Slarvae=new Individual[reefSize];
+			Individual[] corals=new Individual[reefSize];
+			Individual[] otherparents=new Individual[reefSize];
+			int[] substrates=new int[reefSize];
+			ArrayList<Individual> larvae=new ArrayList<Individual>(2*reefSize);
 			for(int ind=0;ind<reefSize;ind++){
 				/***Retrieve the individual in the population, find its location in the reef, and calculate the substrate it belongs***/
 				loc=-1;
@@ -272,18 +277,30 @@ public class CROSLBreeder extends Breeder {
 							break;
 						}
 					}
-					/***Now we evaluate the generated larvae***/
+					/***The generated larvae are evaluated all together***/
 					//Maybe duplicate, force evaluation of new individual
 					coral.evaluated=false;
-					((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, coral, 0,0);
-					
+					corals[ind]=coral;
+					otherparents[ind]=otherparent;
+					substrates[ind]=sub;
+					larvae.add(coral);
+					if(otherparent!=null) larvae.add(otherparent);
+				}
+			}
+			
+			/***Now we evaluate the generated larvae***/
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(state, larvae, 0);
+			
+			for(int ind=0;ind<reefSize;ind++){
+				coral=corals[ind];
+				if(coral!=null){
+					otherparent=otherparents[ind];
+					sub=substrates[ind];
 					if(otherparent!=null){
-						((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, (Individual)otherparent, 0,0);
 						if(coral.fitness.betterThan(otherparent.fitness))	Slarvae[ind]=(Individual)coral.clone();
 						else												Slarvae[ind]=(Individual)otherparent.clone();
 					}else													Slarvae[ind]=(Individual)coral.clone(); 
 			
-				
 		/***************************************************************************************/		
 		//Aquí montamos el cambio para ver de donde viene el mejor individuo de esta generacion		
 				//Cogemos el primer individuo como el mejor, minimo fitness //inicializado en linea 149
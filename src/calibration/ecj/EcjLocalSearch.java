@@ -381,7 +381,7 @@ extends Statistics implements SteadyStateStatisticsForm
 	
 	private int computeMaxRefinements(final EvolutionState state) {
 		long left = state.numEvaluations - 
-				EcjModelEvaluation.getCurrentEvaluations();
+				EcjModelEvaluation.getCurrentEvaluations(state);
 		
 		int max = (int)(left / localSearch.maxSteps);
 		
@@ -389,7 +389,7 @@ extends Statistics implements SteadyStateStatisticsForm
 			disable= true;
 			if (state instanceof SteadyStateEvolutionState) {
 				((SteadyStateEvolutionState)state).evaluations =
-						EcjModelEvaluation.getCurrentEvaluations();
+						EcjModelEvaluation.getCurrentEvaluations(state);
 			} else {
 				state.generation = state.numGenerations-2;
 			}
@@ -1,6 +1,22 @@
 package calibration.ecj;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import calibration.EcjInterface;
 import calibration.ecj.multimodal.*;
@@ -9,6 +25,7 @@ import calibration.ecj.multimodal.nichepso.NicheParticle;
 import calibration.ecj.multimodal.nmmso.NMMSOParticle;
 import calibration.ecj.multimodal.nsga2mm.*;
 import calibration.fitness.history.ScoreBean.ScoreWrapper;
+import calibration.surrogate.SurrogateScreening;
 import ec.EvolutionState;
 import ec.Individual;
 import ec.Problem;
@@ -20,6 +37,8 @@ import ec.simple.SimpleProblemForm;
 import ec.util.Parameter;
 import ec.vector.DoubleVectorIndividual;
 import ec.vector.FloatVectorSpecies;
+import ec.vector.IntegerVectorIndividual;
+import ec.vector.IntegerVectorSpecies;
 import util.exception.calibration.CalibrationException;
 import util.exception.sales.SalesScheduleError;
 
@@ -36,6 +55,20 @@ import util.exception.sales.SalesScheduleError;
  * 
  * This class must have access to the calibration setup instance that is
  * being used to properly evaluate the individuals
+ * 
+ * Optionally, a surrogate model trained with the simulated individuals
+ * pre-screens every new individual, so only the promising ones are 
+ * simulated. It is configured using these parameters:
+ *  -	surrogate: true to enable the surrogate pre-screening.
+ *  -	surrogate.fraction: fraction of the best known errors where 
+ *  		predictions must fall to simulate an individual (0.3).
+ *  -	surrogate.exploration: probability of simulating an individual
+ *  		regardless of its prediction (0.1).
+ *  -	surrogate.min-samples: simulations before screening anything (30).
+ *  -	surrogate.max-samples: last simulations used for training (200).
+ *  -	surrogate.regularization: ridge of the RBF surrogate (0.001).
+ * Screened individuals get the predicted fitness. Only single-objective
+ * fitness is screened.
  *   
  * @author jjpalacios
  * 
@@ -74,11 +107,37 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
 	 * Archive of evaluated solutions
 	 */
 	//private HashMap<IntegerVectorIndividual, Double> history;	
-	private HashMap<Individual, Double> history;
+	private Map<Individual, Double> history;
+	/**
+	 * Individuals being evaluated, so equal individuals evaluated at the 
+	 * same time by different threads are simulated only once
+	 */
+	private Map<Individual, CompletableFuture<Double>> inFlight;
+	/**
+	 * Number of real evaluations performed by this run. It is shared by 
+	 * every clone of this problem, but not by other runs in the process.
+	 */
+	private final AtomicInteger numEvaluations = new AtomicInteger();
+	/**
+	 * Evaluation threads used by asynchronous and batch evaluations. 
+	 * They are created on demand (one for every ECJ evaluation thread) 
+	 * and shared by every clone of this problem.
+	 */
+	private transient EvaluationPool pool = new EvaluationPool();
 	/**
-	 * Number of real evaluations performed
+	 * Surrogate pre-screening parameters
 	 */
-	private static int numEvaluations = 0;
+	public static final String P_SURROGATE = "surrogate";
+	public static final String P_SURROGATE_FRACTION = "fraction";
+	public static final String P_SURROGATE_EXPLORATION = "exploration";
+	public static final String P_SURROGATE_MIN_SAMPLES = "min-samples";
+	public static final String P_SURROGATE_MAX_SAMPLES = "max-samples";
+	public static final String P_SURROGATE_REGULARIZATION = "regularization";
+	/**
+	 * Surrogate pre-screening, shared by every clone of this problem. It
+	 * is null when disabled.
+	 */
+	private SurrogateScreening surrogate;
 	/**
 	 * Modality indicator for PNA-NSGA2
 	 */
@@ -98,6 +157,21 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
         modality = state.parameters.getStringWithDefault(base.push("modality"),
                 null, "none");
         
+        if(state.parameters.getBoolean(base.push(P_SURROGATE), null, false)) {
+        	Parameter surrogateBase = base.push(P_SURROGATE);
+        	surrogate = new SurrogateScreening(
+        		state.parameters.getDoubleWithDefault(
+        			surrogateBase.push(P_SURROGATE_FRACTION), null, 0.3),
+        		state.parameters.getDoubleWithDefault(
+        			surrogateBase.push(P_SURROGATE_EXPLORATION), null, 0.1),
+        		state.parameters.getIntWithDefault(
+        			surrogateBase.push(P_SURROGATE_MIN_SAMPLES), null, 30),
+        		state.parameters.getIntWithDefault(
+        			surrogateBase.push(P_SURROGATE_MAX_SAMPLES), null, 200),
+        		state.parameters.getDoubleWithDefault(
+        			surrogateBase.push(P_SURROGATE_REGULARIZATION), null, 0.001)
+        	);
+        }
     }
     
 	/**
@@ -120,8 +194,13 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
 	public void init(EcjInterface ecjInterface) {
 		this.ecjInterface = ecjInterface;
 		this.classInitialized = true;
-		this.history = new HashMap<Individual, Double>();
-		numEvaluations = 0;
+		this.history = Collections.synchronizedMap(
+				new HashMap<Individual, Double>());
+		this.inFlight = new ConcurrentHashMap<Individual, CompletableFuture<Double>>();
+		numEvaluations.set(0);
+		if(surrogate != null) {
+			surrogate.reset();
+		}
 	}
 	
 	
@@ -175,6 +254,20 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
         // Check if the individual has been already evaluated
         Double hashValue = this.history.get(ind);
         double fitness = 0.0;
+        
+        // If an equal individual is being evaluated, wait for its fitness
+        CompletableFuture<Double> evaluation = null;
+        if(hashValue == null) {
+        	evaluation = new CompletableFuture<Double>();
+        	CompletableFuture<Double> running = inFlight.putIfAbsent(ind, evaluation);
+        	if(running != null) {
+        		evaluation = null;
+        		hashValue = running.join();
+        	} else {
+        		// It may have finished before registering this evaluation
+        		hashValue = this.history.get(ind);
+        	}
+        }
 
         // Check than individual is in the bounds (just for PSO)
         if(ind.species.i_prototype instanceof Particle 
@@ -191,24 +284,67 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
         }
         		
         ScoreWrapper wrapper = null;
+        // Predicted fitness is not stored at the history
+        boolean screened = false;
         // If it has been evaluated, assign the fitness directly
         if(hashValue != null) {
         	fitness = hashValue;
         
         // If not, fully evaluate the individual
         } else {
-	        try {
-	        	wrapper = ecjInterface.fitnessInterface(ind);
-	        	numEvaluations++;
-	        	fitness = wrapper.finalScore;
-	        	
-	        	if(numEvaluations % 100 == 0)
-	        		state.output.println("Number of regular evaluations: "
-	        				+ String.valueOf(numEvaluations), 0);
-	        	
-	        } catch (CalibrationException | SalesScheduleError e) {
-				state.output.fatal(e.getMessage(), null);
-			}
+        	// Threads waiting for this evaluation are released on failure
+        	try {
+	        	double[] point = null;
+	        	if(surrogate != null && ind.fitness instanceof SimpleFitness) {
+	        		point = normalizedGenome(ind);
+	        	}
+	        	// The random value is only drawn when the surrogate can screen
+	        	double predicted = point == null ? Double.NaN 
+	        			: surrogate.screen(point, state.random[threadnum]::nextDouble);
+        	
+	        	// Not promising individuals are not simulated
+	        	if(!Double.isNaN(predicted)) {
+	        		fitness = predicted;
+	        		screened = true;
+	        	} else {
+			        try {
+			        	wrapper = ecjInterface.fitnessInterface(ind);
+			        	int evaluations = numEvaluations.incrementAndGet();
+			        	fitness = wrapper.finalScore;
+			        	if(point != null) {
+			        		surrogate.addSample(point, fitness);
+			        	}
+		        	
+			        	if(evaluations % 100 == 0) {
+			        		state.output.println("Number of regular evaluations: "
+			        				+ String.valueOf(evaluations), 0);
+			        		if(surrogate != null) {
+			        			state.output.println("Simulations saved by surrogate: "
+			        				+ String.valueOf(surrogate.getSaved()), 0);
+			        		}
+			        	}
+		        	
+			        } catch (CalibrationException | SalesScheduleError e) {
+						state.output.fatal(e.getMessage(), null);
+					}
+	        	}
+        	} catch (RuntimeException | Error e) {
+        		if(evaluation != null) {
+        			inFlight.remove(ind, evaluation);
+        			evaluation.completeExceptionally(e);
+        		}
+        		throw e;
+        	}
+        }
+        
+        if(evaluation != null) {
+        	// Stored before releasing the waiting threads. Screened 
+        	// individuals are not stored, so they screen their own copy.
+        	if(!screened) {
+        		history.put(ind, fitness);
+        	}
+        	inFlight.remove(ind, evaluation);
+        	evaluation.complete(screened ? null : fitness);
         }
  
 		// Check that individual is correct
@@ -262,11 +398,158 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
 
         ind.evaluated = true;
         
-        history.put(ind, fitness);
+        if(!screened && evaluation == null) {
+        	history.put(ind, fitness);
+        }
     }
     
-    public static int getCurrentEvaluations() {
-    	return numEvaluations;
+    /**
+     * Submits the given individual for its evaluation at one of the 
+     * evaluation threads. There are as many evaluation threads as ECJ
+     * evaluation threads (evalthreads parameter), and the thread number
+     * passed to evaluate is the one of the thread running it.
+     * 
+     * @param state ECJ object that contains all the information of the algorithm.
+     * @param ind Individual to be evaluated (ECJ object).
+     * @param subpopulation Population to which the individual belongs.
+     * @return the future evaluated individual.
+     */
+    public Future<Individual> submit(final EvolutionState state,
+    	final Individual ind,
+    	final int subpopulation)
+    {
+    	if(pool == null) {
+    		pool = new EvaluationPool();
+    	}
+    	return pool.get(state).submit(new Callable<Individual>() {
+			@Override
+			public Individual call() {
+				evaluate(state, ind, subpopulation, EvaluationPool.threadnum());
+				return ind;
+			}
+		});
+    }
+    
+    /**
+     * Evaluates every given individual, using every ECJ evaluation thread
+     * (evalthreads parameter), and waits until all of them are evaluated.
+     * With a single evaluation thread, individuals are evaluated in order 
+     * at the calling thread.
+     * 
+     * @param state ECJ object that contains all the information of the algorithm.
+     * @param inds Individuals to be evaluated (ECJ objects).
+     * @param subpopulation Population to which the individuals belong.
+     */
+    public void evaluateAll(final EvolutionState state,
+    	final List<? extends Individual> inds,
+    	final int subpopulation)
+    {
+    	if(state.evalthreads <= 1 || inds.size() <= 1) {
+    		for (Individual ind : inds) {
+    			evaluate(state, ind, subpopulation, 0);
+    		}
+    		return;
+    	}
+    	
+    	// The same instance can't be evaluated by two threads.
+    	Set<Individual> submitted = Collections.newSetFromMap(
+    			new IdentityHashMap<Individual, Boolean>());
+    	List<Future<Individual>> futures = 
+    			new ArrayList<Future<Individual>>(inds.size());
+    	for (Individual ind : inds) {
+    		if(!ind.evaluated && submitted.add(ind)) {
+    			futures.add(submit(state, ind, subpopulation));
+    		}
+    	}
+    	
+    	for (Future<Individual> future : futures) {
+    		try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				state.output.fatal("Evaluation interrupted", null);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if(cause instanceof Error) {
+					throw (Error) cause;
+				}
+				state.output.fatal("Evaluation failed: " + cause, null);
+			}
+    	}
+    }
+    
+    /**
+     * Evaluates every given individual, using every ECJ evaluation thread.
+     * 
+     * @param state ECJ object that contains all the information of the algorithm.
+     * @param inds Individuals to be evaluated (ECJ objects).
+     * @param subpopulation Population to which the individuals belong.
+     * @see #evaluateAll(EvolutionState, List, int)
+     */
+    public void evaluateAll(final EvolutionState state,
+    	final Individual[] inds,
+    	final int subpopulation)
+    {
+    	evaluateAll(state, Arrays.asList(inds), subpopulation);
+    }
+    
+    /**
+     * Returns the number of real evaluations performed by the run of the 
+     * given state.
+     * 
+     * @param state ECJ object that contains all the information of the algorithm.
+     * @return the number of real evaluations of the run.
+     */
+    public static int getCurrentEvaluations(final EvolutionState state) {
+    	return ((EcjModelEvaluation)state.evaluator.p_problem)
+    			.numEvaluations.get();
+    }
+    
+    /**
+     * Returns the number of simulations avoided by the surrogate 
+     * pre-screening.
+     * 
+     * @return the number of simulations avoided by the surrogate, or 0
+     * if it is disabled.
+     */
+    public int getSavedSimulations() {
+    	return surrogate == null ? 0 : surrogate.getSaved();
+    }
+    
+    /**
+     * Returns the genome of an individual normalized in [0,1] using the
+     * bounds of its species.
+     * 
+     * @param ind Individual (ECJ object).
+     * @return the normalized genome, or null for unsupported individuals.
+     */
+    private static double[] normalizedGenome(final Individual ind) {
+    	if(ind instanceof IntegerVectorIndividual) {
+    		int[] genome = ((IntegerVectorIndividual)ind).genome;
+    		IntegerVectorSpecies species = (IntegerVectorSpecies)ind.species;
+    		double[] point = new double[genome.length];
+    		for(int i=0; i < genome.length; i++) {
+    			double min = species.minGene(i);
+    			double range = species.maxGene(i) - min;
+    			point[i] = range > 0 ? (genome[i] - min) / range : 0.0;
+    		}
+    		return point;
+    	}
+    	if(ind instanceof DoubleVectorIndividual) {
+    		double[] genome = ((DoubleVectorIndividual)ind).genome;
+    		FloatVectorSpecies species = (FloatVectorSpecies)ind.species;
+    		double[] point = new double[genome.length];
+    		for(int i=0; i < genome.length; i++) {
+    			double min = species.minGene(i);
+    			double range = species.maxGene(i) - min;
+    			point[i] = range > 0 ? (genome[i] - min) / range : 0.0;
+    		}
+    		return point;
+    	}
+    	return null;
     }
     
     // A Parameterless-Niching-Assisted Bi-objective Approach to Multimodal Optimization
@@ -312,4 +595,76 @@ public class EcjModelEvaluation extends Problem implements SimpleProblemForm
         }
         return Math.sqrt(sum);
     }
+
+    
+    //=========================================================================
+    //		EVALUATION THREADS
+    //=========================================================================
+    
+    /**
+     * Fixed pool of daemon evaluation threads, numbered from zero as ECJ
+     * evaluation threads are.
+     */
+    private static final class EvaluationPool {
+    	
+    	private ExecutorService executor;
+    	private int size;
+    	
+    	/**
+    	 * Returns the executor, creating it if the number of ECJ 
+    	 * evaluation threads changed.
+    	 */
+    	synchronized ExecutorService get(EvolutionState state) {
+    		int threads = Math.max(1, state.evalthreads);
+    		if(executor == null || size != threads) {
+    			if(executor != null) {
+    				executor.shutdown();
+    			}
+    			executor = Executors.newFixedThreadPool(
+    					threads, new EvaluationThreadFactory(threads));
+    			size = threads;
+    		}
+    		return executor;
+    	}
+    	
+    	/**
+    	 * Returns the thread number of the current evaluation thread.
+    	 */
+    	static int threadnum() {
+    		Thread current = Thread.currentThread();
+    		if(current instanceof EvaluationThread) {
+    			return ((EvaluationThread) current).threadnum;
+    		}
+    		return 0;
+    	}
+    }
+    
+    private static final class EvaluationThreadFactory implements ThreadFactory {
+    	
+    	private final int threads;
+    	private int created = 0;
+    	
+    	EvaluationThreadFactory(int threads) {
+    		this.threads = threads;
+    	}
+    	
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			// Replaced threads reuse the numbers of the finished ones.
+			EvaluationThread thread = new EvaluationThread(
+					r, created++ % threads);
+			thread.setDaemon(true);
+			return thread;
+		}
+    }
+    
+    private static final class EvaluationThread extends Thread {
+    	
+    	final int threadnum;
+    	
+    	EvaluationThread(Runnable r, int threadnum) {
+    		super(r, "ECJ Evaluation Thread " + threadnum);
+    		this.threadnum = threadnum;
+    	}
+    }
 }
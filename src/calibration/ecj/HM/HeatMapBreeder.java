@@ -56,6 +56,7 @@ public class HeatMapBreeder extends Breeder {
 			HMSubPopulation subp=(HMSubPopulation)state.population.subpops[subpop];
 			int ind=0;
 			int nind=subp.individuals.length;
+			Individual[] solutions=new Individual[nind];
 			subp.fill_iterators(state,heat_a,heat_b,(int)Math.sqrt(nind));
 			for(int j=0;j<(int)Math.sqrt(nind);j++){
 				for(int k=0;k<(int)Math.sqrt(nind);k++){
@@ -64,11 +65,16 @@ public class HeatMapBreeder extends Breeder {
 					
 					((DoubleHM)solution).onestep(state, 0, heat_a, heat_b, subp.HM_a.get(j), subp.HM_b.get(k));
 					solution.evaluated=false;
-					((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, solution, 0,0);
-					subp.individuals[ind]=(Individual)solution.clone();
+					solutions[ind]=solution;
 					ind+=1;
 				} 
 			}
+			//Evaluate every moved solution at once
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(
+					state, java.util.Arrays.copyOf(solutions, ind), 0);
+			for(int i=0;i<ind;i++){
+				subp.individuals[i]=(Individual)solutions[i].clone();
+			}
 			newpop.subpops[subpop].individuals=subp.individuals.clone();
 		}
 		
@@ -1,4 +1,8 @@
 package calibration.ecj.ls;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import ec.EvolutionState;
@@ -52,6 +56,12 @@ public class GradientDescent extends LocalSearch {
 	 * Next neighbor to build
 	 */
 	protected int neighborIndex;
+	
+	/**
+	 * Neighbors already evaluated but not explored yet
+	 */
+	protected ArrayDeque<Individual> evaluatedNeighbors = 
+			new ArrayDeque<Individual>();
 		
 	/**
 	 * Number of evaluated solutions
@@ -139,7 +149,7 @@ public class GradientDescent extends LocalSearch {
 						improves = true;
 					}
 				}
-				nextNeighbor(state, individual);
+				neighbor = nextNeighbor(state, individual);
 			}
 			if(improves) {
 				moveToSolution(individual, bestNeighbor);
@@ -190,6 +200,7 @@ public class GradientDescent extends LocalSearch {
 			neighborhood[randInt] = tmpSwap;
 		}
 		neighborIndex = 0;
+		evaluatedNeighbors.clear();
 	}
 	
 	
@@ -214,18 +225,48 @@ public class GradientDescent extends LocalSearch {
 
 	
 	
+	/**
+	 * Compute the next neighbor of the current solution to be explored using
+	 * the type one neighborhood. Neighbors are independent, so they are
+	 * built and evaluated in batches. As every neighbor is explored looking
+	 * for the best one, the whole neighborhood is evaluated at once.
+	 * 
+	 * @param state ECJ object that contains all the information of the algorithm.
+	 * @param individual Individual to improve through the Local Search
+	 * @param subpopulation Subpopulation to which the individual belongs. This is
+	 * 	necessary to evaluate it.
+	 */
+	protected Individual nextNeighborType1(final EvolutionState state,
+			Individual individual) {
+		if(evaluatedNeighbors.isEmpty()) {
+			int batchSize = neighborhood.length;
+			List<Individual> batch = new ArrayList<Individual>(batchSize);
+			Individual neighbor;
+			while(batch.size() < batchSize 
+					&& (neighbor = buildNeighborType1(state, individual)) != null) {
+				batch.add(neighbor);
+			}
+			evaluateAll(state, batch);
+			evaluatedNeighbors.addAll(batch);
+		}
+		return evaluatedNeighbors.poll();
+	}
+	
+	
+	
 	/**
 	 * Compute the next neighbor of the current solution to be explored using
 	 * the type one neighborhood. A neighbor is made by incrementing or
 	 *  decrementing in	one unit, one parameter. Thus, each solution will
 	 *  have 2*n neighbors where n is the length of the genome.
+	 * The neighbor is not evaluated.
 	 * 
 	 * @param state ECJ object that contains all the information of the algorithm.
 	 * @param individual Individual to improve through the Local Search
 	 * @param subpopulation Subpopulation to which the individual belongs. This is
 	 * 	necessary to evaluate it.
 	 */
-	protected Individual nextNeighborType1(final EvolutionState state,
+	protected Individual buildNeighborType1(final EvolutionState state,
 			Individual individual) {
 		if(neighborIndex >= neighborhood.length)
 			return null;
@@ -244,7 +285,7 @@ public class GradientDescent extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
@@ -258,13 +299,10 @@ public class GradientDescent extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
-			((SimpleProblemForm)state.evaluator.p_problem).evaluate(
-					state, neighbor, 0, 0);
-						
 			neighborIndex++;
 			return neighbor;
 		}
@@ -283,7 +321,7 @@ public class GradientDescent extends LocalSearch {
 				// If there is no neighbor, move to the next one	
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
@@ -297,13 +335,10 @@ public class GradientDescent extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
-			((SimpleProblemForm)state.evaluator.p_problem).evaluate(
-					state, neighbor, 0, 0); 
-			
 			neighborIndex++;
 			return neighbor;
 		}
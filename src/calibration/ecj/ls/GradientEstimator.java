@@ -0,0 +1,220 @@
+package calibration.ecj.ls;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ec.EvolutionState;
+import ec.Individual;
+import ec.util.Parameter;
+import ec.vector.DoubleVectorIndividual;
+import ec.vector.IntegerVectorIndividual;
+import ec.vector.VectorSpecies;
+
+
+/**
+ * This class estimates the gradient of the fitness at a given solution
+ * using finite differences. Every perturbed solution of an estimate is
+ * independent, so all of them are evaluated at once using every ECJ
+ * evaluation thread.
+ *
+ * Every Monte-Carlo iteration of the model is seeded with the same value
+ * for every evaluation, so perturbed solutions are always evaluated with
+ * common random numbers and differences between them only come from the
+ * perturbation.
+ *
+ * The estimator may use two different methods:
+ *  central: Each gene is perturbed up and down, so every estimate needs
+ *  	2*n evaluations, where n is the length of the genome.
+ *  spsa: Simultaneous perturbation stochastic approximation. Every gene
+ *  	is perturbed at the same time in a random direction, so every
+ *  	estimate needs 2 evaluations regardless of the length of the
+ *  	genome. Several estimates (spsa-samples) may be averaged to
+ *  	reduce their variance.
+ *
+ * The perturbation of a gene is one unit for integer genomes and
+ * step*(|gene|+1) for real genomes. The estimate for gene i is
+ * (f(x+h) - f(x-h)) / 2 in perturbation units.
+ *
+ * @author imoya
+ *
+ */
+public class GradientEstimator {
+	//=========================================================================
+	//		FIELDS
+	//=========================================================================
+	/**
+	 * Method used for estimating the gradient
+	 */
+	public static final String P_GRADIENT = "gradient";
+	private static final String P_GRADIENT_CENTRAL = "central";
+	private static final String P_GRADIENT_SPSA = "spsa";
+
+	public enum Method {CENTRAL, SPSA}
+	public Method method;
+
+	/**
+	 * Number of SPSA estimates averaged by every gradient
+	 */
+	public static final String P_SPSA_SAMPLES = "spsa-samples";
+	public int spsaSamples;
+
+
+
+	//=========================================================================
+	//		CONSTRUCTORS / INITIALIZERS
+	//=========================================================================
+	/**
+	 * Default constructor. Nothing to do
+	 */
+	public GradientEstimator() { }
+
+
+	/**
+	 * Initializing function for ECJ objects. Its structure is fixed
+	 *
+	 * @param state ECJ object that contains all the information of the algorithm.
+	 * @param base ECJ object that contains the root for parameter names
+	 */
+	public void setup(final EvolutionState state, final Parameter base) {
+		String method_str = state.parameters.getStringWithDefault(
+				base.push(P_GRADIENT), null, P_GRADIENT_CENTRAL);
+		if(method_str.equalsIgnoreCase(P_GRADIENT_CENTRAL))
+			method = Method.CENTRAL;
+		else if(method_str.equalsIgnoreCase(P_GRADIENT_SPSA))
+			method = Method.SPSA;
+		else {
+			state.output.fatal("Incorrent value for the local search "
+					+ "\'gradient\' parameter. Please, use \'central\'"
+					+ " or \'spsa\'", null);
+		}
+
+		spsaSamples = state.parameters.getIntWithDefault(
+				base.push(P_SPSA_SAMPLES), null, 1);
+		if(spsaSamples < 1) {
+			state.output.fatal("The local search \'spsa-samples\' parameter"
+					+ " must be greater than 0", null);
+		}
+	}
+
+
+
+	//=========================================================================
+	//		METHODS
+	//=========================================================================
+	/**
+	 * Estimates the gradient of the fitness at the given solution.
+	 *
+	 * @param search Local search evaluating the perturbed solutions
+	 * @param state ECJ object that contains all the information of the algorithm.
+	 * @param individual Solution where the gradient is estimated
+	 * @param step Relative perturbation for real genomes
+	 * @param grad Array container for the gradient
+	 * @return the number of evaluated solutions
+	 */
+	public int estimate(LocalSearch search, final EvolutionState state,
+			Individual individual, double step, double[] grad) {
+		if(method == Method.SPSA)
+			return estimateSPSA(search, state, individual, step, grad);
+		else
+			return estimateCentral(search, state, individual, step, grad);
+	}
+
+
+	/**
+	 * Estimates the gradient perturbing every gene up and down.
+	 */
+	protected int estimateCentral(LocalSearch search, final EvolutionState state,
+			Individual individual, double step, double[] grad) {
+		int ndim = ((VectorSpecies)individual.species).genomeSize;
+
+		List<Individual> neighbors = new ArrayList<Individual>(2 * ndim);
+		for(int index = 0; index < ndim; index++) {
+			double h = perturbation(individual, index, step);
+
+			Individual plus = (Individual)individual.clone();
+			perturb(plus, index, h);
+			neighbors.add(plus);
+
+			Individual minus = (Individual)individual.clone();
+			perturb(minus, index, -h);
+			neighbors.add(minus);
+		}
+		search.evaluateAll(state, neighbors);
+
+		for(int index = 0; index < ndim; index++) {
+			double fplus = neighbors.get(2 * index).fitness.fitness();
+			double fminus = neighbors.get(2 * index + 1).fitness.fitness();
+			grad[index] = (fplus - fminus) / 2.0;
+		}
+		return neighbors.size();
+	}
+
+
+	/**
+	 * Estimates the gradient perturbing every gene at the same time in
+	 * random directions, averaging several estimates.
+	 */
+	protected int estimateSPSA(LocalSearch search, final EvolutionState state,
+			Individual individual, double step, double[] grad) {
+		int ndim = ((VectorSpecies)individual.species).genomeSize;
+
+		// Random directions (+1/-1) for every sample and gene
+		double[][] directions = new double[spsaSamples][ndim];
+		List<Individual> neighbors = new ArrayList<Individual>(2 * spsaSamples);
+		for(int sample = 0; sample < spsaSamples; sample++) {
+			Individual plus = (Individual)individual.clone();
+			Individual minus = (Individual)individual.clone();
+			for(int index = 0; index < ndim; index++) {
+				directions[sample][index] =
+						state.random[0].nextBoolean() ? 1.0 : -1.0;
+				double h = directions[sample][index]
+						* perturbation(individual, index, step);
+				perturb(plus, index, h);
+				perturb(minus, index, -h);
+			}
+			neighbors.add(plus);
+			neighbors.add(minus);
+		}
+		search.evaluateAll(state, neighbors);
+
+		for(int index = 0; index < ndim; index++) {
+			grad[index] = 0.0;
+		}
+		for(int sample = 0; sample < spsaSamples; sample++) {
+			double fplus = neighbors.get(2 * sample).fitness.fitness();
+			double fminus = neighbors.get(2 * sample + 1).fitness.fitness();
+			for(int index = 0; index < ndim; index++) {
+				grad[index] += (fplus - fminus)
+						/ (2.0 * directions[sample][index]) / spsaSamples;
+			}
+		}
+		return neighbors.size();
+	}
+
+
+	/**
+	 * Returns the perturbation size for a gene of the given solution.
+	 */
+	private static double perturbation(Individual individual, int index,
+			double step) {
+		if(individual instanceof DoubleVectorIndividual) {
+			double gene = ((DoubleVectorIndividual)individual).genome[index];
+			return step * (Math.abs(gene) + 1.0);
+		}
+		return 1.0;
+	}
+
+
+	/**
+	 * Adds the given perturbation to a gene of a solution.
+	 */
+	private static void perturb(Individual individual, int index, double h) {
+		if(individual instanceof IntegerVectorIndividual) {
+			((IntegerVectorIndividual)individual).genome[index] += (int)h;
+		}
+		else if(individual instanceof DoubleVectorIndividual) {
+			((DoubleVectorIndividual)individual).genome[index] += h;
+		}
+		individual.evaluated = false;
+	}
+}
@@ -1,4 +1,9 @@
 package calibration.ecj.ls;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
 import ec.EvolutionState;
 import ec.Individual;
 import ec.simple.SimpleProblemForm;
@@ -50,6 +55,12 @@ public class HillClimbing extends LocalSearch {
 	 */
 	protected int neighborIndex;
 	
+	/**
+	 * Neighbors already evaluated but not explored yet
+	 */
+	protected ArrayDeque<Individual> evaluatedNeighbors = 
+			new ArrayDeque<Individual>();
+	
 	//=========================================================================
 	//		CONSTRUCTORS / INITIALIZERS
 	//=========================================================================
@@ -181,6 +192,7 @@ public class HillClimbing extends LocalSearch {
 			neighborhood[randInt] = tmpSwap;
 		}
 		neighborIndex = 0;
+		evaluatedNeighbors.clear();
 	}
 
 	
@@ -202,18 +214,49 @@ public class HillClimbing extends LocalSearch {
 		return null;
 	}
 	
+	/**
+	 * Compute the next neighbor of the current solution to be explored using
+	 * the type one neighborhood. Neighbors are independent, so they are
+	 * built and evaluated in batches. As the first improving neighbor is
+	 * taken, every batch has as many neighbors as evaluation threads.
+	 * 
+	 * @param state ECJ object that contains all the information of the algorithm.
+	 * @param individual Individual to improve through the Local Search
+	 * @param subpopulation Subpopulation to which the individual belongs. This is
+	 * 	necessary to evaluate it.
+	 */
+	protected Individual nextNeighborType1(final EvolutionState state,
+			Individual individual) {
+		if(evaluatedNeighbors.isEmpty()) {
+			int batchSize = Math.max(1, Math.min(state.evalthreads, 
+					maxSteps - totalEvaluations));
+			List<Individual> batch = new ArrayList<Individual>(batchSize);
+			Individual neighbor;
+			while(batch.size() < batchSize 
+					&& (neighbor = buildNeighborType1(state, individual)) != null) {
+				batch.add(neighbor);
+			}
+			evaluateAll(state, batch);
+			evaluatedNeighbors.addAll(batch);
+		}
+		return evaluatedNeighbors.poll();
+	}
+	
+	
+	
 	/**
 	 * Compute the next neighbor of the current solution to be explored using
 	 * the type one neighborhood. A neighbor is made by incrementing or
 	 *  decrementing in	one unit, one parameter. Thus, each solution will
 	 *  have 2*n neighbors where n is the length of the genome.
+	 * The neighbor is not evaluated.
 	 * 
 	 * @param state ECJ object that contains all the information of the algorithm.
 	 * @param individual Individual to improve through the Local Search
 	 * @param subpopulation Subpopulation to which the individual belongs. This is
 	 * 	necessary to evaluate it.
 	 */
-	protected Individual nextNeighborType1(final EvolutionState state,
+	protected Individual buildNeighborType1(final EvolutionState state,
 			Individual individual) {
 		if(neighborIndex >= neighborhood.length)
 			return null;
@@ -233,7 +276,7 @@ public class HillClimbing extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
@@ -248,13 +291,10 @@ public class HillClimbing extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
-			((SimpleProblemForm)state.evaluator.p_problem).evaluate(
-					state, neighbor, 0, 0);
-			
 			neighborIndex++;
 			return neighbor;
 		}
@@ -274,7 +314,7 @@ public class HillClimbing extends LocalSearch {
 				// If there is no neighbor, move to the next one	
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
@@ -289,13 +329,10 @@ public class HillClimbing extends LocalSearch {
 				// If there is no neighbor, move to the next one
 				else {
 					neighborIndex++;
-					return nextNeighborType1(state, individual);
+					return buildNeighborType1(state, individual);
 				}
 			}
 			
-			((SimpleProblemForm)state.evaluator.p_problem).evaluate(
-					state, neighbor, 0, 0);
-			
 			neighborIndex++;
 			return neighbor;
 		}
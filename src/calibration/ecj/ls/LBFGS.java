@@ -5,9 +5,7 @@ import ec.Individual;
 import ec.simple.SimpleProblemForm;
 import ec.util.Parameter;
 import ec.vector.DoubleVectorIndividual;
-import ec.vector.FloatVectorSpecies;
 import ec.vector.IntegerVectorIndividual;
-import ec.vector.IntegerVectorSpecies;
 import ec.vector.VectorSpecies;
 
 /**
@@ -16,6 +14,10 @@ import ec.vector.VectorSpecies;
  * re-defined internally as the minimum value between 3*Ndimensions*10 and the
  * input number of the config file
  * 
+ * The gradient is estimated by the GradientEstimator, using central
+ * differences (gradient = central) or simultaneous perturbation
+ * (gradient = spsa), which needs two evaluations per estimate.
+ * 
  * The L-BFGS class was retrieved from the RISO project
  * http://riso.sourceforge.net/ It Includes the file Mcrsch.java A clean fork
  * was found at https://github.com/dbtsai/lbfgs
@@ -87,6 +89,11 @@ public class LBFGS extends LocalSearch {
 		return nfun;
 	}
 
+	/**
+	 * Estimator used for computing the gradient at every iteration
+	 */
+	protected GradientEstimator gradient;
+
 	// =========================================================================
 	// CONSTRUCTORS / INITIALIZERS
 	// =========================================================================
@@ -109,6 +116,8 @@ public class LBFGS extends LocalSearch {
 		// Call the parent constructor
 		super.setup(state, base);
 		totalEvaluations = 0;
+		gradient = new GradientEstimator();
+		gradient.setup(state, base);
 	}
 
 	// =========================================================================
@@ -215,55 +224,13 @@ public class LBFGS extends LocalSearch {
 	 *            Array container for the gradient
 	 */
 	protected void computeGradient(final EvolutionState state, Individual individual, double[] grad) {
+		totalEvaluations += gradient.estimate(this, state, individual, step, grad);
 
+		// Integer genomes minimize the error instead of maximizing the fitness
 		if (individual instanceof IntegerVectorIndividual) {
-			IntegerVectorIndividual alterego = (IntegerVectorIndividual) individual.clone();
-			IntegerVectorSpecies species = (IntegerVectorSpecies) individual.species;
-
-			for (int index = 0; index < species.genomeSize; index++) {
-				int oldgene = alterego.genome[index];
-				alterego.genome[index]++;
-				alterego.evaluated = false;
-				totalEvaluations++;
-				((SimpleProblemForm) state.evaluator.p_problem).evaluate(state, alterego, 0, 0);
-				double fplus = -alterego.fitness.fitness();
-				alterego.genome[index] = oldgene;
-				alterego.genome[index]--;
-				alterego.evaluated = false;
-				totalEvaluations++;
-				((SimpleProblemForm) state.evaluator.p_problem).evaluate(state, alterego, 0, 0);
-				double fminus = -alterego.fitness.fitness();
-				grad[index] = (fplus - fminus) / 2.0;
-				alterego.genome[index] = oldgene;
-			}
+			for (int index = 0; index < grad.length; index++)
+				grad[index] = -grad[index];
 		}
-
-		else if (individual instanceof DoubleVectorIndividual) {
-
-			DoubleVectorIndividual alterego = (DoubleVectorIndividual) individual.clone();
-			FloatVectorSpecies species = (FloatVectorSpecies) individual.species;
-			for (int index = 0; index < species.genomeSize; index++) {
-				double oldgene = alterego.genome[index];
-				double h = step * (Math.abs(oldgene) + 1.0);
-				alterego.genome[index] += h;
-				alterego.evaluated = false;
-				totalEvaluations++;
-				((SimpleProblemForm) state.evaluator.p_problem).evaluate(state, alterego, 0, 0);
-				double fplus = alterego.fitness.fitness();
-				alterego.genome[index] = oldgene;
-				// state.output.message("A"+alterego.genome[index]);
-				alterego.genome[index] -= h;
-				// state.output.message("B"+alterego.genome[index]);
-				alterego.evaluated = false;
-				totalEvaluations++;
-				((SimpleProblemForm) state.evaluator.p_problem).evaluate(state, alterego, 0, 0);
-				double fminus = alterego.fitness.fitness();
-				grad[index] = (fplus - fminus) / 2.0;
-				alterego.genome[index] = oldgene;
-			}
-
-		}
-
 	}
 
 	/**
@@ -1,7 +1,11 @@
 package calibration.ecj.ls;
 
+import java.util.List;
+
+import calibration.ecj.EcjModelEvaluation;
 import ec.EvolutionState;
 import ec.Individual;
+import ec.simple.SimpleProblemForm;
 import ec.util.Parameter;
 import ec.vector.DoubleVectorIndividual;
 import ec.vector.IntegerVectorIndividual;
@@ -102,6 +106,28 @@ public abstract class LocalSearch {
 	public abstract void apply(final EvolutionState state,
 			Individual individual);
 	
+	/**
+	 * Evaluates a batch of independent solutions. When the problem is an
+	 * EcjModelEvaluation, they are evaluated concurrently using every ECJ
+	 * evaluation thread. Otherwise, they are evaluated one by one.
+	 * 
+	 * @param state ECJ object that contains all the information of the algorithm.
+	 * @param individuals Solutions to evaluate
+	 */
+	protected void evaluateAll(final EvolutionState state,
+			List<? extends Individual> individuals) {
+		if(state.evaluator.p_problem instanceof EcjModelEvaluation) {
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(
+					state, individuals, 0);
+		}
+		else {
+			for(Individual individual : individuals) {
+				((SimpleProblemForm)state.evaluator.p_problem).evaluate(
+						state, individual, 0, 0);
+			}
+		}
+	}
+	
 	/**
 	 * Moves the current solution towards a neighbor
 	 * 
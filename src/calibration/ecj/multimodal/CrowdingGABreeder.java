@@ -9,6 +9,7 @@ import ec.util.*;
 import ec.vector.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import calibration.ecj.EcjModelEvaluation;
@@ -87,6 +88,9 @@ public class CrowdingGABreeder extends Breeder {
 		for(int subpop=0;subpop<state.population.subpops.length;subpop++){
 			Subpopulation subp=(Subpopulation)state.population.subpops[subpop];
 			size=subp.individuals.length;
+			//Children are bred from the population at the start of the generation
+			Individual[] parents=new Individual[size];
+			Individual[] otherparents=new Individual[size];
  			for(int ind=0;ind<size;ind++){
 				parent=(Individual) subp.individuals[ind].clone();
 				otherind=indexes.get(ind);
@@ -105,9 +109,20 @@ public class CrowdingGABreeder extends Breeder {
 					if(state.random[0].nextDouble()<pm)		((MMIntegerVectorIndividual)otherparent).defaultMutate(state,0);
 				}
 
-				//Evaluate so we can compare
-				((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, parent, 0,0);
-				((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, (Individual)otherparent, 0,0);
+				parents[ind]=parent;
+				otherparents[ind]=otherparent;
+			}
+			
+			//Evaluate every child at once so we can compare
+			ArrayList<Individual> children=new ArrayList<Individual>(2*size);
+			children.addAll(Arrays.asList(parents));
+			children.addAll(Arrays.asList(otherparents));
+			((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(state, children, 0);
+			
+ 			for(int ind=0;ind<size;ind++){
+				parent=parents[ind];
+				otherind=indexes.get(ind);
+				otherparent=otherparents[ind];
 				
 				//Check distances between parents
 				if(parent.species instanceof FloatVectorSpecies) {
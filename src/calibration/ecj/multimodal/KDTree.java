@@ -0,0 +1,339 @@
+package calibration.ecj.multimodal;
+
+import java.util.Arrays;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * KDTree is a spatial index of points identified by integer ids, used by
+ * the multimodal breeders for finding the individuals within a niche
+ * radius or the nearest niche without comparing every pair of them.
+ *
+ * Distances are euclidean, so points are expected to be normalized by the
+ * caller (usually dividing every gene by its range). Points can be
+ * inserted and removed incrementally. Removed points are only marked, and
+ * the tree is rebuilt balanced when they outnumber the live ones.
+ *
+ * @author imoya
+ *
+ */
+public class KDTree {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int dimensions;
+
+	private double[][] points;
+	private int[] ids;
+	private int[] left;
+	private int[] right;
+	private boolean[] removed;
+
+	/**
+	 * Node of every live id.
+	 */
+	private final TIntIntHashMap nodes = new TIntIntHashMap();
+
+	private int root = -1;
+	private int nodeCount;
+	private int removedCount;
+
+	/**
+	 * Creates an empty tree.
+	 *
+	 * @param dimensions - number of coordinates of the points.
+	 */
+	public KDTree(int dimensions) {
+		if(dimensions < 1) {
+			throw new IllegalArgumentException(
+				"KD-tree dimensions must be positive: " + dimensions);
+		}
+		this.dimensions = dimensions;
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Creates a balanced tree with the given points, identified by their
+	 * position in the array.
+	 *
+	 * @param points - points to index.
+	 * @param dimensions - number of coordinates of the points.
+	 */
+	public KDTree(double[][] points, int dimensions) {
+		this(dimensions);
+		allocate(Math.max(INITIAL_CAPACITY, points.length));
+		for (int i = 0; i < points.length; i++) {
+			addNode(i, points[i].clone());
+		}
+		rebuild();
+	}
+
+	private void allocate(int capacity) {
+		points = new double[capacity][];
+		ids = new int[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		removed = new boolean[capacity];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if(capacity > points.length) {
+			int newCapacity = Math.max(capacity, points.length * 2);
+			points = Arrays.copyOf(points, newCapacity);
+			ids = Arrays.copyOf(ids, newCapacity);
+			left = Arrays.copyOf(left, newCapacity);
+			right = Arrays.copyOf(right, newCapacity);
+			removed = Arrays.copyOf(removed, newCapacity);
+		}
+	}
+
+	private int addNode(int id, double[] point) {
+		if(point.length != dimensions) {
+			throw new IllegalArgumentException("Point has " + point.length
+				+ " coordinates instead of " + dimensions);
+		}
+		ensureCapacity(nodeCount + 1);
+		int node = nodeCount++;
+		points[node] = point;
+		ids[node] = id;
+		left[node] = -1;
+		right[node] = -1;
+		removed[node] = false;
+		nodes.put(id, node);
+		return node;
+	}
+
+	/**
+	 * Inserts a point. If the id is already in the tree, its previous point
+	 * is replaced.
+	 *
+	 * @param id - id of the point.
+	 * @param point - coordinates of the point, copied by the tree.
+	 */
+	public void insert(int id, double[] point) {
+		remove(id);
+		int node = addNode(id, point.clone());
+		if(root == -1) {
+			root = node;
+			return;
+		}
+		int current = root;
+		int depth = 0;
+		while (true) {
+			int axis = depth % dimensions;
+			if(point[axis] < points[current][axis]) {
+				if(left[current] == -1) {
+					left[current] = node;
+					return;
+				}
+				current = left[current];
+			} else {
+				if(right[current] == -1) {
+					right[current] = node;
+					return;
+				}
+				current = right[current];
+			}
+			depth++;
+		}
+	}
+
+	/**
+	 * Removes the point with given id.
+	 *
+	 * @param id - id of the point.
+	 * @return true if the point was in the tree.
+	 */
+	public boolean remove(int id) {
+		if(!nodes.containsKey(id)) {
+			return false;
+		}
+		removed[nodes.remove(id)] = true;
+		removedCount++;
+		if(removedCount > size()) {
+			rebuild();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of points in the tree.
+	 *
+	 * @return the number of points in the tree.
+	 */
+	public int size() {
+		return nodeCount - removedCount;
+	}
+
+	/**
+	 * Returns true if the given id is in the tree.
+	 *
+	 * @param id - id of the point.
+	 * @return true if the given id is in the tree.
+	 */
+	public boolean contains(int id) {
+		return nodes.containsKey(id);
+	}
+
+	/**
+	 * Removes every point.
+	 */
+	public void clear() {
+		Arrays.fill(points, 0, nodeCount, null);
+		nodes.clear();
+		root = -1;
+		nodeCount = 0;
+		removedCount = 0;
+	}
+
+	/**
+	 * Builds the tree again with the live points, splitting every node by
+	 * the median of its axis.
+	 */
+	private void rebuild() {
+		int[] live = new int[size()];
+		int n = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			if(!removed[node]) {
+				live[n++] = node;
+			}
+		}
+		// Compacts the live nodes at the beginning of the arrays
+		for (int i = 0; i < n; i++) {
+			int node = live[i];
+			points[i] = points[node];
+			ids[i] = ids[node];
+			removed[i] = false;
+			nodes.put(ids[i], i);
+			live[i] = i;
+		}
+		Arrays.fill(points, n, nodeCount, null);
+		nodeCount = n;
+		removedCount = 0;
+		root = build(live, 0, n, 0);
+	}
+
+	private int build(int[] nodeList, int from, int to, int depth) {
+		if(from >= to) {
+			return -1;
+		}
+		final int axis = depth % dimensions;
+		Integer[] sorted = new Integer[to - from];
+		for (int i = from; i < to; i++) {
+			sorted[i - from] = nodeList[i];
+		}
+		Arrays.sort(sorted, (a, b) -> Double.compare(
+			points[a][axis], points[b][axis]));
+		int median = sorted.length / 2;
+		// Equal coordinates must go to the right subtree
+		while (median > 0 && points[sorted[median - 1]][axis]
+				== points[sorted[median]][axis]) {
+			median--;
+		}
+		for (int i = 0; i < sorted.length; i++) {
+			nodeList[from + i] = sorted[i];
+		}
+		int node = nodeList[from + median];
+		left[node] = build(nodeList, from, from + median, depth + 1);
+		right[node] = build(nodeList, from + median + 1, to, depth + 1);
+		return node;
+	}
+
+	/**
+	 * Finds every point whose distance to the query is lower than or equal
+	 * to the given radius.
+	 *
+	 * @param query - coordinates of the query.
+	 * @param radius - search radius.
+	 * @param result - list where the ids of the points found are added, in
+	 * ascending order.
+	 */
+	public void radiusSearch(double[] query, double radius, TIntArrayList result) {
+		int first = result.size();
+		double radius2 = radius * radius;
+		TIntArrayList pending = new TIntArrayList();
+		TIntArrayList depths = new TIntArrayList();
+		if(root != -1) {
+			pending.add(root);
+			depths.add(0);
+		}
+		while (!pending.isEmpty()) {
+			int last = pending.size() - 1;
+			int node = pending.removeAt(last);
+			int depth = depths.removeAt(last);
+			if(!removed[node]
+					&& squaredDistance(query, points[node]) <= radius2) {
+				result.add(ids[node]);
+			}
+			int axis = depth % dimensions;
+			double diff = query[axis] - points[node][axis];
+			if(left[node] != -1 && diff <= radius) {
+				pending.add(left[node]);
+				depths.add(depth + 1);
+			}
+			if(right[node] != -1 && diff >= -radius) {
+				pending.add(right[node]);
+				depths.add(depth + 1);
+			}
+		}
+		result.sort(first, result.size());
+	}
+
+	/**
+	 * Finds the point nearest to the query. Ties are broken in favour of
+	 * the lowest id.
+	 *
+	 * @param query - coordinates of the query.
+	 * @param excludedId - id ignored by the search, usually the id of the
+	 * query itself.
+	 * @return the id of the nearest point, or -1 if there is none.
+	 */
+	public int nearest(double[] query, int excludedId) {
+		double[] best = {Double.POSITIVE_INFINITY, -1};
+		nearest(root, 0, query, excludedId, best);
+		return (int) best[1];
+	}
+
+	private void nearest(int node, int depth, double[] query,
+			int excludedId, double[] best) {
+		if(node == -1) {
+			return;
+		}
+		if(!removed[node] && ids[node] != excludedId) {
+			double d2 = squaredDistance(query, points[node]);
+			if(d2 < best[0] || (d2 == best[0] && ids[node] < best[1])) {
+				best[0] = d2;
+				best[1] = ids[node];
+			}
+		}
+		int axis = depth % dimensions;
+		double diff = query[axis] - points[node][axis];
+		int near = diff < 0 ? left[node] : right[node];
+		int far = diff < 0 ? right[node] : left[node];
+		nearest(near, depth + 1, query, excludedId, best);
+		if(diff * diff <= best[0]) {
+			nearest(far, depth + 1, query, excludedId, best);
+		}
+	}
+
+	/**
+	 * Returns the euclidean distance between two points.
+	 *
+	 * @param a - first point.
+	 * @param b - second point.
+	 * @return the euclidean distance between the points.
+	 */
+	public static double distance(double[] a, double[] b) {
+		return Math.sqrt(squaredDistance(a, b));
+	}
+
+	private static double squaredDistance(double[] a, double[] b) {
+		double sum = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			double diff = a[i] - b[i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+}
@@ -11,6 +11,8 @@ import ec.Population;
 import ec.util.Parameter;
 import ec.util.*;
 import ec.simple.*;
+import ec.vector.FloatVectorSpecies;
+import gnu.trove.list.array.TIntArrayList;
  
 public class NicheGABreeder extends SimpleBreeder
     { 
@@ -28,6 +30,9 @@ public class NicheGABreeder extends SimpleBreeder
     public int niches;
     String method;
     
+    /** Relative slack of the niche index queries */
+    static final double SEARCH_SLACK=1e-9;
+    
     @Override
     public void setup(final EvolutionState state, final Parameter base) 
         {
@@ -73,45 +78,91 @@ public class NicheGABreeder extends SimpleBreeder
     	}
     	return auxfit/normalizer;
     }
+    /**
+     * Indexes the genomes of a subpopulation normalized by the range of
+     * every gene, so euclidean distances in the index are the distances
+     * of MMDoubleVectorIndividual multiplied by the genome length.
+     */
+    KDTree buildNicheIndex(final EvolutionState s,final int subpopulation) {
+    	Individual[] inds=s.population.subpops[subpopulation].individuals;
+    	FloatVectorSpecies species=(FloatVectorSpecies)s.population.subpops[subpopulation].species;
+    	int genomeLength=((MMDoubleVectorIndividual)inds[0]).genomeLength();
+    	double[][] points=new double[inds.length][];
+    	for (int i=0; i<inds.length;i++)
+    		points[i]=normalizedGenome(species,(MMDoubleVectorIndividual)inds[i]);
+    	return new KDTree(points,genomeLength);
+    }
+    
+    double[] normalizedGenome(FloatVectorSpecies species, MMDoubleVectorIndividual ind) {
+    	double[] point=new double[ind.genomeLength()];
+    	for (int g=0; g<point.length;g++)
+    		point[g]=(ind.genome[g]-species.minGene(g))/(species.maxGene(g)-species.minGene(g));
+    	return point;
+    }
+    
+    /**
+     * Radius of the niche index queries. It is slightly larger than the
+     * niche radius, so rounding never hides a neighbour; the exact distance
+     * of every candidate is checked afterwards.
+     */
+    double nicheSearchRadius(int genomeLength) {
+    	return this.radius*genomeLength*(1+SEARCH_SLACK)+SEARCH_SLACK;
+    }
+    
     void shareFitness(final EvolutionState s,final int subpopulation,final int thread) {
-    	int length=s.population.subpops[subpopulation].individuals.length;
-    	double normalizer;
-    	double [] sharingFunction=new double[length];
-    	Arrays.fill(sharingFunction,1);
+    	Individual[] inds=s.population.subpops[subpopulation].individuals;
+    	if(inds.length==0) return;
+    	FloatVectorSpecies species=(FloatVectorSpecies)s.population.subpops[subpopulation].species;
+    	KDTree index=buildNicheIndex(s,subpopulation);
+    	TIntArrayList neighbours=new TIntArrayList();
     	//we iterate in order (pop was sorted previously
-    	for (int i=0; i<length;i++) {
-	    	double ifit=((Individual)(s.population.subpops[subpopulation].individuals[i])).fitness.fitness();
-	    	for (int j=i+1; j<length;j++) {
-	    		double distance=((MMDoubleVectorIndividual)s.population.subpops[subpopulation].individuals[i]).distanceTo(s.population.subpops[subpopulation].individuals[j]);
-	    		if(distance<this.radius) {
-	    			normalizer= 1- (distance/this.radius);
-	    			sharingFunction[i]+=normalizer;
-	    			sharingFunction[j]+=normalizer;
+    	for (int i=0; i<inds.length;i++) {
+	    	MMDoubleVectorIndividual ind=(MMDoubleVectorIndividual)inds[i];
+	    	double ifit=ind.fitness.fitness();
+	    	double sharingFunction=1;
+	    	neighbours.resetQuick();
+	    	index.radiusSearch(normalizedGenome(species,ind),nicheSearchRadius(ind.genomeLength()),neighbours);
+	    	//neighbours are sorted, so contributions are added in population order
+	    	for (int n=0; n<neighbours.size();n++) {
+	    		int j=neighbours.getQuick(n);
+	    		if(j!=i) {
+		    		double distance=ind.distanceTo(inds[j]);
+		    		if(distance<this.radius)
+		    			sharingFunction+=1- (distance/this.radius);
 	    		}
 			}//Remember we are maximizing!!!!
-			((SimpleFitness)((Individual)s.population.subpops[subpopulation].individuals[i]).fitness).setFitness(s,ifit/sharingFunction[i],false);	    	
+			((SimpleFitness)ind.fitness).setFitness(s,ifit/sharingFunction,false);	    	
     	}
      }
     
     
     int clearFitness(final EvolutionState s,final int subpopulation,final int thread) {
     	int nwins, nniches=0;
+    	Individual[] inds=s.population.subpops[subpopulation].individuals;
+    	if(inds.length==0) return 0;
+    	FloatVectorSpecies species=(FloatVectorSpecies)s.population.subpops[subpopulation].species;
+    	KDTree index=buildNicheIndex(s,subpopulation);
+    	TIntArrayList neighbours=new TIntArrayList();
     	//we iterate in order (pop was sorted previously
-    	int length=s.population.subpops[subpopulation].individuals.length;
-    	for (int i=0; i<length;i++) {
-	    	double ifit=((Individual)(s.population.subpops[subpopulation].individuals[i])).fitness.fitness();
+    	for (int i=0; i<inds.length;i++) {
+	    	MMDoubleVectorIndividual ind=(MMDoubleVectorIndividual)inds[i];
+	    	double ifit=ind.fitness.fitness();
 	    	if(ifit>0) {
 	    		nwins=1;
 	        	nniches++;
-	 	    	for (int j=i+1; j<length;j++) {
-	 	    		double jfit=((Individual)(s.population.subpops[subpopulation].individuals[j])).fitness.fitness();
+	        	neighbours.resetQuick();
+	        	index.radiusSearch(normalizedGenome(species,ind),nicheSearchRadius(ind.genomeLength()),neighbours);
+	 	    	for (int n=0; n<neighbours.size();n++) {
+	 	    		int j=neighbours.getQuick(n);
+	 	    		if(j<=i) continue;
+	 	    		double jfit=inds[j].fitness.fitness();
 			    	if(jfit>0){
-		 	    		double distance=((MMDoubleVectorIndividual)s.population.subpops[subpopulation].individuals[i]).distanceTo(s.population.subpops[subpopulation].individuals[j]);
+		 	    		double distance=ind.distanceTo(inds[j]);
  			    		if(distance<this.radius) {	
  		 	    			if(nwins<this.niches)
 				    			nwins+=1;
 				    		else
-				    			((SimpleFitness)((Individual)s.population.subpops[subpopulation].individuals[j]).fitness).setFitness(s, 0, false);
+				    			((SimpleFitness)inds[j].fitness).setFitness(s, 0, false);
 			    		}
 			    	}
 			    }
@@ -6,6 +6,8 @@ import java.util.Collections;
 import java.util.Comparator; 
 
 import calibration.ecj.EcjModelEvaluation;
+import calibration.ecj.multimodal.KDTree;
+import gnu.trove.list.array.TIntArrayList;
 import ec.*;
 import ec.util.* ;
 import ec.vector.* ;
@@ -50,11 +52,18 @@ public class NMMSOBreeder extends Breeder
 		public Fitness fitBest;
     	public boolean flagged;
 		public double nndist;
+		public int indexId;
     };
     
 	public ArrayList<Integer> indexes;
 	public ArrayList<SubSwarm> subSwarms;
 	
+	/** Relative slack of the sub-swarm index queries */
+	static final double SEARCH_SLACK=1e-9;
+	//Spatial index of the best particle of every sub-swarm, only available while merging
+	private KDTree swarmIndex;
+	private ArrayList<SubSwarm> indexedSwarms;
+	
   	public void setup(final EvolutionState state, final Parameter base)
         {
 		velCoeff = state.parameters.getDouble(base.push(P_VELOCITY_COEFFICIENT),null,0.0);
@@ -205,43 +214,97 @@ public class NMMSOBreeder extends Breeder
 		boolean shouldmerge;
     	if(active_modes_changed>=1) {
     		this.active_modes_changed=0;
-    		if(this.subSwarms.size()>1) 
+    		if(this.subSwarms.size()>1) {
+    			buildSwarmIndex(state);
  		    	for(int i=0;i<this.subSwarms.size();i++)
  		    		if(subSwarms.get(i).flagged) {
  		    			subSwarms.get(i).flagged=false;
  		    			int j=getclosestSS(state,i);
  		    			if(j!=-1) {
-	 		    			if(subSwarms.get(i).nndist<this.tol) 
+ 		    				SubSwarm ssi=this.subSwarms.get(i);
+ 		    				SubSwarm ssj=this.subSwarms.get(j);
+	 		    			if(ssi.nndist<this.tol) 
 	 		    				shouldmerge=true;
-	 		    			else 
+	 		    			else {
 	 		    				shouldmerge=checkMidPoint(state,i,j);
+	 		    				updateSwarmIndex(state,ssj); //the midpoint may be the new best of j
+	 		    			}
 	 		    			if(shouldmerge) {
 	 		    				this.subSwarms.get(j).flagged=false;
 	 		    				mergeSubSwarm(state,i,j);
+	 		    				swarmIndex.remove(ssi.indexId);
+	 		    				swarmIndex.remove(ssj.indexId);
+	 		    				updateSwarmIndex(state,this.subSwarms.contains(ssi)?ssi:ssj);
 	 		    			}
 	 		    		}
  		    		}
+ 		    	swarmIndex=null;
+ 		    	indexedSwarms=null;
+    		}
     	}
     }
 	
+	/**** Sub-swarm index methods ****/
+	private NMMSOParticle getSwarmBest(EvolutionState state, SubSwarm ss) {
+		int best=ss.subSwarmInds.get(ss.subSwarmBest);
+		return (NMMSOParticle) state.population.subpops[0].individuals[best];
+	}
+	
+	private double[] normalizedGenome(NMMSOParticle particle) {
+		FloatVectorSpecies species=(FloatVectorSpecies)particle.species;
+		double[] point=new double[particle.genomeLength()];
+		for (int g=0;g<point.length;g++)
+			point[g]=(particle.genome[g]-species.minGene(g))/(species.maxGene(g)-species.minGene(g));
+		return point;
+	}
+	
+	//Ids follow the order of the sub-swarms, so ties are broken as in the list
+	private void buildSwarmIndex(EvolutionState state) {
+		indexedSwarms=new ArrayList<SubSwarm>(this.subSwarms);
+		double[][] points=new double[indexedSwarms.size()][];
+		for (int id=0;id<points.length;id++) {
+			indexedSwarms.get(id).indexId=id;
+			points[id]=normalizedGenome(getSwarmBest(state,indexedSwarms.get(id)));
+		}
+		swarmIndex=new KDTree(points,points[0].length);
+	}
+	
+	private void updateSwarmIndex(EvolutionState state, SubSwarm ss) {
+		swarmIndex.insert(ss.indexId, normalizedGenome(getSwarmBest(state,ss)));
+	}
+	
 	/**** Merging auxiliary methods ****/
 	public int getclosestSS(EvolutionState state,int i) {
+		boolean temporaryIndex=(swarmIndex==null);
+		if(temporaryIndex)
+			buildSwarmIndex(state);
 		int minj=-1;
 		double mindist=Double.POSITIVE_INFINITY;
-	    int besti=this.subSwarms.get(i).subSwarmInds.get(this.subSwarms.get(i).subSwarmBest);
-		NMMSOParticle i1=(NMMSOParticle) state.population.subpops[0].individuals[besti];
-  		for (int j=0;j<this.subSwarms.size();j++) 
-  			if(j!=i) {
-  				int ssbestj=this.subSwarms.get(j).subSwarmBest;
-		    	int bestj=this.subSwarms.get(j).subSwarmInds.get(ssbestj); 
-				NMMSOParticle j1=(NMMSOParticle) state.population.subpops[0].individuals[bestj];
-				double dist = i1.distanceTo(j1);
-		    	if(dist<mindist) {
-		    		mindist=dist;
-		    		minj=j;
-		    		this.subSwarms.get(i).nndist=mindist; //TODO:CHECK HOW TO INITIALIZE as distance to limits
-		   		}
-  			}
+		SubSwarm ssi=this.subSwarms.get(i);
+		NMMSOParticle i1=getSwarmBest(state,ssi);
+		double[] pointi=normalizedGenome(i1);
+		int nearest=swarmIndex.nearest(pointi,ssi.indexId);
+		if(nearest!=-1) {
+			//Swarms tied with the nearest one are compared using the exact distance
+			double[] pointn=normalizedGenome(getSwarmBest(state,indexedSwarms.get(nearest)));
+			TIntArrayList candidates=new TIntArrayList();
+			swarmIndex.radiusSearch(pointi,KDTree.distance(pointi,pointn)*(1+SEARCH_SLACK)+SEARCH_SLACK,candidates);
+	  		for (int c=0;c<candidates.size();c++) 
+	  			if(candidates.getQuick(c)!=ssi.indexId) {
+	  				SubSwarm ssj=indexedSwarms.get(candidates.getQuick(c));
+					NMMSOParticle j1=getSwarmBest(state,ssj);
+					double dist = i1.distanceTo(j1);
+			    	if(dist<mindist) {
+			    		mindist=dist;
+			    		minj=this.subSwarms.indexOf(ssj);
+			    		ssi.nndist=mindist; //TODO:CHECK HOW TO INITIALIZE as distance to limits
+			   		}
+	  			}
+		}
+		if(temporaryIndex) {
+			swarmIndex=null;
+			indexedSwarms=null;
+		}
   		return minj;
 	    }
 	
@@ -314,6 +377,10 @@ public class NMMSOBreeder extends Breeder
 			while(sortedSS.size()>limit) 
 				sortedSS.remove(sortedSS.size()-1);
 		}
+		//Particles of every swarm are moved first and then evaluated at once
+		NMMSOParticle[] newparticles=new NMMSOParticle[sortedSS.size()];
+		int[] ssindivs=new int[sortedSS.size()];
+		int[] popinds=new int[sortedSS.size()];
 		for(int x=0;x<sortedSS.size();x++) {
 			int ssindex=sortedSS.get(x);
 			NMMSOParticle newparticle;
@@ -345,7 +412,17 @@ public class NMMSOBreeder extends Breeder
 				newparticle.tweak(state, this.velCoeff, this.personalCoeff, this.informantCoeff, 0);
 			}
 			newparticle.evaluated=false;
-			((EcjModelEvaluation)state.evaluator.p_problem).evaluate(state, newparticle, 0,0);
+			newparticles[x]=newparticle;
+			ssindivs[x]=ssindiv;
+			popinds[x]=popind;
+		}
+		((EcjModelEvaluation)state.evaluator.p_problem).evaluateAll(state, newparticles, 0);
+		for(int x=0;x<sortedSS.size();x++) {
+			int ssindex=sortedSS.get(x);
+			int bestssind=this.subSwarms.get(ssindex).subSwarmInds.get(this.subSwarms.get(ssindex).subSwarmBest);
+			NMMSOParticle newparticle=newparticles[x];
+			int ssindiv=ssindivs[x];
+			int popind=popinds[x];
 			newparticle.update(state, popind);
 			updateGlobalBest(state,0,popind);
 			if(newparticle.fitness.betterThan(state.population.subpops[0].individuals[bestssind].fitness)) {
@@ -86,7 +86,7 @@ public class NMMSOEvolutionState extends SimpleEvolutionState
         }
 
     // SHOULD WE QUIT?
-    if( EcjModelEvaluation.getCurrentEvaluations() >= numEvaluations)
+    if( EcjModelEvaluation.getCurrentEvaluations(this) >= numEvaluations)
     	return R_FAILURE;
     
 
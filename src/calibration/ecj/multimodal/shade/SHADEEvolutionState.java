@@ -91,13 +91,13 @@ public class SHADEEvolutionState extends EvolutionState
 //            {
 //            return R_FAILURE;
 //            }
- 	       if( EcjModelEvaluation.getCurrentEvaluations() >= numEvaluations)
+ 	       if( EcjModelEvaluation.getCurrentEvaluations(this) >= numEvaluations)
 	       {
            return R_FAILURE;
            }
 
         // PRE-BREEDING EXCHANGING
-	    ((SHADEExchanger)  exchanger).setcurrentEvaluation(EcjModelEvaluation.getCurrentEvaluations());
+	    ((SHADEExchanger)  exchanger).setcurrentEvaluation(EcjModelEvaluation.getCurrentEvaluations(this));
         statistics.prePreBreedingExchangeStatistics(this);
         population = exchanger.preBreedingExchangePopulation(this);
         statistics.postPreBreedingExchangeStatistics(this);
@@ -113,6 +113,12 @@ public class AlternateFitnessFunction extends FitnessFunction {
 		} else return 1;
 	}
 	
+	// Step errors are added, as computeScoreDetails does.
+	@Override
+	protected double aggregateStepErrors(double errorSum, int computeSteps) {
+		return errorSum;
+	}
+	
 	/**
 	 * Computes score for a single point based in the error fitness.
 	 * 
@@ -602,6 +602,97 @@ public class FitnessFunction {
 		return new ScoreBean(brandTotalScore);
 	}
 	
+	/**
+	 * Computes a lower bound of the score computed by computeScoreDetails 
+	 * for a single iteration whose simulation has not finished yet. Only 
+	 * the first completed steps of the simulated values are final, so the 
+	 * error of the remaining steps is bounded by zero.
+	 * 
+	 * @param brandHistory target sales for each brand and step. 
+	 * @param brandSimulated partial simulated sales for brand and step.
+	 * @param completedSteps number of steps whose simulated values are final.
+	 * @param computeTraining if true, bounds the score over the training set, 
+	 * else bounds score values over the hold out set.
+	 * @param holdOut the percentage value of hold out set.
+	 * @return a lower bound of the final score.
+	 */
+	public double computeScoreLowerBound(
+			final double[][] brandHistory, 
+			final double[][] brandSimulated,
+			int completedSteps,
+			boolean computeTraining,
+			double holdOut) {
+		
+		int steps = brandHistory[0].length;
+		
+		IntervalBean interval = computeInterval(steps,computeTraining,holdOut);
+		int end = Math.min(interval.end, completedSteps);
+		
+		int brands = brandHistory.length;
+		double[] brandBound = new double [brands];
+		for (int b = 0; b<brands; b++) {
+			double completedError = 0.0;
+			for (int s = interval.begin; s<end; s++) {
+				completedError += pointError(
+						brandHistory[b][s], brandSimulated[b][s]);
+			}
+			brandBound[b] = aggregateStepErrors(
+					completedError, interval.computeSteps);
+		}
+		return StatUtils.mean(brandBound);
+	}
+	
+	/**
+	 * Computes a lower bound of the score computed by 
+	 * computeTotalScoreDetails for a single iteration whose simulation has 
+	 * not finished yet. Simulated sales only grow, so the error is only 
+	 * bounded for the brands whose partial sales already exceed the target.
+	 * 
+	 * @param brandHistorySales target total sales by brand and step.
+	 * @param brandSalesSimulated partial simulated sales by brand and step.
+	 * @param computeTraining if true, bounds the score over the training set, 
+	 * else bounds score values over the hold out set.
+	 * @param holdOut the percentage value of hold out set.
+	 * @return a lower bound of the final score.
+	 */
+	public double computeTotalScoreLowerBound(
+			final double [][] brandHistorySales, 
+			final double [][] brandSalesSimulated,
+			boolean computeTraining,
+			double holdOut) {
+		
+		int steps = brandHistorySales[0].length;
+		
+		IntervalBean interval = computeInterval(steps,computeTraining,holdOut);
+		
+		int brands = brandHistorySales.length;
+		double [] brandBound = new double [brands];
+		for (int b = 0; b<brands; b++) {
+			int brandSimulatedSales = 
+					ArrayFunctions.addArraySegment(brandSalesSimulated[b],
+							interval.begin,interval.end);
+			int brandHistoryTotalSales = 
+					ArrayFunctions.addArraySegment(brandHistorySales[b],
+							interval.begin,interval.end);
+			if(brandSimulatedSales > brandHistoryTotalSales) {
+				brandBound[b] = pointError(
+						brandHistoryTotalSales, brandSimulatedSales);
+			}
+		}
+		return StatUtils.mean(brandBound);
+	}
+	
+	/**
+	 * Aggregates the errors of every step of a brand into its score, the 
+	 * same way computeScoreDetails does.
+	 * @param errorSum the sum of the step errors.
+	 * @param computeSteps the number of steps of the interval.
+	 * @return the brand score.
+	 */
+	protected double aggregateStepErrors(double errorSum, int computeSteps) {
+		return errorSum / computeSteps;
+	}
+	
 	/**
 	 * Computes error for two given double point values. 
 	 * @param observed target double value.
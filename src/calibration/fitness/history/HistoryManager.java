@@ -2,6 +2,7 @@ package calibration.fitness.history;
 
 import calibration.fitness.FitnessFunction;
 import calibration.fitness.history.ScoreBean.ScoreWrapper;
+import util.functions.Functions;
 import util.functions.MatrixFunctions;
 import util.io.StatisticsRecordingBean;
 import util.statistics.MonteCarloStatistics;
@@ -93,6 +94,49 @@ public abstract class HistoryManager {
 	 */
 	public abstract ScoreWrapper computeHoldOutScore(MonteCarloStatistics mcStats);
 	
+	/**
+	 * Computes a lower bound of the training score of a single Monte-Carlo 
+	 * iteration whose simulation has only reached the given step. The 
+	 * bound never decreases as the simulation advances, and the training 
+	 * score averages the score of every iteration, so the average of the 
+	 * bounds of every iteration is a lower bound of the training score.
+	 * 
+	 * By default no bound is known, so zero is returned.
+	 * 
+	 * @param stats the statistics recorded by the iteration so far.
+	 * @param step the last simulated step.
+	 * @return a lower bound of the training score of the iteration.
+	 */
+	public double computeTrainingLowerBound(Statistics stats, int step) {
+		return 0.0;
+	}
+	
+	/**
+	 * Computes a lower bound of the sales training score of a single 
+	 * iteration, bounding both the sales history and the total sales 
+	 * scores.
+	 * 
+	 * @param stats the statistics recorded by the iteration so far.
+	 * @param step the last simulated step.
+	 * @return a lower bound of the sales training score of the iteration.
+	 */
+	protected double computeSalesLowerBound(Statistics stats, int step) {
+		double[][] salesByBrandStep = stats.computeScaledSalesByBrandByStep(
+				salesHistoryPeriod);
+		int completedPeriods = stats.computeCompletedPeriods(
+				salesHistoryPeriod, step);
+		
+		double historyBound = function.computeScoreLowerBound(
+				salesAggregatedHistory, salesByBrandStep, completedPeriods,
+					FitnessFunction.COMPUTE_TRAINING, holdOut);
+		double totalBound = function.computeTotalScoreLowerBound(
+				salesAggregatedHistory, salesByBrandStep,
+					FitnessFunction.COMPUTE_TRAINING, holdOut);
+		
+		return Functions.linearCombination(
+				historyBound, totalBound, totalSalesWeight);
+	}
+	
 	/**
 	 * Creates a recording bean based on the KPI used for calibration.
 	 * @return a new recording bean based on the KPI used for calibration. 
@@ -298,6 +298,18 @@ public class MultipleKPIHistoryManager extends HistoryManager{
 		return wrapper;
 	}
 	
+	/**
+	 * Only the aggregated sales KPI is bounded. The score of any other KPI
+	 * is bounded by zero.
+	 */
+	@Override
+	public double computeTrainingLowerBound(Statistics stats, int step) {
+		if(salesDetail!=KPIDetail.AGGREGATED || salesWeight==0.0) {
+			return 0.0;
+		}
+		return computeSalesLowerBound(stats, step) * salesWeight;
+	}
+	
 	public ScoreWrapper computeHoldOutScore(MonteCarloStatistics mcStats) {
 		
 		//Create the wrapper
@@ -5,6 +5,7 @@ import calibration.fitness.history.ScoreBean.ScoreWrapper;
 import util.functions.Functions;
 import util.io.StatisticsRecordingBean;
 import util.statistics.MonteCarloStatistics;
+import util.statistics.Statistics;
 import util.statistics.Statistics.TimePeriod;
 
 /**
@@ -50,6 +51,11 @@ public class SalesHistoryManager extends HistoryManager{
 		return wrapper;
 	}
 	
+	@Override
+	public double computeTrainingLowerBound(Statistics stats, int step) {
+		return computeSalesLowerBound(stats, step);
+	}
+	
 	@Override
 	public ScoreWrapper computeHoldOutScore(MonteCarloStatistics mcStats) {
 		double [][][] salesByBrandStep = mcStats.computeScaledSalesByBrandByStep(
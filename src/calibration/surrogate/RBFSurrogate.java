@@ -0,0 +1,259 @@
+package calibration.surrogate;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.CholeskyDecomposition;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+
+/**
+ * RBFSurrogate is a radial basis function regressor trained online with
+ * evaluated points. It uses gaussian kernels centered at the last
+ * evaluated points, so the cost of fitting the model is bounded by the
+ * maximum number of samples.
+ *
+ * Points are expected to be normalized in [0,1] for every dimension. The
+ * width of the kernels is the mean distance between samples.
+ *
+ * Instances are not thread-safe. A fitted copy (see copy and fit) is not
+ * modified by predict or quantile, so it may be read by several threads.
+ *
+ * @author imoya
+ *
+ */
+public class RBFSurrogate {
+
+	/**
+	 * Maximum number of times the regularization is increased when the
+	 * kernel matrix is not positive definite.
+	 */
+	private static final int MAX_REGULARIZATION_RETRIES = 6;
+
+	private final double[][] points;
+	private final double[] values;
+
+	/**
+	 * Ridge added to the kernel matrix diagonal.
+	 */
+	private final double regularization;
+
+	/**
+	 * Number of stored samples and position of the next one.
+	 */
+	private int size;
+	private int next;
+
+	/**
+	 * Fitted model: mean value, kernel width and kernel weights.
+	 */
+	private boolean fitted;
+	private double mean;
+	private double gamma;
+	private double[] weights;
+
+	/**
+	 * Sampled values in ascending order, or null if they changed since
+	 * they were sorted.
+	 */
+	private double[] sorted;
+
+	/**
+	 * Creates an empty surrogate model.
+	 *
+	 * @param maxSamples - maximum number of samples used for fitting. When
+	 * exceeded, oldest samples are discarded.
+	 * @param regularization - ridge added to the kernel matrix, smoothing
+	 * the noise of the evaluations.
+	 */
+	public RBFSurrogate(int maxSamples, double regularization) {
+		if(maxSamples < 1) {
+			throw new IllegalArgumentException(
+				"Surrogate max samples must be positive: " + maxSamples);
+		}
+		this.points = new double[maxSamples][];
+		this.values = new double[maxSamples];
+		this.regularization = regularization;
+	}
+
+	private RBFSurrogate(RBFSurrogate other) {
+		// Stored points are never modified, so they are shared
+		this.points = other.points.clone();
+		this.values = other.values.clone();
+		this.regularization = other.regularization;
+		this.size = other.size;
+		this.next = other.next;
+		this.fitted = other.fitted;
+		this.mean = other.mean;
+		this.gamma = other.gamma;
+		this.weights = other.weights;
+		this.sorted = other.sorted;
+	}
+
+	/**
+	 * Returns a copy of this model, which is not affected by the samples
+	 * added afterwards to this model.
+	 *
+	 * @return a copy of this model.
+	 */
+	public RBFSurrogate copy() {
+		return new RBFSurrogate(this);
+	}
+
+	/**
+	 * Adds an evaluated point. The model will be fitted again when needed.
+	 *
+	 * @param point - normalized point.
+	 * @param value - evaluated value.
+	 */
+	public void addSample(double[] point, double value) {
+		points[next] = point.clone();
+		values[next] = value;
+		next = (next + 1) % points.length;
+		size = Math.min(size + 1, points.length);
+		fitted = false;
+		sorted = null;
+	}
+
+	/**
+	 * Returns the number of samples used by the model.
+	 *
+	 * @return the number of samples used by the model.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes every sample.
+	 */
+	public void clear() {
+		Arrays.fill(points, null);
+		size = 0;
+		next = 0;
+		fitted = false;
+		sorted = null;
+	}
+
+	/**
+	 * Returns the given quantile of the sampled values.
+	 *
+	 * @param q - quantile in [0,1].
+	 * @return the given quantile of the sampled values.
+	 */
+	public double quantile(double q) {
+		if(size == 0) {
+			return Double.NaN;
+		}
+		int index = (int) Math.ceil(q * size) - 1;
+		return sortedValues()[Math.max(0, Math.min(size - 1, index))];
+	}
+
+	private double[] sortedValues() {
+		if(sorted == null) {
+			sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+		}
+		return sorted;
+	}
+
+	/**
+	 * Predicts the value at given point.
+	 *
+	 * @param point - normalized point.
+	 * @return the predicted value.
+	 */
+	public double predict(double[] point) {
+		if(size == 0) {
+			return Double.NaN;
+		}
+		if(!fitted) {
+			fit();
+		}
+		double prediction = mean;
+		for (int i = 0; i < size; i++) {
+			prediction += weights[i] * kernel(point, points[i]);
+		}
+		return prediction;
+	}
+
+	/**
+	 * Fits the kernel weights solving (K + lambda*I) w = y - mean, and
+	 * sorts the sampled values. Afterwards, predict and quantile do not
+	 * modify the model until a new sample is added.
+	 */
+	public void fit() {
+		if(size == 0) {
+			return;
+		}
+		sortedValues();
+
+		mean = 0.0;
+		for (int i = 0; i < size; i++) {
+			mean += values[i];
+		}
+		mean /= size;
+
+		// Kernel width from the mean distance between samples
+		double distance = 0.0;
+		int pairs = 0;
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				distance += Math.sqrt(squaredDistance(points[i], points[j]));
+				pairs++;
+			}
+		}
+		double width = pairs > 0 && distance > 0 ? distance / pairs : 1.0;
+		gamma = 1.0 / (2.0 * width * width);
+
+		double[][] k = new double[size][size];
+		for (int i = 0; i < size; i++) {
+			k[i][i] = 1.0;
+			for (int j = i + 1; j < size; j++) {
+				k[i][j] = k[j][i] = kernel(points[i], points[j]);
+			}
+		}
+		double[] centered = new double[size];
+		for (int i = 0; i < size; i++) {
+			centered[i] = values[i] - mean;
+		}
+
+		double lambda = regularization;
+		weights = null;
+		for (int retry = 0;
+				weights == null && retry < MAX_REGULARIZATION_RETRIES;
+					retry++) {
+			RealMatrix matrix = MatrixUtils.createRealMatrix(k);
+			for (int i = 0; i < size; i++) {
+				matrix.addToEntry(i, i, lambda);
+			}
+			try {
+				RealVector solution = new CholeskyDecomposition(matrix)
+						.getSolver().solve(new ArrayRealVector(centered, false));
+				weights = solution.toArray();
+			} catch (MathIllegalArgumentException e) {
+				lambda = Math.max(lambda, 1e-9) * 10;
+			}
+		}
+		if(weights == null) {
+			// Falls back to the mean value.
+			weights = new double[size];
+		}
+		fitted = true;
+	}
+
+	private double kernel(double[] a, double[] b) {
+		return Math.exp(-gamma * squaredDistance(a, b));
+	}
+
+	private static double squaredDistance(double[] a, double[] b) {
+		double sum = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			double diff = a[i] - b[i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+}
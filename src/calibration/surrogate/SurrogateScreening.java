@@ -0,0 +1,189 @@
+package calibration.surrogate;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * SurrogateScreening decides which calibration candidates are simulated.
+ * A surrogate model trained with every simulated candidate predicts the
+ * error of new ones, and only candidates predicted within the best
+ * fraction of the known errors are simulated. An exploration quota of
+ * candidates is simulated regardless of their prediction, so the
+ * surrogate keeps learning about unexplored regions.
+ *
+ * Errors are minimized. The same instance may be shared by every
+ * evaluation thread. Candidates are screened with a fitted copy of the
+ * surrogate, and the surrogate is fitted without holding the lock of
+ * this object, so threads only wait for each other to add samples.
+ *
+ * @author imoya
+ *
+ */
+public class SurrogateScreening {
+
+	/**
+	 * Samples of the simulated candidates, guarded by this object.
+	 */
+	private final RBFSurrogate model;
+
+	/**
+	 * Last fitted copy of the model and the number of samples added before
+	 * copying it. Fitted copies are only read once published.
+	 */
+	private RBFSurrogate fitted;
+	private long fittedVersion;
+
+	/**
+	 * Number of samples added since this object was created.
+	 */
+	private long version;
+
+	/**
+	 * Fraction of the known errors considered promising.
+	 */
+	private final double fraction;
+
+	/**
+	 * Probability of simulating a candidate regardless of its prediction.
+	 */
+	private final double exploration;
+
+	/**
+	 * Samples needed before screening any candidate.
+	 */
+	private final int minSamples;
+
+	private int simulated;
+	private int saved;
+
+	/**
+	 * Creates a screening policy.
+	 *
+	 * @param fraction - fraction of the known errors considered promising.
+	 * @param exploration - probability of simulating a candidate regardless
+	 * of its prediction.
+	 * @param minSamples - samples needed before screening any candidate.
+	 * @param maxSamples - maximum number of samples used by the surrogate.
+	 * @param regularization - ridge used by the surrogate.
+	 */
+	public SurrogateScreening(
+			double fraction,
+			double exploration,
+			int minSamples,
+			int maxSamples,
+			double regularization
+		) {
+		if(fraction <= 0 || fraction > 1) {
+			throw new IllegalArgumentException(
+				"Surrogate fraction must be in (0,1]: " + fraction);
+		}
+		if(exploration < 0 || exploration > 1) {
+			throw new IllegalArgumentException(
+				"Surrogate exploration must be in [0,1]: " + exploration);
+		}
+		this.model = new RBFSurrogate(maxSamples, regularization);
+		this.fraction = fraction;
+		this.exploration = exploration;
+		this.minSamples = Math.max(1, minSamples);
+	}
+
+	/**
+	 * Decides if the given candidate must be simulated. The random value
+	 * is only drawn once the surrogate has enough samples to screen, so
+	 * no random value is consumed before.
+	 *
+	 * @param point - normalized candidate.
+	 * @param random - supplier of random values in [0,1) used for
+	 * exploration.
+	 * @return NaN if the candidate must be simulated, or the predicted
+	 * error otherwise.
+	 */
+	public double screen(double[] point, DoubleSupplier random) {
+		RBFSurrogate current = fittedModel();
+		if(current == null || random.getAsDouble() < exploration) {
+			return Double.NaN;
+		}
+		double predicted = current.predict(point);
+		if(Double.isNaN(predicted) || predicted <= current.quantile(fraction)) {
+			return Double.NaN;
+		}
+		synchronized (this) {
+			saved++;
+		}
+		return predicted;
+	}
+
+	/**
+	 * Returns a model fitted with every sample added so far, fitting a copy
+	 * of the samples outside the lock when the last one is outdated.
+	 *
+	 * @return the fitted model, or null if there are not enough samples.
+	 */
+	private RBFSurrogate fittedModel() {
+		RBFSurrogate copy;
+		long copyVersion;
+		synchronized (this) {
+			if(model.size() < minSamples) {
+				return null;
+			}
+			if(fitted != null && fittedVersion == version) {
+				return fitted;
+			}
+			copy = model.copy();
+			copyVersion = version;
+		}
+
+		copy.fit();
+
+		synchronized (this) {
+			if(fitted == null || fittedVersion < copyVersion) {
+				fitted = copy;
+				fittedVersion = copyVersion;
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Trains the surrogate with a simulated candidate.
+	 *
+	 * @param point - normalized candidate.
+	 * @param error - simulated error.
+	 */
+	public synchronized void addSample(double[] point, double error) {
+		simulated++;
+		if(!Double.isNaN(error) && !Double.isInfinite(error)) {
+			model.addSample(point, error);
+			version++;
+		}
+	}
+
+	/**
+	 * Removes every sample and resets the counters.
+	 */
+	public synchronized void reset() {
+		model.clear();
+		// Copies fitted before the reset are outdated
+		version++;
+		fitted = null;
+		simulated = 0;
+		saved = 0;
+	}
+
+	/**
+	 * Returns the number of simulated candidates.
+	 *
+	 * @return the number of simulated candidates.
+	 */
+	public synchronized int getSimulated() {
+		return simulated;
+	}
+
+	/**
+	 * Returns the number of candidates whose simulation was avoided.
+	 *
+	 * @return the number of candidates whose simulation was avoided.
+	 */
+	public synchronized int getSaved() {
+		return saved;
+	}
+}
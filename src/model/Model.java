@@ -425,6 +425,88 @@ public class Model {
 	    if (LOG_DEBUG) logger.debug("Model() end");
 	}
 
+	/**
+	 * Resets the model in place for a new simulation. The randomizer is
+	 * seeded again and the model is left as a new instance created with the
+	 * same dimensions and given values: every component needs to be set up
+	 * again before running (see ModelBuilder.rebuild).
+	 *
+	 * A new Statistics instance is created because statistics from previous
+	 * simulations may still be referenced.
+	 *
+	 * @param nrSegments number of segments modeled at current simulation.
+	 * @param seed randomizer seed used for current simulation.
+	 * @param awarenessFilter enables/disables using awareness as a filter
+	 * during perception diffusion.
+	 * @param womSentimentPositive upper bound used for Word of Mouth sentiment
+	 * analysis.
+	 * @param womSentimentNegative lower bound used for Word of Mouth sentiment
+	 * analysis.
+	 * @param agentsRatio ratio defining the relationship
+	 * [real population / agent population].
+	 */
+	public void reset(
+			int nrSegments,
+			long seed,
+			boolean awarenessFilter,
+			double womSentimentPositive,
+			double womSentimentNegative,
+			double agentsRatio
+		) {
+		step = INITIAL_STEP_VALUE;
+		recordSales = false;
+
+		this.awarenessFilter = awarenessFilter;
+
+		random.setSeed(seed);
+		modulesOrder = ArrayFunctions.shuffleFast(Agent.NUM_MODULES, random);
+
+		statistics = new Statistics(
+	    	nrSegments,
+	    	nrBrands,
+	    	nrAttributes,
+	    	numberOfSteps,
+	    	stepsByWeek,
+	    	agentsRatio
+	    );
+
+		this.womSentimentPositive = womSentimentPositive;
+	    this.womSentimentNegative = womSentimentNegative;
+
+	    for (int i=0; i<nrAgents; i++) {
+	    	agentsOrder[i]=i;
+	    }
+	}
+
+	/**
+	 * Checks if this model may be reset for a simulation with the given
+	 * dimensions.
+	 *
+	 * @param stepsByWeek number of simulations steps by each defined week.
+	 * @param nrAgents number of agents populating current simulation.
+	 * @param nrBrands number of brands considered at current simulation.
+	 * @param nrAttributes number of attributes modeled at current simulation.
+	 * @param nrWeeks number of weeks for current simulation.
+	 * @param nrTouchpoints number of touch points modeled at current
+	 * simulation.
+	 * @return true if the model dimensions match the given values.
+	 */
+	public boolean isCompatible(
+			int stepsByWeek,
+			int nrAgents,
+			int nrBrands,
+			int nrAttributes,
+			int nrWeeks,
+			int nrTouchpoints
+		) {
+		return this.stepsByWeek == stepsByWeek
+				&& this.nrAgents == nrAgents
+				&& this.nrBrands == nrBrands
+				&& this.nrAttributes == nrAttributes
+				&& this.numberOfSteps == nrWeeks * stepsByWeek
+				&& this.nrTouchpoints == nrTouchpoints;
+	}
+
 	// ########################################################################
 	// Get/Set methods
 	// ########################################################################	
@@ -734,8 +816,27 @@ public class Model {
 	 * @throws SalesScheduleError if a problem was found during sales scheduling.
 	 */
 	public void runSilent() throws SalesScheduleError {
+		runSilent(null, 0);
+	}
+	
+	/**
+	 * Runs the model without displaying execution times, aborting the 
+	 * simulation at any checkpoint where the given pruning considers it 
+	 * hopeless.
+	 * 
+	 * @param pruning the pruning checked at every checkpoint (null if the 
+	 * simulation must always reach the last step).
+	 * @param iteration the Monte-Carlo iteration run by this model.
+	 * @return true if every step was simulated, false if aborted.
+	 * @throws SalesScheduleError if a problem was found during sales scheduling.
+	 */
+	public boolean runSilent(SimulationPruning pruning, int iteration) 
+			throws SalesScheduleError {
 		// Reset the step
 		step = Model.INITIAL_STEP_VALUE;
+		
+		final int checkpoint = pruning != null 
+				? Math.max(1, pruning.getCheckpointInterval()) : 0;
 
 		// Iterate the agents "numberOfSteps" times
 
@@ -750,9 +851,15 @@ public class Model {
 			
 			// Assign sales and store step data in statistics
 			updateStatistics();
+			
+			if(checkpoint > 0 && (step + 1) % checkpoint == 0
+					&& pruning.isHopeless(iteration, statistics, step)) {
+				return false;
+			}
 
 			step++;
 		}
+		return true;
 	}
 	
 	/**
@@ -1,6 +1,8 @@
 package model;
 
 import model.customer.Agent;
+import model.customer.CompactAgent;
+import model.customer.PackedAgentState;
 import model.decisionmaking.DecisionMaking;
 import model.sales.SalesScheduler;
 import model.socialnetwork.BasicScaleFreeSocialNetwork;
@@ -10,8 +12,10 @@ import model.touchpoints.MarketingPlan;
 import model.touchpoints.TouchPointOwned;
 import model.touchpoints.TouchPointOwned.InvestmentType;
 import model.touchpoints.TouchPointOwnedRegistry;
+import model.touchpoints.TouchPointScheduleCache;
 import model.touchpoints.earned.PostReadOnline;
 import model.touchpoints.earned.ProductUsage;
+import util.random.CopyableRandomizer;
 import util.random.Randomizer;
 import util.statistics.Statistics;
 
@@ -66,6 +70,94 @@ public class ModelBuilder {
 				md.getAgentsRatio()
 			);
 		
+		setUp(m, bean, seed, null, null, null);
+		return m;
+	}
+	
+	/**
+	 * Resets a Model instance previously built (by any builder) in place, 
+	 * using current ModelDefinition and ModelStepTranslator parameters and 
+	 * the given seed. Agents, social network and sales scheduler structures 
+	 * are reused, avoiding most allocations when running several Monte-Carlo 
+	 * iterations.
+	 * 
+	 * The resulting model is equivalent to the one returned by 
+	 * build(bean, seed). If the model is not compatible with current 
+	 * definition (different dimensions or agent implementation), a new 
+	 * instance is built instead. Models using a population cache must only 
+	 * be reset by definitions using a population cache too, because their 
+	 * social network is shared.
+	 * 
+	 * @param m - the model to be reset.
+	 * @param bean - shared model bean.
+	 * @param seed - randomizer seed for the new simulation.
+	 * @return the reset model, or a new instance if the given one can not 
+	 * be reused.
+	 */
+	public Model rebuild(Model m, ModelBean bean, long seed) {
+		if(!isReusable(m)) {
+			return build(bean, seed);
+		}
+		
+		m.reset(
+				md.numberOfSegments, 
+				seed, 
+				md.awarenessFilter, 
+				md.womSentimentPositive, 
+				md.womSentimentNegative, 
+				md.getAgentsRatio()
+			);
+		
+		setUp(m, bean, seed, m.getSocialNetwork(), m.getAgents(), 
+				m.getSalesScheduler());
+		return m;
+	}
+	
+	/**
+	 * Checks if given model can be reset using current definition.
+	 * 
+	 * @param m - a previously built model.
+	 * @return true if the model can be reset in place.
+	 */
+	private boolean isReusable(Model m) {
+		if(m == null || m.getAgents() == null || m.getSalesScheduler() == null
+				|| !m.isCompatible(
+						md.stepsForWeek, 
+						md.numberOfAgents, 
+						md.numberOfBrands, 
+						md.numberOfAttributes, 
+						md.numberOfWeeks, 
+						md.numberOfTouchPoints)) {
+			return false;
+		}
+		
+		Class<?> agentClass = md.isCompactAgents() ? CompactAgent.class : Agent.class;
+		return m.getClass() == Model.class
+				&& m.getAgents()[0].getClass() == agentClass
+				&& m.getSegments().getNumSegments() == md.numberOfSegments
+				&& m.getSalesScheduler().enabled.length == md.numberOfSegments;
+	}
+	
+	/**
+	 * Sets up every model component. The randomizer is used following 
+	 * always the same order, so either new or reused components result 
+	 * in the same simulation for a given seed.
+	 * 
+	 * @param m - model being built.
+	 * @param bean - shared model bean.
+	 * @param seed - model seed.
+	 * @param previousNetwork - social network to be regenerated or null.
+	 * @param previousAgents - agents to be reset or null.
+	 * @param previousScheduler - sales scheduler to be reset or null.
+	 */
+	private void setUp(
+			Model m, 
+			ModelBean bean, 
+			long seed,
+			SocialNetwork previousNetwork,
+			Agent[] previousAgents,
+			SalesScheduler previousScheduler
+		) {
 		ClientSegments segments = createSegments();
 		m.setSegments(segments);
 
@@ -90,6 +182,10 @@ public class ModelBuilder {
 			);
 		m.setTouchPointRegistry(registry);
 		registry.setDebugMode(md.debug);
+		if(md.isParallelScheduling()) {
+			registry.enableParallelScheduling(
+					seed, TouchPointScheduleCache.getShared());
+		}
 
 		DecisionMaking dm = new DecisionMaking(
 			random, md.drivers, md.involved, 
@@ -100,25 +196,25 @@ public class ModelBuilder {
 		
 //---------------------------------------------------------------------------//
 
-		SocialNetwork socialNetwork = createSocialNetwork(
-				segments.getSegmentSizesInt(), random);
-		m.setSocialNetwork(socialNetwork);
+		PopulationCache.Entry population = createPopulation(
+				segments, random, seed, previousNetwork);
+		m.setSocialNetwork(population.network);
 		
 //---------------------------------------------------------------------------//
 		
-		Agent[] agents = createAgents(segments, socialNetwork, registry, random);
+		Agent[] agents = createAgents(
+				segments, population, registry, previousAgents);
 		m.setAgents(agents);
 		
 //---------------------------------------------------------------------------//
 
-		m.setSalesScheduler(configSalesScheduler(agents));
+		m.setSalesScheduler(configSalesScheduler(agents, previousScheduler));
 		
 //---------------------------------------------------------------------------//
 		Statistics stats = m.getStatistics();
 		scheduleTouchPoints(registry,agents, segments, stats);
 
 //---------------------------------------------------------------------------//
-		return m;
 	}
 	
 	public ModelBean createBean() {
@@ -154,7 +250,7 @@ public class ModelBuilder {
 		m.setSegments(segments);
 		
 		SocialNetwork socialNetwork = createSocialNetwork(
-				segments.getSegmentSizesInt(), random);	
+				segments.getSegmentSizesInt(), random, null);	
 		m.setSocialNetwork(socialNetwork);
 		
 		return m;
@@ -231,19 +327,29 @@ public class ModelBuilder {
 	 * 
 	 * @param numberOfNodes - number of nodes by segment
 	 * @param random - current randomizer
+	 * @param previous - network instance to be regenerated if its type 
+	 * matches current definition (it can be null)
 	 * @return a SocialNetwork instance
 	 */
 	private SocialNetwork createSocialNetwork(
-			int[] numberOfNodes, Randomizer random) {
+			int[] numberOfNodes, Randomizer random, SocialNetwork previous) {
 		
 		SocialNetwork socialNetwork;
 		switch(md.typeOfNetwork) {
 			case SCALE_FREE_NETWORK:
-				socialNetwork= new BasicScaleFreeSocialNetwork();
+				if(previous instanceof BasicScaleFreeSocialNetwork) {
+					socialNetwork = previous;
+				} else {
+					socialNetwork= new BasicScaleFreeSocialNetwork();
+				}
 				break;
 				
 			case RANDOM_NETWORK_SEGMENTS:
-				socialNetwork= new GeometricRandomSocialNetwork();
+				if(previous instanceof GeometricRandomSocialNetwork) {
+					socialNetwork = previous;
+				} else {
+					socialNetwork= new GeometricRandomSocialNetwork();
+				}
 				break;
 			default:
 				throw new IllegalArgumentException("Unknown network type");
@@ -261,62 +367,229 @@ public class ModelBuilder {
 	}
 	
 	/**
-	 * Creates ClientAgent array instance using ModelDefinition, 
-	 * ClientSegments and SocialNetwork values, along with the
-	 * current randomizer.
+	 * Creates the social network and draws the initial state of every 
+	 * agent. If the definition has a population cache, the population is 
+	 * taken from the cache when available, setting the randomizer to the 
+	 * state it would reach by drawing the population.
+	 * 
+	 * @param segments - a ClientSegments object
+	 * @param random - current randomizer instance
+	 * @param seed - model seed
+	 * @param previousNetwork - network instance to be regenerated if the 
+	 * population is not cached (it can be null)
+	 * @return the population of the model
+	 */
+	private PopulationCache.Entry createPopulation(
+			ClientSegments segments, 
+			Randomizer random,
+			long seed,
+			SocialNetwork previousNetwork) {
+		
+		PopulationCache cache = md.getPopulationCache();
+		if(cache == null || !(random instanceof CopyableRandomizer)) {
+			return drawPopulation(segments, random, previousNetwork, false);
+		}
+		
+		PopulationCache.Key key = new PopulationCache.Key(
+				seed, 
+				md.numberOfTouchPoints, 
+				md.numberOfBrands, 
+				md.numberOfAgents, 
+				md.typeOfNetwork, 
+				segments.getSegmentSizesInt(), 
+				md.womSegmentConnectivity, 
+				md.brandInitialPenetration, 
+				md.initialPerceptions, 
+				md.initialPerceptionsStdDeviation, 
+				md.initialAwareness
+			);
+		PopulationCache.Entry population = cache.get(key);
+		if(population == null) {
+			//Shared networks are never regenerated in place.
+			population = drawPopulation(segments, random, null, true);
+			cache.put(key, population);
+		} else {
+			population.restoreState((CopyableRandomizer) random);
+		}
+		return population;
+	}
+	
+	/**
+	 * Generates the social network and draws the initial state of every 
+	 * agent using the current randomizer.
 	 * 
 	 * @param segments - a ClientSegments object
-	 * @param socialNetwork - a SocialNetwork object
 	 * @param random - current randomizer instance
+	 * @param previousNetwork - network instance to be regenerated (it can 
+	 * be null)
+	 * @param shared - true if the population will be shared, storing the 
+	 * final randomizer state
+	 * @return the population of the model
+	 */
+	private PopulationCache.Entry drawPopulation(
+			ClientSegments segments, 
+			Randomizer random,
+			SocialNetwork previousNetwork,
+			boolean shared) {
+		
+		SocialNetwork socialNetwork = createSocialNetwork(
+				segments.getSegmentSizesInt(), random, previousNetwork);
+		
+		int[][] neighbours = new int[md.numberOfAgents][];
+		boolean[][] initialItems = new boolean[md.numberOfAgents][];
+		double[][][] initialPerceptions = new double[md.numberOfAgents][][];
+		boolean[][] initialAwareness = new boolean[md.numberOfAgents][];
+		
+		for (int i = 0; i < md.numberOfAgents; i++) {
+			int segmentId = socialNetwork.getNodeSegmentAt(i);
+			neighbours[i] = socialNetwork.getNodeNeighboursAt(i);
+			
+			initialItems[i] = ProductUsage.generateInitialItems(
+				md.brandInitialPenetration, random
+			);
+			initialPerceptions[i] = segments.generateInitialPerceptions(
+				segmentId,
+				md.initialPerceptionsStdDeviation,
+				random
+			);
+			initialAwareness[i] = segments.generateInitialAwareness(
+				md.numberOfBrands, segmentId, random);
+		}
+		
+		return new PopulationCache.Entry(
+				socialNetwork, 
+				neighbours, 
+				initialItems, 
+				initialPerceptions, 
+				initialAwareness, 
+				shared ? ((CopyableRandomizer) random).copy() : null
+			);
+	}
+	
+	/**
+	 * Creates ClientAgent array instance using ModelDefinition, 
+	 * ClientSegments and population values.
+	 * 
+	 * @param segments - a ClientSegments object
+	 * @param population - the social network and initial agent states
+	 * @param registry - the touch point registry
+	 * @param previousAgents - agents to be reset in place (it can be null)
 	 * @return a ClientAgent array
 	 */
 	private Agent[] createAgents(
 			ClientSegments segments, 
-			SocialNetwork socialNetwork, 
+			PopulationCache.Entry population,
 			TouchPointOwnedRegistry registry,
-			Randomizer random) {
+			Agent[] previousAgents) {
+		
+		if(previousAgents != null) {
+			return resetAgents(segments, population, previousAgents);
+		}
 		
 		Agent[] agentsBag = new Agent[md.numberOfAgents];
 		
+		//Compact agents share a population-wide packed state.
+		PackedAgentState packedState = null;
+		if(md.isCompactAgents()) {
+			packedState = new PackedAgentState(
+				md.numberOfAgents, md.numberOfBrands, md.numberOfAttributes);
+		}
+		
 		for (int i = 0; i < md.numberOfAgents; i++) {
-			int segmentId = socialNetwork.getNodeSegmentAt(i);
-			int[] neighbours = socialNetwork.getNodeNeighboursAt(i);
+			int segmentId = population.network.getNodeSegmentAt(i);
 			
-			agentsBag[i] = new Agent(
+			if(packedState != null) {
+				agentsBag[i] = new CompactAgent(
+					segments.getSegmentTalkingProbability(segmentId),
+					segments.getSegmentAwarenessDecay(segmentId),
+					segments.getSegmentAwarenessImpact(segmentId),
+					segments.getSegmentDiscussionHeatImpact(segmentId),
+					segments.getSegmentPerceptionSpeed(segmentId),
+					population.initialItems[i],
+					i, 
+					segmentId,
+					population.initialPerceptions[i], 
+					population.initialAwareness[i], 
+					population.neighbours[i],
+					md.numberOfBrands,
+					registry.getNumberOfTouchpoints(),
+					packedState
+				);
+			} else {
+				agentsBag[i] = new Agent(
+					segments.getSegmentTalkingProbability(segmentId),
+					segments.getSegmentAwarenessDecay(segmentId),
+					segments.getSegmentAwarenessImpact(segmentId),
+					segments.getSegmentDiscussionHeatImpact(segmentId),
+					segments.getSegmentPerceptionSpeed(segmentId),
+					initialItems(population, i),
+					i, 
+					segmentId,
+					population.initialPerceptions[i], 
+					population.initialAwareness[i], 
+					population.neighbours[i],
+					md.numberOfBrands,
+					registry.getNumberOfTouchpoints()
+				);
+			}
+			segments.addAgentToSegment(segmentId, i);
+		}
+		return agentsBag;
+	}
+	
+	/**
+	 * Resets the given agents in place using the population values.
+	 * 
+	 * @param segments - a ClientSegments object
+	 * @param population - the social network and initial agent states
+	 * @param agentsBag - agents to be reset
+	 * @return the reset agents array
+	 */
+	private Agent[] resetAgents(
+			ClientSegments segments, 
+			PopulationCache.Entry population,
+			Agent[] agentsBag) {
+		
+		for (int i = 0; i < md.numberOfAgents; i++) {
+			int segmentId = population.network.getNodeSegmentAt(i);
+			
+			agentsBag[i].reset(
 				segments.getSegmentTalkingProbability(segmentId),
 				segments.getSegmentAwarenessDecay(segmentId),
 				segments.getSegmentAwarenessImpact(segmentId),
 				segments.getSegmentDiscussionHeatImpact(segmentId),
 				segments.getSegmentPerceptionSpeed(segmentId),
-				ProductUsage.generateInitialItems(
-					md.brandInitialPenetration, random
-				),
-				i, 
+				initialItems(population, i),
 				segmentId,
-				segments.generateInitialPerceptions(
-					segmentId,
-					md.initialPerceptionsStdDeviation,
-					random
-				), 
-				segments.generateInitialAwareness(md.numberOfBrands, segmentId, random), 
-				neighbours,
-				md.numberOfBrands,
-				registry.getNumberOfTouchpoints()
+				population.initialPerceptions[i], 
+				population.initialAwareness[i], 
+				population.neighbours[i]
 			);
 			segments.addAgentToSegment(segmentId, i);
 		}
 		return agentsBag;
 	}
 	
+	/**
+	 * Returns the initial inventory of an agent. Agents keep the given 
+	 * array as their inventory, so shared populations are copied.
+	 */
+	private static boolean[] initialItems(
+			PopulationCache.Entry population, int agent) {
+		boolean[] items = population.initialItems[agent];
+		return population.isShared() ? items.clone() : items;
+	}
+	
 	/**
 	 * Creates a SalesScheduler instance using a ClientAgent array, 
 	 * ModelDefinition and ModelStepTranslator values. 
 	 * 
 	 * @param agents - a ClientAgent array instance
+	 * @param previous - scheduler to be reset in place (it can be null)
 	 * @return a SalesScheduler instance
 	 */
 	private SalesScheduler configSalesScheduler (
-			Agent[] agents) {
+			Agent[] agents, SalesScheduler previous) {
 		
 		double[] seasonality;		
 		int numberOfSteps = md.getNumberOfSteps();
@@ -334,6 +607,20 @@ public class ModelBuilder {
 			seasonality=md.seasonality;
 		}
 		
+		if(previous != null) {
+			previous.reset(
+				seasonality,
+				translator.availability,
+				md.salesCheckpoint,
+				md.marketPercentBySegment,
+				translator.buyingDecisionCycle, 
+				md.getAgentsRatio(), 
+				agents
+			);
+			previous.setBatchedSales(md.isBatchedSales());
+			return previous;
+		}
+		
 		SalesScheduler ss = new SalesScheduler(
 			seasonality,
 			translator.availability,
@@ -344,6 +631,7 @@ public class ModelBuilder {
 			md.getAgentsRatio(), 
 			agents
 		);
+		ss.setBatchedSales(md.isBatchedSales());
 		
 		return ss;
 	}
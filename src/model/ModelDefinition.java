@@ -4,6 +4,9 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import org.apache.commons.lang3.math.NumberUtils;
 
@@ -23,7 +26,7 @@ import util.io.ConfigFileReader;
  * @author imoya
  *
  */
-public class ModelDefinition {
+public class ModelDefinition implements Cloneable {
 	
 	// ########################################################################
 	// Attributes ::	Most attributes have package visibility for easing 
@@ -449,6 +452,41 @@ public class ModelDefinition {
 	
 	private boolean simple;
 	
+	/**
+	 * Enables the memory-compact agent state (single precision perceptions 
+	 * and bit-packed awareness and inventory). See CompactAgent for the 
+	 * numeric tolerance of this mode.
+	 */
+	private boolean compactAgents;
+	
+	/**
+	 * Enables parallel touch point scheduling with randomizers derived from 
+	 * the model seed. Schedules are cached and shared between models with 
+	 * the same seed, marketing plans and reach parameters.
+	 */
+	private boolean parallelScheduling;
+	
+	/**
+	 * Enables the batched assignment of the sales of every step. See 
+	 * SalesScheduler.setBatchedSales for how it changes the simulations.
+	 */
+	private boolean batchedSales;
+	
+	/**
+	 * Cache of the agent populations shared by the models of this 
+	 * definition, or null if every model generates its own population. 
+	 * It is not a model parameter, so it is neither exported nor compiled.
+	 */
+	private transient PopulationCache populationCache;
+	
+	/**
+	 * Arrays owned by this overlay, i.e. copied from its base definition 
+	 * before being modified. It is null for definitions that are not 
+	 * overlays, which own every array. It is not a model parameter, so 
+	 * it is neither exported nor compiled.
+	 */
+	private transient Set<Object> ownedArrays = null;
+	
 	// ########################################################################
 	// Methods
 	// ########################################################################
@@ -466,11 +504,23 @@ public class ModelDefinition {
 	
 	/**
 	 * Import model values from given ZIO file object using a 
-	 * {@code ConfigFileReader}. ZIO files are Java property files.
+	 * {@code ConfigFileReader}. ZIO files are Java property files. Files 
+	 * compiled by {@code ModelDefinitionFile} are loaded without parsing.
 	 * 
 	 * @param file ZIO file that is trying to be imported.
 	 */
 	public void loadValuesFromFile(File file) {
+		if(ModelDefinitionFile.isCompiled(file)) {
+			try {
+				ModelDefinitionFile.read(file.getPath(), this);
+			} catch (IOException e) {
+				throw new IllegalArgumentException(
+					"Unable to load compiled model definition: " 
+						+ e.getMessage(), e);
+			}
+			return;
+		}
+		
 		ConfigFileReader config = new ConfigFileReader();
 		config.readConfigFile(file);
 		
@@ -863,6 +913,80 @@ public class ModelDefinition {
 		}
 	}
 	
+	/**
+	 * Creates a copy-on-write overlay of this definition. The overlay 
+	 * shares every array with this definition until it is modified through 
+	 * a ModelManager, which copies the modified arrays first. Hence, 
+	 * overlays may be modified and simulated concurrently while this 
+	 * definition is left untouched, as long as this definition is not 
+	 * modified meanwhile.
+	 * 
+	 * @return a new overlay of this definition.
+	 */
+	public ModelDefinition createOverlay() {
+		try {
+			ModelDefinition overlay = (ModelDefinition) super.clone();
+			overlay.ownedArrays = Collections.newSetFromMap(
+					new IdentityHashMap<Object, Boolean>());
+			return overlay;
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Returns true if this definition is a copy-on-write overlay.
+	 * @return true if this definition is a copy-on-write overlay.
+	 */
+	public boolean isOverlay() {
+		return ownedArrays != null;
+	}
+	
+	/**
+	 * Returns an array owned by this definition with the same values as 
+	 * the given one, copying it if it is shared with the base definition. 
+	 * Every array field must be replaced by the returned array before 
+	 * being modified.
+	 * 
+	 * @param array an array field of this definition.
+	 * @return the given array if owned by this definition, or its copy.
+	 */
+	<T> T ownArray(T array) {
+		if(ownedArrays == null || array == null 
+				|| ownedArrays.contains(array)) {
+			return array;
+		}
+		@SuppressWarnings("unchecked")
+		T copy = (T) deepCopy(array);
+		ownedArrays.add(copy);
+		return copy;
+	}
+	
+	/**
+	 * Copies every level of a (possibly multidimensional) array.
+	 */
+	private static Object deepCopy(Object array) {
+		if(array instanceof Object[]) {
+			Object[] copy = ((Object[]) array).clone();
+			for (int i = 0; i < copy.length; i++) {
+				if(copy[i] != null && copy[i].getClass().isArray()) {
+					copy[i] = deepCopy(copy[i]);
+				}
+			}
+			return copy;
+		} else if(array instanceof double[]) {
+			return ((double[]) array).clone();
+		} else if(array instanceof int[]) {
+			return ((int[]) array).clone();
+		} else if(array instanceof boolean[]) {
+			return ((boolean[]) array).clone();
+		} else if(array instanceof byte[]) {
+			return ((byte[]) array).clone();
+		}
+		throw new IllegalArgumentException(
+			"Unsupported array type: " + array.getClass());
+	}
+	
 	/**
 	 * Creates a new model builder instance using stored model definition values.
 	 * Model building will display times on console.
@@ -1974,6 +2098,45 @@ public class ModelDefinition {
 	public void setSimple(boolean simple) {
 		this.simple = simple;
 	}
+	
+	public boolean isCompactAgents() {
+		return compactAgents;
+	}
+
+	public void setCompactAgents(boolean compactAgents) {
+		this.compactAgents = compactAgents;
+	}
+	
+	public boolean isParallelScheduling() {
+		return parallelScheduling;
+	}
+
+	public void setParallelScheduling(boolean parallelScheduling) {
+		this.parallelScheduling = parallelScheduling;
+	}
+	
+	public boolean isBatchedSales() {
+		return batchedSales;
+	}
+
+	public void setBatchedSales(boolean batchedSales) {
+		this.batchedSales = batchedSales;
+	}
+	
+	public PopulationCache getPopulationCache() {
+		return populationCache;
+	}
+
+	/**
+	 * Makes the models of this definition share the populations stored 
+	 * at the given cache (see PopulationCache). Overlays created 
+	 * afterwards use the same cache.
+	 * @param populationCache - cache of populations, or null for 
+	 * generating the population of every model.
+	 */
+	public void setPopulationCache(PopulationCache populationCache) {
+		this.populationCache = populationCache;
+	}
 
 	public void setSegmentNames(String[] segmentNames) {
 		this.segmentNames = segmentNames;
@@ -0,0 +1,396 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * ModelDefinitionFile stores a ModelDefinition in a compiled binary file,
+ * loaded by mapping the file in memory instead of parsing the ZIO or JSON
+ * representations and their multidimensional arrays of strings.
+ *
+ * Every field of the definition is stored in declaration order as
+ * little-endian values: primitives as they are, strings as UTF-8 bytes,
+ * enums by name and arrays by length and elements, innermost arrays of
+ * numbers as blocks. A negative length stands for null.
+ *
+ * Layout: magic bytes, version, layout fingerprint, payload size, CRC32
+ * checksum of the payload, and the payload. The fingerprint hashes the
+ * names and types of the fields, so files compiled from a different
+ * version of ModelDefinition are rejected, as well as files whose
+ * checksum does not match.
+ *
+ * @author imoya
+ *
+ */
+public class ModelDefinitionFile {
+
+	public static final String EXTENSION = ".smd";
+
+	private static final byte[] MAGIC = {'S', 'O', 'C', 'M', 'D', 'L', '\r', '\n'};
+	private static final int VERSION = 1;
+
+	/**
+	 * Magic bytes, version, fingerprint, payload size and checksum.
+	 */
+	private static final int PREFIX_SIZE = MAGIC.length + Integer.BYTES
+			+ 3 * Long.BYTES;
+
+	private static final int INITIAL_SIZE = 1 << 16;
+
+	/**
+	 * Fields stored, in declaration order.
+	 */
+	private static final Field[] FIELDS;
+	private static final long LAYOUT;
+
+	static {
+		List<Field> fields = new ArrayList<Field>();
+		CRC32 layout = new CRC32();
+		for (Field field : ModelDefinition.class.getDeclaredFields()) {
+			int modifiers = field.getModifiers();
+			if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+					|| field.isSynthetic()) {
+				continue;
+			}
+			if(!isSupported(field.getType())) {
+				throw new IllegalStateException("Field " + field.getName()
+					+ " of type " + field.getType() + " cannot be compiled.");
+			}
+			field.setAccessible(true);
+			fields.add(field);
+			layout.update((field.getName() + ":" + field.getType().getName() + ";")
+					.getBytes(StandardCharsets.UTF_8));
+		}
+		FIELDS = fields.toArray(new Field[fields.size()]);
+		LAYOUT = layout.getValue();
+	}
+
+	private static boolean isSupported(Class<?> type) {
+		if(type.isArray()) {
+			return isSupported(type.getComponentType());
+		}
+		return type == boolean.class || type == byte.class || type == int.class
+				|| type == long.class || type == double.class
+				|| type == String.class || type.isEnum();
+	}
+
+	private ModelDefinitionFile() {
+	}
+
+	/**
+	 * Returns true if the file is named as a compiled model definition.
+	 * @param file - model definition file.
+	 * @return true if the file has the compiled extension.
+	 */
+	public static boolean isCompiled(File file) {
+		return file.getName().endsWith(EXTENSION);
+	}
+
+	// ########################################################################
+	// Writing
+	// ########################################################################
+
+	/**
+	 * Compiles a model definition to a file. The file is written to a
+	 * temporary file first and then moved, so concurrent readers never see
+	 * incomplete files.
+	 *
+	 * @param md - model definition.
+	 * @param filename - name of the file.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(ModelDefinition md, String filename)
+			throws IOException {
+		Writer writer = new Writer();
+		for (Field field : FIELDS) {
+			try {
+				writer.writeValue(field.getType(), field.get(md));
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		ByteBuffer payload = writer.buffer;
+		payload.flip();
+
+		CRC32 checksum = new CRC32();
+		checksum.update(payload.duplicate());
+
+		ByteBuffer prefix = ByteBuffer.allocate(PREFIX_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		prefix.put(MAGIC);
+		prefix.putInt(VERSION);
+		prefix.putLong(LAYOUT);
+		prefix.putLong(payload.remaining());
+		prefix.putLong(checksum.getValue());
+		prefix.flip();
+
+		Path target = Paths.get(filename).toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(),
+				target.getFileName().toString(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeFully(channel, prefix);
+				writeFully(channel, payload);
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Growing buffer of the payload.
+	 */
+	private static class Writer {
+		ByteBuffer buffer = ByteBuffer.allocate(INITIAL_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		void ensure(long bytes) {
+			if(buffer.remaining() < bytes) {
+				long size = Math.max(2L * buffer.capacity(),
+						buffer.position() + bytes);
+				if(size > Integer.MAX_VALUE) {
+					throw new IllegalStateException(
+						"Model definition too large to be compiled.");
+				}
+				ByteBuffer grown = ByteBuffer.allocate((int) size)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+
+		void writeValue(Class<?> type, Object value) {
+			if(type == boolean.class) {
+				ensure(1);
+				buffer.put((byte) ((Boolean) value ? 1 : 0));
+			} else if(type == byte.class) {
+				ensure(1);
+				buffer.put((Byte) value);
+			} else if(type == int.class) {
+				ensure(Integer.BYTES);
+				buffer.putInt((Integer) value);
+			} else if(type == long.class) {
+				ensure(Long.BYTES);
+				buffer.putLong((Long) value);
+			} else if(type == double.class) {
+				ensure(Double.BYTES);
+				buffer.putDouble((Double) value);
+			} else if(type == String.class) {
+				writeString((String) value);
+			} else if(type.isEnum()) {
+				writeString(value != null ? ((Enum<?>) value).name() : null);
+			} else {
+				writeArray(type.getComponentType(), value);
+			}
+		}
+
+		void writeString(String value) {
+			if(value == null) {
+				ensure(Integer.BYTES);
+				buffer.putInt(-1);
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				ensure(Integer.BYTES + bytes.length);
+				buffer.putInt(bytes.length);
+				buffer.put(bytes);
+			}
+		}
+
+		void writeArray(Class<?> component, Object array) {
+			ensure(Integer.BYTES);
+			if(array == null) {
+				buffer.putInt(-1);
+				return;
+			}
+			int length = Array.getLength(array);
+			buffer.putInt(length);
+			if(component == double.class) {
+				ensure((long) length * Double.BYTES);
+				buffer.asDoubleBuffer().put((double[]) array);
+				buffer.position(buffer.position() + length * Double.BYTES);
+			} else if(component == int.class) {
+				ensure((long) length * Integer.BYTES);
+				buffer.asIntBuffer().put((int[]) array);
+				buffer.position(buffer.position() + length * Integer.BYTES);
+			} else if(component == byte.class) {
+				ensure(length);
+				buffer.put((byte[]) array);
+			} else {
+				for (int i = 0; i < length; i++) {
+					writeValue(component, Array.get(array, i));
+				}
+			}
+		}
+	}
+
+	// ########################################################################
+	// Reading
+	// ########################################################################
+
+	/**
+	 * Loads a compiled model definition.
+	 *
+	 * @param filename - name of the file.
+	 * @return the model definition.
+	 * @throws IOException if the file cannot be read, has not a valid
+	 * format or its checksum does not match.
+	 */
+	public static ModelDefinition read(String filename) throws IOException {
+		ModelDefinition md = new ModelDefinition();
+		read(filename, md);
+		return md;
+	}
+
+	/**
+	 * Loads a compiled model definition into an existing definition,
+	 * replacing every value.
+	 *
+	 * @param filename - name of the file.
+	 * @param md - model definition loaded.
+	 * @throws IOException if the file cannot be read, has not a valid
+	 * format or its checksum does not match.
+	 */
+	public static void read(String filename, ModelDefinition md)
+			throws IOException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(Paths.get(filename),
+				StandardOpenOption.READ)) {
+			if(channel.size() < PREFIX_SIZE) {
+				throw new IOException(filename
+					+ " is not a compiled model definition.");
+			}
+			MappedByteBuffer mapped = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		byte[] magic = new byte[MAGIC.length];
+		buffer.get(magic);
+		if(!Arrays.equals(magic, MAGIC)) {
+			throw new IOException(filename + " is not a compiled model definition.");
+		}
+		int version = buffer.getInt();
+		if(version != VERSION) {
+			throw new IOException(filename + " has an unsupported version: "
+					+ version);
+		}
+		if(buffer.getLong() != LAYOUT) {
+			throw new IOException(filename
+				+ " was compiled from a different model definition version.");
+		}
+		long size = buffer.getLong();
+		long expected = buffer.getLong();
+		if(size != buffer.remaining()) {
+			throw new IOException(filename + " is truncated.");
+		}
+
+		ByteBuffer payload = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		CRC32 checksum = new CRC32();
+		checksum.update(payload.duplicate());
+		if(checksum.getValue() != expected) {
+			throw new IOException(filename + " does not match its checksum.");
+		}
+
+		try {
+			for (Field field : FIELDS) {
+				field.set(md, readValue(field.getType(), payload));
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		} catch (RuntimeException e) {
+			throw new IOException(filename + " is not a valid compiled model "
+				+ "definition: " + e.getMessage(), e);
+		}
+	}
+
+	private static Object readValue(Class<?> type, ByteBuffer buffer) {
+		if(type == boolean.class) {
+			return buffer.get() != 0;
+		} else if(type == byte.class) {
+			return buffer.get();
+		} else if(type == int.class) {
+			return buffer.getInt();
+		} else if(type == long.class) {
+			return buffer.getLong();
+		} else if(type == double.class) {
+			return buffer.getDouble();
+		} else if(type == String.class) {
+			return readString(buffer);
+		} else if(type.isEnum()) {
+			String name = readString(buffer);
+			return name != null ? enumValue(type, name) : null;
+		} else {
+			return readArray(type.getComponentType(), buffer);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object enumValue(Class<?> type, String name) {
+		return Enum.valueOf((Class<? extends Enum>) type, name);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Object readArray(Class<?> component, ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if(length < 0) {
+			return null;
+		}
+		if(component == double.class) {
+			double[] array = new double[length];
+			buffer.asDoubleBuffer().get(array);
+			buffer.position(buffer.position() + length * Double.BYTES);
+			return array;
+		} else if(component == int.class) {
+			int[] array = new int[length];
+			buffer.asIntBuffer().get(array);
+			buffer.position(buffer.position() + length * Integer.BYTES);
+			return array;
+		} else if(component == byte.class) {
+			byte[] array = new byte[length];
+			buffer.get(array);
+			return array;
+		}
+		Object array = Array.newInstance(component, length);
+		for (int i = 0; i < length; i++) {
+			Array.set(array, i, readValue(component, buffer));
+		}
+		return array;
+	}
+}
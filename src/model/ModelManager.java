@@ -49,6 +49,16 @@ public class ModelManager {
 		this.involvedDrivers = involvedDrivers;
 	}
 	
+	/**
+	 * Returns an array owned by the managed model definition, so it can be 
+	 * modified without modifying the base of an overlay.
+	 * @param array an array field of the managed model definition.
+	 * @return the array to be modified and stored in its field.
+	 */
+	private <T> T own(T array) {
+		return modelDefinitionInstance.ownArray(array);
+	}
+	
 	/**
 	 * Sets/Gets emotional parameter to given value.
 	 * @param emotional new emotional value.
@@ -114,6 +124,8 @@ public class ModelManager {
 			int attribute, 
 			double value
 			) {
+		modelDefinitionInstance.brandAttributes = 
+				own(modelDefinitionInstance.brandAttributes);
 		Arrays.fill(
 				modelDefinitionInstance.brandAttributes[brand][attribute],
 				value
@@ -140,6 +152,8 @@ public class ModelManager {
 			int step,
 			double value
 			) {
+		modelDefinitionInstance.brandAttributes = 
+				own(modelDefinitionInstance.brandAttributes);
 		modelDefinitionInstance.brandAttributes
 			[brand][attribute][step] = value;
 	}
@@ -162,6 +176,8 @@ public class ModelManager {
 			int brand,
 			double value
 			) {
+		modelDefinitionInstance.brandInitialPenetration = 
+				own(modelDefinitionInstance.brandInitialPenetration);
 		modelDefinitionInstance.brandInitialPenetration[brand]=value;
 	}		
 	public double getBrandInitPenetration(
@@ -184,6 +200,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.awarenessDecay = 
+				own(modelDefinitionInstance.awarenessDecay);
 		modelDefinitionInstance.awarenessDecay[segment]=value;
 	}
 	public double getSegmentAwarenessDecay(
@@ -200,6 +218,8 @@ public class ModelManager {
 	public void setSegmentAwarenessDecay( 
 			double value
 			) {
+		modelDefinitionInstance.awarenessDecay = 
+				own(modelDefinitionInstance.awarenessDecay);
 		Arrays.fill(modelDefinitionInstance.awarenessDecay, value);
 	}
 	public double getSegmentAwarenessDecay( ) {
@@ -218,6 +238,8 @@ public class ModelManager {
 			int brand, 
 			double value
 			) {
+		modelDefinitionInstance.initialAwareness = 
+				own(modelDefinitionInstance.initialAwareness);
 		modelDefinitionInstance.initialAwareness[brand][segment]=value;
 	}
 	public double getSegmentInitialAwareness(
@@ -240,6 +262,8 @@ public class ModelManager {
 			int attribute, 
 			double value
 		) {
+		modelDefinitionInstance.drivers = 
+				own(modelDefinitionInstance.drivers);
 		
 		modelDefinitionInstance.drivers[segment][attribute]=value;
 	}
@@ -251,6 +275,8 @@ public class ModelManager {
 	}
 	
 	public void normalizeDrivers() {
+		modelDefinitionInstance.drivers = 
+				own(modelDefinitionInstance.drivers);
 		if(involvedDrivers==null) {
 			for (int i=0; i<modelDefinitionInstance.numberOfSegments; i++) {
 				modelDefinitionInstance.drivers[i] = MathUtils.normalizeArray(
@@ -329,6 +355,8 @@ public class ModelManager {
 			int attribute, 
 			double value
 			) {
+		modelDefinitionInstance.initialPerceptions = 
+				own(modelDefinitionInstance.initialPerceptions);
 		modelDefinitionInstance.initialPerceptions[segment][brand][attribute]=value;
 	}
 	
@@ -353,6 +381,8 @@ public class ModelManager {
 			int attribute, 
 			double value
 			) {
+		modelDefinitionInstance.initialPerceptions = 
+				own(modelDefinitionInstance.initialPerceptions);
 		int segments = modelDefinitionInstance.initialPerceptions.length;
 		for (int i=0; i<segments; i++) {
 			modelDefinitionInstance.initialPerceptions[i][brand][attribute]=value;
@@ -400,6 +430,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womSegmentConnectivity = 
+				own(modelDefinitionInstance.womSegmentConnectivity);
 		modelDefinitionInstance.womSegmentConnectivity[segment]=value;
 	}
 	public double getSocialNetworkSegmentConnectivity(
@@ -421,6 +453,8 @@ public class ModelManager {
 			int secondSegment, 
 			double value
 			) {
+		modelDefinitionInstance.womSegmentInfluences = 
+				own(modelDefinitionInstance.womSegmentInfluences);
 		modelDefinitionInstance.womSegmentInfluences[firstSegment][secondSegment]=value;
 	}
 	public double getSegmentInfluences(
@@ -440,6 +474,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womTalkingProbability = 
+				own(modelDefinitionInstance.womTalkingProbability);
 		modelDefinitionInstance.womTalkingProbability[segment]=value;
 	}
 	public double getSegmentTalking(
@@ -456,6 +492,8 @@ public class ModelManager {
 	public void setSegmentTalking(
 			double value
 			) {
+		modelDefinitionInstance.womTalkingProbability = 
+				own(modelDefinitionInstance.womTalkingProbability);
 		Arrays.fill(modelDefinitionInstance.womTalkingProbability, value);
 	}
 	public double getSegmentTalking(
@@ -473,6 +511,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womAwarenessImpact = 
+				own(modelDefinitionInstance.womAwarenessImpact);
 		modelDefinitionInstance.womAwarenessImpact[segment]=value;
 	}
 	public double getWOMAwarenessImpact(
@@ -489,6 +529,8 @@ public class ModelManager {
 	public void setWOMAwarenessImpact(
 			double value
 			) {
+		modelDefinitionInstance.womAwarenessImpact = 
+				own(modelDefinitionInstance.womAwarenessImpact);
 		Arrays.fill(modelDefinitionInstance.womAwarenessImpact,value);
 	}
 	public double getWOMAwarenessImpact( ) {
@@ -506,6 +548,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womDiscussionHeatImpact = 
+				own(modelDefinitionInstance.womDiscussionHeatImpact);
 		modelDefinitionInstance.womDiscussionHeatImpact[segment]=value;
 	}
 	public double getWOMDiscusionHeatImpact(
@@ -523,6 +567,8 @@ public class ModelManager {
 	public void setWOMDiscusionHeatImpact(
 			double value
 			) {
+		modelDefinitionInstance.womDiscussionHeatImpact = 
+				own(modelDefinitionInstance.womDiscussionHeatImpact);
 		Arrays.fill(modelDefinitionInstance.womDiscussionHeatImpact,value);
 	}
 	public double getWOMDiscusionHeatImpact( ) {
@@ -540,6 +586,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womDiscussionHeatDecay = 
+				own(modelDefinitionInstance.womDiscussionHeatDecay);
 		modelDefinitionInstance.womDiscussionHeatDecay[segment]=value;
 	}
 	public double getWOMDiscusionHeatDecay(
@@ -556,6 +604,8 @@ public class ModelManager {
 	public void setWOMDiscusionHeatDecay(
 			double value
 			) {
+		modelDefinitionInstance.womDiscussionHeatDecay = 
+				own(modelDefinitionInstance.womDiscussionHeatDecay);
 		Arrays.fill(modelDefinitionInstance.womDiscussionHeatDecay,value);
 	}
 	public double getWOMDiscusionHeatDecay( ) {
@@ -572,6 +622,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womPerceptionSpeed = 
+				own(modelDefinitionInstance.womPerceptionSpeed);
 		modelDefinitionInstance.womPerceptionSpeed[segment]=value;
 	}
 	public double getWOMPerceptionSpeed(
@@ -588,6 +640,8 @@ public class ModelManager {
 	public void setWOMPerceptionSpeed(
 			double value
 			) {
+		modelDefinitionInstance.womPerceptionSpeed = 
+				own(modelDefinitionInstance.womPerceptionSpeed);
 		Arrays.fill(modelDefinitionInstance.womPerceptionSpeed,value);
 	}
 	public double getWOMPerceptionSpeed( ) {
@@ -604,6 +658,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womPerceptionDecay = 
+				own(modelDefinitionInstance.womPerceptionDecay);
 		modelDefinitionInstance.womPerceptionDecay[segment]=value;
 	}
 	public double getWOMPerceptionDecay(
@@ -620,6 +676,8 @@ public class ModelManager {
 	public void setWOMPerceptionDecay(
 			double value
 			) {
+		modelDefinitionInstance.womPerceptionDecay = 
+				own(modelDefinitionInstance.womPerceptionDecay);
 		Arrays.fill(modelDefinitionInstance.womPerceptionDecay,value);
 	}
 	public double getWOMPerceptionDecay( ) {
@@ -635,6 +693,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsWeeklyReachMax = 
+				own(modelDefinitionInstance.touchPointsWeeklyReachMax);
 		modelDefinitionInstance.touchPointsWeeklyReachMax[touchpoint][segment]=value;
 	}
 	public double getTouchPointWeeklyReachMax(
@@ -648,6 +708,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsWeeklyReachMax = 
+				own(modelDefinitionInstance.touchPointsWeeklyReachMax);
 		Arrays.fill(modelDefinitionInstance.touchPointsWeeklyReachMax[touchpoint],value);
 	}
 	public double getTouchPointWeeklyReachMax(
@@ -661,6 +723,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAnnualReachMax = 
+				own(modelDefinitionInstance.touchPointsAnnualReachMax);
 		modelDefinitionInstance.touchPointsAnnualReachMax[touchpoint][segment]=value;
 	}
 	public double getTouchPointAnnualReachMax(
@@ -674,6 +738,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAnnualReachMax = 
+				own(modelDefinitionInstance.touchPointsAnnualReachMax);
 		Arrays.fill(modelDefinitionInstance.touchPointsAnnualReachMax[touchpoint],value);
 	}
 	public double getTouchPointAnnualReachMax(
@@ -687,6 +753,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAnnualReachSpeed = 
+				own(modelDefinitionInstance.touchPointsAnnualReachSpeed);
 		modelDefinitionInstance.touchPointsAnnualReachSpeed[touchpoint][segment]=value;
 	}
 	public double getTouchPointAnnualReachSpeed(
@@ -700,6 +768,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAnnualReachSpeed = 
+				own(modelDefinitionInstance.touchPointsAnnualReachSpeed);
 		Arrays.fill(modelDefinitionInstance.touchPointsAnnualReachSpeed[touchpoint],value);
 	}
 	public double getTouchPointAnnualReachSpeed(
@@ -713,6 +783,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionPotential = 
+				own(modelDefinitionInstance.touchPointsPerceptionPotential);
 		modelDefinitionInstance.touchPointsPerceptionPotential[touchpoint][segment]=value;
 	}
 	public double getTouchPointPerceptionPotential(
@@ -726,6 +798,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionPotential = 
+				own(modelDefinitionInstance.touchPointsPerceptionPotential);
 		Arrays.fill(modelDefinitionInstance.touchPointsPerceptionPotential[touchpoint],value);
 	}
 	public double getTouchPointPerceptionPotential(
@@ -739,6 +813,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionSpeed = 
+				own(modelDefinitionInstance.touchPointsPerceptionSpeed);
 		modelDefinitionInstance.touchPointsPerceptionSpeed[touchpoint][segment]=value;
 	}
 	public double getTouchPointPerceptionSpeed(
@@ -752,6 +828,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionSpeed = 
+				own(modelDefinitionInstance.touchPointsPerceptionSpeed);
 		Arrays.fill(modelDefinitionInstance.touchPointsPerceptionSpeed[touchpoint],value);
 	}
 	public double getTouchPointPerceptionSpeed(
@@ -765,6 +843,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionDecay = 
+				own(modelDefinitionInstance.touchPointsPerceptionDecay);
 		modelDefinitionInstance.touchPointsPerceptionDecay[touchpoint][segment]=value;
 	}
 	public double getTouchPointPerceptionDecay(
@@ -778,6 +858,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsPerceptionDecay = 
+				own(modelDefinitionInstance.touchPointsPerceptionDecay);
 		Arrays.fill(modelDefinitionInstance.touchPointsPerceptionDecay[touchpoint],value);
 	}
 	public double getTouchPointPerceptionDecay(
@@ -791,6 +873,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAwarenessImpact = 
+				own(modelDefinitionInstance.touchPointsAwarenessImpact);
 		modelDefinitionInstance.touchPointsAwarenessImpact[touchpoint][segment]=value;
 	}
 	public double getTouchPointAwarenessImpact(
@@ -804,6 +888,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsAwarenessImpact = 
+				own(modelDefinitionInstance.touchPointsAwarenessImpact);
 		Arrays.fill(modelDefinitionInstance.touchPointsAwarenessImpact[touchpoint],value);
 	}
 	public double getTouchPointAwarenessImpact(
@@ -817,6 +903,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsDiscusionHeatImpact = 
+				own(modelDefinitionInstance.touchPointsDiscusionHeatImpact);
 		modelDefinitionInstance.touchPointsDiscusionHeatImpact[touchpoint][segment]=value;
 	}
 	public double getTouchPointDiscusionHeatImpact(
@@ -830,6 +918,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsDiscusionHeatImpact = 
+				own(modelDefinitionInstance.touchPointsDiscusionHeatImpact);
 		Arrays.fill(modelDefinitionInstance.touchPointsDiscusionHeatImpact[touchpoint],value);
 	}
 	public double getTouchPointDiscusionHeatImpact(
@@ -843,6 +933,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsDiscusionHeatDecay = 
+				own(modelDefinitionInstance.touchPointsDiscusionHeatDecay);
 		modelDefinitionInstance.touchPointsDiscusionHeatDecay[touchpoint][segment]=value;
 	}
 	public double getTouchPointDiscusionHeatDecay(
@@ -856,6 +948,8 @@ public class ModelManager {
 			int touchpoint,
 			double value
 			) {
+		modelDefinitionInstance.touchPointsDiscusionHeatDecay = 
+				own(modelDefinitionInstance.touchPointsDiscusionHeatDecay);
 		Arrays.fill(modelDefinitionInstance.touchPointsDiscusionHeatDecay[touchpoint],value);
 	}
 	public double getTouchPointDiscusionHeatDecay(
@@ -875,6 +969,8 @@ public class ModelManager {
 			int attribute, 
 			double value
 			) {
+		modelDefinitionInstance.touchPointsQuality = 
+				own(modelDefinitionInstance.touchPointsQuality);
 		modelDefinitionInstance.touchPointsQuality[tp][brand][period][attribute]=value;
 	}
 	public double getQualityAttribute(
@@ -893,6 +989,8 @@ public class ModelManager {
 			int attribute,			
 			double value
 			) {
+		modelDefinitionInstance.touchPointsEmphasis = 
+				own(modelDefinitionInstance.touchPointsEmphasis);
 		modelDefinitionInstance.touchPointsEmphasis[tp][brand][period][attribute]=value;
 	}
 	public double getEmphasisAttribute(
@@ -912,6 +1010,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usageFrequencies = 
+				own(modelDefinitionInstance.usageFrequencies);
 		modelDefinitionInstance.usageFrequencies[segment]=(int)value;
 	}
 	public double getUsageFrequency(
@@ -923,6 +1023,8 @@ public class ModelManager {
 	public void setUsageFrequency(
 			double value
 			) {
+		modelDefinitionInstance.usageFrequencies = 
+				own(modelDefinitionInstance.usageFrequencies);
 		Arrays.fill(modelDefinitionInstance.usageFrequencies,(int)value);
 	}
 	public double getUsageFrequency( ) {
@@ -933,6 +1035,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usagePerceptionSpeed = 
+				own(modelDefinitionInstance.usagePerceptionSpeed);
 		modelDefinitionInstance.usagePerceptionSpeed[segment]=value;
 	}
 	public double getUsagePerceptionSpeed(
@@ -944,6 +1048,8 @@ public class ModelManager {
 	public void setUsagePerceptionSpeed(
 			double value
 			) {
+		modelDefinitionInstance.usagePerceptionSpeed = 
+				own(modelDefinitionInstance.usagePerceptionSpeed);
 		Arrays.fill(modelDefinitionInstance.usagePerceptionSpeed,value);
 	}
 	public double getUsagePerceptionSpeed( ) {
@@ -954,6 +1060,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usagePerceptionDecay = 
+				own(modelDefinitionInstance.usagePerceptionDecay);
 		modelDefinitionInstance.usagePerceptionDecay[segment]=value;
 	}
 	public double getUsagePerceptionDecay(
@@ -965,6 +1073,8 @@ public class ModelManager {
 	public void setUsagePerceptionDecay(
 			double value
 			) {
+		modelDefinitionInstance.usagePerceptionDecay = 
+				own(modelDefinitionInstance.usagePerceptionDecay);
 		Arrays.fill(modelDefinitionInstance.usagePerceptionDecay,value);
 	}
 	public double getUsagePerceptionDecay( ) {
@@ -975,6 +1085,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usageAwarenessImpact = 
+				own(modelDefinitionInstance.usageAwarenessImpact);
 		modelDefinitionInstance.usageAwarenessImpact[segment]=value;
 	}
 	public double getUsageAwarenessImpact(
@@ -986,6 +1098,8 @@ public class ModelManager {
 	public void setUsageAwarenessImpact(
 			double value
 			) {
+		modelDefinitionInstance.usageAwarenessImpact = 
+				own(modelDefinitionInstance.usageAwarenessImpact);
 		Arrays.fill(modelDefinitionInstance.usageAwarenessImpact,value);
 	}
 	public double getUsageAwarenessImpact( ) {
@@ -996,6 +1110,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usageDiscussionHeatImpact = 
+				own(modelDefinitionInstance.usageDiscussionHeatImpact);
 		modelDefinitionInstance.usageDiscussionHeatImpact[segment]=value;
 	}
 	public double getUsageDiscusionHeatImpact(
@@ -1007,6 +1123,8 @@ public class ModelManager {
 	public void setUsageDiscusionHeatImpact(
 			double value
 			) {
+		modelDefinitionInstance.usageDiscussionHeatImpact = 
+				own(modelDefinitionInstance.usageDiscussionHeatImpact);
 		Arrays.fill(modelDefinitionInstance.usageDiscussionHeatImpact,value);
 	}
 	public double getUsageDiscusionHeatImpact( ) {
@@ -1017,6 +1135,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.usageDiscussionHeatDecay = 
+				own(modelDefinitionInstance.usageDiscussionHeatDecay);
 		modelDefinitionInstance.usageDiscussionHeatDecay[segment]=value;
 	}
 	public double getUsageDiscusionHeatDecay(
@@ -1028,6 +1148,8 @@ public class ModelManager {
 	public void setUsageDiscusionHeatDecay(
 			double value
 			) {
+		modelDefinitionInstance.usageDiscussionHeatDecay = 
+				own(modelDefinitionInstance.usageDiscussionHeatDecay);
 		Arrays.fill(modelDefinitionInstance.usageDiscussionHeatDecay,value);
 	}
 	public double getUsageDiscusionHeatDecay( ) {
@@ -1042,6 +1164,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.onlinePostingProbabilities = 
+				own(modelDefinitionInstance.onlinePostingProbabilities);
 		modelDefinitionInstance.onlinePostingProbabilities[segment]=value;
 	}
 	public double getSegmentPosting(
@@ -1054,6 +1178,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.onlineReadingProbabilities = 
+				own(modelDefinitionInstance.onlineReadingProbabilities);
 		modelDefinitionInstance.onlineReadingProbabilities[segment]=value;
 	}
 	public double getSegmentReading(
@@ -1066,6 +1192,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.onlinePerceptionSpeed = 
+				own(modelDefinitionInstance.onlinePerceptionSpeed);
 		modelDefinitionInstance.onlinePerceptionSpeed[segment]=value;
 	}
 	public double getOnlinePerceptionSpeed(
@@ -1078,6 +1206,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.onlinePerceptionDecay = 
+				own(modelDefinitionInstance.onlinePerceptionDecay);
 		modelDefinitionInstance.onlinePerceptionDecay[segment]=value;
 	}
 	public double getOnlinePerceptionDecay(
@@ -1090,6 +1220,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.onlineAwarenessImpact = 
+				own(modelDefinitionInstance.onlineAwarenessImpact);
 		modelDefinitionInstance.onlineAwarenessImpact[segment]=value;
 	}
 	public double getOnlineAwarenessImpact(
@@ -1102,6 +1234,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.onlineDiscussionHeatImpact = 
+				own(modelDefinitionInstance.onlineDiscussionHeatImpact);
 		modelDefinitionInstance.onlineDiscussionHeatImpact[segment]=value;
 	}
 	public double getOnlineDiscusionHeatImpact(
@@ -1114,6 +1248,8 @@ public class ModelManager {
 			int segment,
 			double value
 			) {
+		modelDefinitionInstance.onlineDiscussionHeatDecay = 
+				own(modelDefinitionInstance.onlineDiscussionHeatDecay);
 		modelDefinitionInstance.onlineDiscussionHeatDecay[segment]=value;
 	}
 	public double getOnlineDiscusionHeatDecay(
@@ -1125,6 +1261,8 @@ public class ModelManager {
 	public void setSegmentPosting(
 			double value
 			) {
+		modelDefinitionInstance.onlinePostingProbabilities = 
+				own(modelDefinitionInstance.onlinePostingProbabilities);
 		Arrays.fill(modelDefinitionInstance.onlinePostingProbabilities,value);
 	}
 	public double getSegmentPosting( ) {
@@ -1134,6 +1272,8 @@ public class ModelManager {
 	public void setSegmentReading(
 			double value
 			) {
+		modelDefinitionInstance.onlineReadingProbabilities = 
+				own(modelDefinitionInstance.onlineReadingProbabilities);
 		Arrays.fill(modelDefinitionInstance.onlineReadingProbabilities,value);
 	}
 	public double getSegmentReading( ) {
@@ -1143,6 +1283,8 @@ public class ModelManager {
 	public void setOnlinePerceptionSpeed(
 			double value
 			) {
+		modelDefinitionInstance.onlinePerceptionSpeed = 
+				own(modelDefinitionInstance.onlinePerceptionSpeed);
 		Arrays.fill(modelDefinitionInstance.onlinePerceptionSpeed,value);
 	}
 	public double getOnlinePerceptionSpeed( ) {
@@ -1152,6 +1294,8 @@ public class ModelManager {
 	public void setOnlinePerceptionDecay(
 			double value
 			) {
+		modelDefinitionInstance.onlinePerceptionDecay = 
+				own(modelDefinitionInstance.onlinePerceptionDecay);
 		Arrays.fill(modelDefinitionInstance.onlinePerceptionDecay,value);
 	}
 	public double getOnlinePerceptionDecay( ) {
@@ -1161,6 +1305,8 @@ public class ModelManager {
 	public void setOnlineAwarenessImpact(
 			double value
 			) {
+		modelDefinitionInstance.onlineAwarenessImpact = 
+				own(modelDefinitionInstance.onlineAwarenessImpact);
 		Arrays.fill(modelDefinitionInstance.onlineAwarenessImpact,value);
 	}
 	public double getOnlineAwarenessImpact( ) {
@@ -1170,6 +1316,8 @@ public class ModelManager {
 	public void setOnlineDiscusionHeatImpact(
 			double value
 			) {
+		modelDefinitionInstance.onlineDiscussionHeatImpact = 
+				own(modelDefinitionInstance.onlineDiscussionHeatImpact);
 		Arrays.fill(modelDefinitionInstance.onlineDiscussionHeatImpact,value);
 	}
 	public double getOnlineDiscusionHeatImpact( ) {
@@ -1179,6 +1327,8 @@ public class ModelManager {
 	public void setOnlineDiscusionHeatDecay(
 			double value
 			) {
+		modelDefinitionInstance.onlineDiscussionHeatDecay = 
+				own(modelDefinitionInstance.onlineDiscussionHeatDecay);
 		Arrays.fill(modelDefinitionInstance.onlineDiscussionHeatDecay,value);
 	}
 	public double getOnlineDiscusionHeatDecay( ) {
@@ -1189,6 +1339,8 @@ public class ModelManager {
 			int segment, 
 			double value
 			) {
+		modelDefinitionInstance.womSegmentConnectivity = 
+				own(modelDefinitionInstance.womSegmentConnectivity);
 		double newConnectivity = (1.0/8.0)*value;
 		modelDefinitionInstance.womSegmentConnectivity[segment]=newConnectivity;
 	}
@@ -1207,6 +1359,8 @@ public class ModelManager {
 			int brand,
 			double value
 			) {
+		modelDefinitionInstance.availabilityByBrandAndStep = 
+				own(modelDefinitionInstance.availabilityByBrandAndStep);
 		Arrays.fill(modelDefinitionInstance.availabilityByBrandAndStep[brand],value);
 	}
 	public double getAverageAvailabilityByBrand(int brand) {
@@ -0,0 +1,55 @@
+package model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ModelPool keeps one Model instance for every worker thread running
+ * Monte-Carlo iterations. Instead of building a new model for every
+ * iteration, the model previously simulated by the same thread is reset in
+ * place (see ModelBuilder.rebuild), reducing allocations and garbage
+ * collection time, which dominate short simulations with small agent
+ * populations.
+ *
+ * Pools are created for a single simulation. Pooled models are kept by
+ * the pool itself instead of the worker threads, so they are released
+ * when the simulation clears the pool, even if its worker threads belong
+ * to a long-lived shared pool (see ModelRunner.acquireSharedPool).
+ *
+ * @author imoya
+ *
+ */
+public class ModelPool {
+
+	/**
+	 * Last model simulated by every worker thread.
+	 */
+	private final Map<Thread, Model> models =
+			new ConcurrentHashMap<Thread, Model>();
+
+	/**
+	 * Returns a model ready to run for the given seed, reusing the model
+	 * previously acquired by the calling thread when possible.
+	 *
+	 * Statistics from previously acquired models remain valid, but any
+	 * other component of a previous model must not be used anymore.
+	 *
+	 * @param mb - builder for current model definition.
+	 * @param bean - shared model bean.
+	 * @param seed - randomizer seed for the simulation.
+	 * @return a model ready to run.
+	 */
+	public Model acquire(ModelBuilder mb, ModelBean bean, long seed) {
+		Thread current = Thread.currentThread();
+		Model m = mb.rebuild(models.get(current), bean, seed);
+		models.put(current, m);
+		return m;
+	}
+
+	/**
+	 * Releases the models stored for every worker thread.
+	 */
+	public void clear() {
+		models.clear();
+	}
+}
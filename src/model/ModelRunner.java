@@ -1,8 +1,10 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 
 import model.simple.SimpleModelBuilder;
 import model.simple.SimpleModelThreadExecuter;
@@ -12,6 +14,84 @@ import util.io.StatisticsRecordingBean;
 import util.statistics.MonteCarloStatistics;
 
 public class ModelRunner {
+	
+	/**
+	 * Thread pool shared by every simulation, or null if every simulation
+	 * creates its own pool.
+	 */
+	private static ExecutorService sharedPool;
+	
+	/**
+	 * Number of users of the shared pool that did not release it yet.
+	 */
+	private static int sharedPoolUsers;
+	
+	/**
+	 * Makes every following simulation run its Monte-Carlo iterations in 
+	 * a single pool, so concurrent simulations (e.g. several calibrations 
+	 * running in the same JVM) share the available cores instead of 
+	 * creating one pool each. Iterations from different simulations are 
+	 * interleaved, filling the cores left idle by simulations finishing 
+	 * their last iterations.
+	 * 
+	 * The pool is created by the first user and reused by the following 
+	 * ones, which do not change its number of threads. Every call must be 
+	 * followed by a call to releaseSharedPool.
+	 * @param threads the number of threads of the shared pool, if it is 
+	 * created by this call.
+	 */
+	public static synchronized void acquireSharedPool(int threads) {
+		if(sharedPool == null) {
+			sharedPool = Executors.newFixedThreadPool(Math.max(1, threads));
+		}
+		sharedPoolUsers++;
+	}
+	
+	/**
+	 * Releases the shared pool acquired by acquireSharedPool. When its last 
+	 * user releases it, the pool is stopped once its pending iterations 
+	 * are finished, and following simulations create their own pool again.
+	 */
+	public static synchronized void releaseSharedPool() {
+		if(sharedPoolUsers == 0) {
+			throw new IllegalStateException(
+				"The shared pool was released more times than acquired");
+		}
+		if(--sharedPoolUsers == 0) {
+			sharedPool.shutdown();
+			sharedPool = null;
+		}
+	}
+	
+	private static synchronized ExecutorService getSharedPool() {
+		return sharedPool;
+	}
+	
+	/**
+	 * Waits for every iteration to finish.
+	 */
+	private static void awaitIterations(List<Future<?>> iterations) 
+			throws Exception {
+		for (Future<?> iteration : iterations) {
+			iteration.get();
+		}
+	}
+	
+	/**
+	 * Stops the pool if it is not shared, or cancels the pending 
+	 * iterations otherwise.
+	 */
+	private static void releasePool(ExecutorService pool, boolean shared,
+			List<Future<?>> iterations) {
+		if(!shared) {
+			pool.shutdownNow();
+		} else {
+			for (Future<?> iteration : iterations) {
+				iteration.cancel(true);
+			}
+		}
+	}
+	
 	/**
 	 * Centralizes a model simulation using a multi-thread strategy: 
 	 * creates a thread pool with size = cpus-1 and waits for all the
@@ -29,17 +109,34 @@ public class ModelRunner {
 	 * simulation, exceptions are thrown.
 	 */
 	private static MonteCarloStatistics simulate(ModelDefinition md, int numMC,
-			boolean fromGUI, StatisticsRecordingBean statisticSetup) throws SimulationException {
+			boolean fromGUI, StatisticsRecordingBean statisticSetup,
+			SimulationPruning pruning) throws SimulationException {
+		return simulate(new ModelDefinition[] {md}, numMC, fromGUI, 
+				statisticSetup, pruning)[0];
+	}
+	
+	/**
+	 * Simulates several model definitions in the same thread pool. 
+	 * Iterations are submitted by Monte-Carlo index, so the iterations 
+	 * of every definition sharing a seed run close in time, and every 
+	 * worker thread reuses its model between definitions.
+	 */
+	private static MonteCarloStatistics[] simulate(ModelDefinition[] mds, 
+			int numMC, boolean fromGUI, StatisticsRecordingBean statisticSetup,
+			SimulationPruning pruning) throws SimulationException {
 		
-		//Create results container
-		MonteCarloStatistics mcStats = new MonteCarloStatistics(
-				numMC, 
-				md.getNumberOfSegments(),
-				md.getNumberOfBrands(), 
-				md.getNumberOfAttributes(), 
-				md.getNumberOfSteps(),
-				md.getStepsForWeek()
-			);
+		//Create results containers
+		MonteCarloStatistics[] mcStats = new MonteCarloStatistics[mds.length];
+		for (int d=0; d<mds.length; d++) {
+			mcStats[d] = new MonteCarloStatistics(
+					numMC, 
+					mds[d].getNumberOfSegments(),
+					mds[d].getNumberOfBrands(), 
+					mds[d].getNumberOfAttributes(), 
+					mds[d].getNumberOfSteps(),
+					mds[d].getStepsForWeek()
+				);
+		}
 		
 		//Initiate Thread pool
 		int cores = Runtime.getRuntime().availableProcessors();
@@ -48,34 +145,52 @@ public class ModelRunner {
 			cores--;
 		}
 
-		ExecutorService pool = Executors.newFixedThreadPool(cores);
+		ExecutorService shared = getSharedPool();
+		ExecutorService pool = shared != null ? 
+				shared : Executors.newFixedThreadPool(cores);
+		List<Future<?>> iterations = 
+				new ArrayList<Future<?>>(numMC * mds.length);
 		
 		SimulationListener listener = new SimulationListener();
 		
+		//Every worker thread reuses its model between iterations. 
+		//Models sharing cached networks are never reused by 
+		//definitions without population cache.
+		ModelPool models = new ModelPool();
+		ModelPool cachedModels = new ModelPool();
+		
 		try {
-			ModelBuilder mb = md.createBuilder();
-			
-			//Create shared data
-			ModelBean bean = mb.createBean();
+			ModelBuilder[] mbs = new ModelBuilder[mds.length];
+			ModelBean[] beans = new ModelBean[mds.length];
+			for (int d=0; d<mds.length; d++) {
+				mbs[d] = mds[d].createBuilder();
+				
+				//Create shared data
+				beans[d] = mbs[d].createBean();
+			}
 			
 			for (int i=0; i<numMC; i++) {
-				ModelThreadExecuter worker = new ModelThreadExecuter(mb, bean, 
-						mcStats, statisticSetup, i, numMC,fromGUI, listener);
-				pool.execute(worker);
+				for (int d=0; d<mds.length; d++) {
+					ModelPool pooled = mds[d].getPopulationCache() != null ? 
+							cachedModels : models;
+					ModelThreadExecuter worker = new ModelThreadExecuter(
+							mbs[d], beans[d], mcStats[d], statisticSetup, i, 
+							numMC, fromGUI, listener, pooled, pruning);
+					iterations.add(pool.submit(worker));
+				}
 			}
-			//Close pool (no more tasks will be scheduled).
-			pool.shutdown();
 			
 			//Wait for every iteration to finish
-			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			awaitIterations(iterations);
 		} catch (InterruptedException e) {
-			pool.shutdownNow();
 			throw new SimulationException("Execution stopped by user.\n\n");
 		} catch (Exception e) {
-			pool.shutdownNow();
 			throw new SimulationException("Unnexpected error found: " + e.getMessage());
 		} finally {
-			pool.shutdownNow();
+			releasePool(pool, pool == shared, iterations);
+			//Shared worker threads must not keep the models
+			models.clear();
+			cachedModels.clear();
 		}
 		
 		if(listener.errorFound) {
@@ -121,7 +236,10 @@ public class ModelRunner {
 //			cores--;
 //		}
 
-		ExecutorService pool = Executors.newFixedThreadPool(cores);
+		ExecutorService shared = getSharedPool();
+		ExecutorService pool = shared != null ? 
+				shared : Executors.newFixedThreadPool(cores);
+		List<Future<?>> iterations = new ArrayList<Future<?>>(numMC);
 		
 		SimulationListener listener = new SimulationListener();
 		
@@ -131,26 +249,21 @@ public class ModelRunner {
 			for (int i=0; i<numMC; i++) {
 				SimpleModelThreadExecuter worker = new SimpleModelThreadExecuter(mb, 
 						mcStats, statisticSetup, i, numMC,fromGUI, listener);
-				pool.execute(worker);
+				iterations.add(pool.submit(worker));
 			}
-			//Close pool (no more tasks will be scheduled).
-			pool.shutdown();
 			
 			//Wait for every iteration to finish
-			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			awaitIterations(iterations);
 		} catch (InterruptedException e) {
-			pool.shutdownNow();
 			throw new SimulationException("Execution stopped by user.\n\n");
 		} catch (NullPointerException e) {
-			pool.shutdownNow();
 			e.printStackTrace();
 			throw new SimulationException("Null point exception!");
 			
 		} catch (Exception e) {
-			pool.shutdownNow();
 			throw new SimulationException("Unnexpected error found: " + e.getMessage());
 		} finally {
-			pool.shutdownNow();
+			releasePool(pool, pool == shared, iterations);
 		}
 		
 		if(listener.errorFound) {
@@ -178,11 +291,73 @@ public class ModelRunner {
 	 */
 	public static MonteCarloStatistics simulateModel(ModelDefinition md, int numMC,
 			boolean fromGUI, StatisticsRecordingBean statisticSetup) throws SimulationException {
+		return simulateModel(md, numMC, fromGUI, statisticSetup, null);
+	}
+	
+	/**
+	 * Centralizes a model simulation using a multi-thread strategy, 
+	 * aborting the Monte-Carlo iterations when the given pruning considers 
+	 * them hopeless. Simple models are never pruned.
+	 * @param md the model definition to be simulated.
+	 * @param numMC the number of Monte-Carlo iterations (every 
+	 * iteration is simulated in a single thread).
+	 * @param fromGUI boolean flag activating logging in the view 
+	 * module.
+	 * @param statisticSetup the statistics setup to be stored during 
+	 * simulation.
+	 * @param pruning the pruning checked by every iteration (null for 
+	 * simulating every step).
+	 * @return the monte-carlo statistics resulting from simulating the 
+	 * given model definition. Aborted iterations only contain the steps 
+	 * simulated before being aborted.
+	 * @throws SimulationException if errors are detected during the 
+	 * simulation, exceptions are thrown.
+	 */
+	public static MonteCarloStatistics simulateModel(ModelDefinition md, int numMC,
+			boolean fromGUI, StatisticsRecordingBean statisticSetup, 
+			SimulationPruning pruning) throws SimulationException {
 		if(md.isSimple()) {
 			return simulateSimple(md, numMC, fromGUI, statisticSetup);
 		} else {
-			return simulate(md, numMC, fromGUI, statisticSetup);
+			return simulate(md, numMC, fromGUI, statisticSetup, pruning);
+		}
+	}
+	
+	/**
+	 * Simulates several model definitions (e.g. the points of a sweep) 
+	 * at the same time, using the same Monte-Carlo seeds for every 
+	 * definition. Iterations of every definition are interleaved by seed, 
+	 * so definitions sharing a population cache (see 
+	 * ModelDefinition.setPopulationCache) generate the population of every 
+	 * seed once. Simple models are simulated one after another.
+	 * @param mds the model definitions to be simulated.
+	 * @param numMC the number of Monte-Carlo iterations by definition.
+	 * @param fromGUI boolean flag activating logging in the view 
+	 * module.
+	 * @param statisticSetup the statistics setup to be stored during 
+	 * simulation.
+	 * @param pruning the pruning checked by every iteration (null for 
+	 * simulating every step).
+	 * @return the monte-carlo statistics of every model definition, in 
+	 * the same order.
+	 * @throws SimulationException if errors are detected during the 
+	 * simulation, exceptions are thrown.
+	 */
+	public static MonteCarloStatistics[] simulateModels(ModelDefinition[] mds, 
+			int numMC, boolean fromGUI, StatisticsRecordingBean statisticSetup, 
+			SimulationPruning pruning) throws SimulationException {
+		for (ModelDefinition md : mds) {
+			if(md.isSimple()) {
+				MonteCarloStatistics[] mcStats = 
+						new MonteCarloStatistics[mds.length];
+				for (int d=0; d<mds.length; d++) {
+					mcStats[d] = simulateModel(mds[d], numMC, fromGUI, 
+							statisticSetup, pruning);
+				}
+				return mcStats;
+			}
 		}
+		return simulate(mds, numMC, fromGUI, statisticSetup, pruning);
 	}
 }
 
@@ -18,13 +18,46 @@ public class ModelThreadExecuter implements Runnable{
 	
 	private final SimulationListener listener;
 	
+	/**
+	 * Pool reusing models across iterations run by the same thread. If 
+	 * null, a new model is built for the iteration.
+	 */
+	private final ModelPool pool;
+	
+	/**
+	 * Pruning aborting hopeless iterations. If null, every iteration 
+	 * reaches the last step.
+	 */
+	private final SimulationPruning pruning;
+	
 	public ModelThreadExecuter(ModelBuilder mb, ModelBean bean,
 			MonteCarloStatistics stats, StatisticsRecordingBean statRecording,
 			int index, int totalMC, boolean fromGUI, 
 			SimulationListener listener
 		) {
+		this(mb, bean, stats, statRecording, index, totalMC, fromGUI, 
+				listener, null);
+	}
+	
+	public ModelThreadExecuter(ModelBuilder mb, ModelBean bean,
+			MonteCarloStatistics stats, StatisticsRecordingBean statRecording,
+			int index, int totalMC, boolean fromGUI, 
+			SimulationListener listener, ModelPool pool
+		) {
+		this(mb, bean, stats, statRecording, index, totalMC, fromGUI, 
+				listener, pool, null);
+	}
+	
+	public ModelThreadExecuter(ModelBuilder mb, ModelBean bean,
+			MonteCarloStatistics stats, StatisticsRecordingBean statRecording,
+			int index, int totalMC, boolean fromGUI, 
+			SimulationListener listener, ModelPool pool, 
+			SimulationPruning pruning
+		) {
 		super();
 		this.mb = mb;
+		this.pool = pool;
+		this.pruning = pruning;
 		
 		this.bean = bean;
 		this.stats = stats;
@@ -39,7 +72,13 @@ public class ModelThreadExecuter implements Runnable{
 	public void run() {
 		try {
 			//Model creation
-			Model m = mb.build(bean, RandomizerUtils.PRIME_SEEDS[index]);
+			long seed = RandomizerUtils.PRIME_SEEDS[index];
+			Model m;
+			if(pool != null) {
+				m = pool.acquire(mb, bean, seed);
+			} else {
+				m = mb.build(bean, seed);
+			}
 			m.enableAdditionalStatistics(
 					statRecording.exportSales, statRecording.exportAwareness, 
 					statRecording.exportPerceptions, statRecording.anyRecording, 
@@ -49,7 +88,7 @@ public class ModelThreadExecuter implements Runnable{
 				m.enableWoMReports();
 			}
 			//Run Simulation
-			m.runSilent();
+			m.runSilent(pruning, index);
 			stats.saveStatistics(m.getStatistics(), index);
 			
 		} catch (SalesScheduleError e) {
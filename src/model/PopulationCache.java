@@ -0,0 +1,345 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.socialnetwork.SocialNetwork;
+import model.socialnetwork.SocialNetwork.NetworkType;
+import util.random.CopyableRandomizer;
+
+/**
+ * PopulationCache stores the agent populations (social network and initial
+ * state of every agent) generated by ModelBuilder. A population only
+ * depends on the model seed, the dimensions of the model and the segment
+ * and network parameters, so models differing in any other parameter (e.g.
+ * the points of a sensitivity analysis sweeping a marketing plan) share the
+ * population generated for every Monte-Carlo seed instead of generating it
+ * again.
+ *
+ * Every entry stores the randomizer state reached after generating the
+ * population, which is restored by the models using it. Hence, models
+ * using cached populations are identical to models generating their own.
+ *
+ * Cached populations are shared between models, so they must be treated
+ * as read-only. The cache is bounded by the approximate size of the stored
+ * populations, evicting the least recently used ones.
+ *
+ * @author imoya
+ *
+ */
+public class PopulationCache {
+
+	/**
+	 * Default cache capacity in bytes.
+	 */
+	public static final long DEFAULT_CAPACITY = 256L * 1024 * 1024;
+
+	/**
+	 * Cached populations in access order.
+	 */
+	private final LinkedHashMap<Key, Entry> entries =
+			new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+
+	/**
+	 * Maximum size of the stored populations in bytes.
+	 */
+	private long capacity;
+
+	/**
+	 * Current size of the stored populations in bytes.
+	 */
+	private long size;
+
+	/**
+	 * Number of populations found at the cache.
+	 */
+	private long hits;
+
+	/**
+	 * Number of populations not found at the cache.
+	 */
+	private long misses;
+
+	/**
+	 * Creates a new cache instance with the default capacity.
+	 */
+	public PopulationCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new cache instance.
+	 *
+	 * @param capacity - maximum size of the stored populations in bytes.
+	 */
+	public PopulationCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the cached population for the given key or null if it
+	 * was not found.
+	 *
+	 * @param key - population key.
+	 * @return the cached population or null if it was not found.
+	 */
+	public synchronized Entry get(Key key) {
+		Entry entry = entries.get(key);
+		if(entry == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the given population, evicting older entries if needed.
+	 * Populations bigger than the cache capacity are not stored.
+	 *
+	 * @param key - population key.
+	 * @param entry - the population and the final randomizer state.
+	 */
+	public synchronized void put(Key key, Entry entry) {
+		if(entry.bytes > capacity) {
+			return;
+		}
+		Entry previous = entries.put(key, entry);
+		if(previous != null) {
+			size -= previous.bytes;
+		}
+		size += entry.bytes;
+		evict();
+	}
+
+	/**
+	 * Removes every cached population.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of cached populations.
+	 * @return the number of cached populations.
+	 */
+	public synchronized int getNumberOfEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of requests served by the cache.
+	 * @return the number of requests served by the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of requests not found at the cache.
+	 * @return the number of requests not found at the cache.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Evicts the least recently used populations until the cache fits
+	 * its capacity.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while(size > capacity && it.hasNext()) {
+			size -= it.next().getValue().bytes;
+			it.remove();
+		}
+	}
+
+	// ########################################################################
+	// Keys & entries
+	// ########################################################################
+
+	/**
+	 * Identifies a population. Array values are copied so later changes at
+	 * the model definition do not modify stored keys.
+	 */
+	public static final class Key {
+		private final long seed;
+		private final int numTouchPoints;
+		private final int numBrands;
+		private final int numAgents;
+		private final NetworkType networkType;
+		private final int[] segmentSizes;
+		private final double[] connectivity;
+		private final double[] initialPenetration;
+		private final double[][][] initialPerceptions;
+		private final double perceptionsStdDeviation;
+		private final double[][] initialAwareness;
+		private final int hash;
+
+		/**
+		 * Creates a new population key.
+		 *
+		 * @param seed - model seed.
+		 * @param numTouchPoints - number of touch points (the touch point
+		 * registry draws random values before the population).
+		 * @param numBrands - number of brands.
+		 * @param numAgents - total agent population.
+		 * @param networkType - type of the social network.
+		 * @param segmentSizes - number of agents by segment.
+		 * @param connectivity - connectivity by segment.
+		 * @param initialPenetration - initial penetration by brand.
+		 * @param initialPerceptions - initial perceptions by segment, brand
+		 * and attribute.
+		 * @param perceptionsStdDeviation - deviation of initial perceptions.
+		 * @param initialAwareness - initial awareness by brand and segment.
+		 */
+		public Key(
+				long seed,
+				int numTouchPoints,
+				int numBrands,
+				int numAgents,
+				NetworkType networkType,
+				int[] segmentSizes,
+				double[] connectivity,
+				double[] initialPenetration,
+				double[][][] initialPerceptions,
+				double perceptionsStdDeviation,
+				double[][] initialAwareness
+			) {
+			this.seed = seed;
+			this.numTouchPoints = numTouchPoints;
+			this.numBrands = numBrands;
+			this.numAgents = numAgents;
+			this.networkType = networkType;
+			this.segmentSizes = segmentSizes.clone();
+			this.connectivity = connectivity.clone();
+			this.initialPenetration = initialPenetration.clone();
+			this.initialPerceptions = new double[initialPerceptions.length][][];
+			for (int i=0; i<initialPerceptions.length; i++) {
+				this.initialPerceptions[i] = new double[initialPerceptions[i].length][];
+				for (int j=0; j<initialPerceptions[i].length; j++) {
+					this.initialPerceptions[i][j] = initialPerceptions[i][j].clone();
+				}
+			}
+			this.perceptionsStdDeviation = perceptionsStdDeviation;
+			this.initialAwareness = new double[initialAwareness.length][];
+			for (int i=0; i<initialAwareness.length; i++) {
+				this.initialAwareness[i] = initialAwareness[i].clone();
+			}
+
+			int h = Long.hashCode(seed);
+			h = 31 * h + numTouchPoints;
+			h = 31 * h + numBrands;
+			h = 31 * h + numAgents;
+			h = 31 * h + networkType.hashCode();
+			h = 31 * h + Arrays.hashCode(this.segmentSizes);
+			h = 31 * h + Arrays.hashCode(this.connectivity);
+			h = 31 * h + Arrays.hashCode(this.initialPenetration);
+			h = 31 * h + Arrays.deepHashCode(this.initialPerceptions);
+			h = 31 * h + Double.hashCode(perceptionsStdDeviation);
+			h = 31 * h + Arrays.deepHashCode(this.initialAwareness);
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return hash == other.hash
+				&& seed == other.seed
+				&& numTouchPoints == other.numTouchPoints
+				&& numBrands == other.numBrands
+				&& numAgents == other.numAgents
+				&& networkType == other.networkType
+				&& Double.compare(perceptionsStdDeviation,
+						other.perceptionsStdDeviation) == 0
+				&& Arrays.equals(segmentSizes, other.segmentSizes)
+				&& Arrays.equals(connectivity, other.connectivity)
+				&& Arrays.equals(initialPenetration, other.initialPenetration)
+				&& Arrays.deepEquals(initialPerceptions, other.initialPerceptions)
+				&& Arrays.deepEquals(initialAwareness, other.initialAwareness);
+		}
+	}
+
+	/**
+	 * A population: the social network and the initial state drawn for
+	 * every agent, along with the randomizer state reached after drawing
+	 * them.
+	 */
+	public static final class Entry {
+		public final SocialNetwork network;
+		public final int[][] neighbours;
+		public final boolean[][] initialItems;
+		public final double[][][] initialPerceptions;
+		public final boolean[][] initialAwareness;
+		private final CopyableRandomizer state;
+		private final long bytes;
+
+		/**
+		 * Creates a new population.
+		 *
+		 * @param network - the social network.
+		 * @param neighbours - neighbours by agent.
+		 * @param initialItems - initial inventory by agent and brand.
+		 * @param initialPerceptions - initial perceptions by agent, brand
+		 * and attribute.
+		 * @param initialAwareness - initial awareness by agent and brand.
+		 * @param state - randomizer state after drawing the population, or
+		 * null if the population is not cached.
+		 */
+		public Entry(
+				SocialNetwork network,
+				int[][] neighbours,
+				boolean[][] initialItems,
+				double[][][] initialPerceptions,
+				boolean[][] initialAwareness,
+				CopyableRandomizer state
+			) {
+			this.network = network;
+			this.neighbours = neighbours;
+			this.initialItems = initialItems;
+			this.initialPerceptions = initialPerceptions;
+			this.initialAwareness = initialAwareness;
+			this.state = state;
+
+			long bytes = 0;
+			for (int i=0; i<neighbours.length; i++) {
+				//Neighbours are stored twice (agents and network).
+				bytes += 2 * (4L * neighbours[i].length + 24);
+				bytes += initialItems[i].length + initialAwareness[i].length + 48;
+				for (double[] byBrand : initialPerceptions[i]) {
+					bytes += 8L * byBrand.length + 24;
+				}
+			}
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Returns true if the population is shared by several models.
+		 * @return true if the population is shared by several models.
+		 */
+		public boolean isShared() {
+			return state != null;
+		}
+
+		/**
+		 * Sets the given randomizer to the state reached after drawing
+		 * this population.
+		 *
+		 * @param random - the randomizer of a model using this population.
+		 */
+		public void restoreState(CopyableRandomizer random) {
+			random.setState(state);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package model;
+
+import util.statistics.Statistics;
+
+/**
+ * SimulationPruning decides if the Monte-Carlo iterations of a simulation
+ * must be aborted before reaching the last step. It is checked by every
+ * iteration at regular checkpoints, so hopeless simulations may stop as
+ * soon as their partial results are known to be worse than required.
+ *
+ * Implementations are shared by every iteration of the same simulation,
+ * so they must be thread safe.
+ *
+ * @author imoya
+ *
+ */
+public interface SimulationPruning {
+
+	/**
+	 * Returns the number of steps between checkpoints.
+	 *
+	 * @return the number of steps between checkpoints.
+	 */
+	int getCheckpointInterval();
+
+	/**
+	 * Checks the partial results of an iteration after simulating the
+	 * given step.
+	 *
+	 * @param iteration - index of the Monte-Carlo iteration.
+	 * @param statistics - statistics recorded by the iteration so far.
+	 * @param step - last simulated step.
+	 * @return true if the iteration must be aborted.
+	 */
+	boolean isHopeless(int iteration, Statistics statistics, int step);
+}
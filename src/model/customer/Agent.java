@@ -6,7 +6,7 @@ import model.Model;
 import model.decisionmaking.DecisionMaking;
 import model.touchpoints.TouchPointOwnedRegistry;
 import model.touchpoints.earned.AbstractTouchPoint;
-import model.touchpoints.earned.ProductUsage;
+import model.touchpoints.earned.UsagePlanning;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -97,9 +97,10 @@ public class Agent {
 	public final int clientId;
 	/**
 	 * Identifier of the segment where the agent belongs. An agent will 
-	 * not switch segment during the simulation.
+	 * not switch segment during the simulation (it may only change when 
+	 * the agent is reset for a new simulation).
 	 */
-	public final int segmentId;
+	public int segmentId;
 	
 	/**
 	 * Agent perceptions split by brand and attribute.
@@ -135,10 +136,8 @@ public class Agent {
 	public double getContributionNowByAttByBrandByTp(int att, int brand, int tp) {
 		double increment = 0;
 		
-		if(touchpointPerceptionIncrements[tp]!=null 
-				&& touchpointPerceptionIncrements[tp][brand]!=null
-				) {
-			increment = touchpointPerceptionIncrements[tp][brand][att];
+		if(hasPerceptionIncrements(tp, brand)) {
+			increment = getPerceptionIncrement(tp, brand, att);
 		}	
 		return increment;
 	}
@@ -147,7 +146,7 @@ public class Agent {
 	 * Inherited talking probability. This probability is the segment's 
 	 * talking probability, no it will not change.
 	 */
-	private final double baseTalkingProbability;
+	private double baseTalkingProbability;
 	
 	/**
 	 * Talking probabilities by brand. Those is the actual values used for 
@@ -167,23 +166,33 @@ public class Agent {
 	/**
 	 * WoM awareness impact. This value is inherited from agent's segment.
 	 */
-	protected final double awarenessImpact;
+	protected double awarenessImpact;
 	
 	/**
 	 * Agent awareness decay. This value is inherited from agent's segment.
 	 */
-	protected final double segmentAwarenessDecay;
+	protected double segmentAwarenessDecay;
 
 	/**
 	 * WoM discussion heat impact. This value is inherited from 
 	 * agent's segment.
 	 */
-	protected final double womDiscussionHeatImpact;
+	protected double womDiscussionHeatImpact;
 	
 	/**
 	 * WoM perception speed. This value is inherited from agent's segment.
 	 */
-	protected final double perceptionSpeed;
+	protected double perceptionSpeed;
+	
+	/**
+	 * Number of brands modeled.
+	 */
+	protected final int nrBrands;
+	
+	/**
+	 * Number of attributes modeled.
+	 */
+	protected final int nrAttributes;
 
 	/**
 	 * Number of brands that the agent has awareness of.
@@ -198,14 +207,13 @@ public class Agent {
 	
 	/**
 	 * Instead of using double probability to decide whether the product
-	 * will be used, a byte-shaped plan is calculated a priori based using 
-	 * an amount of steps that will define the interval where the brand
-	 * will be experienced.
+	 * will be used, a plan is calculated based using an amount of steps 
+	 * that will define the interval where the brand will be experienced.
 	 * 
-	 * This plan stores how many times the customer experiences the product
-	 * by any step in the simulation.
+	 * This plan returns how many times the customer experiences the product
+	 * by any step in the simulation, generating the uses on demand.
 	 */
-	private byte[] usePlanning;
+	private UsagePlanning usePlanning;
 	
 	//---------------------------- Social Network ---------------------------//
 	
@@ -213,7 +221,7 @@ public class Agent {
 	 * Agent's neighbors by id. Those identifiers comes from social network 
 	 * topology and are currently not modified.
 	 */
-	protected final int[] neighbors;
+	protected int[] neighbors;
 	
 	//------------------------------ WoM reports ----------------------------//
 	
@@ -301,18 +309,17 @@ public class Agent {
 			int nrBrands,
 			int nrTouchpoints
 		){
-		this.segmentAwarenessDecay = segmentAwarenessDecay;		
-		this.awarenessImpact = awarenessImpact;
-		this.womDiscussionHeatImpact = discussionHeatImpact;
-		this.perceptionSpeed = perceptionSpeed;
-		this.clientId = clientId;
-		this.segmentId = segmentId;
-		this.neighbors = neighbors;
-		
-		//Talking probabilities are initialized to base talking value.
-		talkingProbabilities = new double[nrBrands];
-		Arrays.fill(talkingProbabilities, segmentTalking);
-		baseTalkingProbability = segmentTalking;
+		this(segmentTalking, 
+			segmentAwarenessDecay, 
+			awarenessImpact, 
+			discussionHeatImpact, 
+			perceptionSpeed, 
+			clientId, 
+			segmentId, 
+			neighbors, 
+			nrBrands, 
+			perceptionOfProducts[0].length, 
+			nrTouchpoints);
 		
 		perceptions = new double[perceptionOfProducts.length]
 				[perceptionOfProducts[0].length];
@@ -330,21 +337,172 @@ public class Agent {
 				awareness[i]=true;
 			}			
 		}
-		//When simulation starts, the agent is not in decision cycle.
-		inDecisionCycle=false;
 
 		brandPurchased = new boolean [nrBrands];
 		hasBrand = initialItems;
 		
+		touchpointPerceptionIncrements = new double[nrTouchpoints][][];
+	}
+	
+	/**
+	 * Initializes the parameters shared by every agent implementation 
+	 * without allocating its perception, awareness and inventory state. 
+	 * Subclasses using this constructor must provide their own storage by
+	 * overriding the state access methods.
+	 * 
+	 * @param segmentTalking base segment probability.
+	 * @param segmentAwarenessDecay awareness decay probability.
+	 * @param awarenessImpact WoM awareness impact.
+	 * @param discussionHeatImpact WoM discussion heat impact.
+	 * @param perceptionSpeed WoM perception speed.
+	 * @param clientId unique agent identifier.
+	 * @param segmentId id of the segment where the agent belongs.
+	 * @param neighbors identifiers of the agents that are neighbors of this agent
+	 * @param nrBrands number of brands present at the simulation.
+	 * @param nrAttributes number of attributes present at the simulation.
+	 * @param nrTouchpoints number of touch points (including earned ones).
+	 */
+	protected Agent(
+			double segmentTalking,
+			double segmentAwarenessDecay,
+			double awarenessImpact,
+			double discussionHeatImpact,
+			double perceptionSpeed,
+			int clientId, 
+			int segmentId, 
+			int[] neighbors,
+			int nrBrands,
+			int nrAttributes,
+			int nrTouchpoints
+		){
+		this.segmentAwarenessDecay = segmentAwarenessDecay;		
+		this.awarenessImpact = awarenessImpact;
+		this.womDiscussionHeatImpact = discussionHeatImpact;
+		this.perceptionSpeed = perceptionSpeed;
+		this.clientId = clientId;
+		this.segmentId = segmentId;
+		this.neighbors = neighbors;
+		this.nrBrands = nrBrands;
+		this.nrAttributes = nrAttributes;
+		
+		//Talking probabilities are initialized to base talking value.
+		talkingProbabilities = new double[nrBrands];
+		Arrays.fill(talkingProbabilities, segmentTalking);
+		baseTalkingProbability = segmentTalking;
+		
+		//When simulation starts, the agent is not in decision cycle.
+		inDecisionCycle=false;
+		
 		//Use planning is not initialized until first use.
 		usePlanning=null;
-		
-		touchpointPerceptionIncrements = new double[nrTouchpoints][][];
 
 		appliedDiscussionHeatImpact = new double [nrTouchpoints][];
 	}
-	
-	// ########################################################################	
+
+	// ########################################################################
+	// Reset
+	// ########################################################################
+
+	/**
+	 * Resets the agent in place for a new simulation, leaving it in the same
+	 * state as a new instance created with the given values. Already
+	 * allocated structures (perceptions, increments, discussion heat...)
+	 * are reused, so the number of brands, attributes and touch points
+	 * must not change.
+	 *
+	 * @param segmentTalking base segment probability.
+	 * @param segmentAwarenessDecay awareness decay probability.
+	 * @param awarenessImpact WoM awareness impact.
+	 * @param discussionHeatImpact WoM discussion heat impact.
+	 * @param perceptionSpeed WoM perception speed.
+	 * @param initialItems Product Usage Initial inventory.
+	 * @param segmentId id of the segment where the agent belongs.
+	 * @param perceptionOfProducts initial agent perception of brands
+	 * and attributes.
+	 * @param awarenessOfProducts initial agent awareness of brands.
+	 * @param neighbors identifiers of the agents that are neighbors of this agent
+	 */
+	public void reset(
+			double segmentTalking,
+			double segmentAwarenessDecay,
+			double awarenessImpact,
+			double discussionHeatImpact,
+			double perceptionSpeed,
+			boolean[] initialItems,
+			int segmentId,
+			double[][] perceptionOfProducts,
+			boolean[] awarenessOfProducts,
+			int[] neighbors
+		){
+		this.segmentAwarenessDecay = segmentAwarenessDecay;
+		this.awarenessImpact = awarenessImpact;
+		this.womDiscussionHeatImpact = discussionHeatImpact;
+		this.perceptionSpeed = perceptionSpeed;
+		this.segmentId = segmentId;
+		this.neighbors = neighbors;
+
+		Arrays.fill(talkingProbabilities, segmentTalking);
+		baseTalkingProbability = segmentTalking;
+
+		inDecisionCycle=false;
+		usePlanning=null;
+
+		//Zero values behave exactly as missing structures.
+		for (double[] applied : appliedDiscussionHeatImpact) {
+			if(applied!=null) {
+				Arrays.fill(applied, 0.0);
+			}
+		}
+
+		awarenessCount = 0;
+		for(int i=0; i<nrBrands; i++){
+			if(awarenessOfProducts[i]) {
+				awarenessCount++;
+			}
+		}
+		resetState(initialItems, perceptionOfProducts, awarenessOfProducts);
+
+		if(WOM_REPORTS) {
+			cleanWomReportArrays();
+			WOM_REPORTS = false;
+		}
+	}
+
+	/**
+	 * Restores perceptions, awareness, inventory and touch point perception
+	 * increments during an agent reset. Subclasses providing their own
+	 * storage must override this method.
+	 *
+	 * @param initialItems Product Usage Initial inventory.
+	 * @param perceptionOfProducts initial agent perception of brands
+	 * and attributes.
+	 * @param awarenessOfProducts initial agent awareness of brands.
+	 */
+	protected void resetState(
+			boolean[] initialItems,
+			double[][] perceptionOfProducts,
+			boolean[] awarenessOfProducts
+		) {
+		for(int i=0; i<perceptionOfProducts.length; i++) {
+			System.arraycopy(perceptionOfProducts[i], 0,
+					perceptions[i], 0, perceptions[i].length);
+		}
+		System.arraycopy(awarenessOfProducts, 0, awareness, 0, nrBrands);
+
+		Arrays.fill(brandPurchased, false);
+		hasBrand = initialItems;
+
+		for (double[][] byBrand : touchpointPerceptionIncrements) {
+			if(byBrand==null) continue;
+			for (double[] byAttribute : byBrand) {
+				if(byAttribute!=null) {
+					Arrays.fill(byAttribute, 0.0);
+				}
+			}
+		}
+	}
+
+	// ########################################################################
 	// Get/Set methods
 	// ########################################################################
 
@@ -372,6 +530,86 @@ public class Agent {
 		return perceptions[brandid][att];
 	}
 	
+	/**
+	 * Stores a new perception value for given brand and attribute.
+	 * 
+	 * @param brandid - brand id
+	 * @param att - attribute id
+	 * @param value - the new perception value
+	 */
+	protected void setAttributePerceptionByBrand(int brandid, int att, double value) {
+		perceptions[brandid][att] = value;
+	}
+	
+	/**
+	 * Stores a new awareness value for given brand. Awareness count is not
+	 * modified by this method.
+	 * 
+	 * @param brandId - brand id
+	 * @param value - the new awareness value
+	 */
+	protected void setAwarenessOfBrand(int brandId, boolean value) {
+		awareness[brandId] = value;
+	}
+	
+	/**
+	 * Checks if the given touch point changed brand perceptions before.
+	 * 
+	 * @param touchpoint - touch point id
+	 * @param brand - brand id
+	 * @return true if increment structures exist for the touch point 
+	 * and brand.
+	 */
+	protected boolean hasPerceptionIncrements(int touchpoint, int brand) {
+		return touchpointPerceptionIncrements[touchpoint] != null
+				&& touchpointPerceptionIncrements[touchpoint][brand] != null;
+	}
+	
+	/**
+	 * Returns the perception increment stored for given touch point, brand and
+	 * attribute. Increment structures must be checked first.
+	 * 
+	 * @param touchpoint - touch point id
+	 * @param brand - brand id
+	 * @param attribute - attribute id
+	 * @return the perception increment.
+	 */
+	protected double getPerceptionIncrement(int touchpoint, int brand, int attribute) {
+		return touchpointPerceptionIncrements[touchpoint][brand][attribute];
+	}
+	
+	/**
+	 * Adds the given value to the perception increment for given touch point, 
+	 * brand and attribute. Increment structures must be checked first.
+	 * 
+	 * @param touchpoint - touch point id
+	 * @param brand - brand id
+	 * @param attribute - attribute id
+	 * @param value - increment change
+	 */
+	protected void addPerceptionIncrement(
+			int touchpoint, int brand, int attribute, double value) {
+		touchpointPerceptionIncrements[touchpoint][brand][attribute] += value;
+	}
+	
+	/**
+	 * Marks the given brand as purchased during the current step.
+	 * 
+	 * @param brandId - brand id
+	 */
+	protected void setBrandPurchased(int brandId) {
+		brandPurchased[brandId] = true;
+	}
+	
+	/**
+	 * Checks if the agent has any brand at its inventory.
+	 * 
+	 * @return true if the agent owns any brand.
+	 */
+	public boolean hasAnyBrand() {
+		return BooleanUtils.or(hasBrand);
+	}
+	
 	public void setPerceptions(double[][] perceptions) {
 		this.perceptions=perceptions;
 	}
@@ -380,8 +618,16 @@ public class Agent {
 		return neighbors;
 	}
 	
+	/**
+	 * Returns how many times the customer experiences the product by any
+	 * step in the simulation, or null if the usage was not planned yet.
+	 * @return the use planning as a byte array.
+	 */
 	public byte[] getUsePlanning() {
-		return usePlanning;
+		if(usePlanning==null) {
+			return null;
+		}
+		return usePlanning.toArray();
 	}
 	
 	public int[] getWomVolumeByBrand() {
@@ -408,6 +654,10 @@ public class Agent {
 		return womContributionByBrandByTp;
 	}
 
+	public boolean[] getTouchPointExposure() {
+		return exposeToTouchpoints;
+	}
+
 	public void setTouchPointExposure(boolean[] exposure) {
 		this.exposeToTouchpoints=exposure;
 	}
@@ -420,14 +670,15 @@ public class Agent {
 	 * Initializes WoM report statistics.
 	 */
 	public void enableWoMReports() {
-		int nrBrands = awareness.length;
 		WOM_REPORTS = true;
+		//Reset agents keep their (already clean) report arrays.
+		if(womVolumeByBrand!=null) return;
 		this.womVolumeByBrand = new int[nrBrands];
-		this.womVolumeByAtt = new int[perceptions[0].length];
+		this.womVolumeByAtt = new int[nrAttributes];
 		this.womSentimentPos = new int[nrBrands];
 		this.womSentimentNeg = new int[nrBrands];
 		this.womReachByBrand = new boolean[nrBrands];
-		this.womContributionByBrandByTp = new double [nrBrands][touchpointPerceptionIncrements.length];
+		this.womContributionByBrandByTp = new double [nrBrands][appliedDiscussionHeatImpact.length];
 	}
 	
 	/**
@@ -461,12 +712,10 @@ public class Agent {
 				) {
 			//If the touch point didn't hit the agent before, arrays are created.
 			if(touchpointPerceptionIncrements[touchpoint]==null) {
-				int brands = perceptions.length;
-				touchpointPerceptionIncrements[touchpoint] = new double [brands][];
+				touchpointPerceptionIncrements[touchpoint] = new double [nrBrands][];
 			}
 			if(touchpointPerceptionIncrements[touchpoint][brand]==null) {
-				int attributes = perceptions[0].length;
-				touchpointPerceptionIncrements[touchpoint][brand] = new double [attributes];
+				touchpointPerceptionIncrements[touchpoint][brand] = new double [nrAttributes];
 			}
 		}
 	}
@@ -485,8 +734,7 @@ public class Agent {
 		
 		//If the touch point didn't hit the agent before, arrays are created.
 		if(appliedDiscussionHeatImpact[touchpoint]==null) {
-			int brands = perceptions.length;
-			appliedDiscussionHeatImpact[touchpoint] = new double [brands];
+			appliedDiscussionHeatImpact[touchpoint] = new double [nrBrands];
 		}
 	}
 	
@@ -507,7 +755,7 @@ public class Agent {
 
 		checkTouchpointPerceptionIncrement(touchpoint, brand);
 
-		return touchpointPerceptionIncrements[touchpoint][brand][attribute];
+		return getPerceptionIncrement(touchpoint, brand, attribute);
 	}
 	
 	/**
@@ -530,19 +778,20 @@ public class Agent {
 		 * the intervals [0, 10], the change is different then the provided value.
 		 */
 		double change;
+		double current = getAttributePerceptionByBrand(brand, attribute);
 		
-		if(perceptions[brand][attribute] + value > Functions.PERCEPTION_MAX) {
-			change = Functions.PERCEPTION_MAX - perceptions[brand][attribute];
-			perceptions[brand][attribute] = Functions.PERCEPTION_MAX;
-		} else if(perceptions[brand][attribute] + value < 0.0) {
-			change = - perceptions[brand][attribute];
-			perceptions[brand][attribute] = 0.0;				
+		if(current + value > Functions.PERCEPTION_MAX) {
+			change = Functions.PERCEPTION_MAX - current;
+			setAttributePerceptionByBrand(brand, attribute, Functions.PERCEPTION_MAX);
+		} else if(current + value < 0.0) {
+			change = - current;
+			setAttributePerceptionByBrand(brand, attribute, 0.0);				
 		} else {
 			change = value;
-			perceptions[brand][attribute] += value;
+			setAttributePerceptionByBrand(brand, attribute, current + value);
 		}
 		
-		touchpointPerceptionIncrements[touchpoint][brand][attribute]+=change;
+		addPerceptionIncrement(touchpoint, brand, attribute, change);
 	}
 	
 	/**
@@ -556,38 +805,36 @@ public class Agent {
 		double [][] decays = tpor.getPerceptionDecays();
 		
 		int numTouchpoints = tpor.getNumberOfTouchpoints();
-		int numBrands = perceptions.length;
-		int numAtts = perceptions[0].length;
 		
 		for (int tp=0; tp<numTouchpoints; tp++) {
-			for (int brand = 0; brand<numBrands; brand++) {
+			for (int brand = 0; brand<nrBrands; brand++) {
 				/*
 				 * Different levels of influence are done depending on
 				 * media emphasis, thus, decays are computed by attributes.
 				 */
-				if(touchpointPerceptionIncrements[tp] == null
-						|| touchpointPerceptionIncrements[tp][brand] == null) {
+				if(!hasPerceptionIncrements(tp, brand)) {
 					continue;
 				}
-				for (int att =0; att <numAtts; att++) {
-					double increment = touchpointPerceptionIncrements[tp][brand][att];
+				for (int att =0; att <nrAttributes; att++) {
+					double increment = getPerceptionIncrement(tp, brand, att);
 					double value = (increment) * decays[tp][segmentId];
 					
 					if(value!=0) {
+						double current = getAttributePerceptionByBrand(brand, att);
 						/*
 						 * Different cases appear when upside down variances appear.
 						 */
-						if(perceptions[brand][att]-value > Model.MAXIMUM_PERCEPTION_VALUE) {
-							value = Model.MAXIMUM_PERCEPTION_VALUE - perceptions[brand][att];
-							perceptions[brand][att]= Model.MAXIMUM_PERCEPTION_VALUE;
-						} else if(perceptions[brand][att]-value < Model.MINIMUM_PERCEPTION_VALUE) {
-							value = perceptions[brand][att] - Model.MINIMUM_PERCEPTION_VALUE;
-							perceptions[brand][att]= Model.MINIMUM_PERCEPTION_VALUE;
+						if(current-value > Model.MAXIMUM_PERCEPTION_VALUE) {
+							value = Model.MAXIMUM_PERCEPTION_VALUE - current;
+							setAttributePerceptionByBrand(brand, att, Model.MAXIMUM_PERCEPTION_VALUE);
+						} else if(current-value < Model.MINIMUM_PERCEPTION_VALUE) {
+							value = current - Model.MINIMUM_PERCEPTION_VALUE;
+							setAttributePerceptionByBrand(brand, att, Model.MINIMUM_PERCEPTION_VALUE);
 						} else {
-							perceptions[brand][att]-= value;
+							setAttributePerceptionByBrand(brand, att, current - value);
 						}
 
-						touchpointPerceptionIncrements[tp][brand][att]-=value;
+						addPerceptionIncrement(tp, brand, att, -value);
 						
 						if(LOG_INFO) {
 							logger.info(
@@ -790,7 +1037,7 @@ public class Agent {
 			if(r <= awarenessImpact) {
 				// If my neighbor doesn't know about the product but I do so,
 				// I will make him aware of the product.
-				if(awareness[indexSelectedBrand] == true) { 
+				if(getAwarenessOfBrand(indexSelectedBrand)) { 
 					neighbor.gainAwareness(model,indexSelectedBrand, model.getStep());
 				} else if(LOG_INFO){
 					logBuffer += " NEIGHBOUR HAS AWARENESS";				
@@ -822,7 +1069,6 @@ public class Agent {
 		final int talkAttribute = Functions.randomWeightedSelection(
 			model.getSegments().getDrivers()[segmentId], r
 		);
-		final double[][] neighborPerceptions = neighbor.perceptions;
 
 		final double sentimentPos = model.getWomSentimentPositive();
 		final double sentimentNeg = model.getWomSentimentNegative();
@@ -838,15 +1084,17 @@ public class Agent {
 		// 3. else do not enter the code
 		if(
 			!model.isAwarenessFilter() || 
-			(model.isAwarenessFilter() && awareness[selectedBrand] == true)
+			(model.isAwarenessFilter() && getAwarenessOfBrand(selectedBrand))
 		) {
+			final double perceptionTalked = 
+					getAttributePerceptionByBrand(selectedBrand, talkAttribute);
 			// Pass your perceptions based on the given equation:
 			// Pa(t+1) = Pa(t) + (Pb(t) - Pa(t)) * Rab
 					
 			// Calculate perception change
 			double perceptionChange = (
-				perceptions[selectedBrand][talkAttribute]
-				- neighborPerceptions[selectedBrand][talkAttribute]
+				perceptionTalked
+				- neighbor.getAttributePerceptionByBrand(selectedBrand, talkAttribute)
 			) * influence;
 			
 			// Change perceptions
@@ -874,11 +1122,9 @@ public class Agent {
 				neighbor.womVolumeByBrand[selectedBrand]++;
 				neighbor.womVolumeByAtt[talkAttribute]++;
 				// WoM reports - Sentiment
-				if(perceptions[selectedBrand][talkAttribute] 
-						>= sentimentPos) {
+				if(perceptionTalked >= sentimentPos) {
 					neighbor.womSentimentPos[selectedBrand]++;
-				} else if (perceptions[selectedBrand][talkAttribute] 
-						<= sentimentNeg) {
+				} else if (perceptionTalked <= sentimentNeg) {
 					neighbor.womSentimentNeg[selectedBrand]++;
 				}
 				// WoM reports - Reach
@@ -911,16 +1157,16 @@ public class Agent {
 	 */
 	private void decayAwareness(Model model) {
 		if(awarenessCount>0) {
-			for(int i=0; i<awareness.length; i++) {
+			for(int i=0; i<nrBrands; i++) {
 				// Check if agent has awareness of the brand
-				if(awareness[i]) {
+				if(getAwarenessOfBrand(i)) {
 					double r = model.random.nextDouble(); // [0, 1)
 					if(LOG_DEBUG) logger.debug(
 						"diffusionAwarenessDecay() Randomizer.nextDouble() " + r
 					);
 					// Check awareness decay
 					if(r <= segmentAwarenessDecay) {
-						awareness[i] = false;
+						setAwarenessOfBrand(i, false);
 						awarenessCount--;
 						// Remove from scheduler
 						if(!inDecisionCycle && awarenessCount==0) {
@@ -947,8 +1193,8 @@ public class Agent {
 	 * @param step - the step when awareness is being gained.
 	 */
 	public void gainAwareness(Model m, int brandId, int step) {
-		if(!awareness[brandId]) {				
-			awareness[brandId] = true;
+		if(!getAwarenessOfBrand(brandId)) {				
+			setAwarenessOfBrand(brandId, true);
 			if(awarenessCount==0 && !inDecisionCycle) {
 				m.getSalesScheduler().enabled[segmentId].add(clientId);
 			}
@@ -968,10 +1214,9 @@ public class Agent {
 	public void beginDecisionCycle() {
 		inDecisionCycle=true;
 		// Purchased brands are now used as an inventory.
-		int numBrands = hasBrand.length;
 		hasBrand = brandPurchased;
 		// Reset purchased brands buffer
-		brandPurchased = new boolean [numBrands];
+		brandPurchased = new boolean [nrBrands];
 	}
 	
 	/**
@@ -1011,13 +1256,13 @@ public class Agent {
 				case 1:
 					//ProductUsage
 					//If customer has any brand
-					if(BooleanUtils.or(hasBrand)) {
+					if(hasAnyBrand()) {
 						/*
 						 * If the agent is checking its usage planning for
 						 * the first time, its planning algorithm is called.
 						 */
 						if (usePlanning==null) {
-							usePlanning=ProductUsage.generateUsagePlanning(
+							usePlanning=UsagePlanning.create(
 									model.getUsage().usageFrequency[segmentId], 
 									random,
 									step,
@@ -1029,12 +1274,13 @@ public class Agent {
 						 * If more than 0 uses are planned, the agent uses
 						 * the product that many times.
 						 */
-						if (usePlanning[step]>0) {
+						byte uses = usePlanning.usesAt(step);
+						if (uses>0) {
 							model.getUsage().useProduct(
 									this, 
 									model, 
 									step, 
-									usePlanning[step]
+									uses
 											);
 						}
 					}
@@ -1078,7 +1324,7 @@ public class Agent {
 		try {
 			if(awarenessCount>0) {
 				model.getPostReadOnline().postAboutOneBrand(
-					awareness, perceptions, model.getSegments().getDrivers()[segmentId],
+					getAwareness(), getPerceptions(), model.getSegments().getDrivers()[segmentId],
 					segmentId, clientId, random, step, model.isAwarenessFilter()
 				);
 			}				
@@ -1110,15 +1356,15 @@ public class Agent {
 	public int buyOneBrand(DecisionMaking dm, int step, boolean [] filteredAwareness) throws SalesScheduleError {
 		try {
 			int indexBought =
-				dm.buyOneBrand(filteredAwareness, perceptions, segmentId);
+				dm.buyOneBrand(filteredAwareness, getPerceptions(), segmentId);
 			
-			brandPurchased[indexBought] = true;
+			setBrandPurchased(indexBought);
 			
 			if(LOG_INFO) logger.info(
 				"Step " + step + " PRODUCT PURCHASE"
 				+ " agent " + clientId + " segment " + segmentId 
 				+ " -->"
-				+ " brand " + brandPurchased 
+				+ " brand " + indexBought 
 				+ " DM heuristic " + dm.getLogDM()
 			);
 			
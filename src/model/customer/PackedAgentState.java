@@ -0,0 +1,205 @@
+package model.customer;
+
+import java.util.Arrays;
+
+/**
+ * Population-wide storage for the boolean state of compact agents. Instead
+ * of keeping one boolean array per agent, awareness, inventory (hasBrand)
+ * and purchased brands are stored as long bitsets indexed by brand and agent.
+ *
+ * bits[i][j >>> 6] bit (j & 63) = flag of brand i for agent j.
+ *
+ * Instances also own a set of scratch buffers used to materialize the array
+ * views requested by modules that still work with boolean/double arrays
+ * (decision making, statistics...). Because every model runs in a single
+ * thread, those buffers are shared by the whole agent population. Returned
+ * views are only valid until the next request.
+ *
+ * @author imoya
+ *
+ */
+public class PackedAgentState {
+
+	/**
+	 * Number of bits stored by every word.
+	 */
+	private static final int WORD_SHIFT = 6;
+
+	/**
+	 * Awareness bitset by brand.
+	 */
+	private final long[][] awareness;
+
+	/**
+	 * Inventory (brands usable by the agent) bitset by brand.
+	 */
+	private final long[][] inventory;
+
+	/**
+	 * Purchased brands buffer bitset by brand.
+	 */
+	private final long[][] purchased;
+
+	/**
+	 * Number of brands modeled.
+	 */
+	private final int nrBrands;
+
+	/**
+	 * Shared awareness view buffer.
+	 */
+	private final boolean[] awarenessView;
+
+	/**
+	 * Shared inventory view buffer.
+	 */
+	private final boolean[] inventoryView;
+
+	/**
+	 * Shared perceptions view buffer.
+	 */
+	private final double[][] perceptionView;
+
+	/**
+	 * Creates an empty packed state for the given population.
+	 *
+	 * @param nrAgents number of agents.
+	 * @param nrBrands number of brands.
+	 * @param nrAttributes number of attributes.
+	 */
+	public PackedAgentState(int nrAgents, int nrBrands, int nrAttributes) {
+		int words = (nrAgents + 63) >>> WORD_SHIFT;
+		this.nrBrands = nrBrands;
+		awareness = new long[nrBrands][words];
+		inventory = new long[nrBrands][words];
+		purchased = new long[nrBrands][words];
+
+		awarenessView = new boolean[nrBrands];
+		inventoryView = new boolean[nrBrands];
+		perceptionView = new double[nrBrands][nrAttributes];
+	}
+
+	// ########################################################################
+	// Bit operations
+	// ########################################################################
+
+	private static boolean get(long[] bits, int agent) {
+		return (bits[agent >>> WORD_SHIFT] & (1L << agent)) != 0;
+	}
+
+	private static void set(long[] bits, int agent, boolean value) {
+		if(value) {
+			bits[agent >>> WORD_SHIFT] |= (1L << agent);
+		} else {
+			bits[agent >>> WORD_SHIFT] &= ~(1L << agent);
+		}
+	}
+
+	// ########################################################################
+	// Functionality
+	// ########################################################################
+
+	public boolean isAware(int agent, int brand) {
+		return get(awareness[brand], agent);
+	}
+
+	public void setAware(int agent, int brand, boolean value) {
+		set(awareness[brand], agent, value);
+	}
+
+	public boolean hasBrand(int agent, int brand) {
+		return get(inventory[brand], agent);
+	}
+
+	public void setHasBrand(int agent, int brand, boolean value) {
+		set(inventory[brand], agent, value);
+	}
+
+	public void setPurchased(int agent, int brand, boolean value) {
+		set(purchased[brand], agent, value);
+	}
+
+	/**
+	 * Checks if the agent owns any brand.
+	 *
+	 * @param agent agent id.
+	 * @return true if the agent has any brand in its inventory.
+	 */
+	public boolean hasAnyBrand(int agent) {
+		for (int b=0; b<nrBrands; b++) {
+			if(get(inventory[b], agent)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Purchased brands become the inventory of the agent and the purchased
+	 * buffer is cleared. This is the packed version of swapping the
+	 * hasBrand and brandPurchased arrays when a decision cycle begins.
+	 *
+	 * @param agent agent id.
+	 */
+	public void movePurchasedToInventory(int agent) {
+		for (int b=0; b<nrBrands; b++) {
+			set(inventory[b], agent, get(purchased[b], agent));
+			set(purchased[b], agent, false);
+		}
+	}
+
+	/**
+	 * Materializes the awareness of the given agent in the shared view buffer.
+	 *
+	 * @param agent agent id.
+	 * @return awareness view, valid until next request.
+	 */
+	public boolean[] awarenessView(int agent) {
+		for (int b=0; b<nrBrands; b++) {
+			awarenessView[b] = get(awareness[b], agent);
+		}
+		return awarenessView;
+	}
+
+	/**
+	 * Materializes the inventory of the given agent in the shared view buffer.
+	 *
+	 * @param agent agent id.
+	 * @return inventory view, valid until next request.
+	 */
+	public boolean[] inventoryView(int agent) {
+		for (int b=0; b<nrBrands; b++) {
+			inventoryView[b] = get(inventory[b], agent);
+		}
+		return inventoryView;
+	}
+
+	/**
+	 * Copies the given single precision perceptions (brand major) into the
+	 * shared perceptions view buffer.
+	 *
+	 * @param perceptions flattened perceptions.
+	 * @return perceptions view, valid until next request.
+	 */
+	public double[][] perceptionView(float[] perceptions) {
+		int index = 0;
+		for (int b=0; b<perceptionView.length; b++) {
+			double[] row = perceptionView[b];
+			for (int a=0; a<row.length; a++) {
+				row[a] = perceptions[index++];
+			}
+		}
+		return perceptionView;
+	}
+
+	/**
+	 * Clears every stored flag.
+	 */
+	public void clear() {
+		for (int b=0; b<nrBrands; b++) {
+			Arrays.fill(awareness[b], 0L);
+			Arrays.fill(inventory[b], 0L);
+			Arrays.fill(purchased[b], 0L);
+		}
+	}
+}
@@ -46,6 +46,20 @@ public abstract class AbstractHeuristic {
 	 * Perceptions array containing the "absolute perceptions" values.
 	 */
 	double[][] perc;
+	
+	/**
+	 * Scratch buffers reused by every decision, avoiding allocations at 
+	 * the purchase and talking paths. Heuristics belong to the decision
+	 * making instance of a single model, so buffers are never shared 
+	 * between threads.
+	 */
+	private boolean[] brandFlags;
+	private double[] brandValues;
+	private byte[] brandOrder;
+	private int[] brandIndexes;
+	private double[] cutoffs;
+	private boolean[] attributeFlags;
+	private int[] attributeIndexes;
 
 	// ########################################################################
 	// Constructors
@@ -119,12 +133,20 @@ public abstract class AbstractHeuristic {
 	 * (10-val) are taken for the negative attribute values (<5.0).
 	 * It results with values in a scale [5,10], which is transformed back
 	 * to the perceptions scale [1,10].
+	 * 
+	 * Only brands the agent is aware of are transformed, since heuristics
+	 * never check the perceptions of the remaining ones.
+	 * @param awareness - the awareness of the current client agent.
 	 * @param perceptions - the perceptions of the current client agent.
 	 * @return - the transformed perceptions.
 	 */
-	protected double[][] absoluteValuePerceptions(double[][] perceptions) {
+	protected double[][] absoluteValuePerceptions(
+			boolean[] awareness, double[][] perceptions) {
 		
 		for(int i=0; i<perc.length; i++) {
+			if(!awareness[i]) {
+				continue;
+			}
 			for(int j=0; j<perc[i].length; j++) {
 				// optimized version 2
 				if(perceptions[i][j] < PERCEPTION_MIDDLE) {
@@ -136,4 +158,92 @@ public abstract class AbstractHeuristic {
 		}
 		return perc;
 	}
+	
+	//--------------------------- Scratch buffers ---------------------------//
+	
+	/**
+	 * Returns a boolean buffer for every brand. Values are not cleared.
+	 * @param nrBrands - the number of brands.
+	 * @return - the boolean buffer.
+	 */
+	protected final boolean[] brandFlags(int nrBrands) {
+		if(brandFlags == null || brandFlags.length != nrBrands) {
+			brandFlags = new boolean[nrBrands];
+		}
+		return brandFlags;
+	}
+	
+	/**
+	 * Returns a double buffer for every brand. Values are not cleared.
+	 * @param nrBrands - the number of brands.
+	 * @return - the double buffer.
+	 */
+	protected final double[] brandValues(int nrBrands) {
+		if(brandValues == null || brandValues.length != nrBrands) {
+			brandValues = new double[nrBrands];
+		}
+		return brandValues;
+	}
+	
+	/**
+	 * Returns a byte buffer storing brand indexes. Values are not cleared.
+	 * @param nrBrands - the number of brands.
+	 * @return - the byte buffer.
+	 */
+	protected final byte[] brandOrder(int nrBrands) {
+		if(brandOrder == null || brandOrder.length != nrBrands) {
+			brandOrder = new byte[nrBrands];
+		}
+		return brandOrder;
+	}
+	
+	/**
+	 * Returns an integer buffer storing brand indexes. Values are not cleared.
+	 * @param nrBrands - the number of brands.
+	 * @return - the integer buffer.
+	 */
+	protected final int[] brandIndexes(int nrBrands) {
+		if(brandIndexes == null || brandIndexes.length != nrBrands) {
+			brandIndexes = new int[nrBrands];
+		}
+		return brandIndexes;
+	}
+	
+	/**
+	 * Returns a double buffer storing the cutoff of every attribute. 
+	 * Values are not cleared.
+	 * @param nrAttributes - the number of attributes.
+	 * @return - the double buffer.
+	 */
+	protected final double[] cutoffs(int nrAttributes) {
+		if(cutoffs == null || cutoffs.length != nrAttributes) {
+			cutoffs = new double[nrAttributes];
+		}
+		return cutoffs;
+	}
+	
+	/**
+	 * Returns a boolean buffer for every attribute. Values are not cleared.
+	 * @param nrAttributes - the number of attributes.
+	 * @return - the boolean buffer.
+	 */
+	protected final boolean[] attributeFlags(int nrAttributes) {
+		if(attributeFlags == null || attributeFlags.length != nrAttributes) {
+			attributeFlags = new boolean[nrAttributes];
+		}
+		return attributeFlags;
+	}
+	
+	/**
+	 * Returns an integer buffer storing attribute indexes. 
+	 * Values are not cleared.
+	 * @param nrAttributes - the number of attributes.
+	 * @return - the integer buffer.
+	 */
+	protected final int[] attributeIndexes(int nrAttributes) {
+		if(attributeIndexes == null || attributeIndexes.length != nrAttributes) {
+			attributeIndexes = new int[nrAttributes];
+		}
+		return attributeIndexes;
+	}
 }
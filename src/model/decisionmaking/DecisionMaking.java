@@ -66,6 +66,14 @@ public class DecisionMaking {
 	 */
 	public static final double DEFAULT_INVOLVED_VALUE=0.5;
 	
+	/**
+	 * Validation flag: perception boundaries are checked before every 
+	 * decision only if assertions are enabled, since those checks rely on 
+	 * assertions and otherwise just traverse the perception matrix.
+	 */
+	public static final boolean VALIDATE_PERCEPTIONS = 
+			DecisionMaking.class.desiredAssertionStatus();
+	
 	/**
 	 * Buying decision type.
 	 */
@@ -244,9 +252,11 @@ public class DecisionMaking {
 			}
 		}
 		//Check if perceptions are in the range [0,10]
-		MatrixFunctions.checkMatrixBoundaries(perceptions, 
-				AbstractHeuristic.PERCEPTION_MIN, 
-				AbstractHeuristic.PERCEPTION_MAX);
+		if(VALIDATE_PERCEPTIONS) {
+			MatrixFunctions.checkMatrixBoundaries(perceptions, 
+					AbstractHeuristic.PERCEPTION_MIN, 
+					AbstractHeuristic.PERCEPTION_MAX);
+		}
 		
 		// If there is only one brand, return it.
 		if (counter == 1) return ind;
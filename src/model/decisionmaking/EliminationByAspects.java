@@ -47,7 +47,8 @@ public class EliminationByAspects extends AbstractHeuristic {
 		// It results with values in a scale [5,10], which is transformed back
 		// to the perceptions scale [1,10].
 		if(absoluteValPerceptions) {
-			currentPerceptions = super.absoluteValuePerceptions(perceptions);
+			currentPerceptions = super.absoluteValuePerceptions(
+					awareness, perceptions);
 		// Used for buying
 		// The standard behavior is to select a product based on its 
 		// attribute values. The higher value, the better chance to be bought.				
@@ -57,9 +58,9 @@ public class EliminationByAspects extends AbstractHeuristic {
 		
 		int nrBrands = currentPerceptions.length;
 		int nrAttributes = currentPerceptions[0].length;
-		boolean[] rejectedBrands = new boolean[nrBrands];
-		double[] currentCutoffs = new double[nrAttributes];
-		int[] attributeIndexes = new int[nrAttributes];
+		boolean[] rejectedBrands = brandFlags(nrBrands);
+		double[] currentCutoffs = cutoffs(nrAttributes);
+		int[] attributeIndexes;
 		boolean flag = false;
 		int initCount = 0;
 		int counter = 0;
@@ -88,16 +89,17 @@ public class EliminationByAspects extends AbstractHeuristic {
 					* Functions.PERCEPTION_MULTIPLIER_SCALE;			
 			}
 		}		
-		for(int i=0; i<nrAttributes; i++) {
-			attributeIndexes[i] = i;
-		}
-		attributeIndexes = 
-			Functions.getIndicesRandomWeightedOrder(drivers[segment], random);
+		attributeIndexes = Functions.getIndicesRandomWeightedOrder(
+			drivers[segment], 
+			random, 
+			attributeFlags(nrAttributes), 
+			attributeIndexes(nrAttributes)
+		);
 		
 		// The brands without awareness are rejected by default
 		for(int i=0; i<nrBrands; i++) {
-			if(!awareness[i]) {
-				rejectedBrands[i] = true;	
+			rejectedBrands[i] = !awareness[i];
+			if(rejectedBrands[i]) {
 				initCount++;
 			}
 		}
@@ -163,7 +165,7 @@ public class EliminationByAspects extends AbstractHeuristic {
 			);
 		// several brands left, select one at random from the ones left
 		} else {
-			int[] brandIndexes = new int[nrOfFalse];
+			int[] brandIndexes = brandIndexes(nrBrands);
 			int counter = 0;
 			for(int i=0; i<nrBrands; i++) {
 				if(!array[i]) {
@@ -1,7 +1,6 @@
 package model.decisionmaking;
 
 import util.functions.ArrayFunctions;
-import util.functions.Functions;
 import util.random.Randomizer;
 
 /**
@@ -38,7 +37,8 @@ public class MajorityRule  extends AbstractHeuristic {
 	public int calculate(boolean[] awareness, double[][] perceptions, int segment) {
 		double[][] currentPerceptions;
 		if(absoluteValPerceptions) {
-			currentPerceptions = super.absoluteValuePerceptions(perceptions);
+			currentPerceptions = super.absoluteValuePerceptions(
+					awareness, perceptions);
 		} else {
 			currentPerceptions = perceptions;
 		}
@@ -49,7 +49,8 @@ public class MajorityRule  extends AbstractHeuristic {
 		boolean flag = false;
 		int counter = 0;
 		
-		byte[] brandIndexes = ArrayFunctions.shuffleFast((byte) nrBrands, random);
+		byte[] brandIndexes = ArrayFunctions.shuffleFast(
+			brandOrder(nrBrands), random);
 		
 		// Take first shuffled index of a brand
 		while(!flag) {
@@ -88,40 +89,39 @@ public class MajorityRule  extends AbstractHeuristic {
 	private int compareAttributes(
 		Randomizer r, int ind1, int ind2, double[] drivers, double[][] perceptions 
 	) {
-		final int NR_COMPARISONS = 2;
-		final int INDEX_FIRST = 0;
-		final int INDEX_SECOND = 1;
-		double[] scores = new double[NR_COMPARISONS];
+		double scoreFirst = 0;
+		double scoreSecond = 0;
 		double[] perceptions1 = perceptions[ind1];
 		double[] perceptions2 = perceptions[ind2];
 		boolean probabilistic = true;
 
 		for(int i=0; i<perceptions1.length; i++) {
 			if(perceptions1[i] > perceptions2[i]) {
-				scores[INDEX_FIRST] += drivers[i];
+				scoreFirst += drivers[i];
 			} else if (perceptions1[i] < perceptions2[i]) {
-				scores[INDEX_SECOND] += drivers[i];
+				scoreSecond += drivers[i];
 			} else if (perceptions1[i] == perceptions2[i]) {
-				scores[INDEX_FIRST] += drivers[i]/2;
-				scores[INDEX_SECOND] += drivers[i]/2;
+				scoreFirst += drivers[i]/2;
+				scoreSecond += drivers[i]/2;
 			}
 		}
 		// (Stochastic) Choose randomly weighted by scores
+		// (same selection than Functions.randomWeightedSelection)
 		if(probabilistic){
-			int res = Functions.randomWeightedSelection(
-				scores, r.nextDouble() // [0, 1)
-			);
-			if(res == INDEX_FIRST) {
+			double randValue = r.nextDouble() // [0, 1)
+					* (scoreFirst + scoreSecond);
+			if(randValue < scoreFirst) {
 				return ind1;
-			} else {
+			} else if(randValue - scoreFirst < scoreSecond) {
 				return ind2;
 			}
+			throw new IllegalStateException(Double.toString(randValue));
 		// (Deterministic) Return the index with the highest score; 
 		// otherwise choose randomly
 		} else {
-			if(scores[INDEX_FIRST] > scores[INDEX_SECOND]) {
+			if(scoreFirst > scoreSecond) {
 				return ind1;
-			} else if(scores[INDEX_FIRST] < scores[INDEX_SECOND]) {
+			} else if(scoreFirst < scoreSecond) {
 				return ind2;
 			} else {
 				if(r.nextBoolean()) return ind1;
@@ -42,7 +42,8 @@ public class Satisficing extends AbstractHeuristic {
 		// It results with values in a scale [5,10], which is transformed back
 		// to the perceptions scale [1,10].
 		if(absoluteValPerceptions) {
-			currentPerceptions = super.absoluteValuePerceptions(perceptions);
+			currentPerceptions = super.absoluteValuePerceptions(
+					awareness, perceptions);
 		// Used for buying
 		// The standard behavior is to select a product based on its 
 		// attribute values. The higher value, the better chance to be bought.	
@@ -52,7 +53,7 @@ public class Satisficing extends AbstractHeuristic {
 		
 		int nrBrands = currentPerceptions.length;
 		int nrAttributes = currentPerceptions[0].length;
-		double[] currentCutoffs = new double[nrAttributes];
+		double[] currentCutoffs = cutoffs(nrAttributes);
 		boolean flag1 = false;	
 		int selectedBrand = -1;
 		
@@ -79,7 +80,8 @@ public class Satisficing extends AbstractHeuristic {
 						* Functions.PERCEPTION_MULTIPLIER_SCALE;				
 			}
 		}
-		byte[] brandIndexes = ArrayFunctions.shuffleFast((byte) nrBrands, random);
+		byte[] brandIndexes = ArrayFunctions.shuffleFast(
+			brandOrder(nrBrands), random);
 		
 		while(!flag1) {
 			for(int i=0; i<nrBrands; i++) {
@@ -38,24 +38,26 @@ public class UtilityMaximization extends AbstractHeuristic {
 	public int calculate(boolean[] awareness, double[][] perceptions, int segment) {
 		double[][] currentPerceptions;
 		if(absoluteValPerceptions) {
-			currentPerceptions = super.absoluteValuePerceptions(perceptions);
+			currentPerceptions = super.absoluteValuePerceptions(
+					awareness, perceptions);
 		} else {
 			currentPerceptions = perceptions;
 		}
 		
 		int nrBrands = currentPerceptions.length;
 		int nrAttributes = currentPerceptions[0].length;
-		double[] prob = new double[nrBrands];
+		double[] prob = brandValues(nrBrands);
 		double sum = 0;
-		boolean[] restricted = new boolean[nrBrands];
+		boolean[] restricted = brandFlags(nrBrands);
 		
 		// Calculate probability for each brand
 		for(int i=0; i<nrBrands; i++) {
 			if(awareness[i]) {
+				double utility = 0;
 				for(int j=0; j<nrAttributes; j++) {
-					prob[i] += drivers[segment][j] * currentPerceptions[i][j] / SCALE;			
+					utility += drivers[segment][j] * currentPerceptions[i][j] / SCALE;			
 				}
-				prob[i] = Math.exp(prob[i]);
+				prob[i] = Math.exp(utility);
 				sum += prob[i];
 			}
 		}
@@ -3,10 +3,7 @@ package model.sales;
 import java.util.Arrays;
 import java.util.BitSet;
 
-import org.apache.commons.lang3.BooleanUtils;
-import org.apache.commons.math.util.MathUtils;
 
-import gnu.trove.list.array.TDoubleArrayList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TIntHashSet;
 import model.customer.Agent;
@@ -101,6 +98,31 @@ public class SalesScheduler {
 	 * Current agent population as an array object.
 	 */
 	private Agent[] consumers;	
+	
+	/**
+	 * Buffers reused by every sale assignment: segments with candidates,
+	 * their normalized market share, the brands available for the buyer
+	 * and the brands he is aware of and are available.
+	 */
+	private int[] segmentsWithCandidates;
+	private double[] normalizedShare;
+	private boolean[] availableBrands;
+	private boolean[] filteredAwareness;
+	
+	/**
+	 * Assigns the sales of every step as a batch. See setBatchedSales.
+	 */
+	private boolean batched;
+	
+	/**
+	 * Buffers reused by the batched assignment: brands available at the 
+	 * current step as bit masks of 64 brands, agents buying at the step 
+	 * and agents knowing no available brand, taken out of the candidate 
+	 * pool until the step ends.
+	 */
+	private long[] availableMask;
+	private TIntArrayList buyers;
+	private TIntArrayList rejected;
 
 	/**
 	 * Creates a SalesScheduler instance and initializes the candidate pool.
@@ -134,6 +156,8 @@ public class SalesScheduler {
 		this.decisionCycle = decisionCycle;
 
 		enabled = new TIntArrayList[marketPercentBySegment.length];
+		segmentsWithCandidates = new int[marketPercentBySegment.length];
+		normalizedShare = new double[marketPercentBySegment.length];
 		
 		this.consumers = consumers;
 		
@@ -146,13 +170,55 @@ public class SalesScheduler {
 		prepareAgents();
 	}
 
+	/**
+	 * Resets the scheduler in place for a new simulation using the given
+	 * values. The number of segments and simulation steps must not change.
+	 * 
+	 * @param seasonality - provided seasonality.
+	 * @param availability - provided availability of brands by step.
+	 * @param checkpoint - number of steps separating every milestone.
+	 * @param marketPercentBySegment - market share for every segment.
+	 * @param decisionCycle - decision cycle duration in steps.
+	 * @param ratio - Real population / Agent population ratio.
+	 * @param consumers - Current agent population as an array object.
+	 */
+	public void reset(
+			double [] seasonality,
+			double [][] availability,
+			int checkpoint,
+			double[] marketPercentBySegment,
+			int decisionCycle,
+			double ratio, 
+			Agent[] consumers
+		) {
+		this.seasonality = seasonality;
+		this.ratio=ratio;
+		availabilityByStep = availability;
+		maxMarketPercentBySegment = marketPercentBySegment;
+		this.decisionCycle = decisionCycle;
+		this.consumers = consumers;
+		checkpointInSteps=checkpoint;
+		
+		carryOverSales = 0.0;
+		Arrays.fill(disabledUntil, null);
+		
+		test=false;
+		salesHistoryRecord=null;
+		
+		prepareAgents();
+	}
+
 	/**
 	 * Prepare the initial pool of agents, that consist on a map filled
 	 * with lists of agents. This way, agents are separated by segments.
 	 */
 	private void prepareAgents() {		
 		for (int i=0; i<maxMarketPercentBySegment.length; i++) {
-			enabled[i]= new TIntArrayList();
+			if(enabled[i]==null) {
+				enabled[i]= new TIntArrayList();
+			} else {
+				enabled[i].resetQuick();
+			}
 		}
 		
 		for (Agent agent: consumers) {
@@ -192,6 +258,16 @@ public class SalesScheduler {
 			enabled[agentBuying.segmentId].remove(disabledId);				
 		}
 		
+		bringBack(step);
+	}
+	
+	/**
+	 * Agents finishing their decision cycle at the given step become 
+	 * available again and are re-introduced in the pool of enabled agents.
+	 * 
+	 * @param step - simulation step that is ending.
+	 */
+	private void bringBack(int step) {
 		//Bring back agents that finished their cool down
 		if(step<disabledUntil.length 
 				&& disabledUntil[step]!=null
@@ -215,79 +291,186 @@ public class SalesScheduler {
 	private int assignSale(
 			Randomizer random
 		) {
+		int segment = chooseSegment(random);
+		
+		if(segment==INVALID_CLIENT) {
+			return INVALID_CLIENT;
+		}
+		
+		//Check enabled agents from that segment
+		TIntArrayList candidates = enabled[segment];
+		
+		//Chose a candidate randomly
+		int randomIndex = random.nextInt(candidates.size());
+		int clientid = candidates.getQuick(randomIndex);
+
+		return clientid;
+	}
+	
+	/**
+	 * Randomly chooses a buyer using segment shares and takes him out of
+	 * the candidate pool, moving the last candidate of the segment to his 
+	 * position.
+	 * 
+	 * @param random - The randomizer used by the current simulation.
+	 * @return the id of the buyer, or INVALID_CLIENT if the pool is empty.
+	 */
+	private int takeSale(
+			Randomizer random
+		) {
+		int segment = chooseSegment(random);
+		
+		if(segment==INVALID_CLIENT) {
+			return INVALID_CLIENT;
+		}
+		
+		TIntArrayList candidates = enabled[segment];
+		
+		int randomIndex = random.nextInt(candidates.size());
+		int clientid = candidates.getQuick(randomIndex);
+		
+		int last = candidates.size() - 1;
+		candidates.setQuick(randomIndex, candidates.getQuick(last));
+		candidates.removeAt(last);
+		
+		return clientid;
+	}
+	
+	/**
+	 * Randomly chooses a segment with candidates using segment shares.
+	 * 
+	 * @param random - The randomizer used by the current simulation.
+	 * @return the segment, or INVALID_CLIENT if no segment has candidates.
+	 */
+	private int chooseSegment(
+			Randomizer random
+		) {
 		double roll=random.nextDouble();
 		
 		//Create the segment roulette using segments with candidates.
 		int numSegments = maxMarketPercentBySegment.length;
-		TIntArrayList segmentsWithCandidates = new TIntArrayList(numSegments);
-		
-		boolean anyEmpty = false;
-		int emptySegments = 0;
-		
-		TDoubleArrayList marketShareForSegmentsWithCandidates 
-				= new TDoubleArrayList(numSegments);
+		int numSegmentsWithCandidates = 0;
+		double shareOfSegmentsWithCandidates = 0.0;
 		
 		for (int s = 0; s<numSegments; s++) {
 			if(!enabled[s].isEmpty()) {
-				segmentsWithCandidates.add(s);
-				marketShareForSegmentsWithCandidates.add(
-						maxMarketPercentBySegment[s]);
-			} else {
-				anyEmpty = true;
-				emptySegments++;
+				segmentsWithCandidates[numSegmentsWithCandidates++] = s;
+				shareOfSegmentsWithCandidates += maxMarketPercentBySegment[s];
 			}
 		}
 		
-		if(emptySegments == numSegments) {
+		if(numSegmentsWithCandidates == 0) {
 			return INVALID_CLIENT;
 		}
 		
 		int segment=INVALID_CLIENT;
 		
-		if(anyEmpty) {
-			double[] normalizedShared = MathUtils.normalizeArray(
-					marketShareForSegmentsWithCandidates.toArray(),
-						Functions.IDENTITY_SCALE);
-			int index= Functions.simpleRouletteSelection(normalizedShared, roll);
-			segment = segmentsWithCandidates.toArray()[index];
+		if(numSegmentsWithCandidates < numSegments) {
+			if(shareOfSegmentsWithCandidates == 0.0) {
+				throw new ArithmeticException(
+					"Market share of segments with candidates sums to zero");
+			}
+			for (int i = 0; i<numSegmentsWithCandidates; i++) {
+				normalizedShare[i] = 
+					maxMarketPercentBySegment[segmentsWithCandidates[i]]
+						* Functions.IDENTITY_SCALE 
+							/ shareOfSegmentsWithCandidates;
+			}
+			int index= Functions.simpleRouletteSelection(
+					normalizedShare, numSegmentsWithCandidates, roll);
+			segment = segmentsWithCandidates[index];
 		} else {
 			segment = Functions.simpleRouletteSelection(maxMarketPercentBySegment, roll);
 		}
 		
-		if(segment==INVALID_CLIENT) {
-			return INVALID_CLIENT;
+		return segment;
+	}
+	
+	/**
+	 * Generates availabilities for every brand at given step and filters
+	 * the awareness of the purchasing agent with them. Both results are
+	 * stored at reused buffers, since they are only used by one 
+	 * purchasing agent.
+	 * 
+	 * @param random - randomizer instance used at current simulation.
+	 * @param step - current simulation step.
+	 * @param awareness - awareness of the purchasing agent.
+	 * @return true if any brand is both available and known by the agent.
+	 */
+	private boolean checkAvailability(
+			Randomizer random, int step, boolean[] awareness) {
+		int numBrands = availabilityByStep.length;
+		if(availableBrands == null || availableBrands.length != numBrands) {
+			availableBrands = new boolean [numBrands];
+			filteredAwareness = new boolean [numBrands];
 		}
 		
-		//Check enabled agents from that segment
-		TIntArrayList candidates = enabled[segment];
+		boolean anyBrandAvailable = false;
+		for (int i=0; i<numBrands; i++) {
+			availableBrands[i] = 
+				random.nextDouble() < availabilityByStep[i][step];
+			filteredAwareness[i] = availableBrands[i] && awareness[i];
+			anyBrandAvailable |= filteredAwareness[i];
+		}
 		
-		//Chose a candidate randomly
-		int randomIndex = random.nextInt(candidates.size());
-		int clientid = candidates.getQuick(randomIndex);
-
-		return clientid;
+		return anyBrandAvailable;
 	}
 	
 	/**
-	 * Generates availabilities for every brand at given step.
-	 * 
-	 * This availability will only be used by one purchasing agent.
+	 * Generates availabilities for every brand at given step, shared by 
+	 * every purchasing agent of the step. Unavailable brands are left 
+	 * unset at the filtered awareness buffer, so only available brands 
+	 * need to be filtered for every buyer.
 	 * 
 	 * @param random - randomizer instance used at current simulation.
 	 * @param step - current simulation step.
-	 * @return brand availability at given step for selected agent.
+	 * @return true if any brand is available.
 	 */
-	private boolean[] checkAvailability(Randomizer random, int step) {
+	private boolean sampleAvailability(Randomizer random, int step) {
 		int numBrands = availabilityByStep.length;
-		boolean [] availableBrands = new boolean [numBrands];
+		if(availableBrands == null || availableBrands.length != numBrands) {
+			availableBrands = new boolean [numBrands];
+			filteredAwareness = new boolean [numBrands];
+		}
+		int words = (numBrands + Long.SIZE - 1) / Long.SIZE;
+		if(availableMask == null || availableMask.length != words) {
+			availableMask = new long [words];
+		}
+		Arrays.fill(availableMask, 0L);
 		
+		boolean anyBrandAvailable = false;
 		for (int i=0; i<numBrands; i++) {
-			if(random.nextDouble() < availabilityByStep[i][step]) {
-				availableBrands[i] = true;
+			availableBrands[i] = 
+				random.nextDouble() < availabilityByStep[i][step];
+			filteredAwareness[i] = false;
+			if(availableBrands[i]) {
+				availableMask[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+				anyBrandAvailable = true;
 			}
 		}
 		
-		return availableBrands;
+		return anyBrandAvailable;
+	}
+	
+	/**
+	 * Filters the awareness of the purchasing agent with the availability
+	 * sampled for the current step.
+	 * 
+	 * @param awareness - awareness of the purchasing agent.
+	 * @return true if any brand is both available and known by the agent.
+	 */
+	private boolean filterAwareness(boolean[] awareness) {
+		boolean anyBrandAvailable = false;
+		for (int w=0; w<availableMask.length; w++) {
+			long mask = availableMask[w];
+			while(mask != 0L) {
+				int brand = w * Long.SIZE + Long.numberOfTrailingZeros(mask);
+				filteredAwareness[brand] = awareness[brand];
+				anyBrandAvailable |= awareness[brand];
+				mask &= mask - 1;
+			}
+		}
+		return anyBrandAvailable;
 	}
 	
 	/**
@@ -387,6 +570,11 @@ public class SalesScheduler {
 			DecisionMaking dm
 			) throws SalesScheduleError
 		{
+		if(batched) {
+			assignSalesBatched(step, random, statistics, dm);
+			return;
+		}
+		
 		//Add current step sales to accumulated sales
 		carryOverSales+=seasonality[step];
 		
@@ -414,12 +602,10 @@ public class SalesScheduler {
 			if(buyer!=INVALID_CLIENT) {
 				Agent customerBuying = consumers[buyer];
 				
-				boolean [] availability = checkAvailability(random, step);				
 				boolean [] awareness = customerBuying.getAwareness();
 				
-				boolean [] filteredAwareness = Functions.and(availability,awareness);
-				
-				boolean anyBrandAvailable = BooleanUtils.or(filteredAwareness);
+				boolean anyBrandAvailable = 
+						checkAvailability(random, step, awareness);
 				
 				if(anyBrandAvailable) {
 					
@@ -427,7 +613,7 @@ public class SalesScheduler {
 					
 					if (test && !filteredAwareness[brand]) {
 						String message="Availability failed for brand "+brand+" at step "+step
-								+"\n Availability:"+Arrays.toString(availability)
+								+"\n Availability:"+Arrays.toString(availableBrands)
 								+"\n Awareness: "+Arrays.toString(awareness);
 						throw new SalesScheduleError(message);
 					}
@@ -483,6 +669,114 @@ public class SalesScheduler {
 		endStep(step, disabled);
 	}
 	
+	/**
+	 * Assign sales for the given step as a batch. Brand availability is 
+	 * sampled once for the whole step instead of once for every buyer, 
+	 * and buyers are taken out of the candidate pool when chosen, so 
+	 * every agent buys at most once at every step. Agents knowing no 
+	 * available brand are also taken out of the pool until the step ends,
+	 * so the sales of the step stop when the pool is exhausted.
+	 * 
+	 * @param step current simulation step
+	 * @param random current simulation randomizer
+	 * @param statistics simulation statistics object
+	 * @throws SalesScheduleError if the sales of a step can't be assigned,
+	 * an exception is thrown.
+	 */
+	private void assignSalesBatched(
+			int step,
+			Randomizer random,
+			Statistics statistics,
+			DecisionMaking dm
+			) throws SalesScheduleError
+		{
+		//Add current step sales to accumulated sales
+		carryOverSales+=seasonality[step];
+		
+		if(buyers == null) {
+			buyers = new TIntArrayList();
+			rejected = new TIntArrayList();
+		}
+		buyers.resetQuick();
+		rejected.resetQuick();
+		
+		//Local reference (to avoid using public data in Statistics)
+		int[][][] salesByBrandBySegmentByStep = 
+			statistics.referenceToSalesByBrandBySegmentByStep();
+		
+		//No agent can buy at the step if no brand is available
+		boolean skip = carryOverSales<(ratio*0.5) 
+				|| !sampleAvailability(random, step);
+		
+		while(!skip && carryOverSales>=(ratio*0.5)) {
+			int buyer=takeSale(random);
+			
+			if(buyer!=INVALID_CLIENT) {
+				Agent customerBuying = consumers[buyer];
+				
+				boolean [] awareness = customerBuying.getAwareness();
+				
+				if(filterAwareness(awareness)) {
+					
+					int brand = customerBuying.buyOneBrand(dm, step, filteredAwareness);
+					
+					if (test && !filteredAwareness[brand]) {
+						String message="Availability failed for brand "+brand+" at step "+step
+								+"\n Availability:"+Arrays.toString(availableBrands)
+								+"\n Awareness: "+Arrays.toString(awareness);
+						throw new SalesScheduleError(message);
+					}
+					
+					int segment = customerBuying.segmentId;
+					
+					salesByBrandBySegmentByStep[brand][segment][step] ++;
+					
+					buyers.add(buyer);
+					carryOverSales-=ratio;
+					
+					if(test) {
+						if(salesHistoryRecord[step]==null) {
+							salesHistoryRecord[step] = new BitSet();
+						}
+						salesHistoryRecord[step].set(customerBuying.clientId);
+					}
+				} else {
+					rejected.add(buyer);
+				}
+			} else {
+				skip=true;
+			}
+		}
+		
+		//Agents unable to buy at this step go back to the pool
+		for (int i=0; i<rejected.size(); i++) {
+			int id = rejected.getQuick(i);
+			enabled[consumers[id].segmentId].add(id);
+		}
+		
+		//Check checkpoint Period
+		if( step>0 
+				&& step % checkpointInSteps == 0
+					&& carryOverSales > (ratio*0.5)
+			) {
+			String baseMessage = String.format("Sales scheduled for checkpoint at "
+					+ "step %d failed to be accurate (carry over > (ratio*0.5)).\n", 
+							step);
+			analyzeError(baseMessage, step);
+		}
+		
+		//Prepare next step. Buyers already left the pool.
+		int[] buyersArray = buyers.toArray();
+		int comeback = step + decisionCycle;
+		if(comeback < disabledUntil.length) {
+			disabledUntil[comeback]=buyersArray;
+		}
+		for (int buyerId: buyersArray) {
+			consumers[buyerId].beginDecisionCycle();
+		}
+		bringBack(step);
+	}
+	
 	/**
 	 * Returns the double array containing the provided market share.
 	 * 
@@ -512,6 +806,20 @@ public class SalesScheduler {
 		return carryOverSales;
 	}
 	
+	/**
+	 * Enables or disables the batched assignment of the sales of every
+	 * step. Batched assignment samples brand availability once per step
+	 * and never chooses the same buyer twice in a step, removing buyers 
+	 * from the candidate pool in constant time. It consumes random numbers
+	 * in a different order, so simulations differ from the ones of the 
+	 * default assignment for the same seed.
+	 * 
+	 * @param batched - true to assign the sales of every step as a batch.
+	 */
+	public void setBatchedSales(boolean batched) {
+		this.batched = batched;
+	}
+	
 	/**
 	 * Enable debug/test mode.
 	 */
@@ -245,6 +245,7 @@ public class SimpleModelBuilder {
 			md.getAgentsRatio(), 
 			agents
 		);
+		ss.setBatchedSales(md.isBatchedSales());
 		
 		return ss;
 	}
@@ -35,7 +35,7 @@ public class SimpleTouchPointOwned extends TouchPointOwned {
 		){
 		// Check if the customer has awareness of that product
 		// If not, process...
-		if(!agent.getAwareness()[brand]) {
+		if(!agent.getAwarenessOfBrand(brand)) {
 			checkBrandAwareness(agent, brand, 
 					agent.segmentId, hits, model, step);
 		}
@@ -0,0 +1,226 @@
+package model.touchpoints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import model.ClientSegments;
+import util.random.Randomizer;
+import util.random.RandomizerFactory;
+import util.random.RandomizerFactory.RandomizerAlgorithm;
+import util.random.RandomizerUtils;
+
+/**
+ * Schedules every touch point and brand concurrently. Each marketing plan
+ * is scheduled by its own TouchPointScheduler instance using a randomizer
+ * derived from the model seed, touch point and brand, so results do not
+ * depend on the execution order and schedules may be cached.
+ *
+ * @author imoya
+ *
+ */
+final class ParallelTouchPointScheduling {
+
+	/**
+	 * Golden ratio increment used for deriving randomizer seeds.
+	 */
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+	private ParallelTouchPointScheduling() {
+	}
+
+	/**
+	 * Derives the randomizer seed for a touch point and brand schedule.
+	 *
+	 * @param seed - model seed.
+	 * @param touchpoint - touch point id.
+	 * @param brand - brand id.
+	 * @param numBrands - number of brands.
+	 * @return the derived seed.
+	 */
+	static long deriveSeed(long seed, int touchpoint, int brand, int numBrands) {
+		long stream = (long) touchpoint * numBrands + brand + 1;
+		return RandomizerUtils.computeMurmurHash3(seed + stream * SEED_INCREMENT);
+	}
+
+	/**
+	 * Computes a fingerprint of the agent-segment relationship.
+	 *
+	 * @param segments - ClientSegments instance.
+	 * @return a fingerprint of the agents by segment.
+	 */
+	static long fingerprint(ClientSegments segments) {
+		long h = 1;
+		for (int[] agents : segments.getAgentsBySegment()) {
+			h = RandomizerUtils.computeMurmurHash3(h + agents.length);
+			for (int agent : agents) {
+				h = RandomizerUtils.computeMurmurHash3(h + agent);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Schedules every marketing plan, storing the schedules at their touch
+	 * points and marking agent exposure.
+	 *
+	 * @param touchpoints - registered touch points.
+	 * @param numBrands - number of brands.
+	 * @param numAgents - total agent population.
+	 * @param segments - ClientSegments instance.
+	 * @param agentExposure - boolean matrix where [i][j] means that agent i
+	 * is exposed to any touchpoint at step j.
+	 * @param weeks - simulation length in weeks.
+	 * @param stepsForWeek - number of simulation steps for week.
+	 * @param agentPopulationFactor - agent-population ratio.
+	 * @param seed - model seed.
+	 * @param cache - schedule cache (it can be null).
+	 * @return the effective reach for every touchpoint, brand and segment.
+	 */
+	static double[][][] schedule(
+			final TouchPointOwned[] touchpoints,
+			final int numBrands,
+			final int numAgents,
+			final ClientSegments segments,
+			boolean[][] agentExposure,
+			final int weeks,
+			final int stepsForWeek,
+			final double agentPopulationFactor,
+			final long seed,
+			final TouchPointScheduleCache cache
+		) {
+
+		final long segmentsFingerprint = cache != null ? fingerprint(segments) : 0L;
+
+		final byte[][][][] schedules = new byte[touchpoints.length][][][];
+		final double[][][] reach = new double[touchpoints.length][][];
+
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final TouchPointOwned tpo : touchpoints) {
+			MarketingPlan[] mps = tpo.getMarketingPlans();
+			schedules[tpo.id] = new byte[mps.length][][];
+			reach[tpo.id] = new double[numBrands][];
+
+			for (final MarketingPlan mp : mps) {
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						TouchPointScheduleCache.Entry entry = schedulePlan(
+							tpo, mp, numBrands, numAgents, segments, weeks,
+							stepsForWeek, agentPopulationFactor, seed,
+							cache, segmentsFingerprint);
+						schedules[tpo.id][mp.brandId] = entry.schedule;
+						reach[tpo.id][mp.brandId] = Arrays.copyOf(
+							entry.reach, segments.getNumSegments());
+						return null;
+					}
+				});
+			}
+		}
+
+		invokeAll(tasks);
+
+		for (TouchPointOwned tpo : touchpoints) {
+			byte[][][] tpSchedules = schedules[tpo.id];
+			for (byte[][] schedule : tpSchedules) {
+				if(schedule == null) continue;
+				for (int i=0; i<schedule.length; i++) {
+					byte[] agentSchedule = schedule[i];
+					boolean[] exposure = agentExposure[i];
+					for (int j=0; j<agentSchedule.length; j++) {
+						exposure[j] |= agentSchedule[j]>0;
+					}
+				}
+			}
+			tpo.setSchedules(tpSchedules);
+		}
+
+		return reach;
+	}
+
+	/**
+	 * Schedules a single marketing plan, using the cache if available.
+	 */
+	private static TouchPointScheduleCache.Entry schedulePlan(
+			TouchPointOwned tpo,
+			MarketingPlan mp,
+			int numBrands,
+			int numAgents,
+			ClientSegments segments,
+			int weeks,
+			int stepsForWeek,
+			double agentPopulationFactor,
+			long seed,
+			TouchPointScheduleCache cache,
+			long segmentsFingerprint
+		) {
+		final long derivedSeed = deriveSeed(seed, tpo.id, mp.brandId, numBrands);
+		TouchPointScheduleCache.Key key = null;
+		if(cache != null) {
+			key = new TouchPointScheduleCache.Key(
+				derivedSeed, tpo.id, mp.brandId, segmentsFingerprint, numAgents,
+				weeks, stepsForWeek, tpo.investmentType, agentPopulationFactor,
+				mp.weeklyPlan, tpo.weeklyReachMaximun,
+				tpo.annualReachMaximun, tpo.annualReachSpeed);
+			TouchPointScheduleCache.Entry cached = cache.get(key);
+			if(cached != null) {
+				return cached;
+			}
+		}
+
+		Randomizer random = RandomizerFactory.createRandomizer(
+			RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST,
+			derivedSeed
+		);
+
+		TouchPointScheduler scheduler = new TouchPointScheduler(
+				segments,
+				numAgents,
+				tpo.weeklyReachMaximun,
+				tpo.annualReachMaximun,
+				tpo.annualReachSpeed,
+				weeks,
+				stepsForWeek,
+				tpo.investmentType,
+				agentPopulationFactor,
+				false
+			);
+		scheduler.setPlan(mp.weeklyPlan);
+		scheduler.schedule(random);
+
+		TouchPointScheduleCache.Entry entry = new TouchPointScheduleCache.Entry(
+			scheduler.getSchedule(), scheduler.getActualRM().clone());
+		if(cache != null) {
+			cache.put(key, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Runs the given tasks at the common fork-join pool, waiting for every
+	 * task to finish.
+	 *
+	 * @param tasks - scheduling tasks.
+	 */
+	private static void invokeAll(List<Callable<Void>> tasks) {
+		try {
+			List<Future<Void>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Touch point scheduling interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+}
@@ -303,7 +303,7 @@ public class TouchPointOwned
 		}		
 		
 		// Awareness
-		boolean awarenessChange = agent.getAwareness()[brand];
+		boolean awarenessChange = agent.getAwarenessOfBrand(brand);
 		// Check if the customer has awareness of that product
 		// If not, process...
 		if(!awarenessChange) {
@@ -84,6 +84,22 @@ public class TouchPointOwnedRegistry {
 	 */
 	public double[][] discussionHeatdecayByTouchPointAndSegment;
 	
+	/**
+	 * Enables scheduling touch points and brands in parallel.
+	 */
+	private boolean parallelScheduling = false;
+	
+	/**
+	 * Seed used for deriving an independent randomizer for every touch 
+	 * point and brand when scheduling in parallel.
+	 */
+	private long schedulingSeed;
+	
+	/**
+	 * Schedule cache used when scheduling in parallel (it can be null).
+	 */
+	private TouchPointScheduleCache scheduleCache;
+	
 	/**
 	 * Creates a new Registry instance.
 	 * 
@@ -163,6 +179,24 @@ public class TouchPointOwnedRegistry {
 		this.debug = debug;
 	}
 	
+	/**
+	 * Enables parallel scheduling: every touch point and brand is scheduled 
+	 * concurrently, using an independent randomizer derived from the given 
+	 * seed instead of the simulation randomizer. Resulting schedules are 
+	 * reproducible for a given seed, but differ from sequential scheduling.
+	 * 
+	 * Parallel scheduling is not used in debug mode.
+	 * 
+	 * @param seed - model seed used for deriving randomizers.
+	 * @param cache - schedule cache to be used (it can be null).
+	 */
+	public void enableParallelScheduling(
+			long seed, TouchPointScheduleCache cache) {
+		parallelScheduling = true;
+		schedulingSeed = seed;
+		scheduleCache = cache;
+	}
+	
 	/**
 	 * Retrieves the value of the debug flag.
 	 * 
@@ -194,8 +228,16 @@ public class TouchPointOwnedRegistry {
 		boolean[][] agentExposure = initializeAgentExposure(
 				customers, numberOfWeeks, stepsForWeek
 			);
-		double [][][] reach = iterateTPs(customers, segments, agentExposure, 
-				numberOfWeeks, stepsForWeek, agentPopulationFactor);
+		double [][][] reach;
+		if(parallelScheduling && !debug) {
+			reach = ParallelTouchPointScheduling.schedule(
+					touchpoints, numBrands, customers.length, segments, 
+					agentExposure, numberOfWeeks, stepsForWeek, 
+					agentPopulationFactor, schedulingSeed, scheduleCache);
+		} else {
+			reach = iterateTPs(customers, segments, agentExposure, 
+					numberOfWeeks, stepsForWeek, agentPopulationFactor);
+		}
 		
 		//Dispatches combined touchpoint exposure for each agent.
 		for (int i = 0; i < customers.length; i++) {
@@ -325,7 +367,8 @@ public class TouchPointOwnedRegistry {
 
 	/**
 	 * Initiates and returns agent exposure as a boolean matrix 
-	 * with [numAgents][numSteps].
+	 * with [numAgents][numSteps]. Exposure arrays of agents reset from a 
+	 * previous simulation are cleared and reused.
 	 * 
 	 * @param customers - a ClientAgent array instance
 	 * @param stepsByWeek - number of steps for week
@@ -334,8 +377,17 @@ public class TouchPointOwnedRegistry {
 	private boolean[][] initializeAgentExposure(
 			Agent[] customers, int numberOfWeeks, int stepsByWeek
 		) {
-		boolean[][] agentExposure = new boolean [customers.length]
-				[numberOfWeeks*stepsByWeek];
+		final int numberOfSteps = numberOfWeeks*stepsByWeek;
+		boolean[][] agentExposure = new boolean [customers.length][];
+		for (int i = 0; i < customers.length; i++) {
+			boolean[] previous = customers[i].getTouchPointExposure();
+			if(previous != null && previous.length == numberOfSteps) {
+				Arrays.fill(previous, false);
+				agentExposure[i] = previous;
+			} else {
+				agentExposure[i] = new boolean[numberOfSteps];
+			}
+		}
 		return agentExposure;
 	}
 	
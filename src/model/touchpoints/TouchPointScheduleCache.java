@@ -0,0 +1,348 @@
+package model.touchpoints;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import model.touchpoints.TouchPointOwned.InvestmentType;
+
+/**
+ * TouchPointScheduleCache stores the schedules generated for every touch
+ * point and brand when parallel scheduling is enabled. Because those
+ * schedules use randomizers derived from the model seed, a schedule only
+ * depends on the marketing plan, the reach parameters, the agent-segment
+ * relationship and the seed. Models sharing those values (e.g. calibration
+ * individuals whose genes don't affect reach) reuse cached schedules.
+ *
+ * Cached schedules are shared between models, so they must be treated as
+ * read-only. The cache is bounded by the approximate size of the stored
+ * schedules, evicting the least recently used ones.
+ *
+ * The shared cache is only used while some job (e.g. a calibration) has
+ * acquired it, and it is cleared when the last one releases it, so its
+ * schedules do not outlive the jobs reusing them.
+ *
+ * @author imoya
+ *
+ */
+public class TouchPointScheduleCache {
+
+	/**
+	 * Default cache capacity in bytes.
+	 */
+	public static final long DEFAULT_CAPACITY = 256L * 1024 * 1024;
+
+	/**
+	 * Cache shared by every model in the virtual machine.
+	 */
+	private static final TouchPointScheduleCache SHARED =
+			new TouchPointScheduleCache(DEFAULT_CAPACITY);
+
+	/**
+	 * Number of jobs using the shared cache.
+	 */
+	private static int sharedUsers;
+
+	/**
+	 * Cached schedules in access order.
+	 */
+	private final LinkedHashMap<Key, Entry> entries =
+			new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+
+	/**
+	 * Maximum size of the stored schedules in bytes.
+	 */
+	private long capacity;
+
+	/**
+	 * Current size of the stored schedules in bytes.
+	 */
+	private long size;
+
+	/**
+	 * Number of schedules found at the cache.
+	 */
+	private long hits;
+
+	/**
+	 * Number of schedules not found at the cache.
+	 */
+	private long misses;
+
+	/**
+	 * Creates a new cache instance.
+	 *
+	 * @param capacity - maximum size of the stored schedules in bytes.
+	 */
+	public TouchPointScheduleCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Starts using the shared cache. Every call must be followed by a
+	 * call to releaseShared once the job finishes.
+	 * @return the cache shared by every model.
+	 */
+	public static synchronized TouchPointScheduleCache acquireShared() {
+		sharedUsers++;
+		return SHARED;
+	}
+
+	/**
+	 * Stops using the shared cache, clearing it if no other job uses it.
+	 */
+	public static synchronized void releaseShared() {
+		if(sharedUsers == 0) {
+			throw new IllegalStateException(
+				"Schedule cache released more times than acquired");
+		}
+		sharedUsers--;
+		if(sharedUsers == 0) {
+			SHARED.clear();
+		}
+	}
+
+	/**
+	 * Returns the cache shared by every model, or null if no job is
+	 * using it.
+	 * @return the cache shared by every model, or null if not acquired.
+	 */
+	public static synchronized TouchPointScheduleCache getShared() {
+		return sharedUsers > 0 ? SHARED : null;
+	}
+
+	/**
+	 * Returns the cached schedule for the given key or null if it
+	 * was not found.
+	 *
+	 * @param key - schedule key.
+	 * @return the cached schedule or null if it was not found.
+	 */
+	public synchronized Entry get(Key key) {
+		Entry entry = entries.get(key);
+		if(entry == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the given schedule, evicting older entries if needed.
+	 * Schedules bigger than the cache capacity are not stored.
+	 *
+	 * @param key - schedule key.
+	 * @param entry - the schedule and its reach values.
+	 */
+	public synchronized void put(Key key, Entry entry) {
+		if(entry.bytes > capacity) {
+			return;
+		}
+		Entry previous = entries.put(key, entry);
+		if(previous != null) {
+			size -= previous.bytes;
+		}
+		size += entry.bytes;
+		evict();
+	}
+
+	/**
+	 * Sets the maximum size of the stored schedules.
+	 *
+	 * @param capacity - maximum size in bytes (0 disables caching).
+	 */
+	public synchronized void setCapacity(long capacity) {
+		this.capacity = capacity;
+		evict();
+	}
+
+	/**
+	 * Removes every cached schedule.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of cached schedules.
+	 * @return the number of cached schedules.
+	 */
+	public synchronized int getNumberOfEntries() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the number of requests served by the cache.
+	 * @return the number of requests served by the cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of requests not found at the cache.
+	 * @return the number of requests not found at the cache.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Evicts the least recently used schedules until the cache fits
+	 * its capacity.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while(size > capacity && it.hasNext()) {
+			size -= it.next().getValue().bytes;
+			it.remove();
+		}
+	}
+
+	// ########################################################################
+	// Keys & entries
+	// ########################################################################
+
+	/**
+	 * Identifies a touch point and brand schedule. Array values are copied
+	 * so later changes at the model definition do not modify stored keys.
+	 * Schedules are keyed by the seed of their own randomizer, which also
+	 * depends on the number of brands of the model.
+	 */
+	public static final class Key {
+		private final long seed;
+		private final int touchpoint;
+		private final int brand;
+		private final long segmentsFingerprint;
+		private final int numAgents;
+		private final int weeks;
+		private final int stepsForWeek;
+		private final InvestmentType investmentType;
+		private final double populationFactor;
+		private final double[][] plan;
+		private final double[] wrm;
+		private final double[] arm;
+		private final double[] arms;
+		private final int hash;
+
+		/**
+		 * Creates a new schedule key.
+		 *
+		 * @param seed - randomizer seed derived for the touch point and brand.
+		 * @param touchpoint - touch point id.
+		 * @param brand - brand id.
+		 * @param segmentsFingerprint - fingerprint of the agents by segment.
+		 * @param numAgents - total agent population.
+		 * @param weeks - simulation length in weeks.
+		 * @param stepsForWeek - number of steps by each simulation week.
+		 * @param investmentType - investment metric used by the touch point.
+		 * @param populationFactor - agent-population ratio.
+		 * @param plan - investment by segment and week.
+		 * @param wrm - weekly reach maximum by segment.
+		 * @param arm - annual reach maximum by segment.
+		 * @param arms - annual reach speed by segment.
+		 */
+		public Key(
+				long seed,
+				int touchpoint,
+				int brand,
+				long segmentsFingerprint,
+				int numAgents,
+				int weeks,
+				int stepsForWeek,
+				InvestmentType investmentType,
+				double populationFactor,
+				double[][] plan,
+				double[] wrm,
+				double[] arm,
+				double[] arms
+			) {
+			this.seed = seed;
+			this.touchpoint = touchpoint;
+			this.brand = brand;
+			this.segmentsFingerprint = segmentsFingerprint;
+			this.numAgents = numAgents;
+			this.weeks = weeks;
+			this.stepsForWeek = stepsForWeek;
+			this.investmentType = investmentType;
+			this.populationFactor = populationFactor;
+			this.plan = new double[plan.length][];
+			for (int i=0; i<plan.length; i++) {
+				this.plan[i] = plan[i].clone();
+			}
+			this.wrm = wrm.clone();
+			this.arm = arm.clone();
+			this.arms = arms.clone();
+
+			int h = Long.hashCode(seed);
+			h = 31 * h + touchpoint;
+			h = 31 * h + brand;
+			h = 31 * h + Long.hashCode(segmentsFingerprint);
+			h = 31 * h + numAgents;
+			h = 31 * h + weeks;
+			h = 31 * h + stepsForWeek;
+			h = 31 * h + investmentType.hashCode();
+			h = 31 * h + Double.hashCode(populationFactor);
+			h = 31 * h + Arrays.deepHashCode(this.plan);
+			h = 31 * h + Arrays.hashCode(this.wrm);
+			h = 31 * h + Arrays.hashCode(this.arm);
+			h = 31 * h + Arrays.hashCode(this.arms);
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key) obj;
+			return hash == other.hash
+				&& seed == other.seed
+				&& touchpoint == other.touchpoint
+				&& brand == other.brand
+				&& segmentsFingerprint == other.segmentsFingerprint
+				&& numAgents == other.numAgents
+				&& weeks == other.weeks
+				&& stepsForWeek == other.stepsForWeek
+				&& investmentType == other.investmentType
+				&& Double.compare(populationFactor, other.populationFactor) == 0
+				&& Arrays.deepEquals(plan, other.plan)
+				&& Arrays.equals(wrm, other.wrm)
+				&& Arrays.equals(arm, other.arm)
+				&& Arrays.equals(arms, other.arms);
+		}
+	}
+
+	/**
+	 * A cached schedule along with the reach achieved by segment.
+	 */
+	public static final class Entry {
+		public final byte[][] schedule;
+		public final double[] reach;
+		private final long bytes;
+
+		/**
+		 * Creates a new cache entry.
+		 *
+		 * @param schedule - schedule as [AgentID][Step] = Hits.
+		 * @param reach - reach achieved for each segment.
+		 */
+		public Entry(byte[][] schedule, double[] reach) {
+			this.schedule = schedule;
+			this.reach = reach;
+			long bytes = 0;
+			for (byte[] agentSchedule : schedule) {
+				//Array header and reference.
+				bytes += agentSchedule.length + 24;
+			}
+			this.bytes = bytes;
+		}
+	}
+}
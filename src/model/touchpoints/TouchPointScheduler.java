@@ -3,11 +3,11 @@ package model.touchpoints;
 import java.util.Arrays;
 
 import gnu.trove.list.array.TIntArrayList;
-import gnu.trove.set.hash.TIntHashSet;
 import model.ClientSegments;
 import model.touchpoints.TouchPointOwned.InvestmentType;
 import util.functions.MatrixFunctions;
 import util.random.Randomizer;
+import util.random.RandomizerUtils;
 
 /**
  * TouchPointScheduler implements the scheduling algorithm design for
@@ -113,9 +113,23 @@ public class TouchPointScheduler {
 	private TIntArrayList [] agentsReached;
 	
 	/**
-	 * Number of hits per agent. 
+	 * Agent ids by segment used as sampling pools. For every segment, 
+	 * the agents already reached are kept at the beginning of the pool: 
+	 * pool[s][0..reachedCount[s]) are reached, the rest are not.
 	 */
-	private int [] hitsPerAgent;
+	private int [][] segmentPool;
+	
+	/**
+	 * Number of agents reached by segment (size of the reached prefix 
+	 * of segmentPool).
+	 */
+	private int [] reachedCount;
+	
+	/**
+	 * Buffer storing the candidates selected for the current week 
+	 * and segment.
+	 */
+	private int [] candidates;
 	/**
 	 * Percentage of increment of reach values when hitting a new agent,
 	 * stored by segments.
@@ -222,10 +236,18 @@ public class TouchPointScheduler {
 		carm = new double[numSegments][weeks];
 		
 		/*
-		 * The number of hits per agent is used to know if an agent
-		 * has been hit before or not.
+		 * Sampling pools are used to select candidates without 
+		 * replacement and to know if an agent has been hit before or not.
 		 */
-		hitsPerAgent = new int[numAgents];
+		int[][] agentsBySegment = segments.getAgentsBySegment();
+		segmentPool = new int[numSegments][];
+		reachedCount = new int[numSegments];
+		int maxSegmentSize = 0;
+		for (int i=0; i<numSegments; i++) {
+			segmentPool[i] = agentsBySegment[i].clone();
+			maxSegmentSize = Math.max(maxSegmentSize, segmentPool[i].length);
+		}
+		candidates = new int[maxSegmentSize];
 	}
 	
 	/**
@@ -267,9 +289,13 @@ public class TouchPointScheduler {
 			}
 			
 			agentsReached[i].clear();
+			
+			//Pools are restored so every plan is sampled the same way.
+			System.arraycopy(segments.getAgentsBySegment()[i], 0, 
+					segmentPool[i], 0, segmentPool[i].length);
+			reachedCount[i] = 0;
 		}
 		schedule = new byte[numAgents][weeks];
-		hitsPerAgent = new int[numAgents];
 	}
 	
 	
@@ -446,17 +472,15 @@ public class TouchPointScheduler {
 					 * Randomly select the candidates for the touch point hits, the candidate set
 					 * will be between 1 and maxcandidates.
 					 */
-					TIntHashSet candidates = selectCandidates(
-						maxcandidates, i, j, segments, random
+					int numCandidates = selectCandidates(
+						maxcandidates, i, j, random
 					);
 									
 					/*
-					 * Touch point hits are distributed randomly between the selected agents. The
-					 * distribution is return as a Map<AgentID,NumberOfHits>. 
-					 * 
-					 * Candidates are passed as an array.
+					 * Touch point hits are distributed randomly between the selected agents, 
+					 * stored at the candidates buffer.
 					 */
-					scheduleHitsBetweenCandidates(candidates.toArray(),
+					scheduleHitsBetweenCandidates(numCandidates,
 							totalhits, random,j);
 				}
 			}
@@ -495,126 +519,148 @@ public class TouchPointScheduler {
 	 * Distributes the given hits between the selected candidates, scheduling
 	 * it at a random day of the given week.
 	 * 
-	 * Every candidate will receive at least one hit.
+	 * Every candidate will receive at least one hit. The remaining hits are
+	 * distributed uniformly (multinomial distribution) using one binomial 
+	 * draw by candidate instead of one draw by hit.
 	 * 
-	 * @param candidates - The array containing the id of each candidate.
+	 * @param numCandidates - The number of candidates stored at the buffer.
 	 * @param totalhits - The hits that will be distributed between the candidates.
 	 * @param randomizer - The randomizer to be used in the distribution.
 	 * @param step - The week considered at this step of the simulation. 
 	 */
 	private void scheduleHitsBetweenCandidates(
-			int[] candidates, 
+			int numCandidates, 
 			int totalhits,
 			Randomizer randomizer, 
 			int step) 
 	{
 		//Ensure every candidate is hit one time at least
 		// WARNING: If this part changes, the use of "agentsReached"
-		// in the getRandomCandidateFromSegment method must change as well
-		for (int i=0; i<candidates.length; i++) {
+		// in the selectCandidates method must change as well
+		for (int i=0; i<numCandidates; i++) {
 			schedule[candidates[i]][step]++;
 		}
 		
-		int hitsleft=totalhits-candidates.length;
+		int hitsleft=totalhits-numCandidates;
 		/*
-		 * Once every agent received one hit, the rest of
-		 * the hits will be distributed randomly among all
-		 * the candidates.
-		 * 
+		 * Once every agent received one hit, the rest of the hits are
+		 * distributed among all the candidates: the hits of each candidate
+		 * follow a binomial distribution conditioned to the hits already
+		 * assigned to the previous ones.
 		 */
-		for (int i=0; i<hitsleft; i++) {
-			int random = randomizer.nextInt(candidates.length);
-			int selection = candidates[random];
-			hitsPerAgent[selection]++;
-
-			schedule[selection][step]++;
+		for (int i=0; i<numCandidates && hitsleft>0; i++) {
+			int remaining = numCandidates - i;
+			int hits;
+			if(remaining == 1) {
+				hits = hitsleft;
+			} else {
+				hits = RandomizerUtils.computeBinomialInversion(
+						hitsleft, 1.0 / remaining, randomizer);
+			}
+			schedule[candidates[i]][step] += hits;
+			hitsleft -= hits;
 		}
 	}
 	
 	/**
-	 * Randomly selects the candidates. A HashSet is used for ensure no candidate
-	 * is repeated.
+	 * Randomly selects the candidates without replacement, storing them at 
+	 * the candidates buffer, while preserving the reach boundaries.
+	 * 
+	 * The number of candidates not reached before is drawn as if the 
+	 * candidates were sampled uniformly from the whole segment. New agents 
+	 * are only accepted while they do not exceed the current reach maximum,
+	 * the rest of the candidates are taken from the agents already reached.
+	 * Both groups are sampled using partial Fisher-Yates shuffles over the 
+	 * segment pool, so no candidate is ever repeated nor rejected.
 	 * 
 	 * @param numCandidates - The maximum number of candidates, that will be used 
 	 * as an upper bound.
 	 * @param segment - The id of the segment where the candidates will belong to. 
 	 * @param week - The number of the week when the selection is done. Its needed
 	 * for ensuring the reach boundaries are respected.
-	 * @param segments - The segments that contains the agents.
 	 * @param randomizer - The randomizer to be used in the selection.
-	 * @return the candidates selected gathered into a set, ensuring one agent
-	 * will only appear once as a candidate.
+	 * @return the number of candidates selected.
 	 */
-	private TIntHashSet selectCandidates(
+	private int selectCandidates(
 			int numCandidates, 
 			int segment, 
 			int week,
-			ClientSegments segments, 
 			Randomizer randomizer)
 	{
-		TIntHashSet candidates = new TIntHashSet(numCandidates);
+		final int[] pool = segmentPool[segment];
+		final int size = pool.length;
+		final int reached = reachedCount[segment];
+		final int total = Math.min(numCandidates, size);
+		
 		/*
-		 * The selection is done repeatedly calling for a random candidate. 
+		 * Number of not reached agents among the candidates, following 
+		 * a hypergeometric distribution.
 		 */
-		for (int i=0; i<numCandidates; i++) {
-			int candidate = getRandomCandidateFromSegment(
-				segment, week, segments, randomizer
-			);
-			candidates.add(candidate);
-		}		
+		int drawnNew = 0;
+		int left = size;
+		int leftNew = size - reached;
+		for (int k=0; k<total && leftNew>0; k++) {
+			if(randomizer.nextInt(left) < leftNew) {
+				drawnNew++;
+				leftNew--;
+			}
+			left--;
+		}
 		
-		return candidates;
-	}
-	
-	/**
-	 *  Randomly selects a valid candidate for receiving the touch point hits,
-	 *  preserving the reach boundaries.
-	 *  
-	 * @param segment - The segment id where the selected agents will belong to.
-	 * @param week - The week that its being planned. This parameter is needed to
-	 * ensure reach boundaries.
-	 * @param randomizer - The randomizer to be used in the selection.
-	 * @return The identifier of the agent selected. 
-	 */
-	private int getRandomCandidateFromSegment(
-			int segment, 
-			int week, 
-			ClientSegments segments, 
-			Randomizer randomizer) 
-	{
-		int agentId;
 		/*
-		 * First, if reach boundaries are checked.
-		 *
-		 * If another agent hit would break restrictions, 
-		 * a previously hit one is chosen. 
+		 * Reach boundaries are checked: if another agent hit would break 
+		 * restrictions, a previously hit one is chosen instead.
 		 */
-		if(actualRM[segment]+reachIncrementBySegment[segment]>carm[segment][week]) {
-			int reached = agentsReached[segment].size();
-			int random = randomizer.nextInt(reached);
-			
-			agentId = agentsReached[segment].getQuick(random);
-		} else {
-			
-			//Otherwise, choose a random agent from segment
-			int[] agentsAtSegment = segments.getAgentsBySegment()[segment];			
-			int random = randomizer.nextInt(agentsAtSegment.length);
-			
-			agentId = agentsAtSegment[random];
-			
-			//If the agent wasn't hit before, add it.
-			if(hitsPerAgent[agentId] == 0) {
-				agentsReached[segment].add(agentId);
-				hitsPerAgent[agentId]++;
-				actualRM[segment]+=reachIncrementBySegment[segment];
-			}
-			
-			if(debug) {
-				this.agentAtSegment[agentId]=(byte)segment;
-				actualRMByStep[segment][week] = actualRM[segment];
+		int newAgents = 0;
+		double reach = actualRM[segment];
+		final double increment = reachIncrementBySegment[segment];
+		final double maximum = carm[segment][week];
+		while (newAgents < drawnNew && reach + increment <= maximum) {
+			reach += increment;
+			newAgents++;
+		}
+		actualRM[segment] = reach;
+		
+		final int reachedAgents = Math.min(total - newAgents, reached);
+		
+		int count = 0;
+		
+		//Candidates previously reached.
+		for (int k=0; k<reachedAgents; k++) {
+			int random = k + randomizer.nextInt(reached - k);
+			swap(pool, k, random);
+			candidates[count++] = pool[k];
+		}
+		
+		//New candidates are moved to the reached prefix of the pool.
+		for (int k=reached; k<reached+newAgents; k++) {
+			int random = k + randomizer.nextInt(size - k);
+			swap(pool, k, random);
+			candidates[count++] = pool[k];
+			agentsReached[segment].add(pool[k]);
+		}
+		reachedCount[segment] = reached + newAgents;
+		
+		if(debug) {
+			for (int k=0; k<count; k++) {
+				this.agentAtSegment[candidates[k]]=(byte)segment;
 			}
+			actualRMByStep[segment][week] = actualRM[segment];
 		}
 		
-		return agentId;
+		return count;
+	}
+	
+	/**
+	 * Swaps two positions of the given array.
+	 * 
+	 * @param array - an int array.
+	 * @param i - first position.
+	 * @param j - second position.
+	 */
+	private static void swap(int[] array, int i, int j) {
+		int temp = array[i];
+		array[i] = array[j];
+		array[j] = temp;
 	}
 }
@@ -349,7 +349,7 @@ public class PostReadOnline {
 			);
 		
 		double currentValue = 
-				customer.getPerceptions()[brandId][postedAttributeId];
+				customer.getAttributePerceptionByBrand(brandId, postedAttributeId);
 		
 		double perceptionChange = 
 				(postedAttributeValue-currentValue)
@@ -226,7 +226,7 @@ public class ProductUsage extends AbstractTouchPoint {
 			}
 				
 			double productValue = product.attributeValues[i][step];
-			double currentValue = customer.getPerceptions()[brandId][i];
+			double currentValue = customer.getAttributePerceptionByBrand(brandId, i);
 
 			double perceptionChange = (productValue-currentValue) 
 					* perceptionSpeed[segmentId];
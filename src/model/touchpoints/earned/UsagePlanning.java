@@ -0,0 +1,310 @@
+package model.touchpoints.earned;
+
+import model.Model;
+import util.random.CopyableRandomizer;
+import util.random.Randomizer;
+
+/**
+ * UsagePlanning stores when an agent uses the products he owns. Instead of
+ * allocating the whole plan when the agent gets his first brand, the plan
+ * keeps a copy of the randomizer state and generates the usage events on
+ * demand, storing only the next one.
+ *
+ * The model randomizer consumes the same values it would consume while
+ * generating the whole plan, so simulations are not modified.
+ *
+ * @author imoya
+ *
+ */
+public abstract class UsagePlanning {
+
+	/**
+	 * Number of simulation steps covered by this plan.
+	 */
+	protected final int numberOfSteps;
+
+	/**
+	 * Days grouped by every simulation step.
+	 */
+	protected final double stepIncrement;
+
+	/**
+	 * Total number of simulation days.
+	 */
+	protected final int simulationDays;
+
+	/**
+	 * Creates a new planning covering the given days.
+	 *
+	 * @param simulationDays - total number of simulation days.
+	 * @param stepsByWeek - number of steps for every week for current
+	 * simulation.
+	 */
+	protected UsagePlanning(int simulationDays, int stepsByWeek) {
+		this.simulationDays = simulationDays;
+		this.stepIncrement = Model.DAYS_OF_WEEK/(double)stepsByWeek;
+		this.numberOfSteps = (int) (simulationDays/stepIncrement);
+	}
+
+	/**
+	 * Creates an usage planning based on the start step and the
+	 * frequency of use, as ProductUsage.generateUsagePlanning does.
+	 * The planning is generated on demand when the randomizer state
+	 * can be copied.
+	 *
+	 * @param frecuencyOfUse - frequency of use for this agent's
+	 * segment.
+	 * @param randomizer - current randomizer for the simulation.
+	 * @param startStep - initial step when product experience is
+	 * being planned.
+	 * @param simulationStepLength - total number of simulation steps.
+	 * @param stepsByWeek - number of steps for every week for current
+	 * simulation.
+	 * @return the use planning.
+	 */
+	public static UsagePlanning create(
+			int frecuencyOfUse,
+			Randomizer randomizer,
+			int startStep,
+			int simulationStepLength,
+			int stepsByWeek
+		) {
+		if(frecuencyOfUse<=ProductUsage.DAILY_FREQUENCY) {
+			return new Daily(simulationStepLength, stepsByWeek);
+		}
+		if(randomizer instanceof CopyableRandomizer) {
+			return new Lazy(
+				frecuencyOfUse,
+				(CopyableRandomizer) randomizer,
+				startStep,
+				simulationStepLength,
+				stepsByWeek
+			);
+		}
+		return new Materialized(
+			ProductUsage.generateUsagePlanning(
+				frecuencyOfUse,
+				randomizer,
+				startStep,
+				simulationStepLength,
+				stepsByWeek
+			),
+			simulationStepLength,
+			stepsByWeek
+		);
+	}
+
+	/**
+	 * Returns the number of product uses at given step. Steps are expected
+	 * in ascending order, as the simulation advances.
+	 *
+	 * @param step - current simulation step.
+	 * @return the number of product uses at given step.
+	 */
+	public abstract byte usesAt(int step);
+
+	/**
+	 * Returns the whole planning as generated by
+	 * ProductUsage.generateUsagePlanning.
+	 *
+	 * @return the use planning as a byte array.
+	 */
+	public byte[] toArray() {
+		byte[] usePlanning = new byte[numberOfSteps];
+		for (int i=0; i<numberOfSteps; i++) {
+			usePlanning[i] = usesAt(i);
+		}
+		return usePlanning;
+	}
+
+	/**
+	 * Returns the first day grouped by given step.
+	 *
+	 * @param step - simulation step.
+	 * @return the first day grouped by given step.
+	 */
+	protected final int begin(int step) {
+		return (int)(step*stepIncrement);
+	}
+
+	/**
+	 * Returns the day following the last one grouped by given step.
+	 *
+	 * @param step - simulation step.
+	 * @return the day following the last one grouped by given step.
+	 */
+	protected final int end(int step) {
+		return Math.min(
+			begin(step) + (int)stepIncrement,
+			simulationDays
+		);
+	}
+
+	// ########################################################################
+	// Implementations
+	// ########################################################################
+
+	/**
+	 * Daily usage: the product is used every day.
+	 */
+	private static final class Daily extends UsagePlanning {
+
+		private Daily(int simulationDays, int stepsByWeek) {
+			super(simulationDays, stepsByWeek);
+		}
+
+		@Override
+		public byte usesAt(int step) {
+			if(step<0 || step>=numberOfSteps) {
+				return 0;
+			}
+			return (byte) (end(step)-begin(step));
+		}
+	}
+
+	/**
+	 * Planning previously generated as a byte array.
+	 */
+	private static final class Materialized extends UsagePlanning {
+
+		private final byte[] usePlanning;
+
+		private Materialized(
+				byte[] usePlanning,
+				int simulationDays,
+				int stepsByWeek
+			) {
+			super(simulationDays, stepsByWeek);
+			this.usePlanning = usePlanning;
+		}
+
+		@Override
+		public byte usesAt(int step) {
+			if(step<0 || step>=usePlanning.length) {
+				return 0;
+			}
+			return usePlanning[step];
+		}
+
+		@Override
+		public byte[] toArray() {
+			return usePlanning.clone();
+		}
+	}
+
+	/**
+	 * Planning generated on demand. Every frequency period contains a
+	 * single usage event at a random day. Only the next event is stored,
+	 * generated using a copy of the model randomizer.
+	 */
+	private static final class Lazy extends UsagePlanning {
+
+		/**
+		 * Value stored as next event when every event was generated.
+		 */
+		private static final int NO_EVENT = Integer.MAX_VALUE;
+
+		private final int frequency;
+
+		private final int startStep;
+
+		/**
+		 * Randomizer state when the planning was created.
+		 */
+		private final CopyableRandomizer origin;
+
+		/**
+		 * Randomizer generating next events.
+		 */
+		private CopyableRandomizer cursor;
+
+		/**
+		 * First day of the next frequency period.
+		 */
+		private int periodStart;
+
+		/**
+		 * Day of the next usage event.
+		 */
+		private int nextEvent;
+
+		/**
+		 * Last step requested and the uses returned for it.
+		 */
+		private int lastStep;
+		private byte lastUses;
+
+		private Lazy(
+				int frequency,
+				CopyableRandomizer randomizer,
+				int startStep,
+				int simulationDays,
+				int stepsByWeek
+			) {
+			super(simulationDays, stepsByWeek);
+			this.frequency = frequency;
+			this.startStep = startStep;
+			this.origin = randomizer.copy();
+			rewind();
+
+			/*
+			 * The model randomizer advances as if the whole planning
+			 * was generated.
+			 */
+			for (int p=startStep; p<simulationDays; p+=frequency) {
+				randomizer.nextInt(frequency);
+			}
+		}
+
+		/**
+		 * Restarts event generation from the first frequency period.
+		 */
+		private void rewind() {
+			cursor = origin.copy();
+			periodStart = startStep;
+			lastStep = -1;
+			lastUses = 0;
+			advance();
+		}
+
+		/**
+		 * Generates the usage event of the next frequency period.
+		 */
+		private void advance() {
+			if(periodStart<simulationDays) {
+				nextEvent = periodStart + cursor.nextInt(frequency);
+				periodStart += frequency;
+			} else {
+				nextEvent = NO_EVENT;
+			}
+		}
+
+		@Override
+		public byte usesAt(int step) {
+			if(step<0 || step>=numberOfSteps) {
+				return 0;
+			}
+			if(step==lastStep) {
+				return lastUses;
+			}
+			if(step<lastStep) {
+				rewind();
+			}
+			int begin = begin(step);
+			int end = end(step);
+
+			// Events at days not grouped by any requested step
+			while(nextEvent<begin) {
+				advance();
+			}
+			byte uses = 0;
+			while(nextEvent<end) {
+				uses++;
+				advance();
+			}
+			lastStep = step;
+			lastUses = uses;
+			return uses;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package test;
+
+import java.lang.management.ManagementFactory;
+
+import model.decisionmaking.DecisionMaking;
+import util.exception.simulation.NoAwarenessException;
+import util.random.Randomizer;
+import util.random.RandomizerFactory;
+
+/**
+ * Micro-benchmark for the decision making heuristics. For every heuristic,
+ * a population of agents with random perceptions and awareness buys
+ * repeatedly, reporting the time and the heap allocated by decision.
+ *
+ * The checksum of the chosen brands only depends on the seed, so it can be
+ * compared between versions of the decision making module.
+ *
+ * @author imoya
+ *
+ */
+public class DecisionMakingBenchmark {
+	private static final int NR_OF_HEURISTICS = 4;
+	private static final String[] HEURISTIC_NAMES
+	= {"utility_maximization", "majority_rule", "elimination_by_aspects", "satisficing"};
+
+	private static final int NR_AGENTS = 1000;
+	private static final int NR_BRANDS = 8;
+	private static final int NR_ATTRIBUTES = 6;
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int MEASURED_ROUNDS = 1000;
+	private static final long SEED = 15485863;
+
+	private final double[][] drivers;
+	private final double[][][] perceptions;
+	private final boolean[][] awareness;
+
+	// ########################################################################
+	// Constructors
+	// ########################################################################
+
+	public DecisionMakingBenchmark() {
+		Randomizer r = RandomizerFactory.createDefaultRandomizer(SEED);
+
+		drivers = new double[1][NR_ATTRIBUTES];
+		double sum = 0;
+		for(int i=0; i<NR_ATTRIBUTES; i++) {
+			drivers[0][i] = r.nextDouble() + 0.1;
+			sum += drivers[0][i];
+		}
+		for(int i=0; i<NR_ATTRIBUTES; i++) {
+			drivers[0][i] /= sum;
+		}
+
+		perceptions = new double[NR_AGENTS][NR_BRANDS][NR_ATTRIBUTES];
+		awareness = new boolean[NR_AGENTS][NR_BRANDS];
+		for(int i=0; i<NR_AGENTS; i++) {
+			for(int j=0; j<NR_BRANDS; j++) {
+				for(int k=0; k<NR_ATTRIBUTES; k++) {
+					perceptions[i][j][k] = r.nextDouble() * 10.0;
+				}
+				awareness[i][j] = r.nextBoolean();
+			}
+			awareness[i][r.nextInt(NR_BRANDS)] = true;
+		}
+	}
+
+	// ########################################################################
+	// Methods/Functions
+	// ########################################################################
+
+	private long decide(DecisionMaking dm, int rounds) throws NoAwarenessException {
+		long checksum = 0;
+		for(int i=0; i<rounds; i++) {
+			for(int j=0; j<NR_AGENTS; j++) {
+				checksum = checksum * 31 + dm.buyOneBrand(
+						awareness[j], perceptions[j], 0);
+			}
+		}
+		return checksum;
+	}
+
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean =
+				ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private void run() throws NoAwarenessException {
+		Randomizer r = RandomizerFactory.createDefaultRandomizer(SEED);
+
+		for(int h=0; h<NR_OF_HEURISTICS; h++) {
+			double[] heuristicSelectionProb = new double[NR_OF_HEURISTICS];
+			heuristicSelectionProb[h] = 1.0;
+
+			DecisionMaking dm = new DecisionMaking(
+					r, drivers, 0.5, 0.5, 0.5, 0.5, NR_ATTRIBUTES, NR_BRANDS);
+			dm.setHeuristicSelectionProb(heuristicSelectionProb);
+
+			decide(dm, WARMUP_ROUNDS);
+			r.setSeed(SEED);
+
+			long bytes = allocatedBytes();
+			long time = System.nanoTime();
+			long checksum = decide(dm, MEASURED_ROUNDS);
+			time = System.nanoTime() - time;
+			bytes = allocatedBytes() - bytes;
+
+			double decisions = (double) MEASURED_ROUNDS * NR_AGENTS;
+			System.out.println(String.format(
+				"%-24s %8.1f ns/decision %8.1f bytes/decision checksum %d",
+				HEURISTIC_NAMES[h],
+				time / decisions,
+				bytes / decisions,
+				checksum
+			));
+		}
+	}
+
+	public static void main(String[] args) throws NoAwarenessException {
+		new DecisionMakingBenchmark().run();
+	}
+}
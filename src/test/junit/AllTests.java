@@ -9,9 +9,21 @@ import org.junit.runners.Suite.SuiteClasses;
 		TestDecisionMaking.class, 
 		TestProductUsage.class,
 		TestSalesScheduler.class, 
+		TestBatchedSales.class, 
 		TestTPScheduler.class , 
 		TestDistributedPerceptions.class ,
-		TestFunctions.class
+		TestFunctions.class ,
+		TestCompactAgents.class ,
+		TestModelReuse.class ,
+		TestModelOverlay.class ,
+		TestParallelScheduling.class ,
+		TestColumnarStatistics.class ,
+		TestModelDefinitionFile.class ,
+		TestKDTree.class ,
+		TestDesignSamplers.class ,
+		TestPopulationCache.class ,
+		TestTrajectoryPruning.class ,
+		TestMultiFidelitySchedule.class
 	})
 public class AllTests {
 
@@ -0,0 +1,151 @@
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import model.sales.SalesScheduler;
+import util.exception.sales.SalesScheduleError;
+import util.functions.Functions;
+import util.functions.MatrixFunctions;
+import util.random.RandomizerUtils;
+
+/**
+ * Checks the batched sales assignment of SalesScheduler: the sales
+ * scheduled must match the seasonality, decision cycles must be respected
+ * and every agent must buy at most once at every step.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestBatchedSales {
+
+	private static final int ITERATIONS = 3;
+
+	private final String scenario;
+	private final int iteration;
+
+	private final double ratio;
+	private final double[] seasonality;
+
+	private final Model m;
+	private final SalesScheduler ss;
+
+	public TestBatchedSales(
+			String path,
+			Integer iteration,
+			Boolean weekly
+			) throws SalesScheduleError {
+		scenario = path;
+		this.iteration = iteration;
+
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(path));
+		if(!weekly) {
+			md.setStepsForWeek(Model.DAYS_OF_WEEK);
+		}
+		md.setBatchedSales(true);
+		ratio = md.getAgentsRatio();
+		seasonality = md.getSeasonality();
+
+		ModelBuilder mb = md.createBuilder();
+		ModelBean bean = mb.createBean();
+		m = mb.build(bean, RandomizerUtils.PRIME_SEEDS[iteration]);
+
+		ss = m.getSalesScheduler();
+		ss.enableTest();
+		m.enableAdditionalStatistics(true, false, false, false, false, false);
+		try {
+			m.runSilent();
+		} catch (SalesScheduleError e) {
+			fail("Scheduling error at " + scenario + ": " + e.getMessage());
+		}
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+
+		File directory = new File("./test/sales");
+
+		for (File f:directory.listFiles(new FileFilter() {
+				@Override
+				public boolean accept(File pathname) {
+					return pathname.getName().endsWith(".zio");
+				}
+			})) {
+			for (int i=0; i<ITERATIONS; i++) {
+				list.add(new Object[]{f.getPath(), i, Boolean.FALSE});
+				list.add(new Object[]{f.getPath(), i, Boolean.TRUE});
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * The number of sales scheduled must match the resulting sales from
+	 * the agents / population relationship.
+	 */
+	@Test
+	public void testTotalSales() {
+		double totalSales = 0;
+		for (double sales : seasonality) {
+			totalSales += sales;
+		}
+
+		int totalSegmentSales = MatrixFunctions.addMatrix(
+				m.getStatistics().computeScaledSalesByBrandBySegment());
+
+		assertTrue(scenario + " with seed "
+				+ RandomizerUtils.PRIME_SEEDS[iteration],
+				Functions.equals(totalSales, totalSegmentSales, ratio*0.5)
+				&& ss.getCarryOverSales()<=ratio*0.5);
+	}
+
+	/**
+	 * Agents must not buy again until their decision cycle is over, and
+	 * every sale of a step must be carried out by a different agent.
+	 */
+	@Test
+	public void testSchedule() {
+		BitSet[] schedule = ss.getSalesHistoryRecord();
+		int decisionCycle = ss.getDecisionCycle();
+		int[][][] sales = m.getStatistics()
+				.referenceToSalesByBrandBySegmentByStep();
+
+		for (int i=0; i<schedule.length; i++) {
+			int salesAtStep = 0;
+			for (int b=0; b<sales.length; b++) {
+				for (int s=0; s<sales[b].length; s++) {
+					salesAtStep += sales[b][s][i];
+				}
+			}
+			int buyers = schedule[i] == null ? 0 : schedule[i].cardinality();
+			assertEquals("Buyers at step " + i, salesAtStep, buyers);
+
+			for (int j=i+1; j<schedule.length && j-i<decisionCycle; j++) {
+				if(schedule[i] != null && schedule[j] != null) {
+					assertTrue("Agent buying while disabled at step " + j,
+							!schedule[i].intersects(schedule[j]));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import util.exception.sales.SalesScheduleError;
+import util.random.RandomizerUtils;
+import util.statistics.ColumnarStatisticsFile;
+import util.statistics.MonteCarloStatistics;
+import util.statistics.Statistics;
+
+/**
+ * Checks that the statistics written to columnar files, compressed or
+ * not, are read back without changes.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestColumnarStatistics {
+
+	private static final String PATH = "./test/parallelized/DH_TEST.zio";
+	private static final int MC = 2;
+
+	private static MonteCarloStatistics simulated;
+	private static final ArrayList<File> files = new ArrayList<File>();
+
+	private final boolean compress;
+
+	public TestColumnarStatistics(Boolean compress) {
+		this.compress = compress;
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+		list.add(new Object[]{Boolean.FALSE});
+		list.add(new Object[]{Boolean.TRUE});
+		return list;
+	}
+
+	/**
+	 * Simulates the test model recording every statistic.
+	 */
+	@BeforeClass
+	public static void simulate() throws SalesScheduleError {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(PATH));
+		ModelBuilder mb = md.createBuilder();
+		ModelBean bean = mb.createBean();
+
+		simulated = new MonteCarloStatistics(
+				MC,
+				md.getNumberOfSegments(),
+				md.getNumberOfBrands(),
+				md.getNumberOfAttributes(),
+				md.getNumberOfSteps(),
+				md.getStepsForWeek()
+			);
+		for (int mc=0; mc<MC; mc++) {
+			Model m = mb.build(bean, RandomizerUtils.PRIME_SEEDS[mc]);
+			m.enableAdditionalStatistics(true, true, true, true, true, true);
+			m.enableWoMReports();
+			m.runSilent();
+			simulated.saveStatistics(m.getStatistics(), mc);
+		}
+	}
+
+	@AfterClass
+	public static void deleteFiles() {
+		for (File file : files) {
+			file.delete();
+		}
+	}
+
+	private String write(MonteCarloStatistics mcStatistics) throws IOException {
+		File file = File.createTempFile("statistics",
+				ColumnarStatisticsFile.EXTENSION);
+		files.add(file);
+		ColumnarStatisticsFile.write(mcStatistics, file.getPath(), compress);
+		return file.getPath();
+	}
+
+	/**
+	 * Statistics read from a file must be equal to the written ones, and
+	 * must be written again to the same columns.
+	 */
+	@Test
+	public void roundTripTest() throws IOException {
+		String first = write(simulated);
+
+		MonteCarloStatistics read;
+		try (ColumnarStatisticsFile file = ColumnarStatisticsFile.open(first)) {
+			read = file.toMonteCarloStatistics();
+		}
+		assertEquals(MC, read.getNumberOfMonteCarloRepetitions());
+
+		for (int mc=0; mc<MC; mc++) {
+			Statistics expected = simulated.getStatistics()[mc];
+			Statistics actual = read.getStatistics()[mc];
+
+			int[][][] expectedSales =
+					expected.referenceToSalesByBrandBySegmentByStep();
+			int[][][] actualSales =
+					actual.referenceToSalesByBrandBySegmentByStep();
+			for (int b=0; b<expectedSales.length; b++) {
+				for (int s=0; s<expectedSales[b].length; s++) {
+					assertArrayEquals(expectedSales[b][s], actualSales[b][s]);
+				}
+			}
+
+			double[][] expectedAwareness = expected.getAwarenessByBrandByStep();
+			double[][] actualAwareness = actual.getAwarenessByBrandByStep();
+			for (int b=0; b<expectedAwareness.length; b++) {
+				assertArrayEquals(expectedAwareness[b], actualAwareness[b], 0.0);
+			}
+
+			double[][][] expectedPerceptions =
+					expected.getPerceptionsByAttByBrandByStep();
+			double[][][] actualPerceptions =
+					actual.getPerceptionsByAttByBrandByStep();
+			for (int a=0; a<expectedPerceptions.length; a++) {
+				for (int b=0; b<expectedPerceptions[a].length; b++) {
+					assertArrayEquals(expectedPerceptions[a][b],
+							actualPerceptions[a][b], 0.0);
+				}
+			}
+		}
+
+		// Every column, including segment details, WoM and contributions
+		String second = write(read);
+		try (
+			ColumnarStatisticsFile expected = ColumnarStatisticsFile.open(first);
+			ColumnarStatisticsFile actual = ColumnarStatisticsFile.open(second)
+		) {
+			String[] names = expected.getColumnNames();
+			assertTrue(names.length > 1);
+			assertArrayEquals(names, actual.getColumnNames());
+			for (String name : names) {
+				assertArrayEquals(name, expected.getShape(name),
+						actual.getShape(name));
+				assertArrayEquals(name, expected.getValues(name),
+						actual.getValues(name), 0.0);
+			}
+		}
+	}
+}
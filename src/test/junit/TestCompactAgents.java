@@ -0,0 +1,144 @@
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import model.customer.Agent;
+import model.customer.CompactAgent;
+import util.exception.sales.SalesScheduleError;
+import util.random.RandomizerUtils;
+
+/**
+ * Checks that the memory-compact agent mode reproduces the default agents
+ * within the documented numeric tolerance.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestCompactAgents {
+
+	/**
+	 * Maximum error allowed when storing a single perception as float.
+	 */
+	private static final double STORE_TOLERANCE = 5e-7;
+
+	/**
+	 * Maximum error allowed for averaged perceptions after a full run.
+	 * Compact agents round every perception to float when it is stored
+	 * (e.g. after decay or a touch point hit), each store erring up to
+	 * STORE_TOLERANCE, and the next update starts from the rounded value.
+	 * No operation is reordered, so errors only add up: 1e-4 allows about
+	 * 200 roundings by perception, four by step over a simulated year, the
+	 * bound documented by CompactAgent. These scenarios stay below 3e-6.
+	 */
+	private static final double RUN_TOLERANCE = 1e-4;
+
+	private final String path;
+	private final int iteration;
+
+	public TestCompactAgents(String path, Integer iteration) {
+		this.path = path;
+		this.iteration = iteration;
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		final int ITERATIONS=3;
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+
+		String path = "./test/productusage/BaseLine-2Segments.zio";
+		for (int i=0; i<ITERATIONS; i++) {
+			list.add(new Object[]{path, i});
+		}
+		return list;
+	}
+
+	private Model buildModel(boolean compact) {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(path));
+		md.setCompactAgents(compact);
+
+		ModelBuilder mb = md.createBuilder();
+		ModelBean bean = mb.createBean();
+		Model m = mb.build(bean, RandomizerUtils.PRIME_SEEDS[iteration]);
+		m.enableAdditionalStatistics(true, true, true, false, false, false);
+		return m;
+	}
+
+	/**
+	 * Initial agent state must be equal (awareness, inventory) or within
+	 * float rounding (perceptions).
+	 */
+	@Test
+	public void initialStateTest() {
+		Model reference = buildModel(false);
+		Model compact = buildModel(true);
+
+		Agent[] referenceAgents = reference.getAgents();
+		Agent[] compactAgents = compact.getAgents();
+
+		for (int a=0; a<referenceAgents.length; a++) {
+			assertTrue(compactAgents[a] instanceof CompactAgent);
+			assertEquals(referenceAgents[a].getAwarenessCount(),
+					compactAgents[a].getAwarenessCount());
+			for (int b=0; b<reference.getNrBrands(); b++) {
+				assertEquals(referenceAgents[a].getAwarenessOfBrand(b),
+						compactAgents[a].getAwarenessOfBrand(b));
+				assertEquals(referenceAgents[a].hasBrand()[b],
+						compactAgents[a].hasBrand()[b]);
+				for (int att=0; att<reference.getNrAttributes(); att++) {
+					assertEquals(
+						referenceAgents[a].getAttributePerceptionByBrand(b, att),
+						compactAgents[a].getAttributePerceptionByBrand(b, att),
+						STORE_TOLERANCE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Awareness is stored as bits, so it must be equal. Perceptions must
+	 * stay within the documented tolerance.
+	 */
+	@Test
+	public void simulationTest() throws SalesScheduleError {
+		Model reference = buildModel(false);
+		Model compact = buildModel(true);
+
+		reference.runSilent();
+		compact.runSilent();
+
+		double[][] referenceAwareness =
+				reference.getStatistics().getAwarenessByBrandByStep();
+		double[][] compactAwareness =
+				compact.getStatistics().getAwarenessByBrandByStep();
+		double[][][] referencePerceptions =
+				reference.getStatistics().getPerceptionsByAttByBrandByStep();
+		double[][][] compactPerceptions =
+				compact.getStatistics().getPerceptionsByAttByBrandByStep();
+
+		int lastStep = reference.getNumberOfSteps() - 1;
+		for (int b=0; b<reference.getNrBrands(); b++) {
+			assertEquals(referenceAwareness[b][lastStep],
+					compactAwareness[b][lastStep], 0.0);
+			for (int att=0; att<reference.getNrAttributes(); att++) {
+				assertEquals(referencePerceptions[att][b][lastStep],
+						compactPerceptions[att][b][lastStep], RUN_TOLERANCE);
+			}
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import calibration.design.DesignSampler;
+import calibration.design.DesignSampler.SamplerType;
+import calibration.design.LatinHypercubeSampler;
+import calibration.design.SobolSampler;
+import util.random.RandomizerFactory;
+import util.random.RandomizerFactory.RandomizerAlgorithm;
+
+/**
+ * Checks the stratification of the Latin hypercube and Sobol designs.
+ *
+ * @author imoya
+ *
+ */
+public class TestDesignSamplers {
+
+	private static final int DIMENSIONS = 6;
+	private static final long SEED = 12345;
+
+	/**
+	 * Returns the number of points by stratum of the given dimension,
+	 * dividing [0,1) into the given number of strata.
+	 */
+	private static int[] countByStratum(double[][] points, int dimension,
+			int strata) {
+		int[] counts = new int[strata];
+		for (double[] point : points) {
+			assertTrue(point[dimension] >= 0.0 && point[dimension] < 1.0);
+			counts[(int) Math.floor(point[dimension] * strata)]++;
+		}
+		return counts;
+	}
+
+	private static double[][] sample(DesignSampler sampler, int size) {
+		assertEquals(DIMENSIONS, sampler.getDimensions());
+		double[][] points = new double[size][];
+		for (int i=0; i<size; i++) {
+			points[i] = sampler.next();
+			assertEquals(DIMENSIONS, points[i].length);
+		}
+		return points;
+	}
+
+	/**
+	 * Every stratum of every dimension of a Latin hypercube contains
+	 * exactly one point.
+	 */
+	@Test
+	public void latinHypercubeStratificationTest() {
+		for (int size : new int[] {1, 7, 64, 100}) {
+			DesignSampler sampler = new LatinHypercubeSampler(DIMENSIONS, size,
+					RandomizerFactory.createRandomizer(
+						RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST, SEED));
+			double[][] points = sample(sampler, size);
+
+			for (int d=0; d<DIMENSIONS; d++) {
+				int[] counts = countByStratum(points, d, size);
+				for (int s=0; s<size; s++) {
+					assertEquals("Dimension " + d + ", stratum " + s,
+							1, counts[s]);
+				}
+			}
+
+			try {
+				sampler.next();
+				fail("Points beyond the size of the hypercube were sampled");
+			} catch (IllegalStateException e) {
+				// Expected
+			}
+		}
+	}
+
+	/**
+	 * Latin hypercubes are generated again identically from their seed.
+	 */
+	@Test
+	public void latinHypercubeReproducibilityTest() {
+		double[][] first = sample(DesignSampler.create(
+				SamplerType.LATIN_HYPERCUBE, DIMENSIONS, 50, SEED, 0), 50);
+		double[][] second = sample(DesignSampler.create(
+				SamplerType.LATIN_HYPERCUBE, DIMENSIONS, 50, SEED, 0), 50);
+		for (int i=0; i<first.length; i++) {
+			assertArrayEquals(first[i], second[i], 0.0);
+		}
+	}
+
+	/**
+	 * The first 2^m points of a Sobol sequence are a (0,m,1)-net in every
+	 * dimension: every stratum of size 2^-m contains exactly one point.
+	 * The origin, the point of the first stratum, is skipped by the
+	 * sampler.
+	 */
+	@Test
+	public void sobolStratificationTest() {
+		for (int m=1; m<=8; m++) {
+			int strata = 1 << m;
+			double[][] points = sample(new SobolSampler(DIMENSIONS, 0),
+					strata - 1);
+
+			for (int d=0; d<DIMENSIONS; d++) {
+				int[] counts = countByStratum(points, d, strata);
+				assertEquals("Dimension " + d + ", stratum 0", 0, counts[0]);
+				for (int s=1; s<strata; s++) {
+					assertEquals("Dimension " + d + ", stratum " + s,
+							1, counts[s]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The first two dimensions of the first 2^m points of a Sobol sequence
+	 * are a (0,m,2)-net: every box of area 2^-m, with sides 2^-a and
+	 * 2^-(m-a), contains exactly one point, or none for the box of the
+	 * skipped origin.
+	 */
+	@Test
+	public void sobolTwoDimensionalStratificationTest() {
+		final int m = 8;
+		double[][] points = sample(new SobolSampler(DIMENSIONS, 0),
+				(1 << m) - 1);
+
+		for (int a=0; a<=m; a++) {
+			int rows = 1 << a;
+			int columns = 1 << (m - a);
+			int[][] counts = new int[rows][columns];
+			for (double[] point : points) {
+				counts[(int) (point[0] * rows)][(int) (point[1] * columns)]++;
+			}
+			for (int r=0; r<rows; r++) {
+				for (int c=0; c<columns; c++) {
+					assertEquals("Box " + r + "," + c + " of " + rows + "x" + columns,
+							(r == 0 && c == 0) ? 0 : 1, counts[r][c]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sobol designs of consecutive indexes use consecutive blocks of the
+	 * sequence.
+	 */
+	@Test
+	public void sobolBlocksTest() {
+		final int size = 16;
+		double[][] sequence = sample(DesignSampler.create(
+				SamplerType.SOBOL, DIMENSIONS, size, SEED, 0), 3 * size);
+		for (int index=0; index<3; index++) {
+			double[][] block = sample(DesignSampler.create(
+					SamplerType.SOBOL, DIMENSIONS, size, SEED, index), size);
+			for (int i=0; i<size; i++) {
+				assertArrayEquals(sequence[index * size + i], block[i], 0.0);
+			}
+		}
+	}
+}
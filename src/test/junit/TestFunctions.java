@@ -1,5 +1,7 @@
 package test.junit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -49,4 +51,37 @@ public class TestFunctions {
 		
 	}
 
+	@Test
+	public void testBinomialInversion() {
+		final int SAMPLES = 20000;
+		int[][] trials = {{10, 2}, {100, 7}, {1000, 3}, {5000, 2}};
+		
+		for (int it=0; it<NUM_ITERATIONS; it++) {
+			Randomizer random = RandomizerFactory.createRandomizer(
+					RandomizerAlgorithm.XOR_SHIFT_128_PLUS_FAST, 
+					RandomizerUtils.PRIME_SEEDS[it]
+				);
+			
+			for (int[] trial : trials) {
+				int n = trial[0];
+				double p = 1.0 / trial[1];
+				double sum = 0;
+				double sumSq = 0;
+				for (int s=0; s<SAMPLES; s++) {
+					int x = RandomizerUtils.computeBinomialInversion(n, p, random);
+					assertTrue(x >= 0 && x <= n);
+					sum += x;
+					sumSq += (double) x * x;
+				}
+				double mean = sum / SAMPLES;
+				double variance = sumSq / SAMPLES - mean * mean;
+				double expectedVariance = n * p * (1 - p);
+				
+				//Tolerance of 6 standard errors of the sample mean.
+				assertEquals(n * p, mean, 6 * Math.sqrt(expectedVariance / SAMPLES));
+				assertEquals(expectedVariance, variance, 0.1 * expectedVariance);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,173 @@
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import calibration.ecj.multimodal.KDTree;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Checks the radius and nearest neighbour searches of KDTree against a
+ * brute force search, before and after removing points.
+ *
+ * @author imoya
+ *
+ */
+public class TestKDTree {
+
+	private static final int POINTS = 500;
+	private static final int QUERIES = 200;
+	private static final int DIMENSIONS = 3;
+	private static final double RADIUS = 0.2;
+
+	private final Random random = new Random(42);
+
+	private double[] randomPoint() {
+		double[] point = new double[DIMENSIONS];
+		for (int d=0; d<DIMENSIONS; d++) {
+			// Coarse coordinates, so there are equal coordinates and ties
+			point[d] = Math.floor(random.nextDouble() * 20) / 20;
+		}
+		return point;
+	}
+
+	/**
+	 * Squared distances are compared as the tree does, since points at
+	 * different squared distances may be at the same rounded distance.
+	 */
+	private static double squaredDistance(double[] a, double[] b) {
+		double sum = 0.0;
+		for (int i=0; i<a.length; i++) {
+			double diff = a[i] - b[i];
+			sum += diff * diff;
+		}
+		return sum;
+	}
+
+	private static TIntArrayList bruteForceRadius(double[][] points,
+			boolean[] live, double[] query, double radius) {
+		TIntArrayList result = new TIntArrayList();
+		for (int i=0; i<points.length; i++) {
+			if(live[i] && squaredDistance(query, points[i]) <= radius * radius) {
+				result.add(i);
+			}
+		}
+		return result;
+	}
+
+	private static int bruteForceNearest(double[][] points, boolean[] live,
+			double[] query, int excludedId) {
+		int best = -1;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int i=0; i<points.length; i++) {
+			if(live[i] && i != excludedId) {
+				double distance = squaredDistance(query, points[i]);
+				if(distance < bestDistance) {
+					bestDistance = distance;
+					best = i;
+				}
+			}
+		}
+		return best;
+	}
+
+	private void check(KDTree tree, double[][] points, boolean[] live) {
+		int size = 0;
+		for (boolean l : live) {
+			if(l) size++;
+		}
+		assertEquals(size, tree.size());
+
+		for (int q=0; q<QUERIES; q++) {
+			// Queries at indexed points and at random positions
+			double[] query;
+			int excluded;
+			if(q % 2 == 0) {
+				excluded = random.nextInt(points.length);
+				query = points[excluded];
+			} else {
+				excluded = -1;
+				query = randomPoint();
+			}
+
+			TIntArrayList found = new TIntArrayList();
+			tree.radiusSearch(query, RADIUS, found);
+			assertEquals(bruteForceRadius(points, live, query, RADIUS), found);
+
+			// Ties are broken in favour of the lowest id
+			assertEquals(bruteForceNearest(points, live, query, excluded),
+					tree.nearest(query, excluded));
+		}
+	}
+
+	private double[][] randomPoints() {
+		double[][] points = new double[POINTS][];
+		for (int i=0; i<POINTS; i++) {
+			points[i] = randomPoint();
+		}
+		return points;
+	}
+
+	/**
+	 * A balanced tree built from every point.
+	 */
+	@Test
+	public void balancedTreeTest() {
+		double[][] points = randomPoints();
+		boolean[] live = new boolean[POINTS];
+		Arrays.fill(live, true);
+
+		KDTree tree = new KDTree(points, DIMENSIONS);
+		check(tree, points, live);
+
+		removeRandomly(tree, live, POINTS * 3 / 4);
+		check(tree, points, live);
+	}
+
+	/**
+	 * A tree built by inserting the points one by one, with removals
+	 * interleaved and points replaced.
+	 */
+	@Test
+	public void incrementalTreeTest() {
+		double[][] points = randomPoints();
+		boolean[] live = new boolean[POINTS];
+
+		KDTree tree = new KDTree(DIMENSIONS);
+		for (int i=0; i<POINTS; i++) {
+			tree.insert(i, points[i]);
+			live[i] = true;
+			if(i % 3 == 2) {
+				int id = random.nextInt(i + 1);
+				assertEquals(live[id], tree.remove(id));
+				live[id] = false;
+			}
+		}
+		check(tree, points, live);
+
+		// Replaced points
+		for (int i=0; i<POINTS; i+=5) {
+			points[i] = randomPoint();
+			tree.insert(i, points[i]);
+			live[i] = true;
+		}
+		check(tree, points, live);
+
+		removeRandomly(tree, live, POINTS / 2);
+		check(tree, points, live);
+	}
+
+	private void removeRandomly(KDTree tree, boolean[] live, int removals) {
+		for (int r=0; r<removals; r++) {
+			int id = random.nextInt(live.length);
+			assertEquals(live[id], tree.remove(id));
+			assertFalse(tree.contains(id));
+			live[id] = false;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package test.junit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.ModelDefinition;
+import model.ModelDefinitionFile;
+
+/**
+ * Checks that compiled model definitions are loaded without changes, and
+ * that corrupt or truncated files are rejected.
+ *
+ * @author imoya
+ *
+ */
+public class TestModelDefinitionFile {
+
+	private static final String PATH = "./test/parallelized/DH_TEST.zio";
+
+	private ModelDefinition md;
+	private File file;
+
+	@Before
+	public void compile() throws IOException {
+		md = new ModelDefinition();
+		md.loadValuesFromFile(new File(PATH));
+		file = File.createTempFile("model", ModelDefinitionFile.EXTENSION);
+		ModelDefinitionFile.write(md, file.getPath());
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	/**
+	 * Every persistent field of a loaded definition must be equal to the
+	 * field of the compiled one.
+	 */
+	@Test
+	public void roundTripTest() throws Exception {
+		assertTrue(ModelDefinitionFile.isCompiled(file));
+		ModelDefinition read = ModelDefinitionFile.read(file.getPath());
+
+		for (Field f : ModelDefinition.class.getDeclaredFields()) {
+			int modifiers = f.getModifiers();
+			if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+				continue;
+			}
+			f.setAccessible(true);
+			assertTrue(f.getName(), Arrays.deepEquals(
+					new Object[] {f.get(md)}, new Object[] {f.get(read)}));
+		}
+	}
+
+	/**
+	 * A file whose last byte was modified must not match its checksum.
+	 */
+	@Test
+	public void corruptFileTest() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long last = raf.length() - 1;
+			raf.seek(last);
+			int value = raf.read();
+			raf.seek(last);
+			raf.write(value ^ 0xFF);
+		}
+		assertRejected("checksum");
+	}
+
+	/**
+	 * A file missing its last bytes must be rejected.
+	 */
+	@Test
+	public void truncatedFileTest() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 16);
+		}
+		assertRejected("truncated");
+	}
+
+	private void assertRejected(String reason) {
+		try {
+			ModelDefinitionFile.read(file.getPath());
+			fail("The file was not rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(reason));
+		}
+	}
+}
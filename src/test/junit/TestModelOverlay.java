@@ -0,0 +1,170 @@
+package test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import model.ModelDefinition;
+import model.ModelManager;
+
+/**
+ * Checks that copy-on-write overlays modified through every ModelManager
+ * setter leave their base definition untouched.
+ *
+ * @author imoya
+ *
+ */
+public class TestModelOverlay {
+
+	private static final String PATH = "./test/parallelized/DH_TEST.zio";
+
+	/**
+	 * Every value set by the setters, different from the values of the
+	 * test model.
+	 */
+	private static final double VALUE = 0.123456789;
+
+	private static ModelDefinition load() {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(PATH));
+		return md;
+	}
+
+	/**
+	 * Returns the persistent fields of model definitions.
+	 */
+	private static List<Field> fields() {
+		List<Field> fields = new ArrayList<Field>();
+		for (Field f : ModelDefinition.class.getDeclaredFields()) {
+			int modifiers = f.getModifiers();
+			if(!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+				f.setAccessible(true);
+				fields.add(f);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Copies every array level of the given field values, so later
+	 * changes of the definition are detected.
+	 */
+	private static Object[] snapshot(ModelDefinition md, List<Field> fields)
+			throws IllegalAccessException {
+		Object[] values = new Object[fields.size()];
+		for (int i=0; i<values.length; i++) {
+			values[i] = copy(fields.get(i).get(md));
+		}
+		return values;
+	}
+
+	private static Object copy(Object value) {
+		if(value instanceof Object[]) {
+			Object[] copy = ((Object[]) value).clone();
+			for (int i=0; i<copy.length; i++) {
+				copy[i] = copy(copy[i]);
+			}
+			return copy;
+		} else if(value instanceof double[]) {
+			return ((double[]) value).clone();
+		} else if(value instanceof int[]) {
+			return ((int[]) value).clone();
+		} else if(value instanceof boolean[]) {
+			return ((boolean[]) value).clone();
+		} else if(value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the name of the first field differing from the snapshot, or
+	 * null if every field is equal.
+	 */
+	private static String firstDifference(ModelDefinition md,
+			List<Field> fields, Object[] snapshot) throws IllegalAccessException {
+		for (int i=0; i<snapshot.length; i++) {
+			if(!Arrays.deepEquals(
+					new Object[] {snapshot[i]},
+					new Object[] {fields.get(i).get(md)})) {
+				return fields.get(i).getName();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Every setter is invoked on an overlay with the first index of every
+	 * dimension. The base definition must remain unchanged after every
+	 * call, while the overlay must finally differ from it.
+	 */
+	@Test
+	public void overlayIsolationTest() throws Exception {
+		ModelDefinition base = load();
+		List<Field> fields = fields();
+		Object[] original = snapshot(base, fields);
+
+		ModelDefinition overlay = base.createOverlay();
+		assertTrue(overlay.isOverlay());
+		assertFalse(base.isOverlay());
+		ModelManager manager = new ModelManager(overlay);
+
+		int invoked = 0;
+		for (Method m : ModelManager.class.getMethods()) {
+			if(!m.getName().startsWith("set")
+					&& !m.getName().equals("normalizeDrivers")) {
+				continue;
+			}
+			Class<?>[] types = m.getParameterTypes();
+			Object[] args = new Object[types.length];
+			for (int i=0; i<types.length; i++) {
+				if(types[i] == int.class) {
+					args[i] = 0;
+				} else if(types[i] == double.class) {
+					args[i] = VALUE;
+				} else if(types[i] == boolean.class) {
+					args[i] = Boolean.TRUE;
+				} else {
+					fail("Unexpected parameter type at " + m);
+				}
+			}
+			// Scalar setters are left for the end, since they may change
+			// the dimensions of the model (e.g. steps for week)
+			if(types.length == 1 && types[0] == int.class) {
+				continue;
+			}
+			try {
+				m.invoke(manager, args);
+			} catch (InvocationTargetException e) {
+				fail(m + " failed: " + e.getCause());
+			}
+			invoked++;
+
+			String changed = firstDifference(base, fields, original);
+			if(changed != null) {
+				fail(m + " modified field " + changed + " of the base definition");
+			}
+		}
+		assertTrue(invoked > 0);
+
+		manager.setStepsForWeek(base.getStepsForWeek() + 1);
+		manager.setNrAgents(base.getNumberOfAgents() + 1);
+		String changed = firstDifference(base, fields, original);
+		if(changed != null) {
+			fail("Field " + changed + " of the base definition was modified");
+		}
+
+		assertTrue(firstDifference(overlay, fields, original) != null);
+	}
+}
@@ -0,0 +1,121 @@
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import util.exception.sales.SalesScheduleError;
+import util.random.RandomizerUtils;
+
+/**
+ * Checks that models reset in place by ModelBuilder.rebuild reproduce
+ * exactly the simulations of new model instances.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestModelReuse {
+
+	private final String path;
+	private final boolean compact;
+	private final int iteration;
+
+	public TestModelReuse(String path, Boolean compact, Integer iteration) {
+		this.path = path;
+		this.compact = compact;
+		this.iteration = iteration;
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		final int ITERATIONS=2;
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+
+		String[] paths = {
+			"./test/sales/BaseLine-2Segments.zio",
+			"./test/productusage/SSGA_PDM_v3_Bothparams.1420829029974.15485863.E9000.zio"
+		};
+		for (String path : paths) {
+			for (int i=0; i<ITERATIONS; i++) {
+				list.add(new Object[]{path, Boolean.FALSE, i});
+			}
+		}
+		list.add(new Object[]{paths[0], Boolean.TRUE, 0});
+		return list;
+	}
+
+	private ModelBuilder createBuilder() {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(path));
+		md.setCompactAgents(compact);
+		return md.createBuilder();
+	}
+
+	private void run(Model m) throws SalesScheduleError {
+		m.enableAdditionalStatistics(true, true, true, false, false, false);
+		m.runSilent();
+	}
+
+	/**
+	 * A rebuilt model must reuse the instance and produce the same results
+	 * as a new model built with the same seed.
+	 */
+	@Test
+	public void rebuildTest() throws SalesScheduleError {
+		ModelBuilder mb = createBuilder();
+		ModelBean bean = mb.createBean();
+		long seed = RandomizerUtils.PRIME_SEEDS[iteration + 1];
+
+		Model previous = mb.build(bean, RandomizerUtils.PRIME_SEEDS[0]);
+		run(previous);
+
+		Model reference = mb.build(bean, seed);
+		Model reused = mb.rebuild(previous, bean, seed);
+		assertSame(previous, reused);
+
+		run(reference);
+		run(reused);
+
+		int[][][] referenceSales = reference.getStatistics()
+				.referenceToSalesByBrandBySegmentByStep();
+		int[][][] reusedSales = reused.getStatistics()
+				.referenceToSalesByBrandBySegmentByStep();
+		for (int b=0; b<referenceSales.length; b++) {
+			for (int s=0; s<referenceSales[b].length; s++) {
+				assertArrayEquals(referenceSales[b][s], reusedSales[b][s]);
+			}
+		}
+
+		double[][] referenceAwareness =
+				reference.getStatistics().getAwarenessByBrandByStep();
+		double[][] reusedAwareness =
+				reused.getStatistics().getAwarenessByBrandByStep();
+		for (int b=0; b<referenceAwareness.length; b++) {
+			assertArrayEquals(referenceAwareness[b], reusedAwareness[b], 0.0);
+		}
+
+		double[][][] referencePerceptions =
+				reference.getStatistics().getPerceptionsByAttByBrandByStep();
+		double[][][] reusedPerceptions =
+				reused.getStatistics().getPerceptionsByAttByBrandByStep();
+		for (int a=0; a<referencePerceptions.length; a++) {
+			for (int b=0; b<referencePerceptions[a].length; b++) {
+				assertArrayEquals(referencePerceptions[a][b],
+						reusedPerceptions[a][b], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import calibration.MultiFidelitySchedule;
+import calibration.MultiFidelitySchedule.FidelityEvaluation;
+import calibration.fitness.history.ScoreBean;
+import calibration.fitness.history.ScoreBean.ScoreWrapper;
+import util.exception.simulation.SimulationException;
+
+/**
+ * Checks the fidelity levels of MultiFidelitySchedule, which candidates
+ * are promoted, the correction of low fidelity scores and the simulation
+ * budget spent.
+ *
+ * @author imoya
+ *
+ */
+public class TestMultiFidelitySchedule {
+
+	private static final double EPSILON = 1e-12;
+
+	/**
+	 * Candidate whose score is its value plus a bias depending on the
+	 * Monte-Carlo iterations, counting the simulated agents by iteration.
+	 */
+	private static class Candidate implements FidelityEvaluation {
+
+		private final double value;
+		private long cost;
+		private int evaluations;
+
+		Candidate(double value) {
+			this.value = value;
+		}
+
+		@Override
+		public ScoreWrapper evaluate(int numberOfAgents, int mcIterations)
+				throws SimulationException {
+			cost += (long) numberOfAgents * mcIterations;
+			evaluations++;
+			ScoreWrapper score = new ScoreBean().new ScoreWrapper();
+			score.finalScore = value + bias(mcIterations);
+			return score;
+		}
+
+		static double bias(int mcIterations) {
+			return 10.0 / mcIterations;
+		}
+	}
+
+	/**
+	 * Levels divide the base agents and iterations by powers of eta, and
+	 * agents are never fewer than the minimum unless the base is.
+	 */
+	@Test
+	public void testLevels() {
+		MultiFidelitySchedule schedule = new MultiFidelitySchedule(
+				3, 3, 9000, 27);
+		assertEquals(3, schedule.getLevels());
+		assertEquals(1000, schedule.getNumberOfAgents(0));
+		assertEquals(3000, schedule.getNumberOfAgents(1));
+		assertEquals(9000, schedule.getNumberOfAgents(2));
+		assertEquals(3, schedule.getMonteCarloIterations(0));
+		assertEquals(9, schedule.getMonteCarloIterations(1));
+		assertEquals(27, schedule.getMonteCarloIterations(2));
+
+		schedule = new MultiFidelitySchedule(3, 3, 500, 2);
+		assertEquals(MultiFidelitySchedule.MIN_AGENTS,
+				schedule.getNumberOfAgents(0));
+		assertEquals(167, schedule.getNumberOfAgents(1));
+		assertEquals(500, schedule.getNumberOfAgents(2));
+		assertEquals(1, schedule.getMonteCarloIterations(0));
+		assertEquals(1, schedule.getMonteCarloIterations(1));
+		assertEquals(2, schedule.getMonteCarloIterations(2));
+
+		schedule = new MultiFidelitySchedule(2, 2, 50, 10);
+		assertEquals(50, schedule.getNumberOfAgents(0));
+		assertEquals(50, schedule.getNumberOfAgents(1));
+	}
+
+	/**
+	 * Without a reduction between levels no candidate could be discarded,
+	 * so eta must be greater than 1.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testEtaOne() {
+		new MultiFidelitySchedule(3, 1, 1000, 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoLevels() {
+		new MultiFidelitySchedule(0, 2, 1000, 10);
+	}
+
+	/**
+	 * Every candidate improving the previous ones is among the best 1/eta,
+	 * so all of them reach the highest level.
+	 */
+	@Test
+	public void testImprovingCandidates() throws SimulationException {
+		MultiFidelitySchedule schedule = new MultiFidelitySchedule(
+				2, 2, 1000, 10);
+		for (int c = 8; c > 0; c--) {
+			Candidate candidate = new Candidate(c);
+			schedule.evaluate(candidate);
+			assertEquals(2, candidate.evaluations);
+		}
+		assertEquals(8, schedule.getEvaluations(0));
+		assertEquals(8, schedule.getEvaluations(1));
+	}
+
+	/**
+	 * Candidates worse than the previous ones are only promoted until eta
+	 * scores are known at their level. Their scores are corrected with the
+	 * bias measured by the promoted ones, which is exact here.
+	 */
+	@Test
+	public void testWorseningCandidates() throws SimulationException {
+		MultiFidelitySchedule schedule = new MultiFidelitySchedule(
+				2, 2, 1000, 10);
+		int top = schedule.getMonteCarloIterations(1);
+		for (int c = 1; c <= 8; c++) {
+			Candidate candidate = new Candidate(c);
+			ScoreWrapper score = schedule.evaluate(candidate);
+			assertEquals(c <= 2 ? 2 : 1, candidate.evaluations);
+			assertEquals(c + Candidate.bias(top), score.finalScore, EPSILON);
+		}
+		assertEquals(8, schedule.getEvaluations(0));
+		assertEquals(2, schedule.getEvaluations(1));
+	}
+
+	/**
+	 * A population smaller than eta never fills a level, so every
+	 * candidate is promoted to the highest level.
+	 */
+	@Test
+	public void testPopulationSmallerThanEta() throws SimulationException {
+		MultiFidelitySchedule schedule = new MultiFidelitySchedule(
+				3, 4, 16000, 16);
+		for (int c = 1; c <= 3; c++) {
+			Candidate candidate = new Candidate(c);
+			schedule.evaluate(candidate);
+			assertEquals(3, candidate.evaluations);
+		}
+		for (int l = 0; l < schedule.getLevels(); l++) {
+			assertEquals(3, schedule.getEvaluations(l));
+		}
+	}
+
+	/**
+	 * The relative cost must match the agents by iteration simulated,
+	 * compared with simulating every candidate at the highest level.
+	 */
+	@Test
+	public void testBudget() throws SimulationException {
+		MultiFidelitySchedule schedule = new MultiFidelitySchedule(
+				3, 3, 9000, 27);
+		int top = schedule.getLevels() - 1;
+		long fullCost = (long) schedule.getNumberOfAgents(top)
+				* schedule.getMonteCarloIterations(top);
+
+		double[] values = {5, 3, 8, 1, 9, 2, 7, 4, 6, 10, 0, 11};
+		long cost = 0;
+		for (double value : values) {
+			Candidate candidate = new Candidate(value);
+			schedule.evaluate(candidate);
+			cost += candidate.cost;
+		}
+
+		long expected = 0;
+		for (int l = 0; l <= top; l++) {
+			expected += (long) schedule.getEvaluations(l)
+					* schedule.getNumberOfAgents(l)
+					* schedule.getMonteCarloIterations(l);
+		}
+		assertEquals(expected, cost);
+		assertEquals(values.length, schedule.getEvaluations(0));
+		assertEquals((double) cost / (values.length * fullCost),
+				schedule.getRelativeCost(), EPSILON);
+		assertTrue(schedule.getRelativeCost() < 1.0);
+	}
+}
@@ -0,0 +1,154 @@
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import model.touchpoints.TouchPointOwnedRegistry;
+import model.touchpoints.TouchPointScheduleCache;
+import model.touchpoints.earned.AbstractTouchPoint;
+import util.random.RandomizerUtils;
+
+/**
+ * Checks parallel touch point scheduling: schedules must be reproducible,
+ * cached schedules must be reused and the number of hits must match
+ * sequential scheduling.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestParallelScheduling {
+
+	private final String path;
+	private final int iteration;
+
+	public TestParallelScheduling(String path, Integer iteration) {
+		this.path = path;
+		this.iteration = iteration;
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		final int ITERATIONS=2;
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+
+		String[] paths = {
+			"./test/tpscheduler/BaseLine-2Segments.zio",
+			"./test/tpscheduler/SSGA_PDM_v3_Bothparams.1420829029974.15485863.E9000.zio"
+		};
+		for (String path : paths) {
+			for (int i=0; i<ITERATIONS; i++) {
+				list.add(new Object[]{path, i});
+			}
+		}
+		return list;
+	}
+
+	private Model buildModel(boolean parallel) {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(path));
+		md.setParallelScheduling(parallel);
+
+		ModelBuilder mb = md.createBuilder();
+		ModelBean bean = mb.createBean();
+		return mb.build(bean, RandomizerUtils.PRIME_SEEDS[iteration]);
+	}
+
+	private static long countHits(byte[][] schedule) {
+		long hits = 0;
+		for (byte[] agentSchedule : schedule) {
+			for (byte h : agentSchedule) {
+				hits += h;
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Same seed must produce the same schedules, served from the cache
+	 * for the second model. The cache is cleared once released.
+	 */
+	@Test
+	public void reproducibilityTest() {
+		TouchPointScheduleCache cache = TouchPointScheduleCache.acquireShared();
+		try {
+			checkReproducibility(cache);
+		} finally {
+			TouchPointScheduleCache.releaseShared();
+		}
+		assertNull(TouchPointScheduleCache.getShared());
+		assertEquals(0, cache.getNumberOfEntries());
+	}
+
+	private void checkReproducibility(TouchPointScheduleCache cache) {
+		cache.clear();
+
+		Model first = buildModel(true);
+		long hits = cache.getHits();
+		Model second = buildModel(true);
+		assertTrue(cache.getHits() > hits);
+
+		TouchPointOwnedRegistry r1 = first.getTPORegistry();
+		TouchPointOwnedRegistry r2 = second.getTPORegistry();
+		int numTouchpoints = r1.getNumberOfTouchpoints()
+				- AbstractTouchPoint.NUM_EARNED_TPS;
+		for (int tp=0; tp<numTouchpoints; tp++) {
+			byte[][][] s1 = r1.getTouchPointById(tp).getSchedules();
+			byte[][][] s2 = r2.getTouchPointById(tp).getSchedules();
+			for (int b=0; b<s1.length; b++) {
+				assertSame(s1[b], s2[b]);
+			}
+		}
+
+		cache.clear();
+		Model uncached = buildModel(true);
+		TouchPointOwnedRegistry r3 = uncached.getTPORegistry();
+		for (int tp=0; tp<numTouchpoints; tp++) {
+			byte[][][] s1 = r1.getTouchPointById(tp).getSchedules();
+			byte[][][] s3 = r3.getTouchPointById(tp).getSchedules();
+			for (int b=0; b<s1.length; b++) {
+				for (int a=0; a<s1[b].length; a++) {
+					assertArrayEquals(s1[b][a], s3[b][a]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parallel scheduling distributes the same number of hits as
+	 * sequential scheduling.
+	 */
+	@Test
+	public void hitsTest() {
+		Model sequential = buildModel(false);
+		Model parallel = buildModel(true);
+
+		TouchPointOwnedRegistry r1 = sequential.getTPORegistry();
+		TouchPointOwnedRegistry r2 = parallel.getTPORegistry();
+		int numTouchpoints = r1.getNumberOfTouchpoints()
+				- AbstractTouchPoint.NUM_EARNED_TPS;
+		for (int tp=0; tp<numTouchpoints; tp++) {
+			byte[][][] s1 = r1.getTouchPointById(tp).getSchedules();
+			byte[][][] s2 = r2.getTouchPointById(tp).getSchedules();
+			for (int b=0; b<s1.length; b++) {
+				assertEquals(countHits(s1[b]), countHits(s2[b]));
+			}
+		}
+	}
+}
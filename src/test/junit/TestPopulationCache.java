@@ -0,0 +1,144 @@
+package test.junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import model.Model;
+import model.ModelBean;
+import model.ModelBuilder;
+import model.ModelDefinition;
+import model.ModelManager;
+import model.PopulationCache;
+import util.exception.sales.SalesScheduleError;
+import util.random.RandomizerUtils;
+
+/**
+ * Checks that models built from populations stored at a PopulationCache
+ * reproduce exactly the simulations of models generating their own
+ * population.
+ *
+ * @author imoya
+ *
+ */
+@RunWith(Parameterized.class)
+public class TestPopulationCache {
+
+	private static final int ITERATIONS = 2;
+
+	private final String path;
+
+	public TestPopulationCache(String path) {
+		this.path = path;
+	}
+
+	@Parameters
+	public static Collection<Object[]> data() {
+		ArrayList<Object[]> list = new ArrayList<Object[]>();
+		list.add(new Object[]{"./test/sales/BaseLine-2Segments.zio"});
+		list.add(new Object[]{"./test/parallelized/DH_TEST.zio"});
+		return list;
+	}
+
+	private ModelDefinition load() {
+		ModelDefinition md = new ModelDefinition();
+		md.loadValuesFromFile(new File(path));
+		return md;
+	}
+
+	private static Model run(Model m) throws SalesScheduleError {
+		m.enableAdditionalStatistics(true, true, true, false, false, false);
+		m.runSilent();
+		return m;
+	}
+
+	private static void assertSameResults(Model expected, Model actual) {
+		int[][][] expectedSales = expected.getStatistics()
+				.referenceToSalesByBrandBySegmentByStep();
+		int[][][] actualSales = actual.getStatistics()
+				.referenceToSalesByBrandBySegmentByStep();
+		for (int b=0; b<expectedSales.length; b++) {
+			for (int s=0; s<expectedSales[b].length; s++) {
+				assertArrayEquals(expectedSales[b][s], actualSales[b][s]);
+			}
+		}
+
+		double[][] expectedAwareness =
+				expected.getStatistics().getAwarenessByBrandByStep();
+		double[][] actualAwareness =
+				actual.getStatistics().getAwarenessByBrandByStep();
+		for (int b=0; b<expectedAwareness.length; b++) {
+			assertArrayEquals(expectedAwareness[b], actualAwareness[b], 0.0);
+		}
+
+		double[][][] expectedPerceptions =
+				expected.getStatistics().getPerceptionsByAttByBrandByStep();
+		double[][][] actualPerceptions =
+				actual.getStatistics().getPerceptionsByAttByBrandByStep();
+		for (int a=0; a<expectedPerceptions.length; a++) {
+			for (int b=0; b<expectedPerceptions[a].length; b++) {
+				assertArrayEquals(expectedPerceptions[a][b],
+						actualPerceptions[a][b], 0.0);
+			}
+		}
+	}
+
+	/**
+	 * The populations are stored by a definition with a different
+	 * marketing plan, which does not change the population. Models built
+	 * and rebuilt from the cached populations must equal fresh models.
+	 */
+	@Test
+	public void cachedPopulationTest() throws SalesScheduleError {
+		ModelDefinition md = load();
+		ModelBuilder freshBuilder = md.createBuilder();
+		ModelBean freshBean = freshBuilder.createBean();
+
+		PopulationCache cache = new PopulationCache();
+		ModelDefinition base = load();
+		base.setPopulationCache(cache);
+
+		// Fills the cache
+		ModelDefinition other = base.createOverlay();
+		new ModelManager(other).setEmphasisAttribute(0, 0, 0, 0, 0.5);
+		ModelBuilder otherBuilder = other.createBuilder();
+		ModelBean otherBean = otherBuilder.createBean();
+		for (int i=0; i<ITERATIONS; i++) {
+			run(otherBuilder.build(otherBean, RandomizerUtils.PRIME_SEEDS[i]));
+		}
+		assertEquals(ITERATIONS, cache.getNumberOfEntries());
+		assertEquals(0, cache.getHits());
+
+		ModelDefinition cached = base.createOverlay();
+		ModelBuilder cachedBuilder = cached.createBuilder();
+		ModelBean cachedBean = cachedBuilder.createBean();
+		Model previous = null;
+		for (int i=0; i<ITERATIONS; i++) {
+			long seed = RandomizerUtils.PRIME_SEEDS[i];
+			Model fresh = run(freshBuilder.build(freshBean, seed));
+
+			Model built = run(cachedBuilder.build(cachedBean, seed));
+			assertSameResults(fresh, built);
+
+			// Models reused in place, as done by ModelPool
+			Model rebuilt = cachedBuilder.rebuild(
+					previous != null ? previous : built, cachedBean, seed);
+			if(previous != null) {
+				assertSame(previous, rebuilt);
+			}
+			assertSameResults(fresh, run(rebuilt));
+			previous = rebuilt;
+		}
+		assertEquals(ITERATIONS, cache.getNumberOfEntries());
+		assertEquals(2 * ITERATIONS, cache.getHits());
+	}
+}
@@ -18,8 +18,12 @@ import model.ModelBuilder;
 import model.ModelDefinition;
 import model.customer.Agent;
 import model.sales.SalesScheduler;
+import model.touchpoints.earned.ProductUsage;
+import model.touchpoints.earned.UsagePlanning;
 import util.exception.sales.SalesScheduleError;
+import util.random.Randomizer;
 import util.random.RandomizerUtils;
+import util.random.XorShift128PlusFastPRNG;
 import util.statistics.Statistics;
 import util.statistics.Statistics.TimePeriod;
 
@@ -96,15 +100,15 @@ public class TestProductUsage {
 			})) {		
 			for (int i=0; i<ITERATIONS; i++) {
 				String path = f.getPath();
-				Object[] filePath = {path,new Integer(i),new Boolean(false),null,new Boolean(false)};
+				Object[] filePath = {path,i,Boolean.FALSE,null,Boolean.FALSE};
 				list.add(filePath);
-				Object[] moarfilePath = {path,new Integer(i),new Boolean(false),null,new Boolean(true)};
+				Object[] moarfilePath = {path,i,Boolean.FALSE,null,Boolean.TRUE};
 				list.add(moarfilePath);
 				for (TimePeriod period : TimePeriod.values()) {
-					Object[] moreFilePath = {path,new Integer(i),new Boolean(true),null,new Boolean(false)};
+					Object[] moreFilePath = {path,i,Boolean.TRUE,null,Boolean.FALSE};
 					moreFilePath[3] = period.toString();
 					list.add(moreFilePath);
-					Object[] evenMoreFilePath = {path,new Integer(i),new Boolean(true),null,new Boolean(true)};
+					Object[] evenMoreFilePath = {path,i,Boolean.TRUE,null,Boolean.TRUE};
 					evenMoreFilePath[3] = period.toString();
 					list.add(evenMoreFilePath);
 				}
@@ -158,4 +162,31 @@ public class TestProductUsage {
 		}
 		assertFalse(error);
 	}
+
+	/**
+	 * Usage planning generated on demand must equal the planning
+	 * generated a priori, leaving the randomizer at the same state.
+	 */
+	@Test
+	public void lazyPlanningTest() {
+		for (int frequency : frequencies) {
+			Randomizer eager = new XorShift128PlusFastPRNG(
+					RandomizerUtils.PRIME_SEEDS[iteration]);
+			Randomizer lazy = new XorShift128PlusFastPRNG(
+					RandomizerUtils.PRIME_SEEDS[iteration]);
+			
+			byte[] expected = ProductUsage.generateUsagePlanning(
+					frequency, eager, iteration, 
+					m.getMaximumNumberOfSteps(), m.getStepsByWeek());
+			UsagePlanning planning = UsagePlanning.create(
+					frequency, lazy, iteration, 
+					m.getMaximumNumberOfSteps(), m.getStepsByWeek());
+			
+			assertEquals(eager.nextDouble(), lazy.nextDouble(), 0.0);
+			for (int i=iteration; i<expected.length; i++) {
+				assertEquals(expected[i], planning.usesAt(i));
+			}
+			assertArrayEquals(expected, planning.toArray());
+		}
+	}
 }
@@ -0,0 +1,141 @@
+package test.junit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import calibration.TrajectoryPruning;
+import calibration.fitness.FitnessFunction;
+import calibration.fitness.history.HistoryManager;
+import calibration.fitness.history.SalesHistoryManager;
+import model.ModelDefinition;
+import model.ModelRunner;
+import model.SimulationPruning;
+import util.exception.simulation.SimulationException;
+import util.io.CSVFileUtils;
+import util.statistics.MonteCarloStatistics;
+import util.statistics.Statistics;
+import util.statistics.Statistics.TimePeriod;
+
+/**
+ * Checks the lower bounds of the training score computed from partial
+ * trajectories, and that trajectory pruning only aborts simulations whose
+ * training score is worse than the threshold.
+ *
+ * @author imoya
+ *
+ */
+public class TestTrajectoryPruning {
+
+	private static final int MC_ITERATIONS = 10;
+	private static final int CHECKPOINT_INTERVAL = 4;
+	private static final double EPSILON = 1e-9;
+
+	private final ModelDefinition md;
+	private final HistoryManager manager;
+
+	public TestTrajectoryPruning() throws IOException {
+		md = new ModelDefinition();
+		md.loadValuesFromFile(new File("./test/parallelized/DH_TEST.zio"));
+
+		int[][] history = CSVFileUtils.readRawHistoryFromCSV(
+				"./test/parallelized/BaseLinePiggy_sales.csv");
+		manager = new SalesHistoryManager(TimePeriod.QUARTERLY, history, 0.5,
+				new FitnessFunction(), FitnessFunction.NO_HOLD_OUT);
+	}
+
+	/**
+	 * Records the bound of every iteration at every step, never aborting.
+	 */
+	private class BoundRecorder implements SimulationPruning {
+
+		private final double[][] bounds =
+				new double[MC_ITERATIONS][md.getNumberOfSteps()];
+
+		@Override
+		public int getCheckpointInterval() {
+			return 1;
+		}
+
+		@Override
+		public boolean isHopeless(int iteration, Statistics statistics,
+				int step) {
+			bounds[iteration][step] =
+					manager.computeTrainingLowerBound(statistics, step);
+			return false;
+		}
+	}
+
+	private double simulateScore() throws SimulationException {
+		MonteCarloStatistics results = ModelRunner.simulateModel(
+				md, MC_ITERATIONS, false, manager.getStatsBean());
+		return manager.computeTrainingScore(results).finalScore;
+	}
+
+	/**
+	 * The bound of every iteration must never decrease, and the average of
+	 * the last bounds must not exceed the training score.
+	 */
+	@Test
+	public void testLowerBound() throws SimulationException {
+		BoundRecorder recorder = new BoundRecorder();
+		MonteCarloStatistics results = ModelRunner.simulateModel(
+				md, MC_ITERATIONS, false, manager.getStatsBean(), recorder);
+		double score = manager.computeTrainingScore(results).finalScore;
+
+		double lastBounds = 0.0;
+		for (int i=0; i<MC_ITERATIONS; i++) {
+			double[] bounds = recorder.bounds[i];
+			for (int s=1; s<bounds.length; s++) {
+				assertTrue("Bound decreased at iteration " + i + " step " + s
+						+ ": " + bounds[s-1] + " > " + bounds[s],
+						bounds[s] >= bounds[s-1] - EPSILON);
+			}
+			lastBounds += bounds[bounds.length - 1];
+		}
+		lastBounds /= MC_ITERATIONS;
+
+		assertTrue("Bound " + lastBounds + " exceeds score " + score,
+				lastBounds <= score + EPSILON);
+	}
+
+	/**
+	 * Simulations whose training score beats the threshold must never be
+	 * aborted, and the penalty of aborted ones must be a lower bound of
+	 * their training score which is still worse than the threshold. The
+	 * lowest thresholds must abort the simulation, or nothing is checked.
+	 */
+	@Test
+	public void testPruning() throws SimulationException {
+		double score = simulateScore();
+
+		double[] factors = {0.25, 0.5, 0.75, 0.9, 1.0, 1.1, 1.5, 2.0};
+		boolean prunedAny = false;
+		for (double factor : factors) {
+			double threshold = score * factor;
+			TrajectoryPruning pruning = new TrajectoryPruning(manager,
+					threshold, MC_ITERATIONS, CHECKPOINT_INTERVAL);
+			ModelRunner.simulateModel(md, MC_ITERATIONS, false,
+					manager.getStatsBean(), pruning);
+
+			if(score <= threshold) {
+				assertFalse("Pruned with score " + score
+						+ " beating threshold " + threshold,
+						pruning.isPruned());
+			}
+			if(pruning.isPruned()) {
+				prunedAny = true;
+				double penalty = pruning.getPenaltyScore();
+				assertTrue("Penalty " + penalty + " beats threshold "
+						+ threshold, penalty > threshold);
+				assertTrue("Penalty " + penalty + " exceeds score " + score,
+						penalty <= score + EPSILON);
+			}
+		}
+		assertTrue("No simulation was pruned", prunedAny);
+	}
+}
@@ -168,12 +168,29 @@ public class ArrayFunctions {
 		
 		assert(length > 1);
 		
+		return shuffleFast(new byte[length], random);
+	}
+	
+	/**
+	 * Initializes a full permutation over the given array (length > 1), 
+	 * with values from 0 to length - 1, overwriting its previous values.
+	 * The sequence of random values is the same used by 
+	 * shuffleFast(byte, Randomizer).
+	 * 
+	 * @param permutation 	Array to store the permutation
+	 * @param random 		Random generator
+	 * @return the given array
+	 */
+	public final static byte[] shuffleFast(
+			final byte[] permutation, Randomizer random) {		
+		
+		final int length = permutation.length;
 		int irand;
-		byte[] permutation = new byte[length];
 		
 		// Combination of shuffle with the initialization of array
 		//   If irand = i, then first assignment is useless, 
 		//   but second will overwrite it with correct value i
+		permutation[0] = 0;
 		for (byte i = 1; i < length; i++) {
 			irand = random.nextInt(i + 1); 			// rand in [0, i]
 			permutation[i] = permutation[irand]; 	// swap value
@@ -3,6 +3,7 @@ package util.functions;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -349,12 +350,27 @@ public class Functions {
 	 */
 	public final static int simpleRouletteSelection(double [] probabilities,
 			double randomValue) {
+		return simpleRouletteSelection(
+				probabilities, probabilities.length, randomValue);
+	}
+	
+	/**
+	 * Randomly selects one index using simple roulette selection, only
+	 * considering the first positions of the array. It allows reusing the
+	 * same probability buffer for different number of candidates.
+	 * @param probabilities the normalized to 1.0 probabilities.
+	 * @param length number of probabilities to consider.
+	 * @param randomValue the random value.
+	 * @return the selected index (between 0 and length).
+	 */
+	public final static int simpleRouletteSelection(double [] probabilities,
+			int length, double randomValue) {
 		
 		int index = 0;
 		double accumulatedProbability = 0.0; 
 		boolean selected = false;
 		
-		while(index<probabilities.length && !selected) {
+		while(index<length && !selected) {
 			if(randomValue<probabilities[index]+accumulatedProbability) {
 				selected=true;
 			} else {
@@ -368,7 +384,7 @@ public class Functions {
 				accumulatedProbability,
 				Functions.IDENTITY_SCALE,
 				Functions.DOUBLE_EQUALS_DELTA)) {
-			index = probabilities.length-1;
+			index = length-1;
 			selected=true;
 		}
 		
@@ -516,10 +532,26 @@ public class Functions {
 		double[] array, Randomizer random
 	) {
 		int size = array.length;
-		boolean[] used = new boolean[size];
-		int[] results = new int[size];
+		return getIndicesRandomWeightedOrder(
+			array, random, new boolean[size], new int[size]);
+	}
+	
+	/**
+	 * Generates the array of the indices based on the random weighted order,
+	 * using the given buffers instead of allocating new ones.
+	 * @param array - the array of values to be ordered.
+	 * @param random - the random number generator.
+	 * @param used - buffer for the selected indices, as long as the array.
+	 * @param results - buffer for the result, as long as the array.
+	 * @return - the results buffer containing the array of the indices.
+	 */
+	public final static int[] getIndicesRandomWeightedOrder(
+		double[] array, Randomizer random, boolean[] used, int[] results
+	) {
+		int size = array.length;
 		int index;
 		
+		Arrays.fill(used, false);
 		for(int i=0; i<size; i++) {
 			index = Functions.randomWeightedSelectionRestricted(
 				array, used, random.nextDouble() // [0, 1)
@@ -3,11 +3,15 @@ package util.io;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import model.ModelDefinition;
 import model.ModelRunner;
+import model.PopulationCache;
+import model.SimulationPruning;
 import util.exception.simulation.SimulationException;
 import util.functions.ArrayFunctions;
 import util.functions.Functions;
@@ -22,6 +26,7 @@ import util.io.functions.WomSentimentUtils;
 import util.io.functions.WomVolumenByAttUtils;
 import util.io.functions.WomVolumenByBrandUtils;
 import util.statistics.MonteCarloStatistics;
+import util.statistics.Statistics;
 
 /**
  * Contains the functionality for the simulation of complex scenarios. In 
@@ -43,11 +48,29 @@ public class ScenarioComparison {
 	public static final boolean NO_REPORTS = false;
 	
 	//Running flag for stopping executions.
-	private boolean stop = false;
+	private volatile boolean stop = false;
+	
+	/**
+	 * Aborts the iterations of a running sweep once the execution is 
+	 * stopped.
+	 */
+	private final SimulationPruning cancellation = new SimulationPruning() {
+		@Override
+		public int getCheckpointInterval() {
+			return 1;
+		}
+		
+		@Override
+		public boolean isHopeless(int iteration, Statistics statistics, 
+				int step) {
+			return stop;
+		}
+	};
 	
 	/**
 	 * Runs a sensitivity analysis scenario using both target brand and touch
-	 * point.
+	 * point. Every point of the analysis is simulated at the same time 
+	 * (see runSA for several analyses).
 	 * @param touchpoint the target touch point for the sensitivity analysis.
 	 * @param brand the target brand for the sensitivity analysis.
 	 * @param min the minimum investment percentage (using 0 as 0% and 1 as 
@@ -74,55 +97,140 @@ public class ScenarioComparison {
 				String scenarioName, boolean fromGUIflag, boolean exportReports,
 					StatisticsRecordingBean reportSetup
 		) throws SimulationException {
+		SensitivityAnalysisBean analysis = new SensitivityAnalysisBean(
+				touchpoint, book, scenarioName, min, max, step);
+		return runSA(new SensitivityAnalysisBean[] {analysis}, brand, numMC, 
+				md, fromGUIflag, exportReports, reportSetup)[0];
+	}
+	
+	/**
+	 * Runs several sensitivity analysis scenarios for the target brand, 
+	 * simulating every point of every analysis at the same time. Every 
+	 * point is an overlay of the given model, which is not modified, 
+	 * scaling the investment of the analysis touch point.
+	 * 
+	 * Points use common random numbers: every point is simulated with the 
+	 * same Monte-Carlo seeds, so differences between points are due to the 
+	 * investment and not to sampling noise. Since investment does not 
+	 * affect the agent population, the social network and initial agent 
+	 * states generated for every seed are shared by every point.
+	 * 
+	 * If the execution is stopped, running iterations are aborted and the 
+	 * statistics of every point are left null.
+	 * @param analyses the touch point, range and step of every analysis, 
+	 * along with the xls file name and base name tag used for reports.
+	 * @param brand the target brand for the sensitivity analyses.
+	 * @param numMC the number of Monte-Carlo iterations.
+	 * @param md the given model for the sensitivity analysis scenarios.
+	 * @param fromGUIflag if true, displays the simulation feed using the GUI 
+	 * console.
+	 * @param exportReports if true, exports the model of every point and 
+	 * the reports of every analysis.
+	 * @param reportSetup the report configuration (sales, awareness, etc).
+	 * @return the resulting beans containing the results of every analysis, 
+	 * in the same order.
+	 * @throws SimulationException exceptions are thrown if the simulation
+	 * crashes.
+	 */
+	public ComparisonResult[] runSA(SensitivityAnalysisBean[] analyses, 
+			int brand, int numMC, ModelDefinition md, boolean fromGUIflag, 
+				boolean exportReports, StatisticsRecordingBean reportSetup
+		) throws SimulationException {
 		
-		if(min>max) {
-			throw new IllegalArgumentException("Min value should be greater "
-					+ "than max value.");
-		}
-		
-		double[][][][] grp=md.getGRP();
-		
-		double[][] originalPlan = MatrixFunctions.copyMatrix(grp[touchpoint][brand]);
-		
-		double factor = min;
+		int numAnalyses = analyses.length;
+		String[][] scenarioNames = new String [numAnalyses][];
+		List<ModelDefinition> points = new ArrayList<ModelDefinition>();
+		int[] firstPoint = new int [numAnalyses + 1];
 		
-		int numScenarios = (int)(Math.round((max-min)/step)) + 1;
-		int[][] salesByScenarioMC = new int [numScenarios][numMC];
+		//Populations shared by every point
+		PopulationCache populations = new PopulationCache();
 		
-		MonteCarloStatistics[] mcStats = new MonteCarloStatistics [numScenarios];
-		int scenarioCount = 0;
-		String[] scenarioNames = new String [numScenarios];
+		double[][][][] grp=md.getGRP();
 		
-		while((factor<max || Functions.equals(factor, max, 
-				Functions.DOUBLE_EQUALS_DELTA)) && !stop) {
-			double[][] adjustedGRP = 
-					MatrixFunctions.scaleCopyOfDoubleMatrix(originalPlan, factor);
-			grp[touchpoint][brand]=adjustedGRP;
-			md.setGRP(grp);
-
-			String scenarioDef = scenarioName+"_"+String.valueOf((int)(factor*100.0));
+		for (int a=0; a<numAnalyses; a++) {
+			SensitivityAnalysisBean analysis = analyses[a];
+			double min = analysis.getMin();
+			double max = analysis.getMax();
+			double step = analysis.getStep();
+			int touchpoint = analysis.getTouchpoint();
 			
-			scenarioNames[scenarioCount]=scenarioDef;
+			if(min>max) {
+				throw new IllegalArgumentException("Min value should be greater "
+						+ "than max value.");
+			}
 			
-			mcStats[scenarioCount]
-					=runAndExportModel(numMC, md, book+scenarioDef+".zio", 
-							fromGUIflag, exportReports, reportSetup);
-			salesByScenarioMC[scenarioCount] = 
-					getScalesTotalSalesByMcForBrand(mcStats[scenarioCount], brand);
-
-			//Next step
-			factor+=step;
-			scenarioCount++;
+			double[][] originalPlan = grp[touchpoint][brand];
+			
+			double factor = min;
+			
+			int numScenarios = (int)(Math.round((max-min)/step)) + 1;
+			int scenarioCount = 0;
+			scenarioNames[a] = new String [numScenarios];
+			firstPoint[a] = points.size();
+			
+			while((factor<max || Functions.equals(factor, max, 
+					Functions.DOUBLE_EQUALS_DELTA)) 
+						&& scenarioCount<numScenarios) {
+				//Copy only the modified path, sharing the rest of the plan
+				double[][][][] adjustedGRP = grp.clone();
+				adjustedGRP[touchpoint] = grp[touchpoint].clone();
+				adjustedGRP[touchpoint][brand] = 
+						MatrixFunctions.scaleCopyOfDoubleMatrix(originalPlan, factor);
+				
+				ModelDefinition point = md.createOverlay();
+				point.setGRP(adjustedGRP);
+				point.setPopulationCache(populations);
+				points.add(point);
+				
+				scenarioNames[a][scenarioCount] = analysis.getScenarioName()
+						+"_"+String.valueOf((int)(factor*100.0));
+				
+				//Next step
+				factor+=step;
+				scenarioCount++;
+			}
 		}
+		firstPoint[numAnalyses] = points.size();
 		
-		//Write XLSX
-		if(exportReports) {
-			generateReports(md, mcStats, scenarioNames, book, reportSetup);
+		MonteCarloStatistics[] pointStats = null;
+		if(!stop) {
+			pointStats = ModelRunner.simulateModels(
+					points.toArray(new ModelDefinition[points.size()]), 
+					numMC, fromGUIflag, reportSetup, cancellation);
+		}
+		
+		ComparisonResult[] results = new ComparisonResult[numAnalyses];
+		for (int a=0; a<numAnalyses; a++) {
+			int numScenarios = scenarioNames[a].length;
+			int[][] salesByScenarioMC = new int [numScenarios][numMC];
+			MonteCarloStatistics[] mcStats = new MonteCarloStatistics [numScenarios];
 			
-			System.out.println("Sensitivity analisys performed succesfully "
-					+ "for scenario "+scenarioName);
+			if(!stop) {
+				for (int p=firstPoint[a]; p<firstPoint[a+1]; p++) {
+					int scenario = p - firstPoint[a];
+					mcStats[scenario] = pointStats[p];
+					salesByScenarioMC[scenario] = 
+							getScalesTotalSalesByMcForBrand(pointStats[p], brand);
+					
+					if(exportReports) {
+						exportModel(points.get(p), analyses[a].getDestFolder()
+								+scenarioNames[a][scenario]+".zio");
+					}
+				}
+				
+				//Write XLSX
+				if(exportReports) {
+					generateReports(md, mcStats, scenarioNames[a], 
+							analyses[a].getDestFolder(), reportSetup);
+					
+					System.out.println("Sensitivity analisys performed succesfully "
+							+ "for scenario "+analyses[a].getScenarioName());
+				}
+			}
+			results[a] = new ComparisonResult(
+					salesByScenarioMC,scenarioNames[a],mcStats);
 		}
-		return new ComparisonResult(salesByScenarioMC,scenarioNames,mcStats);
+		return results;
 	}
 	
 	/**
@@ -375,18 +483,27 @@ public class ScenarioComparison {
 		MonteCarloStatistics mcStats = ModelRunner.simulateModel(md, numMC, fromGUI, reportSetup);
 		
 		if(exportModel) {
-			try {
-				FileWriter fw=new FileWriter(fileName);
-				fw.write(md.export());
-				fw.close();
-			} catch (IOException e1) {
-				e1.printStackTrace();
-			}
+			exportModel(md, fileName);
 		}
 		
 		return mcStats;
 	}
 	
+	/**
+	 * Exports the given model as a zio file.
+	 * @param md the model to be exported.
+	 * @param fileName the name where the model is exported.
+	 */
+	private void exportModel(ModelDefinition md, String fileName) {
+		try {
+			FileWriter fw=new FileWriter(fileName);
+			fw.write(md.export());
+			fw.close();
+		} catch (IOException e1) {
+			e1.printStackTrace();
+		}
+	}
+	
 	private int[] getScalesTotalSalesByMcForBrand(MonteCarloStatistics mcStats, int brand) {
 		int numMC = mcStats.getNumberOfMonteCarloRepetitions();
 		int[] sales = new int [numMC];
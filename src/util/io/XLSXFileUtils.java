@@ -2,16 +2,17 @@ package util.io;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.CreationHelper;
 import org.apache.poi.ss.usermodel.DataFormat;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import model.ModelDefinition;
 import util.io.functions.AttributedStatisticsUtils;
@@ -33,6 +34,12 @@ public class XLSXFileUtils {
 		BY_BRAND, BY_ATT_BY_BRAND, BY_ATT
 	};
 	
+	/**
+	 * Rows of each sheet kept in memory while writing. Older rows are 
+	 * flushed to temporary files, so reports are written in constant memory.
+	 */
+	public final static int ROW_WINDOW = 100;
+	
 	public final static void writeReport(
 			String title,
 			ModelDefinition modelDefinition, 
@@ -66,568 +73,359 @@ public class XLSXFileUtils {
 					type+" is not a valid report type value.");
 		}		
 		
-		Workbook book = createWorkbook(
-			title, 
-			statsFunction.getContentStructure()==REPORT_STRUCTURE.BY_ATT_BY_BRAND, 
-			mcHeaders,
-			stepHeaders,
-			modelDefinition,
-			scenarioNames,
-			filename,
-			statsFunction.getContentStructure()
+		final REPORT_STRUCTURE structure = statsFunction.getContentStructure();
+		final boolean includeDrivers = 
+				structure==REPORT_STRUCTURE.BY_ATT_BY_BRAND;
+		
+		SXSSFWorkbook book = createStreamingWorkbook();
+		final HeaderStyles styles = new HeaderStyles(book);
+		final CellStyle cellStyle = 
+				statsFunction.getCellStyle(book, book.createDataFormat());
+		final CellStyle avgStyle = 
+				statsFunction.getCellAvgStyle(book, book.createDataFormat());
+		
+		// Sheets and styles are created before writing the sheets
+		Sheet[] sheets = createSheets(
+			book, styles, title, 
+			(includeDrivers)? 4 : 3, 
+			stepHeaders, 
+			modelDefinition
 		);
 		
-		int numScenarios = scenarioNames.length;
+		try {
+			// Sheets are written one after another, as POI workbooks are not 
+			// thread safe
+			for (int s = 0; s < sheets.length; s++) {
+				// Allways write aggregated data to the first sheet (works for 1 
+				// and more segments)
+				int segment = (s == ALL_SEGMENTS_SHEET)? -1 : (s - 1);
+				
+				switch (structure) {
+				case BY_BRAND:
+					writeUnAttributedSheet(sheets[s], styles, cellStyle, avgStyle, 
+						scenarioNames, modelDefinition.getBrandNames(), 
+						mcHeaders, nrSteps, mcStatistics, 
+						(UnAttributedStatisticsUtils)statsFunction, segment);
+					break;
+				case BY_ATT_BY_BRAND:
+					writeAttributedSheet(sheets[s], styles, cellStyle, avgStyle, 
+						scenarioNames, modelDefinition.getBrandNames(), 
+						modelDefinition.getAttributeNames(), 
+						mcHeaders, nrSteps, mcStatistics, 
+						(AttributedStatisticsUtils)statsFunction, segment);
+					break;
+				case BY_ATT:
+					writeUnAttributedSheet(sheets[s], styles, cellStyle, avgStyle, 
+						scenarioNames, modelDefinition.getAttributeNames(), 
+						mcHeaders, nrSteps, mcStatistics, 
+						(UnAttributedStatisticsUtils)statsFunction, segment);
+					break;
+				}
+			}
+		} catch (RuntimeException e) {
+			book.dispose();
+			throw e;
+		}
 
-		final int nrSegments = modelDefinition.getNumberOfSegments();
-		final int nrBrands = modelDefinition.getNumberOfBrands();
-		final int nrAttributes = modelDefinition.getNumberOfAttributes();
-		
-		CellStyle cellStyle = statsFunction.getCellStyle(book, book.createDataFormat());
-		CellStyle avgStyle = statsFunction.getCellAvgStyle(book, book.createDataFormat());
+		createInfoSheet(book, styles, title, modelDefinition);
 		
-		switch (statsFunction.getContentStructure()) {
-		case BY_BRAND:
-			writeUnAttributed(numScenarios, nrSegments, nrBrands, nrMC, nrSteps, 
-					mcStatistics, (UnAttributedStatisticsUtils)statsFunction, book, 
-						cellStyle, avgStyle);
-			break;
-
-		case BY_ATT_BY_BRAND:
-			writeAttributed(numScenarios, nrSegments, nrBrands, nrAttributes, nrMC, nrSteps, 
-					mcStatistics, (AttributedStatisticsUtils)statsFunction, book, cellStyle, avgStyle);
-			break;
-		case BY_ATT:
-			writeUnAttributed(numScenarios, nrSegments, nrAttributes, nrMC, nrSteps, 
-					mcStatistics, (UnAttributedStatisticsUtils)statsFunction, book, 
-						cellStyle, avgStyle);
-			break;
-		}
 		saveWorkbook(book, filename+"_"+title);
 	}
 	
-	private final static void writeUnAttributed(int numScenarios, int nrSegments, 
-			int nrBrands, int nrMC, int nrSteps, MonteCarloStatistics[] mcStatistics, 
-			UnAttributedStatisticsUtils statsFunction, Workbook book, 
-			CellStyle cellStyle, CellStyle avgStyle
-				){
+	/**
+	 * Creates a streaming workbook, keeping ROW_WINDOW rows of each sheet in 
+	 * memory and flushing older rows to compressed temporary files. Rows 
+	 * must be created in ascending order, and the temporary files are 
+	 * deleted by saveWorkbook.
+	 * @return an empty streaming workbook.
+	 */
+	public final static SXSSFWorkbook createStreamingWorkbook() {
+		SXSSFWorkbook book = new SXSSFWorkbook(ROW_WINDOW);
+		book.setCompressTempFiles(true);
+		return book;
+	}
+	
+	/**
+	 * Creates a data sheet by segment, preceded by a summary sheet for all 
+	 * segments if there are more than one, writing their title and column 
+	 * headers.
+	 * @return the data sheets, the summary sheet first.
+	 */
+	private final static Sheet[] createSheets(
+			Workbook book,
+			HeaderStyles styles,
+			String bookName,
+			int colOffset,
+			String[] colHeaders,//weeks
+			ModelDefinition modelDefinition
+		) {
 		
-		double[][][][] sheetData = new double[numScenarios][nrMC][][];
+		final int nrSegments = modelDefinition.getNumberOfSegments();
+		List<Sheet> sheets = new ArrayList<Sheet>();
 		
-		// Allways copy aggregated data (works for 1 and more segments)
-		for (int scenario=0; scenario<numScenarios; scenario++) {
-			Statistics[] statistics = mcStatistics[scenario].getStatistics();
-			for (int mc = 0; mc < nrMC; mc++) {
-				sheetData[scenario][mc] = statsFunction.getValues(statistics[mc]);
-			}
+		if (nrSegments > 1) {
+			// Create summary sheet for all segments
+			sheets.add(book.createSheet("All"));
+		}
+		for (int i = 0; i < nrSegments; i++) {
+			sheets.add(book.createSheet(modelDefinition.getSegmentNames()[i]));
 		}
-
-		writeUnAttributedSheetData(
-				book, cellStyle, avgStyle, sheetData, nrMC, 
-				nrBrands, nrSteps, ALL_SEGMENTS_SHEET
-			);
 		
-		// If needed also write each segment data
-		if (nrSegments > 1) {
-			for (int seg = 0; seg < nrSegments; seg++) {
-				for (int scenario=0; scenario<numScenarios; scenario++) {
-					Statistics[] statistics = mcStatistics[scenario].getStatistics();
-					for (int mc = 0; mc < nrMC; mc++) {
-						sheetData[scenario][mc] = statsFunction.
-								getValuesBySegment(statistics[mc],seg);
-					}
-					writeUnAttributedSheetData(
-						book, cellStyle, avgStyle, sheetData, nrMC, 
-						nrBrands, nrSteps, (seg + 1)
-					);
-				}
+		for (Sheet sheet : sheets) {
+			sheet.setColumnWidth(1, 15 * 256);
+			sheet.setColumnWidth(2, 6 * 256);
+			
+			writeHeaders(sheet, styles, bookName, modelDefinition.getName());
+			
+			// Column headers
+			Row row = sheet.createRow(3);
+			for (int c = 0; c < colHeaders.length; c++) {
+				Cell cell = row.createCell(c + colOffset);
+				cell.setCellValue(colHeaders[c]);
+				cell.setCellStyle(styles.colHeaderStyle);
+				sheet.setColumnWidth(c + colOffset, 10 * 256);
 			}
 		}
+		
+		return sheets.toArray(new Sheet[sheets.size()]);
 	}
 	
-	private final static void writeAttributed(int numScenarios, int nrSegments, 
-			int nrBrands, int attributes, int nrMC, int nrSteps, 
-			MonteCarloStatistics[] mcStatistics, AttributedStatisticsUtils statsFunction,
-				Workbook book, CellStyle cellStyle, CellStyle avgStyle
-				){
+	/**
+	 * Writes the rows of a sheet by scenario and brand (or attribute), 
+	 * getting the values of a scenario only when its rows are written.
+	 * @param segment - segment of the values, or -1 for all segments.
+	 */
+	private final static void writeUnAttributedSheet(
+			Sheet sheet,
+			HeaderStyles styles,
+			CellStyle cellStyle,
+			CellStyle avgStyle,
+			String[] scenarioNames,
+			String[] subrows,
+			String[] mcHeaders,
+			final int nrSteps,
+			MonteCarloStatistics[] mcStatistics,
+			UnAttributedStatisticsUtils statsFunction,
+			final int segment) {
 		
-		double[][][][][] sheetData = new double[numScenarios][nrMC][][][];
+		final int nrMC = mcHeaders.length;
 		
-		// Allways copy aggregated data (works for 1 and more segments)
-		for (int scenario=0; scenario<numScenarios; scenario++) {
-			Statistics[] statistics = mcStatistics[scenario].getStatistics();
+		int rowOffset = 4;
+		String[] labels = new String[2];
+		double[][][] scenarioData = new double[nrMC][][];
+		double[][] values = new double[nrMC][];
+		
+		for (int i = 0; i < scenarioNames.length; i++) {
+			Statistics[] statistics = mcStatistics[i].getStatistics();
 			for (int mc = 0; mc < nrMC; mc++) {
-				sheetData[scenario][mc] = statsFunction.getValues(statistics[mc]);
+				scenarioData[mc] = (segment < 0)? 
+						statsFunction.getValues(statistics[mc])
+						: statsFunction.getValuesBySegment(statistics[mc], segment);
 			}
-		}
-		
-		writeAttributedSheetData(
-				book, cellStyle, avgStyle, sheetData, nrMC, 
-				nrBrands, attributes, nrSteps, ALL_SEGMENTS_SHEET
-			);
-		
-		// If needed also write each segment data
-		if (nrSegments > 1) {
-			for (int seg = 0; seg < nrSegments; seg++) {
-				for (int scenario=0; scenario<numScenarios; scenario++) {
-					Statistics[] statistics = mcStatistics[scenario].getStatistics();
-					for (int mc = 0; mc < nrMC; mc++) {
-						sheetData[scenario][mc] = statsFunction.
-								getValuesBySegment(statistics[mc],seg);
-					}
-					writeAttributedSheetData(
-						book, cellStyle, avgStyle, sheetData, nrMC, 
-						nrBrands, attributes, nrSteps, (seg + 1)
-					);
+			
+			for (int b = 0; b < subrows.length; b++) {
+				labels[0] = (b == 0)? scenarioNames[i] : null;
+				labels[1] = subrows[b];
+				for (int mc = 0; mc < nrMC; mc++) {
+					values[mc] = scenarioData[mc][b];
 				}
+				rowOffset = writeMonteCarloRows(sheet, styles, cellStyle, avgStyle, 
+						labels, mcHeaders, values, nrSteps, rowOffset);
 			}
 		}
 	}
 	
-	private final static void writeUnAttributedSheetData(
-			Workbook book,
+	/**
+	 * Writes the rows of a sheet by scenario, brand and attribute, getting 
+	 * the values of a scenario only when its rows are written.
+	 * @param segment - segment of the values, or -1 for all segments.
+	 */
+	private final static void writeAttributedSheet(
+			Sheet sheet,
+			HeaderStyles styles,
 			CellStyle cellStyle,
 			CellStyle avgStyle,
-			double[][][][] sheetData, 
-			final int nrMC, 
-			final int nrBrands,
-			final int nrSteps, 
-			final int sheetOffset) {
+			String[] scenarioNames,
+			String[] brandNames,
+			String[] attributeNames,
+			String[] mcHeaders,
+			final int nrSteps,
+			MonteCarloStatistics[] mcStatistics,
+			AttributedStatisticsUtils statsFunction,
+			final int segment) {
 		
-		final int rowOffset = 4;
-		final int colOffset = 3;
-		final int mcOffset = (nrMC > 1)? (nrMC + 2) : 2;
+		final int nrMC = mcHeaders.length;
 		
-		Sheet sheet = book.getSheetAt(sheetOffset);
-		double[][][] avg = null;
+		int rowOffset = 4;
+		String[] labels = new String[3];
+		double[][][][] scenarioData = new double[nrMC][][][];
+		double[][] values = new double[nrMC][];
 		
-		int numScenarios = sheetData.length;
-		for (int i=0; i<numScenarios; i++) {
-			
-			if (nrMC > 1) avg = new double[numScenarios][nrBrands][nrSteps];
+		for (int i = 0; i < scenarioNames.length; i++) {
+			Statistics[] statistics = mcStatistics[i].getStatistics();
 			for (int mc = 0; mc < nrMC; mc++) {
-				
-				for (int b = 0; b < nrBrands; b++) {
-					for (int t = 0; t < nrSteps; t++) {
-						
-						int rowValue = rowOffset
-								+ (i * mcOffset * nrBrands)
-								+ (b * mcOffset)
-								+ mc;
-						int colValue = colOffset + t;
-						Cell cell = sheet
-							.getRow(rowValue)
-							.createCell(colValue);
-						
-						cell.setCellValue(sheetData[i][mc][b][t]);
-						cell.setCellStyle(cellStyle);
-						
-						if (nrMC > 1) avg[i][b][t] += sheetData[i][mc][b][t];
-					}
-				}
+				scenarioData[mc] = (segment < 0)? 
+						statsFunction.getValues(statistics[mc])
+						: statsFunction.getValuesBySegment(statistics[mc], segment);
 			}
-			if (nrMC > 1) {
-				for (int b = 0; b < nrBrands; b++) {
-					for (int t = 0; t < nrSteps; t++) {
-						
-						Cell cell = sheet
-								.getRow(rowOffset 
-										+ (i * mcOffset * nrBrands)
-										+ (b * mcOffset)
-										+ nrMC)
-								.createCell(colOffset + t);
-						
-						cell.setCellValue(avg[i][b][t] / nrMC);
-						cell.setCellStyle(avgStyle);
+			
+			for (int brand = 0; brand < brandNames.length; brand++) {
+				for (int att = 0; att < attributeNames.length; att++) {
+					labels[0] = (brand == 0 && att == 0)? scenarioNames[i] : null;
+					labels[1] = (att == 0)? brandNames[brand] : null;
+					labels[2] = attributeNames[att];
+					for (int mc = 0; mc < nrMC; mc++) {
+						values[mc] = scenarioData[mc][att][brand];
 					}
+					rowOffset = writeMonteCarloRows(sheet, styles, cellStyle, 
+							avgStyle, labels, mcHeaders, values, nrSteps, rowOffset);
 				}
 			}
 		}
 	}
 	
-	private final static void writeAttributedSheetData(
-			Workbook book,
+	/**
+	 * Writes a row by Monte-Carlo iteration, followed by their average if 
+	 * there are more than one, and a blank line. The labels are written to 
+	 * the first row, before the Monte-Carlo headers.
+	 * @return the offset of the next row.
+	 */
+	private final static int writeMonteCarloRows(
+			Sheet sheet,
+			HeaderStyles styles,
 			CellStyle cellStyle,
 			CellStyle avgStyle,
-			double[][][][][] sheetData, 
-			final int nrMC, 
-			final int nrBrands,
-			final int nrAttributes,
-			final int nrSteps, 
-			final int sheetOffset) {
-		
-		final int rowOffset = 4;
-		final int colOffset = 4;
-		final int mcOffset = (nrMC > 1)? (nrMC + 2) : 2;
-		
-		Sheet sheet = book.getSheetAt(sheetOffset);
-		double[][][][] avg = null;
-		
-		int numScenarios = sheetData.length;
-		for (int i=0; i<numScenarios; i++) {
+			String[] labels,
+			String[] mcHeaders,
+			double[][] values,
+			final int nrSteps,
+			int rowOffset) {
+		
+		final int nrMC = mcHeaders.length;
+		final int colOffset = labels.length + 1;
+		double[] avg = new double[nrSteps];
+		
+		Row row;
+		Cell cell;
+		for (int mc = 0; mc < nrMC; mc++) {
+			row = sheet.createRow(rowOffset++);
 			
-			if (nrMC > 1) avg = new double[numScenarios][nrAttributes][nrBrands][nrSteps];
-			for (int mc = 0; mc < nrMC; mc++) {
-				
-				for (int att = 0; att < nrAttributes; att++) {
-					for (int brand = 0; brand < nrBrands; brand++) {
-						for (int step = 0; step < nrSteps; step++) {
-							
-							int rowValue = rowOffset
-									+ (i * mcOffset * nrBrands * nrAttributes)
-									+ (brand * mcOffset * nrAttributes)
-									+ (att * mcOffset)
-									+ mc;
-							int colValue = colOffset + step;
-							Cell cell = sheet
-								.getRow(rowValue)
-								.createCell(colValue);
-							
-							cell.setCellValue(sheetData[i][mc][att][brand][step]);
-							cell.setCellStyle(cellStyle);
-							
-							if (nrMC > 1) avg[i][att][brand][step] 
-									+= sheetData[i][mc][att][brand][step];
-						}
+			if (mc == 0) {
+				for (int l = 0; l < labels.length; l++) {
+					if (labels[l] != null) {
+						cell = row.createCell(l);
+						cell.setCellValue(labels[l]);
+						cell.setCellStyle(styles.subTitleStyle);
 					}
 				}
 			}
-			if (nrMC > 1) {
-				for (int att = 0; att < nrAttributes; att++) {
-					for (int brand = 0; brand < nrBrands; brand++) {
-						for (int step = 0; step < nrSteps; step++) {
-							
-							Cell cell = sheet
-									.getRow(rowOffset
-											+ (i * mcOffset * nrBrands * nrAttributes)
-											+ (brand * mcOffset * nrAttributes)
-											+ (att * mcOffset)
-											+ nrMC)
-									.createCell(colOffset + step);
-							
-							cell.setCellValue(avg[i][att][brand][step] / nrMC);
-							cell.setCellStyle(avgStyle);
-						}
-					}
-				}
+			cell = row.createCell(labels.length);
+			cell.setCellValue(mcHeaders[mc]);
+			cell.setCellStyle(styles.textStyle);
+			
+			for (int t = 0; t < nrSteps; t++) {
+				cell = row.createCell(colOffset + t);
+				cell.setCellValue(values[mc][t]);
+				cell.setCellStyle(cellStyle);
+				avg[t] += values[mc][t];
 			}
 		}
-	}
-	
-	public final static Workbook createWorkbook(
-			String bookName,
-			boolean includeDrivers,
-			String[] mcHeaders,
-			String[] colHeaders,//weeks
-			ModelDefinition modelDefinition,
-			String[] scenarioNames,
-			String filename,
-			REPORT_STRUCTURE structure
-		) {
-		
-		Sheet sheet;
-		Workbook book = new XSSFWorkbook();
-		
-		String[] subrows = null;
-		
-		if(structure==REPORT_STRUCTURE.BY_BRAND 
-				|| structure==REPORT_STRUCTURE.BY_ATT_BY_BRAND) {
-			subrows = modelDefinition.getBrandNames();
-		} else if (structure==REPORT_STRUCTURE.BY_ATT ){
-			subrows = modelDefinition.getAttributeNames();
-		}
-		
-		String[] subsubrows = (includeDrivers)? 
-				modelDefinition.getAttributeNames() : mcHeaders;
-
-		String[] requetesubrows = (includeDrivers)? 
-				mcHeaders : null;
-				
-		if (modelDefinition.getNumberOfSegments() > 1) {
-			// Create summary sheet for all segments
-			sheet = book.createSheet("All");
-			writeHeaders(
-				book, sheet, bookName, 
-				modelDefinition.getName(), 
-				scenarioNames,
-				subrows, subsubrows, requetesubrows,
-				colHeaders
-			);
-		}
 		
-		for (int i = 0; i < modelDefinition.getNumberOfSegments(); i++) {
-			sheet = book.createSheet(modelDefinition.getSegmentNames()[i]);
-			writeHeaders(
-				book, sheet, bookName, 
-				modelDefinition.getName(), 
-				scenarioNames,
-				subrows, subsubrows, requetesubrows,
-				colHeaders
-			);
-		}
+		// Only if more than 1 row
+		if (nrMC > 1) {
+			// Average row
+			row = sheet.createRow(rowOffset++);
+			cell = row.createCell(labels.length);
+			cell.setCellValue("AVG");
+			cell.setCellStyle(styles.textStyle);
 			
-		createInfoSheet(book, bookName, modelDefinition);
+			for (int t = 0; t < nrSteps; t++) {
+				cell = row.createCell(colOffset + t);
+				cell.setCellValue(avg[t] / nrMC);
+				cell.setCellStyle(avgStyle);
+			}
+		}
 		
-		return book;
+		return (rowOffset + 1); // 1 blank line after last row
 	}
 
 	private final static void createInfoSheet(
-			Workbook book, String bookName,
+			Workbook book, HeaderStyles styles, String bookName,
 			ModelDefinition modelDefinition) {
 		
 		Sheet sheet = book.createSheet("Info");
-		writeHeaders(
-			book, sheet, bookName, 
-			modelDefinition.getName(), 
-			null, null, null, null, null // no row/columns
-		);
+		sheet.setColumnWidth(0, 15 * 256);
+		sheet.setColumnWidth(1, 6 * 256);
+		writeHeaders(sheet, styles, bookName, modelDefinition.getName());
 		
 		int rowOffset = 3;
-		CreationHelper helper = book.getCreationHelper();
 		String[] lines = modelDefinition.getDescription().split("\\r?\\n");
 		
 		for (int i = 0; i < lines.length; i++) {
 			sheet
 				.createRow(i + rowOffset)
 				.createCell(0)
-				.setCellValue(helper.createRichTextString(lines[i]));
+				.setCellValue(lines[i]);
 		}
 	}
 
-	@SuppressWarnings("deprecation")
+	/**
+	 * Writes the title and scenario rows of a sheet.
+	 */
 	private final static void writeHeaders(
-			Workbook book, 
 			Sheet sheet, 
+			HeaderStyles styles,
 			String title, 
-			String scenario,
-			String[] rows,
-			String[] subrows,
-			String[] subsubrows,
-			String[] requetesubrows,
-			String[] cols) {
-				
-		int rowOffset, colOffset;
-
-		if (subsubrows != null) {
-			sheet.setColumnWidth(1, 15 * 256);
-			sheet.setColumnWidth(2, 6 * 256);
-		} else {
-			sheet.setColumnWidth(0, 15 * 256);
-			sheet.setColumnWidth(1, 6 * 256);
-		}
-		
-		DataFormat formatter = book.createDataFormat();
-		CreationHelper helper = book.getCreationHelper();
-		
-		Font titleFont = book.createFont();
-		titleFont.setFontHeightInPoints((short) 20);
-		titleFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-		
-		Font boldHeaderFont = book.createFont();
-		boldHeaderFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-		
-		CellStyle titleStyle = book.createCellStyle();
-		titleStyle.setDataFormat(formatter.getFormat("text"));
-		titleStyle.setFont(titleFont);
-		
-		CellStyle subTitleStyle = book.createCellStyle();
-		subTitleStyle.setDataFormat(formatter.getFormat("text"));
-		subTitleStyle.setFont(boldHeaderFont);
-		
-		CellStyle textStyle = book.createCellStyle();
-		textStyle.setDataFormat(formatter.getFormat("text"));
-		
-		CellStyle colHeaderStyle = book.createCellStyle();
-		colHeaderStyle.setDataFormat(formatter.getFormat("text"));
-		colHeaderStyle.setFont(boldHeaderFont);
-		
-		// Auxiliar references
-		Row row;
-		Cell cell;
+			String scenario) {
 		
 		// Title
-		rowOffset = 0;
-		colOffset = 0;
-		cell = sheet.createRow(rowOffset).createCell(colOffset);
-		cell.setCellValue(helper.createRichTextString(
-			String.format("%s (%s)", title, sheet.getSheetName())
-		));
-		cell.setCellStyle(titleStyle);
+		Cell cell = sheet.createRow(0).createCell(0);
+		cell.setCellValue(String.format("%s (%s)", title, sheet.getSheetName()));
+		cell.setCellStyle(styles.titleStyle);
 		
 		// Scenario
-		rowOffset = 1;
-		colOffset = 0;
-		cell = sheet.createRow(rowOffset).createCell(colOffset);
-		cell.setCellValue(helper.createRichTextString(scenario));
-		cell.setCellStyle(subTitleStyle);
-		
-		if (cols != null) {
-			// Column headers
-			rowOffset = 3;
-			colOffset = (requetesubrows == null)? 3 : 4;
-			row = sheet.createRow(rowOffset);
-			for (int c = 0; c < cols.length; c++) {
-				cell = row.createCell(c + colOffset);
-				cell.setCellValue(helper.createRichTextString(cols[c]));
-				cell.setCellStyle(colHeaderStyle);
-				sheet.setColumnWidth(c + colOffset, 10 * 256);
-			}
-		}
-		
-		if (rows != null) {
-			// Row headers
-			rowOffset = 4;
-			colOffset = 0;
-			rowOffset = writeRowHeaders(
-				sheet, rows, subrows, subsubrows, requetesubrows,
-				rowOffset, colOffset, 
-				helper, subTitleStyle, textStyle
-			);
-		}
-				
+		cell = sheet.createRow(1).createCell(0);
+		cell.setCellValue(scenario);
+		cell.setCellStyle(styles.subTitleStyle);
 	}
 	
-	private final static int writeRowHeaders(
-			Sheet sheet, 
-			String[] rows, 
-			String[] subrows, 
-			String[] subsubrows, 
-			String[] requetesubrows,
-			int rowOffset, 
-			int colOffset,
-			CreationHelper helper, 
-			CellStyle boldHeaderStyle,
-			CellStyle textStyle) {
-		
-		Row row;
-		Cell cell;
-		for (int r = 0; r < rows.length; r++) {
-			colOffset = 0;
-			row = sheet.createRow(rowOffset);
+	/**
+	 * Header styles shared by every sheet of a book. Books have a limited 
+	 * number of styles, so they are created once.
+	 */
+	private final static class HeaderStyles {
+		
+		private final CellStyle titleStyle;
+		private final CellStyle subTitleStyle;
+		private final CellStyle textStyle;
+		private final CellStyle colHeaderStyle;
+		
+		@SuppressWarnings("deprecation")
+		private HeaderStyles(Workbook book) {
+			DataFormat formatter = book.createDataFormat();
 			
-			cell = row.createCell(colOffset);
-			cell.setCellValue(helper.createRichTextString(rows[r]));
-			cell.setCellStyle(boldHeaderStyle);
+			Font titleFont = book.createFont();
+			titleFont.setFontHeightInPoints((short) 20);
+			titleFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
 			
+			Font boldHeaderFont = book.createFont();
+			boldHeaderFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
 			
-			// Offset for subrow headers
-			colOffset = 1;
-			
-			if (subsubrows != null) {
-				
-				// Middle row headers (3 levels)
-				rowOffset = writeMiddleRowHeader(
-					sheet, row, subrows[0], subsubrows, requetesubrows,
-					helper,	boldHeaderStyle, textStyle,
-					rowOffset, colOffset
-				);
-				
-				for (int r2 = 1; r2 < subrows.length; r2++) {
-					row = sheet.createRow(rowOffset);
-					
-					rowOffset = writeMiddleRowHeader(
-						sheet, row, subrows[r2], subsubrows, requetesubrows,
-						helper,	boldHeaderStyle, textStyle,
-						rowOffset, colOffset 
-					);
-				}
-			} else {
-				
-				// Last row headers (only 2 levels)
-				rowOffset = writeLastRowHeaders(
-					sheet, row, subrows, 
-					helper, textStyle, 
-					rowOffset, colOffset
-				);
-			}
-		}
-		return rowOffset;
-	}
-
-	private final static int writeMiddleRowHeader(
-			Sheet sheet,
-			Row row,
-			String subheader,
-			String[] subsubheaders,
-			String[] requetesubrows,
-			CreationHelper helper, 
-			CellStyle subheaderStyle, 
-			CellStyle subsubheaderStyle,
-			int rowOffset,
-			final int colOffset) {
-		
-		Cell cell;
-		cell = row.createCell(colOffset);
-		cell.setCellValue(helper.createRichTextString(subheader));
-		cell.setCellStyle(subheaderStyle);
-		
-		if(requetesubrows==null) {
-			// Write last level headers
-			rowOffset = writeLastRowHeaders(
-				sheet, row, subsubheaders, 
-				helper, subsubheaderStyle, 
-				rowOffset, (colOffset + 1)
-			);
-		} else {
-			// Middle row headers (3 levels)
-			rowOffset = writeMiddleRowHeader(
-				sheet, row, subsubheaders[0], requetesubrows, null,
-				helper,	subheaderStyle, subsubheaderStyle, rowOffset, colOffset+1
-			);
+			titleStyle = book.createCellStyle();
+			titleStyle.setDataFormat(formatter.getFormat("text"));
+			titleStyle.setFont(titleFont);
 			
-			for (int r2 = 1; r2 < subsubheaders.length; r2++) {
-				row = sheet.createRow(rowOffset);
-				
-				rowOffset = writeMiddleRowHeader(
-					sheet, row, subsubheaders[r2], requetesubrows, null,
-					helper,	subheaderStyle, subsubheaderStyle, rowOffset, colOffset +1
-				);
-			}
-		}
-		
-		
-		return rowOffset; // rowOffset is handled in subsubheaders
-	}
-	
-	private final static int writeLastRowHeaders(
-			Sheet sheet,
-			Row row,
-			String[] lastHeaders,
-			CreationHelper helper, 
-			CellStyle cellStyle, 
-			int rowOffset,
-			final int colOffset) {
-		
-		// First row
-		Cell cell = row.createCell(colOffset);
-		cell.setCellValue(helper.createRichTextString(lastHeaders[0]));
-		cell.setCellStyle(cellStyle);
-		
-		// Only if more than 1 row
-		if (lastHeaders.length > 1) {
+			subTitleStyle = book.createCellStyle();
+			subTitleStyle.setDataFormat(formatter.getFormat("text"));
+			subTitleStyle.setFont(boldHeaderFont);
 			
-			for (int i = 1; i < lastHeaders.length; i++) {
-				
-				rowOffset++; // always advance row in last level
-				
-				//System.out.println("    " + rowOffset + " " + colOffset);
-				row = sheet.createRow(rowOffset);
-				
-				cell = row.createCell(colOffset);
-				cell.setCellValue(helper.createRichTextString(lastHeaders[i]));
-				cell.setCellStyle(cellStyle);
-			}
+			textStyle = book.createCellStyle();
+			textStyle.setDataFormat(formatter.getFormat("text"));
 			
-			// Average row
-			rowOffset++;
-			//System.out.println("    " + rowOffset + " " + colOffset);
-			row = sheet.createRow(rowOffset);
-			cell = row.createCell(colOffset);
-			cell.setCellValue(helper.createRichTextString("AVG"));
-			cell.setCellStyle(cellStyle);
+			colHeaderStyle = book.createCellStyle();
+			colHeaderStyle.setDataFormat(formatter.getFormat("text"));
+			colHeaderStyle.setFont(boldHeaderFont);
 		}
-		
-		return (rowOffset + 2); // 1 blank line after last row
 	}
 	
 	public final static void saveWorkbook(Workbook book, String filename) {
@@ -640,6 +438,11 @@ public class XLSXFileUtils {
 			book.close();
 		} catch (IOException e) {
 			e.printStackTrace();
+		} finally {
+			// Temporary files of streamed sheets
+			if (book instanceof SXSSFWorkbook) {
+				((SXSSFWorkbook) book).dispose();
+			}
 		}
 	}
 	
@@ -0,0 +1,28 @@
+package util.random;
+
+/**
+ * Randomizer whose internal state can be copied, so the copy returns
+ * exactly the same sequence of values as the original instance.
+ * 
+ * @author imoya
+ *
+ */
+public interface CopyableRandomizer extends Randomizer {
+
+	/**
+	 * Creates an independent randomizer sharing the current state.
+	 * 
+	 * @return a copy of this randomizer.
+	 */
+	public CopyableRandomizer copy();
+	
+	/**
+	 * Sets the state of this randomizer to the state of the given one, so 
+	 * both return the same sequence of values from then on.
+	 * 
+	 * @param other - a randomizer of the same class.
+	 * @throws ClassCastException if the given randomizer belongs to 
+	 * another class.
+	 */
+	public void setState(CopyableRandomizer other);
+}
@@ -147,6 +147,52 @@ public final class RandomizerUtils {
 		else return computeGeometricApproxOfBinomial(p, n, r);
 	}
 
+	/**
+	 * Maximum mean value sampled by inversion in computeBinomialInversion.
+	 */
+	private static final double BINOMIAL_INVERSION_MAX_MEAN = 200;
+
+	/**
+	 * Compute a Binomial B(n, p) value by inversion, using a single uniform
+	 * value and O(mean) operations. Distributions with a mean over 200 are
+	 * approximated by a Normal Distribution N(np, np(1-p)).
+	 *
+	 * @param n Number of Bernoulli trials
+	 * @param p Probability of Bernoulli trials
+	 * @param r Pseudo-Random Number Generator (PRNG)
+	 *
+	 * @return Number of successes, in [0, n]
+	 */
+	public static final int computeBinomialInversion(
+			final int n, final double p, Randomizer r) {
+
+		if (n <= 0 || p <= 0) return 0;
+		if (p >= 1) return n;
+
+		// Reverse probability if (1 -p) > p
+		if (p > 0.5) return n - computeBinomialInversion(n, 1 - p, r);
+
+		final double q = 1 - p;
+		final double mean = n * p;
+
+		if (mean > BINOMIAL_INVERSION_MAX_MEAN) {
+			long x = Math.round(mean + Math.sqrt(mean * q) * r.nextGaussian());
+			return (int) Math.max(0, Math.min(n, x));
+		}
+
+		// P(X=0) = q^n, P(X=x+1) = P(X=x) * (n-x)/(x+1) * p/q
+		final double ratio = p / q;
+		double probability = Math.pow(q, n);
+		double u = r.nextDouble();
+		int x = 0;
+		while (u > probability && x < n) {
+			u -= probability;
+			probability *= ratio * (n - x) / (x + 1);
+			x++;
+		}
+		return x;
+	}
+
 	public static final double computeGeometricApproxOfBinomial(
 			final double p, final double n, Randomizer r) {
 		
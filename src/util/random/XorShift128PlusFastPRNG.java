@@ -51,7 +51,7 @@ import org.apache.commons.math3.random.RandomGenerator;
  * with <a href="http://commons.apache.org/math/">Commons Math</a>, 
  * you might be wanting this class instead of {@link XorShift128PlusRandom}.
  */
-public final class XorShift128PlusFastPRNG implements Randomizer {
+public final class XorShift128PlusFastPRNG implements CopyableRandomizer {
 	
 	/** 2<sup>-53</sup>. */
 	private static final double NORM_53 = 1. / ( 1L << 53 );
@@ -79,6 +79,32 @@ public final class XorShift128PlusFastPRNG implements Randomizer {
 	public XorShift128PlusFastPRNG( final long seed ) {
 		setSeed( seed );
 	}
+
+	/**
+	 * Creates a new generator sharing the state of the given one.
+	 * 
+	 * @param other the generator whose state is copied.
+	 */
+	private XorShift128PlusFastPRNG( final XorShift128PlusFastPRNG other ) {
+		s0 = other.s0;
+		s1 = other.s1;
+		__nextNextGaussian = other.__nextNextGaussian;
+		__haveNextNextGaussian = other.__haveNextNextGaussian;
+	}
+
+	@Override
+	public final XorShift128PlusFastPRNG copy() {
+		return new XorShift128PlusFastPRNG( this );
+	}
+	
+	@Override
+	public final void setState( final CopyableRandomizer other ) {
+		final XorShift128PlusFastPRNG state = (XorShift128PlusFastPRNG) other;
+		s0 = state.s0;
+		s1 = state.s1;
+		__nextNextGaussian = state.__nextNextGaussian;
+		__haveNextNextGaussian = state.__haveNextNextGaussian;
+	}
 	
 	/** 
 	 * Sets the seed of this generator.
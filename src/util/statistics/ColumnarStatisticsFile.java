@@ -0,0 +1,785 @@
+package util.statistics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.WorkbookUtil;
+
+import util.io.CSVFileUtils;
+import util.io.StatisticsRecordingBean;
+import util.io.XLSXFileUtils;
+
+/**
+ * ColumnarStatisticsFile stores the statistics of every Monte-Carlo
+ * iteration of a simulation in a binary columnar file, without the
+ * precision loss and the parsing costs of CSV and XLSX files.
+ *
+ * Every recorded array of the Statistics objects (sales, awareness,
+ * perceptions, contributions, WoM and reach) is stored as a column of
+ * little-endian values, Monte-Carlo iterations first and then the
+ * dimensions of the array in row-major order. A self-describing header
+ * stores the dimensions of the simulation and the name, type, shape and
+ * position of every column. Columns are optionally compressed with
+ * deflate. Uncompressed columns are read without copies by mapping the
+ * file in memory.
+ *
+ * Files are converted back to MonteCarloStatistics objects, so every
+ * existing report can be generated from them, or directly to CSV and
+ * XLSX files with a sheet by column.
+ *
+ * Layout: magic bytes, version, header size, header, and every column
+ * aligned to 8 bytes.
+ *
+ * @author imoya
+ *
+ */
+public class ColumnarStatisticsFile implements Closeable {
+
+	public static final String EXTENSION = ".scol";
+
+	public static final String SALES = "salesByBrandBySegmentByStep";
+	public static final String AWARENESS = "awarenessByBrandByStep";
+	public static final String AWARENESS_BY_SEGMENT = "awarenessBySegByBrandByStep";
+	public static final String PERCEPTIONS = "perceptionsByAttByBrandByStep";
+	public static final String PERCEPTIONS_BY_SEGMENT = "perceptionsBySegByAttByBrandByStep";
+	public static final String CONTRIBUTIONS = "contributionByAttByBrandByTp";
+	public static final String CONTRIBUTIONS_BY_SEGMENT = "contributionBySegByAttByBrandByTp";
+	public static final String WOM_VOLUME_BY_SEGMENT_BY_BRAND = "womVolumeBySegByBrandByStep";
+	public static final String WOM_VOLUME_BY_SEGMENT_BY_ATT = "womVolumeBySegByAttByStep";
+	public static final String WOM_SENTIMENT = "womSentimentByBrandByStep";
+	public static final String WOM_REACH_BY_SEGMENT = "womReachBySegByBrandByStep";
+	public static final String WOM_CONTRIBUTIONS = "womContributionBySegByBrandByTp";
+	public static final String WOM_VOLUME_BY_BRAND = "womVolumeByBrandByStep";
+	public static final String WOM_VOLUME_BY_ATT = "womVolumeByAttByStep";
+	public static final String WOM_REACH = "womReachByBrandByStep";
+	public static final String REACH = "reachByTouchpointByBrandBySegment";
+	public static final String SEGMENT_SIZES = "segmentSizes";
+
+	private static final byte[] MAGIC = {'S', 'O', 'C', 'C', 'O', 'L', '\r', '\n'};
+	private static final int VERSION = 1;
+
+	/**
+	 * Magic bytes, version and header size.
+	 */
+	private static final int PREFIX_SIZE = MAGIC.length + 8;
+	private static final int ALIGNMENT = 8;
+
+	private static final byte INT32 = 0;
+	private static final byte FLOAT64 = 1;
+
+	private static final byte UNCOMPRESSED = 0;
+	private static final byte DEFLATE = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final int MAX_XLSX_ROWS = 1048576;
+
+	/**
+	 * Array of the Statistics objects stored as a column.
+	 */
+	private static class ColumnSource {
+		final String name;
+		final byte type;
+		final Function<Statistics, Object> values;
+
+		ColumnSource(String name, byte type, Function<Statistics, Object> values) {
+			this.name = name;
+			this.type = type;
+			this.values = values;
+		}
+	}
+
+	private static final ColumnSource[] SOURCES = {
+		new ColumnSource(SALES, INT32, s -> s.salesByBrandBySegmentByStep),
+		new ColumnSource(AWARENESS, FLOAT64, s -> s.awarenessByBrandByStep),
+		new ColumnSource(AWARENESS_BY_SEGMENT, FLOAT64, s -> s.awarenessBySegByBrandByStep),
+		new ColumnSource(PERCEPTIONS, FLOAT64, s -> s.perceptionsByAttByBrandByStep),
+		new ColumnSource(PERCEPTIONS_BY_SEGMENT, FLOAT64, s -> s.perceptionsBySegByAttByBrandByStep),
+		new ColumnSource(CONTRIBUTIONS, FLOAT64, s -> s.getContributionByAttByBrandByTp()),
+		new ColumnSource(CONTRIBUTIONS_BY_SEGMENT, FLOAT64, s -> s.getContributionBySegByAttByBrandByTp()),
+		new ColumnSource(WOM_VOLUME_BY_SEGMENT_BY_BRAND, FLOAT64, s -> s.womVolumeBySegByBrandByStep),
+		new ColumnSource(WOM_VOLUME_BY_SEGMENT_BY_ATT, FLOAT64, s -> s.womVolumeBySegByAttByStep),
+		new ColumnSource(WOM_SENTIMENT, FLOAT64, s -> s.womSentimentByBrandByStep),
+		new ColumnSource(WOM_REACH_BY_SEGMENT, FLOAT64, s -> s.womReachBySegByBrandByStep),
+		new ColumnSource(WOM_CONTRIBUTIONS, FLOAT64, s -> s.womContributionBySegByBrandByTp),
+		new ColumnSource(WOM_VOLUME_BY_BRAND, FLOAT64, s -> s.womVolumeByBrandByStep),
+		new ColumnSource(WOM_VOLUME_BY_ATT, FLOAT64, s -> s.womVolumeByAttByStep),
+		new ColumnSource(WOM_REACH, FLOAT64, s -> s.womReachByBrandByStep),
+		new ColumnSource(REACH, FLOAT64, s -> s.getReachByTouchpointByBrandBySegment()),
+		new ColumnSource(SEGMENT_SIZES, INT32, s -> s.getSegmentSizes())
+	};
+
+	/**
+	 * Column described by the header.
+	 */
+	private static class Column {
+		String name;
+		byte type;
+		byte compression;
+		int[] shape;
+		long offset;
+		long length;
+
+		long elements() {
+			long elements = 1;
+			for (int dimension : shape) {
+				elements *= dimension;
+			}
+			return elements;
+		}
+
+		long rawLength() {
+			return elements() * (type == INT32 ? Integer.BYTES : Double.BYTES);
+		}
+
+		int headerSize() {
+			return 2 + name.getBytes(StandardCharsets.UTF_8).length
+					+ 3 + shape.length * Integer.BYTES + 2 * Long.BYTES;
+		}
+	}
+
+	private final FileChannel channel;
+
+	private int nrMC;
+	private int nrSegments;
+	private int nrBrands;
+	private int nrAttributes;
+	private int nrSteps;
+	private int stepsForWeek;
+	private int nrTouchPoints;
+	private double agentsRatio;
+
+	private final Map<String, Column> columns = new LinkedHashMap<String, Column>();
+
+	// ########################################################################
+	// Writing
+	// ########################################################################
+
+	/**
+	 * Writes the statistics of every Monte-Carlo iteration to a file.
+	 *
+	 * @param mcStatistics - statistics of the simulation.
+	 * @param filename - name of the file.
+	 * @param compress - true for compressing the columns.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void write(MonteCarloStatistics mcStatistics, String filename,
+			boolean compress) throws IOException {
+		Statistics[] statistics = mcStatistics.getStatistics();
+		Statistics first = statistics[0];
+
+		List<Column> columns = new ArrayList<Column>();
+		List<ColumnSource> sources = new ArrayList<ColumnSource>();
+		for (ColumnSource source : SOURCES) {
+			Object values = source.values.apply(first);
+			if(values != null) {
+				Column column = new Column();
+				column.name = source.name;
+				column.type = source.type;
+				column.compression = compress ? DEFLATE : UNCOMPRESSED;
+				column.shape = shapeOf(values, statistics.length);
+				columns.add(column);
+				sources.add(source);
+			}
+		}
+
+		int headerSize = 8 * Integer.BYTES + Double.BYTES;
+		for (Column column : columns) {
+			headerSize += column.headerSize();
+		}
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+			long position = align(PREFIX_SIZE + headerSize);
+			for (int c = 0; c < columns.size(); c++) {
+				Column column = columns.get(c);
+				column.offset = position;
+				channel.position(position);
+				writeColumn(channel, column, sources.get(c), statistics);
+				column.length = channel.position() - position;
+				position = align(channel.position());
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(PREFIX_SIZE + headerSize)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			header.put(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(headerSize);
+			header.putInt(mcStatistics.getNumberOfMonteCarloRepetitions());
+			header.putInt(mcStatistics.getNrSegments());
+			header.putInt(mcStatistics.getNrBrands());
+			header.putInt(mcStatistics.getNrAttributes());
+			header.putInt(mcStatistics.getNrSteps());
+			header.putInt(first.getStepsForWeek());
+			header.putInt(first.getNumberOfTouchpoints());
+			header.putDouble(first.getAgentsRatio());
+			header.putInt(columns.size());
+			for (Column column : columns) {
+				byte[] name = column.name.getBytes(StandardCharsets.UTF_8);
+				header.putShort((short) name.length);
+				header.put(name);
+				header.put(column.type);
+				header.put(column.compression);
+				header.put((byte) column.shape.length);
+				for (int dimension : column.shape) {
+					header.putInt(dimension);
+				}
+				header.putLong(column.offset);
+				header.putLong(column.length);
+			}
+			header.flip();
+			channel.position(0);
+			writeFully(channel, header);
+		}
+	}
+
+	private static long align(long position) {
+		return (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Returns the shape of a rectangular array, adding the Monte-Carlo
+	 * iterations as first dimension.
+	 */
+	private static int[] shapeOf(Object values, int nrMC) {
+		List<Integer> shape = new ArrayList<Integer>();
+		shape.add(nrMC);
+		Object current = values;
+		while (current != null && current.getClass().isArray()) {
+			int length = Array.getLength(current);
+			shape.add(length);
+			if(length == 0 || current instanceof double[] || current instanceof int[]) {
+				break;
+			}
+			current = Array.get(current, 0);
+		}
+		int[] result = new int[shape.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = shape.get(i);
+		}
+		return result;
+	}
+
+	private static void writeColumn(FileChannel channel, Column column,
+			ColumnSource source, Statistics[] statistics) throws IOException {
+		long elementsByMC = column.elements() / column.shape[0];
+		int valueSize = column.type == INT32 ? Integer.BYTES : Double.BYTES;
+		Deflater deflater = column.compression == DEFLATE ? new Deflater() : null;
+		byte[] compressed = deflater != null ? new byte[BUFFER_SIZE] : null;
+
+		try {
+			for (int mc = 0; mc < statistics.length; mc++) {
+				Object values = source.values.apply(statistics[mc]);
+				ByteBuffer buffer = ByteBuffer.allocate(
+						(int) (elementsByMC * valueSize)).order(ByteOrder.LITTLE_ENDIAN);
+				if(values == null || !flatten(values, buffer)
+						|| buffer.hasRemaining()) {
+					throw new IllegalStateException("Statistics of MC " + mc
+						+ " do not match the shape of " + column.name + " "
+							+ Arrays.toString(column.shape));
+				}
+				buffer.flip();
+				if(deflater == null) {
+					writeFully(channel, buffer);
+				} else {
+					deflater.setInput(buffer.array(), 0, buffer.limit());
+					while (!deflater.needsInput()) {
+						int length = deflater.deflate(compressed);
+						writeFully(channel, ByteBuffer.wrap(compressed, 0, length));
+					}
+				}
+			}
+			if(deflater != null) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					int length = deflater.deflate(compressed);
+					writeFully(channel, ByteBuffer.wrap(compressed, 0, length));
+				}
+			}
+		} finally {
+			if(deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Copies the values of a nested array to the buffer in row-major order.
+	 * @return false if the array does not fit in the buffer.
+	 */
+	private static boolean flatten(Object values, ByteBuffer buffer) {
+		if(values instanceof double[]) {
+			double[] array = (double[]) values;
+			if(buffer.remaining() < array.length * Double.BYTES) {
+				return false;
+			}
+			for (double value : array) {
+				buffer.putDouble(value);
+			}
+		} else if(values instanceof int[]) {
+			int[] array = (int[]) values;
+			if(buffer.remaining() < array.length * Integer.BYTES) {
+				return false;
+			}
+			for (int value : array) {
+				buffer.putInt(value);
+			}
+		} else {
+			for (Object element : (Object[]) values) {
+				if(element == null || !flatten(element, buffer)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// ########################################################################
+	// Reading
+	// ########################################################################
+
+	/**
+	 * Opens a file for reading.
+	 *
+	 * @param filename - name of the file.
+	 * @return the opened file.
+	 * @throws IOException if the file cannot be read or has not a valid
+	 * format.
+	 */
+	public static ColumnarStatisticsFile open(String filename) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filename),
+				StandardOpenOption.READ);
+		try {
+			return new ColumnarStatisticsFile(channel, filename);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private ColumnarStatisticsFile(FileChannel channel, String filename)
+			throws IOException {
+		this.channel = channel;
+
+		ByteBuffer prefix = read(0, PREFIX_SIZE);
+		byte[] magic = new byte[MAGIC.length];
+		prefix.get(magic);
+		if(!Arrays.equals(magic, MAGIC)) {
+			throw new IOException(filename + " is not a columnar statistics file.");
+		}
+		int version = prefix.getInt();
+		if(version > VERSION) {
+			throw new IOException(filename + " has an unsupported version: "
+					+ version);
+		}
+		int headerSize = prefix.getInt();
+
+		ByteBuffer header = read(PREFIX_SIZE, headerSize);
+		nrMC = header.getInt();
+		nrSegments = header.getInt();
+		nrBrands = header.getInt();
+		nrAttributes = header.getInt();
+		nrSteps = header.getInt();
+		stepsForWeek = header.getInt();
+		nrTouchPoints = header.getInt();
+		agentsRatio = header.getDouble();
+		int nrColumns = header.getInt();
+		for (int c = 0; c < nrColumns; c++) {
+			Column column = new Column();
+			byte[] name = new byte[header.getShort()];
+			header.get(name);
+			column.name = new String(name, StandardCharsets.UTF_8);
+			column.type = header.get();
+			column.compression = header.get();
+			column.shape = new int[header.get()];
+			for (int i = 0; i < column.shape.length; i++) {
+				column.shape[i] = header.getInt();
+			}
+			column.offset = header.getLong();
+			column.length = header.getLong();
+			columns.put(column.name, column);
+		}
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of columnar statistics file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private Column getColumnDescription(String name) {
+		Column column = columns.get(name);
+		if(column == null) {
+			throw new IllegalArgumentException("Column not found: " + name);
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the little-endian values of a column. Uncompressed columns are
+	 * mapped in memory, compressed ones are decompressed into the heap.
+	 *
+	 * @param name - name of the column.
+	 * @return a read-only buffer with the values of the column.
+	 * @throws IOException if the column cannot be read.
+	 */
+	public ByteBuffer getColumn(String name) throws IOException {
+		Column column = getColumnDescription(name);
+		long rawLength = column.rawLength();
+		if(rawLength > Integer.MAX_VALUE) {
+			throw new IOException("Column " + name + " is too large to be mapped: "
+					+ rawLength + " bytes.");
+		}
+		if(column.compression == UNCOMPRESSED) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, column.offset,
+					rawLength).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		ByteBuffer compressed = channel.map(FileChannel.MapMode.READ_ONLY,
+				column.offset, column.length);
+		byte[] input = new byte[BUFFER_SIZE];
+		byte[] values = new byte[(int) rawLength];
+		int length = 0;
+		Inflater inflater = new Inflater();
+		try {
+			while (length < values.length && !inflater.finished()) {
+				if(inflater.needsInput()) {
+					if(!compressed.hasRemaining()) {
+						throw new IOException("Column " + name + " is truncated.");
+					}
+					int chunk = Math.min(input.length, compressed.remaining());
+					compressed.get(input, 0, chunk);
+					inflater.setInput(input, 0, chunk);
+				}
+				length += inflater.inflate(values, length, values.length - length);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Column " + name + " is corrupted.", e);
+		} finally {
+			inflater.end();
+		}
+		if(length < values.length) {
+			throw new IOException("Column " + name + " is truncated.");
+		}
+		return ByteBuffer.wrap(values).asReadOnlyBuffer()
+				.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Returns the values of a column of decimal values.
+	 *
+	 * @param name - name of the column.
+	 * @return a read-only buffer with the values of the column.
+	 * @throws IOException if the column cannot be read.
+	 */
+	public DoubleBuffer getDoubleColumn(String name) throws IOException {
+		if(getColumnDescription(name).type != FLOAT64) {
+			throw new IllegalArgumentException(name + " is not a decimal column.");
+		}
+		return getColumn(name).asDoubleBuffer();
+	}
+
+	/**
+	 * Returns the values of a column of integer values.
+	 *
+	 * @param name - name of the column.
+	 * @return a read-only buffer with the values of the column.
+	 * @throws IOException if the column cannot be read.
+	 */
+	public IntBuffer getIntColumn(String name) throws IOException {
+		if(getColumnDescription(name).type != INT32) {
+			throw new IllegalArgumentException(name + " is not an integer column.");
+		}
+		return getColumn(name).asIntBuffer();
+	}
+
+	/**
+	 * Returns a copy of the values of any column as decimal values.
+	 *
+	 * @param name - name of the column.
+	 * @return the values of the column in row-major order.
+	 * @throws IOException if the column cannot be read.
+	 */
+	public double[] getValues(String name) throws IOException {
+		Column column = getColumnDescription(name);
+		double[] values = new double[(int) column.elements()];
+		if(column.type == INT32) {
+			IntBuffer buffer = getIntColumn(name);
+			for (int i = 0; i < values.length; i++) {
+				values[i] = buffer.get(i);
+			}
+		} else {
+			getDoubleColumn(name).get(values);
+		}
+		return values;
+	}
+
+	public boolean hasColumn(String name) {
+		return columns.containsKey(name);
+	}
+
+	public String[] getColumnNames() {
+		return columns.keySet().toArray(new String[columns.size()]);
+	}
+
+	/**
+	 * Returns the shape of a column, Monte-Carlo iterations first.
+	 *
+	 * @param name - name of the column.
+	 * @return the shape of the column.
+	 */
+	public int[] getShape(String name) {
+		return getColumnDescription(name).shape.clone();
+	}
+
+	// ########################################################################
+	// Conversions
+	// ########################################################################
+
+	/**
+	 * Returns the recording configuration matching the stored columns.
+	 *
+	 * @return the recording configuration of the stored statistics.
+	 */
+	public StatisticsRecordingBean getRecordingBean() {
+		boolean wom = hasColumn(WOM_VOLUME_BY_BRAND);
+		return new StatisticsRecordingBean(true, hasColumn(AWARENESS),
+				hasColumn(PERCEPTIONS), hasColumn(CONTRIBUTIONS), wom, wom, wom,
+					wom, hasColumn(REACH));
+	}
+
+	/**
+	 * Builds the statistics of the simulation again.
+	 *
+	 * @return the statistics stored by the file.
+	 * @throws IOException if the columns cannot be read.
+	 */
+	public MonteCarloStatistics toMonteCarloStatistics() throws IOException {
+		MonteCarloStatistics mcStatistics = new MonteCarloStatistics(nrMC,
+				nrSegments, nrBrands, nrAttributes, nrSteps, stepsForWeek);
+
+		Map<String, ByteBuffer> buffers = new LinkedHashMap<String, ByteBuffer>();
+		for (String name : columns.keySet()) {
+			buffers.put(name, getColumn(name));
+		}
+		int[] salesShape = getShape(SALES);
+		boolean awareness = hasColumn(AWARENESS);
+		boolean perceptions = hasColumn(PERCEPTIONS);
+		boolean contributions = hasColumn(CONTRIBUTIONS);
+		boolean wom = hasColumn(WOM_VOLUME_BY_BRAND);
+		boolean additional = awareness || perceptions || contributions || wom
+				|| hasColumn(SEGMENT_SIZES);
+
+		for (int mc = 0; mc < nrMC; mc++) {
+			Statistics statistics = new Statistics(nrSegments, nrBrands,
+					nrAttributes, salesShape[3], stepsForWeek, agentsRatio);
+
+			int[] segmentSizes = null;
+			if(hasColumn(SEGMENT_SIZES)) {
+				segmentSizes = new int[getShape(SEGMENT_SIZES)[1]];
+				fill(segmentSizes, buffers.get(SEGMENT_SIZES));
+			}
+			if(additional) {
+				statistics.enableAdditionalStatistics(awareness, perceptions,
+						true, wom, segmentSizes, contributions, nrTouchPoints);
+			}
+			if(hasColumn(REACH)) {
+				int[] shape = getShape(REACH);
+				statistics.setReachByTouchpointByBrandBySegment((double[][][])
+						Array.newInstance(double.class,
+							Arrays.copyOfRange(shape, 1, shape.length)));
+			}
+
+			for (ColumnSource source : SOURCES) {
+				if(!source.name.equals(SEGMENT_SIZES) && hasColumn(source.name)) {
+					Object values = source.values.apply(statistics);
+					if(values == null || !Arrays.equals(shapeOf(values, nrMC),
+							getShape(source.name))) {
+						throw new IOException("Column " + source.name
+								+ " does not match the dimensions of the statistics.");
+					}
+					fill(values, buffers.get(source.name));
+				}
+			}
+			mcStatistics.saveStatistics(statistics, mc);
+		}
+		return mcStatistics;
+	}
+
+	/**
+	 * Copies the next values of the buffer to a nested array.
+	 */
+	private static void fill(Object values, ByteBuffer buffer) {
+		if(values instanceof double[]) {
+			double[] array = (double[]) values;
+			for (int i = 0; i < array.length; i++) {
+				array[i] = buffer.getDouble();
+			}
+		} else if(values instanceof int[]) {
+			int[] array = (int[]) values;
+			for (int i = 0; i < array.length; i++) {
+				array[i] = buffer.getInt();
+			}
+		} else {
+			for (Object element : (Object[]) values) {
+				fill(element, buffer);
+			}
+		}
+	}
+
+	/**
+	 * Writes every column to a CSV file in the given folder, with a row by
+	 * Monte-Carlo iteration and index of the inner dimensions, and the
+	 * values of the last dimension as columns.
+	 *
+	 * @param folder - folder of the CSV files.
+	 * @throws IOException if the files cannot be written.
+	 */
+	public void writeCSV(String folder) throws IOException {
+		for (String name : columns.keySet()) {
+			int[] shape = getShape(name);
+			int rowLength = shape[shape.length - 1];
+			double[] values = getValues(name);
+			int rowsByMC = rowLength > 0 ? values.length / shape[0] / rowLength : 0;
+
+			double[][][] rows = new double[shape[0]][rowsByMC][];
+			int index = 0;
+			for (int mc = 0; mc < shape[0]; mc++) {
+				for (int row = 0; row < rowsByMC; row++) {
+					rows[mc][row] = Arrays.copyOfRange(values, index, index + rowLength);
+					index += rowLength;
+				}
+			}
+			CSVFileUtils.writeDoubleThreeDimArrayToCSV(folder + "/" + name + ".csv",
+					rows, CSVFileUtils.DEFAULT_CSV_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Writes every column to a sheet of an XLSX book, with a row by
+	 * Monte-Carlo iteration and index of the inner dimensions, and the
+	 * values of the last dimension as columns.
+	 *
+	 * @param filename - name of the book, without extension.
+	 * @throws IOException if the columns cannot be read.
+	 */
+	public void writeXLSX(String filename) throws IOException {
+		Workbook book = XLSXFileUtils.createStreamingWorkbook();
+		for (String name : columns.keySet()) {
+			int[] shape = getShape(name);
+			int rowLength = shape[shape.length - 1];
+			int indexes = shape.length - 1;
+			double[] values = getValues(name);
+			int rows = rowLength > 0 ? values.length / rowLength : 0;
+			if(rows + 1 > MAX_XLSX_ROWS) {
+				throw new IllegalStateException("Column " + name
+					+ " has too many rows for a XLSX sheet: " + rows);
+			}
+
+			Sheet sheet = book.createSheet(WorkbookUtil.createSafeSheetName(name));
+			Row header = sheet.createRow(0);
+			header.createCell(0).setCellValue("MC");
+			for (int i = 1; i < indexes; i++) {
+				header.createCell(i).setCellValue("Index " + i);
+			}
+			for (int j = 0; j < rowLength; j++) {
+				header.createCell(indexes + j).setCellValue(j);
+			}
+
+			int[] index = new int[indexes];
+			for (int r = 0; r < rows; r++) {
+				Row row = sheet.createRow(r + 1);
+				for (int i = 0; i < indexes; i++) {
+					row.createCell(i).setCellValue(index[i]);
+				}
+				for (int j = 0; j < rowLength; j++) {
+					row.createCell(indexes + j).setCellValue(
+							values[r * rowLength + j]);
+				}
+				//Next index of the inner dimensions
+				for (int i = indexes - 1; i >= 0; i--) {
+					if(++index[i] < shape[i]) {
+						break;
+					}
+					index[i] = 0;
+				}
+			}
+		}
+		XLSXFileUtils.saveWorkbook(book, filename);
+	}
+
+	// ########################################################################
+	// Get/Set methods
+	// ########################################################################
+
+	public int getNumberOfMonteCarloRepetitions() {
+		return nrMC;
+	}
+
+	public int getNrSegments() {
+		return nrSegments;
+	}
+
+	public int getNrBrands() {
+		return nrBrands;
+	}
+
+	public int getNrAttributes() {
+		return nrAttributes;
+	}
+
+	public int getNrSteps() {
+		return nrSteps;
+	}
+
+	public int getStepsForWeek() {
+		return stepsForWeek;
+	}
+
+	public int getNumberOfTouchpoints() {
+		return nrTouchPoints;
+	}
+
+	public double getAgentsRatio() {
+		return agentsRatio;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -298,6 +298,32 @@ public class Statistics {
 		return salesByBrand;
 	}
 	
+	/**
+	 * Returns the number of periods whose values are final once the given 
+	 * step has been simulated, i.e. the periods of the arrays computed with 
+	 * computeScaledSalesByBrandByStep that will not change anymore.
+	 * @param period the period used for the sales computation.
+	 * @param step the last simulated step.
+	 * @return the number of completed periods.
+	 */
+	public int computeCompletedPeriods(TimePeriod period, int step) {
+		int completedSteps = Math.min(step + 1, numSteps);
+		
+		//Daily periods are considered for backward compatibility.
+		if(period==TimePeriod.WEEKLY || period==TimePeriod.DAILY) {
+			return completedSteps;
+		}
+		
+		int weeksPerSalesPeriod = calculateWeeksPerPeriod(period);
+		if(completedSteps == numSteps) {
+			// The last period may be shorter.
+			int totalWeeks = numSteps / stepsForWeek;
+			int periods = totalWeeks / weeksPerSalesPeriod;
+			return totalWeeks % weeksPerSalesPeriod != 0 ? periods + 1 : periods;
+		}
+		return completedSteps / (stepsForWeek * weeksPerSalesPeriod);
+	}
+	
 	/**
 	 * Accumulates sales for the provided segment using given period and scales 
 	 * them with the given ratio.
@@ -391,14 +417,14 @@ public class Statistics {
 			for(int a = 0; a < numAgents; a++) {
 				
 				if(recordAwareness) {
-					final boolean[] agentAwarareness = agents[a].getAwareness();
+					final Agent agent = agents[a];
 					for(int b = 0; b < numBrands; b++) {
-						if (agentAwarareness[b]) {
+						if (agent.getAwarenessOfBrand(b)) {
 							awarenessByBrandByStep[b][step]++;
 						}
 					}
 					for(int b = 0; b < numBrands; b++) {
-						if (agentAwarareness[b]) {
+						if (agent.getAwarenessOfBrand(b)) {
 							awarenessBySegByBrandByStep
 								[agents[a].segmentId][b][step]++;
 						}
@@ -407,19 +433,19 @@ public class Statistics {
 				}
 				
 				if(recordPerceptions) {
-					final double[][] agentPerceptions = agents[a].getPerceptions();
+					final Agent agent = agents[a];
 					for(int b = 0; b < numBrands; b++) {
 						for(int k = 0; k < numAtts; k++) {
 							perceptionsByAttByBrandByStep
 								[k][b][step] 
-								+= agentPerceptions[b][k];				
+								+= agent.getAttributePerceptionByBrand(b, k);				
 						}					
 					}
 					for(int b = 0; b < numBrands; b++) {
 						for(int k = 0; k < numAtts; k++) {
 							perceptionsBySegByAttByBrandByStep
-								[agents[a].segmentId][k][b][step]
-								+= agentPerceptions[b][k];	
+								[agent.segmentId][k][b][step]
+								+= agent.getAttributePerceptionByBrand(b, k);	
 						}
 					}
 				}
@@ -823,6 +849,18 @@ public class Statistics {
 		return numAtts;
 	}
 
+	public int getStepsForWeek() {
+		return stepsForWeek;
+	}
+
+	public double getAgentsRatio() {
+		return agentsRatio;
+	}
+
+	public int[] getSegmentSizes() {
+		return segmentSizes;
+	}
+
 	public double[][][] getReachByTouchpointByBrandBySegment() {
 		return reachByTouchpointByBrandBySegment;
 	}